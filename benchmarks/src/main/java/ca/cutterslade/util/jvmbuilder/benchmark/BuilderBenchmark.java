@@ -0,0 +1,76 @@
+package ca.cutterslade.util.jvmbuilder.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ca.cutterslade.util.jvmbuilder.sun.SunJvmFactory;
+import ca.cutterslade.util.jvmbuilder.sun.SunJvmFactoryBuilder;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Measures the in-process costs of configuring a launch: building a factory, resolving its command, deriving a builder
+ * from a factory and filtering the arguments inherited from this JVM.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx256m", "-XX:+UseSerialGC", "-Dbenchmark.property=value"})
+public class BuilderBenchmark {
+  private static final String[] ARGUMENTS = {"argument"};
+
+  private SunJvmFactory factory;
+  private ExposedFactory exposed;
+
+  @Setup
+  public void setUp() {
+    factory = newBuilder().build();
+    exposed = new ExposedFactory(newBuilder());
+  }
+
+  private static SunJvmFactoryBuilder newBuilder() {
+    return new SunJvmFactoryBuilder().setMainClass(HelloMain.class).inheritEnvironment().build();
+  }
+
+  @Benchmark
+  public SunJvmFactory build() {
+    return newBuilder().build();
+  }
+
+  @Benchmark
+  public ImmutableList<String> getCommand() {
+    return exposed.command(ARGUMENTS);
+  }
+
+  @Benchmark
+  public ImmutableList<String> buildAndGetCommand() {
+    return new ExposedFactory(newBuilder()).command(ARGUMENTS);
+  }
+
+  @Benchmark
+  public SunJvmFactoryBuilder from() {
+    return new SunJvmFactoryBuilder().from(factory);
+  }
+
+  @Benchmark
+  public ImmutableList<String> inheritedArguments() {
+    return exposed.inheritedArguments();
+  }
+
+  @Benchmark
+  public ImmutableList<String> inheritedProperties() {
+    return exposed.inheritedProperties();
+  }
+}
@@ -0,0 +1,73 @@
+package ca.cutterslade.util.jvmbuilder.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ca.cutterslade.util.jvmbuilder.sun.SunJvmFactory;
+import ca.cutterslade.util.jvmbuilder.sun.SunJvmFactoryBuilder;
+
+/**
+ * Measures the work done in the parent for each launch, up to but excluding the fork itself. Run with
+ * {@code -prof gc} to see the allocation per launch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx256m", "-Dbenchmark.property=value"})
+public class CommandBenchmark {
+  private Blackhole blackhole;
+  private NoExecFactory inheriting;
+  private NoExecFactory explicit;
+
+  @Setup
+  public void setUp(final Blackhole blackhole) {
+    this.blackhole = blackhole;
+    inheriting = new NoExecFactory(new SunJvmFactoryBuilder().setMainClass(CommandBenchmark.class)
+        .inheritEnvironment().build(), blackhole);
+    explicit = new NoExecFactory(new SunJvmFactoryBuilder().setMainClass(CommandBenchmark.class)
+        .cleanJvmArguments().addArguments("-XX:+UseSerialGC").build()
+        .cleanProperties().set("benchmark.property", "value").build(), blackhole);
+  }
+
+  @Benchmark
+  public void launchInheriting() throws IOException {
+    inheriting.start("argument");
+  }
+
+  @Benchmark
+  public void launchExplicit() throws IOException {
+    explicit.start("argument");
+  }
+
+  static final class NoExecFactory extends SunJvmFactory {
+    private final Blackhole blackhole;
+
+    NoExecFactory(final SunJvmFactoryBuilder builder, final Blackhole blackhole) {
+      super(builder);
+      this.blackhole = blackhole;
+    }
+
+    @Override
+    protected Process exec(final String[] command, final String[] environment, final File workingDirectory) {
+      blackhole.consume(command);
+      blackhole.consume(environment);
+      blackhole.consume(workingDirectory);
+      return null;
+    }
+  }
+}
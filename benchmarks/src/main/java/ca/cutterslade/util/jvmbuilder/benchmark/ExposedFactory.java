@@ -0,0 +1,27 @@
+package ca.cutterslade.util.jvmbuilder.benchmark;
+
+import ca.cutterslade.util.jvmbuilder.sun.SunJvmFactory;
+import ca.cutterslade.util.jvmbuilder.sun.SunJvmFactoryBuilder;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Exposes the protected parts of the launch path which the in-process benchmarks measure.
+ */
+final class ExposedFactory extends SunJvmFactory {
+  ExposedFactory(final SunJvmFactoryBuilder builder) {
+    super(builder);
+  }
+
+  ImmutableList<String> command(final String[] args) {
+    return getCommand(args);
+  }
+
+  ImmutableList<String> inheritedArguments() {
+    return ImmutableList.copyOf(getCurrentJvmArguments());
+  }
+
+  ImmutableList<String> inheritedProperties() {
+    return ImmutableList.copyOf(getCurrentPropertiesArguments());
+  }
+}
@@ -0,0 +1,13 @@
+package ca.cutterslade.util.jvmbuilder.benchmark;
+
+/**
+ * The trivial program launched by the end-to-end benchmarks.
+ */
+public final class HelloMain {
+  private HelloMain() {
+  }
+
+  public static void main(final String[] args) {
+    System.out.println("hello");
+  }
+}
@@ -0,0 +1,113 @@
+package ca.cutterslade.util.jvmbuilder.benchmark;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ca.cutterslade.util.jvmbuilder.JvmFactory;
+import ca.cutterslade.util.jvmbuilder.sun.SunJvmFactoryBuilder;
+
+/**
+ * Measures launching a trivial program end to end under different option sets: until the exec returns, until the
+ * first byte of output arrives and until the child has exited.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LaunchBenchmark {
+  /**
+   * {@code inherit} passes on this JVM's own options, {@code minimal} uses only options which shorten startup and
+   * {@code cds} adds a class data sharing archive, which needs Java 13 or newer to have an effect.
+   */
+  @Param({"inherit", "minimal", "cds"})
+  public String options;
+
+  private JvmFactory<?> factory;
+  private Path archives;
+  private Process process;
+
+  @Setup
+  public void setUp() throws IOException {
+    final SunJvmFactoryBuilder builder = new SunJvmFactoryBuilder().setMainClass(HelloMain.class);
+    switch (options) {
+      case "inherit":
+        break;
+      case "minimal":
+        builder.cleanJvmArguments()
+            .addArguments("-XX:TieredStopAtLevel=1", "-XX:+UseSerialGC", "-Xshare:auto").build();
+        break;
+      case "cds":
+        archives = Files.createTempDirectory("benchmark-cds");
+        builder.setSharedArchiveDirectory(archives);
+        break;
+      default:
+        throw new IllegalArgumentException(options);
+    }
+    factory = builder.build();
+  }
+
+  @TearDown(Level.Invocation)
+  public void waitForExit() throws IOException, InterruptedException {
+    if (null != process) {
+      drain(process);
+      process.waitFor();
+      process = null;
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    if (null != archives) {
+      try (DirectoryStream<Path> files = Files.newDirectoryStream(archives)) {
+        for (final Path file : files) {
+          Files.deleteIfExists(file);
+        }
+      }
+      Files.deleteIfExists(archives);
+    }
+  }
+
+  @Benchmark
+  public Process timeToExec() throws IOException {
+    process = factory.start();
+    return process;
+  }
+
+  @Benchmark
+  public int timeToFirstByte() throws IOException {
+    process = factory.start();
+    return process.getInputStream().read();
+  }
+
+  @Benchmark
+  public int timeToExit() throws IOException, InterruptedException {
+    final Process started = factory.start();
+    drain(started);
+    return started.waitFor();
+  }
+
+  private static void drain(final Process process) throws IOException {
+    while (-1 != process.getInputStream().read()) {
+      // The output is a single line, drain it so the child can exit
+    }
+  }
+}
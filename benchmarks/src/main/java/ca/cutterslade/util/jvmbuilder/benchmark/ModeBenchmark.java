@@ -0,0 +1,97 @@
+package ca.cutterslade.util.jvmbuilder.benchmark;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ca.cutterslade.util.jvmbuilder.JvmFactory;
+import ca.cutterslade.util.jvmbuilder.daemon.JvmDaemon;
+import ca.cutterslade.util.jvmbuilder.pool.JvmPoolBuilder;
+import ca.cutterslade.util.jvmbuilder.sun.SunJvmFactory;
+import ca.cutterslade.util.jvmbuilder.sun.SunJvmFactoryBuilder;
+
+/**
+ * Compares starting a JVM for each launch with handing the launch to a pool of parked JVMs and with running it in a
+ * daemon JVM. A pool which cannot refill as fast as the benchmark launches falls back to direct launches, which shows
+ * up as a bimodal sample distribution.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ModeBenchmark {
+  @Param({"direct", "pool", "daemon"})
+  public String mode;
+
+  private JvmFactory<?> factory;
+  private Process process;
+
+  @Setup
+  public void setUp() {
+    final SunJvmFactory direct = new SunJvmFactoryBuilder().setMainClass(HelloMain.class).build();
+    switch (mode) {
+      case "direct":
+        factory = direct;
+        break;
+      case "pool":
+        factory = new JvmPoolBuilder<>(direct).setMinIdle(2).setMaxIdle(8).build();
+        break;
+      case "daemon":
+        factory = new JvmDaemon<>(direct);
+        break;
+      default:
+        throw new IllegalArgumentException(mode);
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    if (factory instanceof Closeable) {
+      ((Closeable) factory).close();
+    }
+  }
+
+  @TearDown(Level.Invocation)
+  public void waitForExit() throws IOException, InterruptedException {
+    if (null != process) {
+      drain(process);
+      process.waitFor();
+      process = null;
+    }
+  }
+
+  @Benchmark
+  public int timeToFirstByte() throws IOException {
+    process = factory.start();
+    return process.getInputStream().read();
+  }
+
+  @Benchmark
+  public int timeToExit() throws IOException, InterruptedException {
+    final Process started = factory.start();
+    drain(started);
+    return started.waitFor();
+  }
+
+  private static void drain(final Process process) throws IOException {
+    while (-1 != process.getInputStream().read()) {
+      // The output is a single line, drain it so the child can exit
+    }
+  }
+}
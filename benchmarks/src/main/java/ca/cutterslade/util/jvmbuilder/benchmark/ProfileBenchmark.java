@@ -0,0 +1,101 @@
+package ca.cutterslade.util.jvmbuilder.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.io.CharStreams;
+
+import ca.cutterslade.util.jvmbuilder.LaunchProfile;
+import ca.cutterslade.util.jvmbuilder.sun.SunJvmFactory;
+import ca.cutterslade.util.jvmbuilder.sun.SunJvmFactoryBuilder;
+
+/**
+ * Compares the launch profiles with a JVM started with default options: time to run a trivial program to exit, and
+ * time to run a fixed allocation heavy workload. The workload reports the peak resident set size of each child, whose
+ * mean and maximum are printed when each trial ends.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProfileBenchmark {
+  @Param({"none", "STARTUP", "FOOTPRINT", "THROUGHPUT"})
+  public String profile;
+
+  private SunJvmFactory hello;
+  private SunJvmFactory workload;
+  private long residentTotal;
+  private long residentMax;
+  private int residentCount;
+
+  @Setup
+  public void setUp() {
+    final SunJvmFactoryBuilder builder = new SunJvmFactoryBuilder();
+    if (!"none".equals(profile)) {
+      builder.setLaunchProfile(LaunchProfile.valueOf(profile));
+    }
+    hello = builder.setMainClass(HelloMain.class).build();
+    workload = hello.with().setMainClass(WorkloadMain.class.getName()).build();
+  }
+
+  @TearDown
+  public void tearDown() {
+    if (0 < residentCount) {
+      System.out.printf("%n%s peak resident set: mean %d kB, max %d kB over %d launches%n",
+          profile, residentTotal / residentCount, residentMax, residentCount);
+    }
+  }
+
+  @Benchmark
+  public int timeToExit() throws IOException, InterruptedException {
+    final Process started = hello.start();
+    while (-1 != started.getInputStream().read()) {
+      // The output is a single line, drain it so the child can exit
+    }
+    return started.waitFor();
+  }
+
+  @Benchmark
+  public int workload() throws IOException, InterruptedException {
+    final Process started = workload.start();
+    final String line;
+    try (BufferedReader reader =
+        new BufferedReader(new InputStreamReader(started.getInputStream(), StandardCharsets.US_ASCII))) {
+      line = reader.readLine();
+    }
+    if (null == line) {
+      final String stdErr;
+      try (InputStreamReader reader = new InputStreamReader(started.getErrorStream(), StandardCharsets.UTF_8)) {
+        stdErr = CharStreams.toString(reader);
+      }
+      throw new IllegalStateException(
+          String.format("Workload printed nothing and exited with %d: %s", started.waitFor(), stdErr));
+    }
+    final int exitValue = started.waitFor();
+    final long resident = Long.parseLong(line.trim());
+    if (0 < resident) {
+      residentTotal += resident;
+      residentMax = Math.max(residentMax, resident);
+      residentCount++;
+    }
+    return exitValue;
+  }
+}
@@ -0,0 +1,49 @@
+package ca.cutterslade.util.jvmbuilder.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The allocation and compute bound program launched by the profile benchmark. It sorts a fixed number of batches of
+ * boxed values, then prints the peak resident set size of its process in kilobytes.
+ */
+public final class WorkloadMain {
+  private static final int BATCHES = 50;
+  private static final int BATCH_SIZE = 50_000;
+  private static final String PEAK_RESIDENT = "VmHWM:";
+
+  private WorkloadMain() {
+  }
+
+  public static void main(final String[] args) throws IOException {
+    final Random random = new Random(42);
+    long checksum = 0;
+    for (int batch = 0; batch < BATCHES; batch++) {
+      final List<Long> values = new ArrayList<>(BATCH_SIZE);
+      for (int i = 0; i < BATCH_SIZE; i++) {
+        values.add(random.nextLong());
+      }
+      Collections.sort(values);
+      checksum += values.get(batch);
+    }
+    if (0 == checksum) {
+      System.err.println("unlikely checksum");
+    }
+    System.out.println(getPeakResidentKilobytes());
+  }
+
+  private static long getPeakResidentKilobytes() throws IOException {
+    for (final String line : Files.readAllLines(Paths.get("/proc/self/status"), StandardCharsets.US_ASCII)) {
+      if (line.startsWith(PEAK_RESIDENT)) {
+        return Long.parseLong(line.substring(PEAK_RESIDENT.length()).replace("kB", "").trim());
+      }
+    }
+    return -1;
+  }
+}
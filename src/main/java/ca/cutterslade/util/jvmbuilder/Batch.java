@@ -0,0 +1,28 @@
+package ca.cutterslade.util.jvmbuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * A running batch of launches. Results can be taken as each launch completes, in the manner of a
+ * {@link java.util.concurrent.CompletionService}, or all at once in the order the argument sets were given. Every
+ * argument set produces exactly one result, including those cancelled before they were launched.
+ */
+@ThreadSafe
+public interface Batch {
+  int size();
+
+  BatchResult take() throws InterruptedException;
+
+  @Nullable
+  BatchResult poll(long timeout, TimeUnit unit) throws InterruptedException;
+
+  ListenableFuture<List<BatchResult>> getResults();
+
+  void cancel();
+}
@@ -0,0 +1,21 @@
+package ca.cutterslade.util.jvmbuilder;
+
+import java.nio.charset.Charset;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+@NotThreadSafe
+public interface BatchBuilder {
+  BatchBuilder setParallelism(int parallelism);
+
+  BatchBuilder setPolicy(BatchPolicy policy);
+
+  /**
+   * The number of bytes of each output stream kept in a result, any more is dropped. Zero discards output entirely.
+   */
+  BatchBuilder setOutputLimit(int bytes);
+
+  BatchBuilder setCharset(Charset charset);
+
+  Batch start();
+}
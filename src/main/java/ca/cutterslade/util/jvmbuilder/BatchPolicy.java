@@ -0,0 +1,15 @@
+package ca.cutterslade.util.jvmbuilder;
+
+import javax.annotation.concurrent.Immutable;
+
+@Immutable
+public enum BatchPolicy {
+  /**
+   * Stop launching, and destroy the running JVMs, after the first launch failure or non-zero exit value.
+   */
+  FAIL_FAST,
+  /**
+   * Launch every argument set whatever the outcome of the others.
+   */
+  COLLECT_ALL
+}
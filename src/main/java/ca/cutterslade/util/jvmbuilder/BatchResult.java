@@ -0,0 +1,79 @@
+package ca.cutterslade.util.jvmbuilder;
+
+import java.util.concurrent.CancellationException;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+
+@Immutable
+public final class BatchResult {
+  private final int index;
+  private final ImmutableList<String> arguments;
+  private final Integer exitValue;
+  private final String stdOut;
+  private final String stdErr;
+  private final LaunchTimings timings;
+  private final Throwable failure;
+
+  public BatchResult(final int index, final ImmutableList<String> arguments, @Nullable final Integer exitValue,
+      final String stdOut, final String stdErr, @Nullable final LaunchTimings timings,
+      @Nullable final Throwable failure) {
+    this.index = index;
+    this.arguments = arguments;
+    this.exitValue = exitValue;
+    this.stdOut = stdOut;
+    this.stdErr = stdErr;
+    this.timings = timings;
+    this.failure = failure;
+  }
+
+  public int getIndex() {
+    return index;
+  }
+
+  public ImmutableList<String> getArguments() {
+    return arguments;
+  }
+
+  public Optional<Integer> getExitValue() {
+    return Optional.fromNullable(exitValue);
+  }
+
+  public String getStdOut() {
+    return stdOut;
+  }
+
+  public String getStdErr() {
+    return stdErr;
+  }
+
+  public Optional<LaunchTimings> getTimings() {
+    return Optional.fromNullable(timings);
+  }
+
+  public Optional<Throwable> getFailure() {
+    return Optional.fromNullable(failure);
+  }
+
+  public boolean isSuccess() {
+    return null == failure && null != exitValue && 0 == exitValue;
+  }
+
+  public boolean isCancelled() {
+    return failure instanceof CancellationException;
+  }
+
+  @Override
+  public String toString() {
+    return "BatchResult{" +
+        "index=" + index +
+        ", arguments=" + arguments +
+        ", exitValue=" + exitValue +
+        ", timings=" + timings +
+        ", failure=" + failure +
+        '}';
+  }
+}
@@ -17,5 +17,7 @@ public interface ClassPathBuilder<T extends JvmFactoryBuilder<T>> {
 
   ClassPathBuilder<T> addEntry(URI classPath);
 
+  ClassPathBuilder<T> usePathingJar(Path directory);
+
   JvmFactoryBuilder<T> build();
 }
@@ -6,7 +6,13 @@ import javax.annotation.concurrent.Immutable;
 
 @Immutable
 public enum Component {
-  CLASS, GC, JNI;
+  CLASS,
+  /**
+   * Prints unstructured GC text on the output of the child; see {@link JvmFactoryBuilder#enableGcLogCapture()} for
+   * parsed GC events.
+   */
+  GC,
+  JNI;
 
   private final String argument = "-verbose:" + name().toLowerCase(Locale.US);
 
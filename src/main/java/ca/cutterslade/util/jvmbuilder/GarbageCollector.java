@@ -0,0 +1,88 @@
+package ca.cutterslade.util.jvmbuilder;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * The garbage collectors a launched JVM can be told to use, with the Java releases which provide them.
+ */
+@Immutable
+public enum GarbageCollector {
+  SERIAL("-XX:+UseSerialGC", 1, Integer.MAX_VALUE, 0, Knobs.NONE),
+  PARALLEL("-XX:+UseParallelGC", 1, Integer.MAX_VALUE, 0, Knobs.PAUSE_TARGET | Knobs.PARALLEL_THREADS),
+  G1("-XX:+UseG1GC", 7, Integer.MAX_VALUE, 0,
+      Knobs.PAUSE_TARGET | Knobs.REGION_SIZE | Knobs.PARALLEL_THREADS | Knobs.CONCURRENT_THREADS),
+  /**
+   * The single generation ZGC, which was experimental before Java 15 and removed in Java 24.
+   */
+  Z("-XX:+UseZGC", 11, 23, 15, Knobs.PARALLEL_THREADS | Knobs.CONCURRENT_THREADS | Knobs.SOFT_MAX_HEAP),
+  /**
+   * The generational ZGC, which is the only ZGC from Java 24.
+   */
+  GENERATIONAL_Z("-XX:+UseZGC", 21, Integer.MAX_VALUE, 0,
+      Knobs.PARALLEL_THREADS | Knobs.CONCURRENT_THREADS | Knobs.SOFT_MAX_HEAP),
+  /**
+   * Shenandoah, which was experimental before Java 15 and is left out of Oracle's builds.
+   */
+  SHENANDOAH("-XX:+UseShenandoahGC", 12, Integer.MAX_VALUE, 15,
+      Knobs.PARALLEL_THREADS | Knobs.CONCURRENT_THREADS | Knobs.SOFT_MAX_HEAP),
+  /**
+   * The no-op collector, which never reclaims memory; always experimental.
+   */
+  EPSILON("-XX:+UseEpsilonGC", 11, Integer.MAX_VALUE, Integer.MAX_VALUE, Knobs.NONE);
+
+  private final String argument;
+  private final int firstRelease;
+  private final int lastRelease;
+  private final int productRelease;
+  private final int knobs;
+
+  GarbageCollector(final String argument, final int firstRelease, final int lastRelease, final int productRelease,
+      final int knobs) {
+    this.argument = argument;
+    this.firstRelease = firstRelease;
+    this.lastRelease = lastRelease;
+    this.productRelease = productRelease;
+    this.knobs = knobs;
+  }
+
+  public String getArgument() {
+    return argument;
+  }
+
+  /**
+   * Whether the collector can be selected in a JVM of the given feature release and implementor.
+   */
+  public boolean isAvailable(final int featureRelease, @Nullable final String implementor) {
+    return firstRelease <= featureRelease && lastRelease >= featureRelease &&
+        !(SHENANDOAH == this && null != implementor && implementor.startsWith("Oracle"));
+  }
+
+  public boolean isExperimental(final int featureRelease) {
+    return productRelease > featureRelease;
+  }
+
+  int getFirstRelease() {
+    return firstRelease;
+  }
+
+  int getLastRelease() {
+    return lastRelease;
+  }
+
+  boolean supports(final int knob) {
+    return 0 != (knobs & knob);
+  }
+
+  static final class Knobs {
+    static final int NONE = 0;
+    static final int PAUSE_TARGET = 1;
+    static final int REGION_SIZE = 1 << 1;
+    static final int PARALLEL_THREADS = 1 << 2;
+    static final int CONCURRENT_THREADS = 1 << 3;
+    static final int SOFT_MAX_HEAP = 1 << 4;
+
+    private Knobs() {
+    }
+  }
+}
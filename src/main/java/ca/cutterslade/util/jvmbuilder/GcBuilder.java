@@ -0,0 +1,25 @@
+package ca.cutterslade.util.jvmbuilder;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Tunes the garbage collector chosen by {@link JvmFactoryBuilder#garbageCollector(GarbageCollector)}; setting an
+ * option the collector does not read fails with {@link IllegalArgumentException} when this is built.
+ */
+@NotThreadSafe
+public interface GcBuilder<T extends JvmFactoryBuilder<T>> {
+
+  GcBuilder<T> setPauseTarget(long duration, TimeUnit unit);
+
+  GcBuilder<T> setRegionSize(long size, SizeUnit unit);
+
+  GcBuilder<T> setParallelThreads(int threads);
+
+  GcBuilder<T> setConcurrentThreads(int threads);
+
+  GcBuilder<T> setSoftMaxHeap(long size, SizeUnit unit);
+
+  T build();
+}
@@ -0,0 +1,95 @@
+package ca.cutterslade.util.jvmbuilder;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.google.common.base.Optional;
+
+/**
+ * One garbage collection pause read from a child's GC log.
+ */
+@Immutable
+public final class GcEvent {
+  private final long uptimeMillis;
+  private final int gcId;
+  private final String type;
+  private final String cause;
+  private final long durationMicros;
+  private final long heapBefore;
+  private final long heapAfter;
+  private final long heapCapacity;
+
+  /**
+   * @param type the pause, such as {@code Pause Young (Normal)}
+   * @param cause what triggered the collection, if the collector logs it with the pause
+   * @param heapBefore the heap in use before the pause, negative if the collector does not log it with the pause; the
+   * heap after and capacity likewise
+   */
+  public GcEvent(final long uptimeMillis, final int gcId, final String type, @Nullable final String cause,
+      final long durationMicros, final long heapBefore, final long heapAfter, final long heapCapacity) {
+    this.uptimeMillis = uptimeMillis;
+    this.gcId = gcId;
+    this.type = type;
+    this.cause = cause;
+    this.durationMicros = durationMicros;
+    this.heapBefore = heapBefore;
+    this.heapAfter = heapAfter;
+    this.heapCapacity = heapCapacity;
+  }
+
+  /**
+   * The uptime of the child when the pause ended.
+   */
+  public long getUptimeMillis() {
+    return uptimeMillis;
+  }
+
+  /**
+   * The collection the pause belongs to; a concurrent collection may pause several times.
+   */
+  public int getGcId() {
+    return gcId;
+  }
+
+  public String getType() {
+    return type;
+  }
+
+  public Optional<String> getCause() {
+    return Optional.fromNullable(cause);
+  }
+
+  public long getDurationMicros() {
+    return durationMicros;
+  }
+
+  public boolean hasHeapSizes() {
+    return 0 <= heapBefore;
+  }
+
+  public long getHeapBefore() {
+    return heapBefore;
+  }
+
+  public long getHeapAfter() {
+    return heapAfter;
+  }
+
+  public long getHeapCapacity() {
+    return heapCapacity;
+  }
+
+  @Override
+  public String toString() {
+    return "GcEvent{" +
+        "uptimeMillis=" + uptimeMillis +
+        ", gcId=" + gcId +
+        ", type='" + type + '\'' +
+        ", cause='" + cause + '\'' +
+        ", durationMicros=" + durationMicros +
+        ", heapBefore=" + heapBefore +
+        ", heapAfter=" + heapAfter +
+        ", heapCapacity=" + heapCapacity +
+        '}';
+  }
+}
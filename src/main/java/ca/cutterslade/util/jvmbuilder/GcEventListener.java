@@ -0,0 +1,9 @@
+package ca.cutterslade.util.jvmbuilder;
+
+/**
+ * Receives the pauses read from a child's GC log, in order, on the thread which tails the log. A slow listener delays
+ * the events of every captured child, so work should be handed off rather than done here.
+ */
+public interface GcEventListener {
+  void event(GcEvent event);
+}
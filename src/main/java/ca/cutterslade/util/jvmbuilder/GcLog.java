@@ -0,0 +1,22 @@
+package ca.cutterslade.util.jvmbuilder;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * The GC log of a child started with GC log capture, which the parent tails until the child exits.
+ */
+@ThreadSafe
+public interface GcLog {
+  /**
+   * Adds a listener, which is first given the retained recent events and then each event as it is read.
+   */
+  void addListener(GcEventListener listener);
+
+  void removeListener(GcEventListener listener);
+
+  /**
+   * Statistics over the retained recent pauses, reflecting every pause logged once the exit value of the child is
+   * available.
+   */
+  GcPauseStatistics getStatistics();
+}
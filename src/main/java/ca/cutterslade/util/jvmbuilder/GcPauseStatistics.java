@@ -0,0 +1,113 @@
+package ca.cutterslade.util.jvmbuilder;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javax.annotation.concurrent.Immutable;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Pause statistics over a window of the most recent GC events of one child.
+ */
+@Immutable
+public final class GcPauseStatistics {
+  private final long totalCount;
+  private final long[] sortedDurations;
+  private final double allocationRate;
+
+  private GcPauseStatistics(final long totalCount, final long[] sortedDurations, final double allocationRate) {
+    this.totalCount = totalCount;
+    this.sortedDurations = sortedDurations;
+    this.allocationRate = allocationRate;
+  }
+
+  /**
+   * @param totalCount the number of pauses seen, including those which have left the window
+   * @param window the most recent events, oldest first
+   */
+  public static GcPauseStatistics of(final long totalCount, final List<GcEvent> window) {
+    Preconditions.checkArgument(totalCount >= window.size());
+    final long[] durations = new long[window.size()];
+    long allocated = 0;
+    GcEvent previous = null;
+    GcEvent first = null;
+    for (int i = 0; i < durations.length; i++) {
+      final GcEvent event = window.get(i);
+      durations[i] = event.getDurationMicros();
+      if (event.hasHeapSizes()) {
+        if (null != previous) {
+          // whatever the heap grew by between two collections was allocated in between
+          allocated += Math.max(0, event.getHeapBefore() - previous.getHeapAfter());
+        }
+        else {
+          first = event;
+        }
+        previous = event;
+      }
+    }
+    Arrays.sort(durations);
+    final long elapsed = null == first ? 0 : previous.getUptimeMillis() - first.getUptimeMillis();
+    return new GcPauseStatistics(totalCount, durations, 0 < elapsed ? allocated * 1000d / elapsed : 0);
+  }
+
+  public long getTotalCount() {
+    return totalCount;
+  }
+
+  public int getWindowCount() {
+    return sortedDurations.length;
+  }
+
+  public long getWindowPauseMicros() {
+    long total = 0;
+    for (final long duration : sortedDurations) {
+      total += duration;
+    }
+    return total;
+  }
+
+  /**
+   * The pause duration at the given percentile of the window, by the nearest rank, or 0 for an empty window.
+   */
+  public long getPercentileMicros(final double percentile) {
+    Preconditions.checkArgument(0 <= percentile && 100 >= percentile);
+    if (0 == sortedDurations.length) {
+      return 0;
+    }
+    final int rank = (int) Math.ceil(percentile / 100 * sortedDurations.length);
+    return sortedDurations[Math.max(0, rank - 1)];
+  }
+
+  public long getMedianMicros() {
+    return getPercentileMicros(50);
+  }
+
+  public long getP99Micros() {
+    return getPercentileMicros(99);
+  }
+
+  public long getMaxMicros() {
+    return getPercentileMicros(100);
+  }
+
+  /**
+   * The rate the child allocated at across the window, in bytes per second, from the growth of its heap between
+   * collections; 0 if fewer than two pauses in the window logged heap sizes.
+   */
+  public double getAllocationRate() {
+    return allocationRate;
+  }
+
+  @Override
+  public String toString() {
+    return "GcPauseStatistics{" +
+        "totalCount=" + totalCount +
+        ", windowCount=" + sortedDurations.length +
+        ", medianMicros=" + getMedianMicros() +
+        ", p99Micros=" + getP99Micros() +
+        ", maxMicros=" + getMaxMicros() +
+        ", allocationRate=" + allocationRate +
+        '}';
+  }
+}
@@ -0,0 +1,145 @@
+package ca.cutterslade.util.jvmbuilder;
+
+import java.util.List;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * A garbage collector and the tuning options given with it. Options a collector does not read are rejected when the
+ * settings are created; whether the target JVM provides the collector is checked by {@link #validate(int, String)}.
+ */
+@Immutable
+public final class GcSettings {
+  private static final long MIN_REGION_SIZE = SizeUnit.MEGABYTES.toBytes(1);
+  private static final long MAX_REGION_SIZE = SizeUnit.MEGABYTES.toBytes(32);
+  // G1 regions may be up to 512m from Java 18
+  private static final long MAX_LARGE_REGION_SIZE = SizeUnit.MEGABYTES.toBytes(512);
+
+  private final GarbageCollector collector;
+  private final long pauseTargetMillis;
+  private final long regionSize;
+  private final int parallelThreads;
+  private final int concurrentThreads;
+  private final long softMaxHeap;
+
+  /**
+   * @param pauseTargetMillis the pause time goal, or 0 for the collector's default; the sizes and thread counts
+   * likewise use 0 for the default
+   */
+  public GcSettings(final GarbageCollector collector, final long pauseTargetMillis, final long regionSize,
+      final int parallelThreads, final int concurrentThreads, final long softMaxHeap) {
+    Preconditions.checkArgument(null != collector);
+    Preconditions.checkArgument(0 <= pauseTargetMillis && 0 <= regionSize && 0 <= parallelThreads &&
+        0 <= concurrentThreads && 0 <= softMaxHeap);
+    checkSupported(collector, GarbageCollector.Knobs.PAUSE_TARGET, pauseTargetMillis, "a pause target");
+    checkSupported(collector, GarbageCollector.Knobs.REGION_SIZE, regionSize, "a region size");
+    checkSupported(collector, GarbageCollector.Knobs.PARALLEL_THREADS, parallelThreads, "parallel threads");
+    checkSupported(collector, GarbageCollector.Knobs.CONCURRENT_THREADS, concurrentThreads, "concurrent threads");
+    checkSupported(collector, GarbageCollector.Knobs.SOFT_MAX_HEAP, softMaxHeap, "a soft maximum heap");
+    Preconditions.checkArgument(0 == regionSize || 0 == (regionSize & regionSize - 1) &&
+        MIN_REGION_SIZE <= regionSize && MAX_LARGE_REGION_SIZE >= regionSize,
+        "Region size must be a power of two from 1m to 512m");
+    this.collector = collector;
+    this.pauseTargetMillis = pauseTargetMillis;
+    this.regionSize = regionSize;
+    this.parallelThreads = parallelThreads;
+    this.concurrentThreads = concurrentThreads;
+    this.softMaxHeap = softMaxHeap;
+  }
+
+  private static void checkSupported(final GarbageCollector collector, final int knob, final long value,
+      final String name) {
+    Preconditions.checkArgument(0 == value || collector.supports(knob), "%s does not take %s", collector, name);
+  }
+
+  public GarbageCollector getCollector() {
+    return collector;
+  }
+
+  /**
+   * Lists what stops a JVM of the given feature release and implementor from running with these settings; an empty
+   * list means it can.
+   */
+  public ImmutableList<String> validate(final int featureRelease, @Nullable final String implementor) {
+    final ImmutableList.Builder<String> problems = ImmutableList.builder();
+    if (!collector.isAvailable(featureRelease, implementor)) {
+      problems.add(collector.getFirstRelease() > featureRelease ?
+          collector + " requires Java " + collector.getFirstRelease() :
+          collector.getLastRelease() < featureRelease ?
+              collector + " was removed after Java " + collector.getLastRelease() :
+              collector + " is not included in builds by " + implementor);
+    }
+    if (MAX_REGION_SIZE < regionSize && 18 > featureRelease) {
+      problems.add("Region sizes over 32m require Java 18");
+    }
+    if (0 < softMaxHeap && 13 > featureRelease) {
+      problems.add("A soft maximum heap requires Java 13");
+    }
+    return problems.build();
+  }
+
+  public ImmutableList<String> getArguments(final int featureRelease) {
+    final ImmutableList.Builder<String> arguments = ImmutableList.builder();
+    if (collector.isExperimental(featureRelease)) {
+      arguments.add("-XX:+UnlockExperimentalVMOptions");
+    }
+    arguments.add(collector.getArgument());
+    // ZGC became generational by default in Java 23, and only generational in Java 24
+    if (GarbageCollector.GENERATIONAL_Z == collector && 23 > featureRelease) {
+      arguments.add("-XX:+ZGenerational");
+    }
+    else if (GarbageCollector.Z == collector && 23 == featureRelease) {
+      arguments.add("-XX:-ZGenerational");
+    }
+    if (0 < pauseTargetMillis) {
+      arguments.add("-XX:MaxGCPauseMillis=" + pauseTargetMillis);
+    }
+    if (0 < regionSize) {
+      arguments.add("-XX:G1HeapRegionSize=" + regionSize);
+    }
+    if (0 < parallelThreads) {
+      arguments.add("-XX:ParallelGCThreads=" + parallelThreads);
+    }
+    if (0 < concurrentThreads) {
+      arguments.add("-XX:ConcGCThreads=" + concurrentThreads);
+    }
+    if (0 < softMaxHeap) {
+      arguments.add("-XX:SoftMaxHeapSize=" + softMaxHeap);
+    }
+    return arguments.build();
+  }
+
+  @Override
+  public boolean equals(final Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    final GcSettings that = (GcSettings) o;
+    return collector == that.collector && pauseTargetMillis == that.pauseTargetMillis &&
+        regionSize == that.regionSize && parallelThreads == that.parallelThreads &&
+        concurrentThreads == that.concurrentThreads && softMaxHeap == that.softMaxHeap;
+  }
+
+  @Override
+  public int hashCode() {
+    int result = collector.hashCode();
+    result = 31 * result + (int) (pauseTargetMillis ^ (pauseTargetMillis >>> 32));
+    result = 31 * result + (int) (regionSize ^ (regionSize >>> 32));
+    result = 31 * result + parallelThreads;
+    result = 31 * result + concurrentThreads;
+    result = 31 * result + (int) (softMaxHeap ^ (softMaxHeap >>> 32));
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return "GcSettings" + getArguments(Integer.MAX_VALUE);
+  }
+}
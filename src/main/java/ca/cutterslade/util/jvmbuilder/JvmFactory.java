@@ -4,9 +4,17 @@ import java.io.IOException;
 
 import javax.annotation.concurrent.Immutable;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
 @Immutable
 public interface JvmFactory<T extends JvmFactoryBuilder<T>> {
   T clearProgram();
 
   Process start(String... args) throws IOException;
+
+  ListenableFuture<JvmProcess> startAsync(String... args);
+
+  ListenableFuture<JvmProcess> startAsync(OutputSink stdOut, OutputSink stdErr, String... args);
+
+  BatchBuilder batch(Iterable<String[]> arguments);
 }
@@ -4,9 +4,14 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 import javax.annotation.concurrent.NotThreadSafe;
 
+import ca.cutterslade.util.jvmbuilder.jdk.JdkRegistry;
+import ca.cutterslade.util.jvmbuilder.monitor.JvmMonitor;
+import ca.cutterslade.util.jvmbuilder.sizing.HeapAdvisor;
+
 @NotThreadSafe
 public interface JvmFactoryBuilder<T extends JvmFactoryBuilder<T>> {
   T setJavaHome(Path javaHome);
@@ -21,10 +26,24 @@ public interface JvmFactoryBuilder<T extends JvmFactoryBuilder<T>> {
 
   T require64Bit();
 
+  /**
+   * Requires a JVM of the given data model. Unless a java home is set, the factory is built with the newest JDK in its
+   * registry which meets this and any version requirement; a java home which does not meet them fails the build.
+   */
   T requireArchitecture(JvmArchitecture architecture);
 
+  /**
+   * Requires a JVM release, written as for the old {@code -version:} option, such as {@code 21+}; it is met as
+   * {@link #requireArchitecture(JvmArchitecture)} is.
+   */
   T requireVersion(String release);
 
+  /**
+   * The registry java homes are chosen from to meet version and architecture requirements; defaults to
+   * {@link JdkRegistry#getDefault()}.
+   */
+  T setJdkRegistry(JdkRegistry registry);
+
   ScopeBuilder<T> enableAssertions();
 
   ScopeBuilder<T> disableAssertions();
@@ -69,11 +88,36 @@ public interface JvmFactoryBuilder<T extends JvmFactoryBuilder<T>> {
 
   T setProgramArguments(List<String> arguments);
 
-  T setMaxHeapSpace(int size, SizeUnit unit);
+  T setMaxHeapSpace(long size, SizeUnit unit);
+
+  /**
+   * Sizes the maximum heap as a percentage of the memory available to the JVM, which from Java 10 includes the memory
+   * limit of its container. Older JVMs are given a size worked out from this host's memory when the factory is built.
+   */
+  T setMaxHeapPercentage(double percentage);
+
+  /**
+   * Sizes the maximum heap, when the factory is built, to the given fraction of this host's memory, or of its cgroup
+   * memory limit where that is lower, divided evenly between the given number of JVMs.
+   */
+  T setMaxHeapShare(double fraction, int jvms);
 
-  T setInitialHeapSpace(int size, SizeUnit unit);
+  T setInitialHeapSpace(long size, SizeUnit unit);
 
-  T setStackSize(int size, SizeUnit unit);
+  T setStackSize(long size, SizeUnit unit);
+
+  /**
+   * Selects the garbage collector of the JVM. The factory fails to build if the collector is not provided by the
+   * release and implementor of its java home.
+   */
+  GcBuilder<T> garbageCollector(GarbageCollector collector);
+
+  T setGarbageCollector(GcSettings settings);
+
+  /**
+   * Tunes the JVM for startup time, footprint or throughput with the options of the given profile for its release.
+   */
+  T setLaunchProfile(LaunchProfile profile);
 
   T setMainClass(Class<?> type);
 
@@ -84,4 +128,46 @@ public interface JvmFactoryBuilder<T extends JvmFactoryBuilder<T>> {
   Process start() throws IOException;
 
   T setWorkingDirectory(Path workingDirectory);
+
+  T setSharedArchiveDirectory(Path directory);
+
+  T setArgumentFileDirectory(Path directory);
+
+  T setAsyncExecutor(Executor executor);
+
+  T enableStartupInstrumentation();
+
+  /**
+   * Has each JVM started asynchronously write its GC log to a file which the parent tails, publishing the pauses it
+   * reads through {@link JvmProcess#getGcLog()}. This requires Java 9, and unlike {@link Component#GC} leaves the
+   * output of the child alone.
+   */
+  T enableGcLogCapture();
+
+  /**
+   * Sets up an IPC channel to each JVM started asynchronously, which the child connects to with
+   * {@link ca.cutterslade.util.jvmbuilder.ipc.IpcChild#connect()} and the parent reaches through
+   * {@link JvmProcess#getIpcChannel()}. Children from Java 16 connect over a Unix domain socket, older ones over
+   * loopback TCP.
+   */
+  T enableIpc();
+
+  /**
+   * Creates a memory mapped ring of the given capacity for each JVM started asynchronously, under /dev/shm where there
+   * is one. The child produces to it after {@link ca.cutterslade.util.jvmbuilder.ipc.IpcChild#openSharedRing()} and
+   * the parent consumes from {@link JvmProcess#getSharedRing()}.
+   */
+  T setSharedRingCapacity(int capacity);
+
+  /**
+   * Watches each JVM started asynchronously with the given monitor, starting it with the options the monitor's mode
+   * requires.
+   */
+  T setMonitor(JvmMonitor monitor);
+
+  /**
+   * Records the memory footprint of each JVM started asynchronously with the given advisor, which may then size the
+   * heaps of later launches. This instruments children as {@link #enableStartupInstrumentation()} does.
+   */
+  T setHeapAdvisor(HeapAdvisor advisor);
 }
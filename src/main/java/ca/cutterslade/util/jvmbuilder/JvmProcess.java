@@ -0,0 +1,55 @@
+package ca.cutterslade.util.jvmbuilder;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import ca.cutterslade.util.jvmbuilder.ipc.IpcChannel;
+import ca.cutterslade.util.jvmbuilder.ipc.SharedRing;
+
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * A started JVM. Output passed to sinks when the JVM was started is pumped until the streams end, and the exit value
+ * future completes once the JVM has exited and its output has been delivered.
+ */
+@ThreadSafe
+public interface JvmProcess {
+  Process getProcess();
+
+  Optional<Long> getPid();
+
+  ListenableFuture<Integer> getExitValue();
+
+  LaunchTimings getTimings();
+
+  /**
+   * The startup breakdown reported by an instrumented child, present once the exit value is available if the child
+   * was started with startup instrumentation and ran its shutdown hooks.
+   */
+  Optional<StartupBreakdown> getStartupBreakdown();
+
+  /**
+   * The memory high-water marks reported by an instrumented child, present under the same conditions as the startup
+   * breakdown. Children are instrumented when started with startup instrumentation or a heap advisor.
+   */
+  Optional<MemoryFootprint> getMemoryFootprint();
+
+  /**
+   * The GC log of the child, present if it was started with GC log capture.
+   */
+  Optional<GcLog> getGcLog();
+
+  /**
+   * The parent's end of the IPC channel to the child, present if it was started with IPC. The channel connects when
+   * first used, and fails if the child exits without connecting.
+   */
+  Optional<IpcChannel> getIpcChannel();
+
+  /**
+   * The parent's side of the shared ring the child produces to, present if it was started with one. The parent is
+   * the only consumer of the ring, and may go on reading it after the child has exited.
+   */
+  Optional<SharedRing> getSharedRing();
+
+  void destroy();
+}
@@ -0,0 +1,93 @@
+package ca.cutterslade.util.jvmbuilder;
+
+import javax.annotation.concurrent.Immutable;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Sets of options tuned for one kind of child JVM, chosen with {@link JvmFactoryBuilder#setLaunchProfile}. A profile's
+ * options come ahead of the factory's own, so that any option set explicitly wins, and its collector is only used when
+ * no other collector is chosen.
+ */
+@Immutable
+public enum LaunchProfile {
+  /**
+   * For short lived children such as command line tools: compiles with C1 only, collects with the serial collector and
+   * shares archived classes between launches.
+   */
+  STARTUP(GarbageCollector.SERIAL, true),
+  /**
+   * For many small, long lived children on one host: a small heap which is given back to the system once it is no
+   * longer used, smaller thread stacks and class space, fewer compiler threads, the serial collector, and archived
+   * classes shared between children.
+   */
+  FOOTPRINT(GarbageCollector.SERIAL, true),
+  /**
+   * For batch children which run flat out: the parallel collector, with the heap touched up front and backed by
+   * transparent huge pages where the host offers them.
+   */
+  THROUGHPUT(GarbageCollector.PARALLEL, false);
+
+  private static final String FOOTPRINT_MAX_HEAP = "-Xmx64m";
+  private static final String FOOTPRINT_STACK_SIZE = "-Xss256k";
+  private static final String FOOTPRINT_CLASS_SPACE_SIZE = "-XX:CompressedClassSpaceSize=64m";
+
+  private final GarbageCollector garbageCollector;
+  private final boolean sharedArchive;
+
+  LaunchProfile(final GarbageCollector garbageCollector, final boolean sharedArchive) {
+    this.garbageCollector = garbageCollector;
+    this.sharedArchive = sharedArchive;
+  }
+
+  public GarbageCollector getGarbageCollector() {
+    return garbageCollector;
+  }
+
+  /**
+   * Whether launches share a class data archive, kept in a default directory unless the factory sets one.
+   */
+  public boolean isSharedArchive() {
+    return sharedArchive;
+  }
+
+  /**
+   * The options of this profile, other than its collector, for a JVM of the given feature release. The footprint
+   * profile leaves the maximum heap alone if it is sized otherwise, and the throughput profile only asks for huge
+   * pages if the host has them.
+   */
+  public ImmutableList<String> getArguments(final int featureRelease, final boolean heapSized,
+      final boolean hugePages) {
+    final ImmutableList.Builder<String> builder = ImmutableList.builder();
+    switch (this) {
+      case STARTUP:
+        // tiered compilation is only on by default from Java 8
+        if (8 > featureRelease) {
+          builder.add("-XX:+TieredCompilation");
+        }
+        builder.add("-XX:TieredStopAtLevel=1");
+        break;
+      case FOOTPRINT:
+        if (!heapSized) {
+          builder.add(FOOTPRINT_MAX_HEAP);
+        }
+        builder.add("-XX:MinHeapFreeRatio=10", "-XX:MaxHeapFreeRatio=30", FOOTPRINT_STACK_SIZE);
+        // the compressed class space replaced the permanent generation in Java 8
+        if (8 <= featureRelease) {
+          builder.add(FOOTPRINT_CLASS_SPACE_SIZE);
+        }
+        // tiered compilation needs a compiler thread for each of C1 and C2
+        builder.add("-XX:CICompilerCount=" + (8 <= featureRelease ? 2 : 1));
+        break;
+      case THROUGHPUT:
+        builder.add("-XX:+AlwaysPreTouch");
+        if (hugePages) {
+          builder.add("-XX:+UseTransparentHugePages");
+        }
+        break;
+      default:
+        throw new AssertionError(this);
+    }
+    return builder.build();
+  }
+}
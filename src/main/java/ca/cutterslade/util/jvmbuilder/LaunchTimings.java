@@ -0,0 +1,57 @@
+package ca.cutterslade.util.jvmbuilder;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.concurrent.Immutable;
+
+import com.google.common.base.Optional;
+
+/**
+ * How long each phase of a launch took: waiting for the launch executor, executing the process and, once they have
+ * happened, the first output and the exit of the JVM, both measured from the end of the exec.
+ */
+@Immutable
+public final class LaunchTimings {
+  private final long submitted;
+  private final long execStarted;
+  private final long execFinished;
+  private final long firstOutput;
+  private final long exited;
+
+  public LaunchTimings(final long submitted, final long execStarted, final long execFinished, final long firstOutput,
+      final long exited) {
+    this.submitted = submitted;
+    this.execStarted = execStarted;
+    this.execFinished = execFinished;
+    this.firstOutput = firstOutput;
+    this.exited = exited;
+  }
+
+  public long getQueueTime(final TimeUnit unit) {
+    return unit.convert(execStarted - submitted, TimeUnit.NANOSECONDS);
+  }
+
+  public long getExecTime(final TimeUnit unit) {
+    return unit.convert(execFinished - execStarted, TimeUnit.NANOSECONDS);
+  }
+
+  public Optional<Long> getTimeToFirstOutput(final TimeUnit unit) {
+    return 0 == firstOutput ? Optional.<Long>absent() :
+        Optional.of(unit.convert(firstOutput - execFinished, TimeUnit.NANOSECONDS));
+  }
+
+  public Optional<Long> getRunTime(final TimeUnit unit) {
+    return 0 == exited ? Optional.<Long>absent() :
+        Optional.of(unit.convert(exited - execFinished, TimeUnit.NANOSECONDS));
+  }
+
+  @Override
+  public String toString() {
+    return "LaunchTimings{" +
+        "queueMicros=" + getQueueTime(TimeUnit.MICROSECONDS) +
+        ", execMicros=" + getExecTime(TimeUnit.MICROSECONDS) +
+        ", firstOutputMicros=" + getTimeToFirstOutput(TimeUnit.MICROSECONDS).orNull() +
+        ", runMicros=" + getRunTime(TimeUnit.MICROSECONDS).orNull() +
+        '}';
+  }
+}
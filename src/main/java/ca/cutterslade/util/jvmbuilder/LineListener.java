@@ -0,0 +1,9 @@
+package ca.cutterslade.util.jvmbuilder;
+
+/**
+ * Receives the lines of a child's output, without their line terminators. The character sequence is reused for the
+ * next line, so it is only valid until this method returns; call {@code toString()} to keep it.
+ */
+public interface LineListener {
+  void line(CharSequence line);
+}
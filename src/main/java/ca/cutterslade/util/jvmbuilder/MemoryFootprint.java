@@ -0,0 +1,46 @@
+package ca.cutterslade.util.jvmbuilder;
+
+import javax.annotation.concurrent.Immutable;
+
+import com.google.common.base.Optional;
+
+/**
+ * The memory high-water marks of one instrumented launch, as reported by the startup agent when the child shut down.
+ */
+@Immutable
+public final class MemoryFootprint {
+  private final long peakHeapUsed;
+  private final long liveHeapAfterGc;
+  private final long peakRss;
+
+  /**
+   * @param liveHeapAfterGc the heap in use after the most recent collection, negative if there was none
+   * @param peakRss the peak resident set size, negative if the platform does not report it
+   */
+  public MemoryFootprint(final long peakHeapUsed, final long liveHeapAfterGc, final long peakRss) {
+    this.peakHeapUsed = peakHeapUsed;
+    this.liveHeapAfterGc = liveHeapAfterGc;
+    this.peakRss = peakRss;
+  }
+
+  public long getPeakHeapUsed() {
+    return peakHeapUsed;
+  }
+
+  public Optional<Long> getLiveHeapAfterGc() {
+    return 0 > liveHeapAfterGc ? Optional.<Long>absent() : Optional.of(liveHeapAfterGc);
+  }
+
+  public Optional<Long> getPeakRss() {
+    return 0 > peakRss ? Optional.<Long>absent() : Optional.of(peakRss);
+  }
+
+  @Override
+  public String toString() {
+    return "MemoryFootprint{" +
+        "peakHeapUsed=" + peakHeapUsed +
+        ", liveHeapAfterGc=" + liveHeapAfterGc +
+        ", peakRss=" + peakRss +
+        '}';
+  }
+}
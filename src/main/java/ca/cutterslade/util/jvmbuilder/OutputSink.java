@@ -0,0 +1,15 @@
+package ca.cutterslade.util.jvmbuilder;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Receives one output stream of a started JVM. A sink is only called from one thread at a time, and is closed when
+ * the stream ends.
+ */
+@NotThreadSafe
+public interface OutputSink extends Closeable {
+  void write(byte[] buffer, int offset, int length) throws IOException;
+}
@@ -6,20 +6,22 @@ import com.google.common.base.Preconditions;
 
 @Immutable
 public final class SizeArgument {
-  private final int size;
+  private final long size;
   private final SizeUnit unit;
   private final SizeParameter parameter;
 
-  public SizeArgument(final int size, final SizeUnit unit, final SizeParameter parameter) {
+  public SizeArgument(final long size, final SizeUnit unit, final SizeParameter parameter) {
     Preconditions.checkArgument(0 < size);
     Preconditions.checkArgument(null != unit);
     Preconditions.checkArgument(null != parameter);
+    // rejects sizes whose byte count would overflow
+    unit.toBytes(size);
     this.size = size;
     this.unit = unit;
     this.parameter = parameter;
   }
 
-  public int getSize() {
+  public long getSize() {
     return size;
   }
 
@@ -27,6 +29,10 @@ public final class SizeArgument {
     return unit;
   }
 
+  public long getBytes() {
+    return unit.toBytes(size);
+  }
+
   public String getArgument() {
     return parameter.getArg(size, unit);
   }
@@ -45,7 +51,7 @@ public final class SizeArgument {
 
   @Override
   public int hashCode() {
-    int result = size;
+    int result = (int) (size ^ (size >>> 32));
     result = 31 * result + unit.hashCode();
     result = 31 * result + parameter.hashCode();
     return result;
@@ -14,11 +14,11 @@ public enum SizeParameter {
     this.format = format;
   }
 
-  public SizeArgument asArgument(final int size, final SizeUnit unit) {
+  public SizeArgument asArgument(final long size, final SizeUnit unit) {
     return null == unit ? null : new SizeArgument(size, unit, this);
   }
 
-  String getArg(final int size, final SizeUnit unit) {
+  String getArg(final long size, final SizeUnit unit) {
     return String.format(format, size, unit.getSuffix());
   }
 }
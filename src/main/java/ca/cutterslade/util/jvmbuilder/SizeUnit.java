@@ -2,17 +2,20 @@ package ca.cutterslade.util.jvmbuilder;
 
 import javax.annotation.concurrent.Immutable;
 
+import com.google.common.base.Preconditions;
+
 @Immutable
 public enum SizeUnit {
-  BYTES("", 1),
-  KILOBYTES("k", 1024),
-  MEGABYTES("m", 1024 * 1024),
-  GIGABYTES("g", 1024 * 1024 * 1024);
+  BYTES("", 1L),
+  KILOBYTES("k", 1L << 10),
+  MEGABYTES("m", 1L << 20),
+  GIGABYTES("g", 1L << 30),
+  TERABYTES("t", 1L << 40);
 
   private final String suffix;
-  private final int bytes;
+  private final long bytes;
 
-  SizeUnit(final String suffix, final int bytes) {
+  SizeUnit(final String suffix, final long bytes) {
     this.suffix = suffix;
     this.bytes = bytes;
   }
@@ -21,15 +24,19 @@ public enum SizeUnit {
     return suffix;
   }
 
-  int toBytes(final int size) {
+  public long toBytes(final long size) {
+    Preconditions.checkArgument(Long.MAX_VALUE / bytes >= Math.abs(size), "%s%s does not fit in a long", size, suffix);
     return size * bytes;
   }
 
-  int fromBytes(final int size) {
+  /**
+   * Converts a number of bytes to this unit, rounding down.
+   */
+  public long fromBytes(final long size) {
     return size / bytes;
   }
 
-  int convert(final int size, final SizeUnit unit) {
+  public long convert(final long size, final SizeUnit unit) {
     return fromBytes(unit.toBytes(size));
   }
 }
@@ -0,0 +1,113 @@
+package ca.cutterslade.util.jvmbuilder;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.concurrent.Immutable;
+
+import com.google.common.base.Optional;
+
+/**
+ * Where the startup of one instrumented launch went, as reported by the startup agent when the child shut down.
+ * Times are microseconds since the epoch, except for the millisecond ones.
+ */
+@Immutable
+public final class StartupBreakdown {
+  private final long execStartMillis;
+  private final long vmStartMillis;
+  private final long agentMicros;
+  private final long mainClassLoadedMicros;
+  private final long firstOutputMicros;
+  private final long shutdownMicros;
+  private final long loadedClasses;
+  private final long jitMillis;
+  private final long gcMillis;
+  private final long gcCount;
+
+  public StartupBreakdown(final long execStartMillis, final long vmStartMillis, final long agentMicros,
+      final long mainClassLoadedMicros, final long firstOutputMicros, final long shutdownMicros,
+      final long loadedClasses, final long jitMillis, final long gcMillis, final long gcCount) {
+    this.execStartMillis = execStartMillis;
+    this.vmStartMillis = vmStartMillis;
+    this.agentMicros = agentMicros;
+    this.mainClassLoadedMicros = mainClassLoadedMicros;
+    this.firstOutputMicros = firstOutputMicros;
+    this.shutdownMicros = shutdownMicros;
+    this.loadedClasses = loadedClasses;
+    this.jitMillis = jitMillis;
+    this.gcMillis = gcMillis;
+    this.gcCount = gcCount;
+  }
+
+  public Optional<Long> getDuration(final StartupPhase phase, final TimeUnit unit) {
+    final long micros;
+    switch (phase) {
+      case EXEC_TO_VM_START:
+        micros = (vmStartMillis - execStartMillis) * 1000;
+        break;
+      case VM_START_TO_AGENT:
+        micros = agentMicros - vmStartMillis * 1000;
+        break;
+      case AGENT_TO_MAIN:
+        if (0 == mainClassLoadedMicros) {
+          return Optional.absent();
+        }
+        micros = mainClassLoadedMicros - agentMicros;
+        break;
+      case MAIN_TO_FIRST_OUTPUT:
+        if (0 == mainClassLoadedMicros || 0 == firstOutputMicros) {
+          return Optional.absent();
+        }
+        micros = firstOutputMicros - mainClassLoadedMicros;
+        break;
+      case MAIN_TO_SHUTDOWN:
+        if (0 == mainClassLoadedMicros) {
+          return Optional.absent();
+        }
+        micros = shutdownMicros - mainClassLoadedMicros;
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown phase " + phase);
+    }
+    return Optional.of(unit.convert(micros, TimeUnit.MICROSECONDS));
+  }
+
+  public Map<StartupPhase, Long> getDurations(final TimeUnit unit) {
+    final Map<StartupPhase, Long> durations = new EnumMap<>(StartupPhase.class);
+    for (final StartupPhase phase : StartupPhase.values()) {
+      final Optional<Long> duration = getDuration(phase, unit);
+      if (duration.isPresent()) {
+        durations.put(phase, duration.get());
+      }
+    }
+    return durations;
+  }
+
+  public long getLoadedClasses() {
+    return loadedClasses;
+  }
+
+  public Optional<Long> getJitTime(final TimeUnit unit) {
+    return 0 > jitMillis ? Optional.<Long>absent() : Optional.of(unit.convert(jitMillis, TimeUnit.MILLISECONDS));
+  }
+
+  public long getGcTime(final TimeUnit unit) {
+    return unit.convert(gcMillis, TimeUnit.MILLISECONDS);
+  }
+
+  public long getGcCount() {
+    return gcCount;
+  }
+
+  @Override
+  public String toString() {
+    return "StartupBreakdown{" +
+        "durationsMicros=" + getDurations(TimeUnit.MICROSECONDS) +
+        ", loadedClasses=" + loadedClasses +
+        ", jitMillis=" + jitMillis +
+        ", gcMillis=" + gcMillis +
+        ", gcCount=" + gcCount +
+        '}';
+  }
+}
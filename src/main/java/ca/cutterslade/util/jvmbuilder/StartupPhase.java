@@ -0,0 +1,32 @@
+package ca.cutterslade.util.jvmbuilder;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * The phases of an instrumented launch. The first phase is measured across processes with millisecond wall clocks,
+ * the others within the child with its monotonic clock. The main class is seen when it is loaded, so its static
+ * initialization counts towards the phases which follow.
+ */
+@Immutable
+public enum StartupPhase {
+  /**
+   * From the parent starting the exec to the JVM recording its start time.
+   */
+  EXEC_TO_VM_START,
+  /**
+   * JVM initialization, up to the startup agent running.
+   */
+  VM_START_TO_AGENT,
+  /**
+   * Launcher work and class loading up to the main class being loaded.
+   */
+  AGENT_TO_MAIN,
+  /**
+   * From the main class being loaded to the first byte written to standard output or error.
+   */
+  MAIN_TO_FIRST_OUTPUT,
+  /**
+   * From the main class being loaded to the start of shutdown.
+   */
+  MAIN_TO_SHUTDOWN
+}
@@ -0,0 +1,94 @@
+package ca.cutterslade.util.jvmbuilder;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.base.Optional;
+
+/**
+ * Aggregates the startup breakdowns of many launches, keeping the count, mean, minimum and maximum of each phase and
+ * the mean of the runtime totals.
+ */
+@ThreadSafe
+public final class StartupStatistics {
+  private final Map<StartupPhase, Aggregate> phases = new EnumMap<>(StartupPhase.class);
+  private final AtomicLong launches = new AtomicLong();
+  private final AtomicLong loadedClasses = new AtomicLong();
+  private final AtomicLong gcMicros = new AtomicLong();
+
+  public StartupStatistics() {
+    for (final StartupPhase phase : StartupPhase.values()) {
+      phases.put(phase, new Aggregate());
+    }
+  }
+
+  public void add(final StartupBreakdown breakdown) {
+    for (final Map.Entry<StartupPhase, Long> duration : breakdown.getDurations(TimeUnit.MICROSECONDS).entrySet()) {
+      phases.get(duration.getKey()).add(duration.getValue());
+    }
+    loadedClasses.addAndGet(breakdown.getLoadedClasses());
+    gcMicros.addAndGet(breakdown.getGcTime(TimeUnit.MICROSECONDS));
+    launches.incrementAndGet();
+  }
+
+  public long getLaunches() {
+    return launches.get();
+  }
+
+  public long getCount(final StartupPhase phase) {
+    return phases.get(phase).count.get();
+  }
+
+  public Optional<Long> getMean(final StartupPhase phase, final TimeUnit unit) {
+    final Aggregate aggregate = phases.get(phase);
+    final long count = aggregate.count.get();
+    return 0 == count ? Optional.<Long>absent() :
+        Optional.of(unit.convert(aggregate.sum.get() / count, TimeUnit.MICROSECONDS));
+  }
+
+  public Optional<Long> getMin(final StartupPhase phase, final TimeUnit unit) {
+    final Aggregate aggregate = phases.get(phase);
+    return 0 == aggregate.count.get() ? Optional.<Long>absent() :
+        Optional.of(unit.convert(aggregate.min.get(), TimeUnit.MICROSECONDS));
+  }
+
+  public Optional<Long> getMax(final StartupPhase phase, final TimeUnit unit) {
+    final Aggregate aggregate = phases.get(phase);
+    return 0 == aggregate.count.get() ? Optional.<Long>absent() :
+        Optional.of(unit.convert(aggregate.max.get(), TimeUnit.MICROSECONDS));
+  }
+
+  public Optional<Long> getMeanLoadedClasses() {
+    final long count = launches.get();
+    return 0 == count ? Optional.<Long>absent() : Optional.of(loadedClasses.get() / count);
+  }
+
+  public Optional<Long> getMeanGcTime(final TimeUnit unit) {
+    final long count = launches.get();
+    return 0 == count ? Optional.<Long>absent() : Optional.of(unit.convert(gcMicros.get() / count,
+        TimeUnit.MICROSECONDS));
+  }
+
+  private static final class Aggregate {
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+    void add(final long value) {
+      sum.addAndGet(value);
+      long current;
+      while (value < (current = min.get()) && !min.compareAndSet(current, value)) {
+        // Retry until the minimum is no larger than the value
+      }
+      while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+        // Retry until the maximum is no smaller than the value
+      }
+      count.incrementAndGet();
+    }
+  }
+}
@@ -0,0 +1,40 @@
+package ca.cutterslade.util.jvmbuilder;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Derives a factory from another by overlaying changes on it. The derived factory shares every setting, and every
+ * part of the command worked out from settings, which the changes leave alone, so deriving many variants of one
+ * factory costs little more than the changes themselves.
+ */
+@NotThreadSafe
+public interface VariantBuilder<F extends JvmFactory<?>> {
+  VariantBuilder<F> setProperty(String key, String value);
+
+  VariantBuilder<F> removeProperty(String key);
+
+  VariantBuilder<F> setEnvironmentVariable(String key, String value);
+
+  VariantBuilder<F> removeEnvironmentVariable(String key);
+
+  /**
+   * Adds JVM arguments after those of the original factory, or after those of this JVM if it inherits them.
+   */
+  VariantBuilder<F> addJvmArguments(String... arguments);
+
+  VariantBuilder<F> setProgramArguments(String... arguments);
+
+  VariantBuilder<F> setProgramArguments(List<String> arguments);
+
+  /**
+   * Runs a different main class from the class path of the original factory, which must not run a jar.
+   */
+  VariantBuilder<F> setMainClass(String type);
+
+  VariantBuilder<F> setWorkingDirectory(Path workingDirectory);
+
+  F build();
+}
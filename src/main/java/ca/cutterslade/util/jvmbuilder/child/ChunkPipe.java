@@ -0,0 +1,109 @@
+package ca.cutterslade.util.jvmbuilder.child;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A pipe of byte chunks; one thread {@link #write}s and {@link #finish}es, another reads it as an {@link InputStream}.
+ * Writers to a bounded pipe block while it is full, as they would writing to an operating system pipe.
+ */
+@ThreadSafe
+public final class ChunkPipe extends InputStream {
+  private static final byte[] EOF = new byte[0];
+
+  private final BlockingQueue<byte[]> chunks;
+  private byte[] current;
+  private int position;
+  private volatile boolean closed;
+
+  public ChunkPipe(final int capacity) {
+    chunks = new ArrayBlockingQueue<>(capacity);
+  }
+
+  /**
+   * Creates a pipe without a bound, for a writer which must never wait on its reader.
+   */
+  public ChunkPipe() {
+    chunks = new LinkedBlockingQueue<>();
+  }
+
+  public void write(final byte[] bytes, final int offset, final int length) throws InterruptedIOException {
+    if (0 < length && !closed) {
+      put(Arrays.copyOfRange(bytes, offset, offset + length));
+    }
+  }
+
+  public void finish() throws InterruptedIOException {
+    if (!closed) {
+      put(EOF);
+    }
+  }
+
+  private void put(final byte[] chunk) throws InterruptedIOException {
+    try {
+      chunks.put(chunk);
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    }
+  }
+
+  @Override
+  public synchronized int read() throws IOException {
+    if (!fill()) {
+      return -1;
+    }
+    return current[position++] & 0xff;
+  }
+
+  @Override
+  public synchronized int read(final byte[] bytes, final int offset, final int length) throws IOException {
+    if (0 == length) {
+      return 0;
+    }
+    if (!fill()) {
+      return -1;
+    }
+    final int count = Math.min(length, current.length - position);
+    System.arraycopy(current, position, bytes, offset, count);
+    position += count;
+    return count;
+  }
+
+  @Override
+  public synchronized int available() {
+    return null == current || EOF == current ? 0 : current.length - position;
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    chunks.clear();
+    chunks.offer(EOF);
+  }
+
+  private boolean fill() throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+    while (null == current || (EOF != current && position == current.length)) {
+      try {
+        current = chunks.take();
+        position = 0;
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException();
+      }
+    }
+    return EOF != current;
+  }
+}
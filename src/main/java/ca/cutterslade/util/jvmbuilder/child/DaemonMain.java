@@ -0,0 +1,265 @@
+package ca.cutterslade.util.jvmbuilder.child;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs programs on behalf of a parent JVM until its standard input is closed. Each program is run in its own thread
+ * group and class loader, with its standard streams multiplexed over this JVM's standard streams as described in
+ * {@link DaemonProtocol}.
+ */
+public final class DaemonMain {
+  private final LaunchTarget target;
+  private final URL[] classPath;
+  private final DataOutputStream output;
+  private final Map<Integer, Invocation> invocations = new ConcurrentHashMap<>();
+  private final InheritableThreadLocal<Invocation> current = new InheritableThreadLocal<>();
+
+  private DaemonMain(final LaunchTarget target, final URL[] classPath, final DataOutputStream output) {
+    this.target = target;
+    this.classPath = classPath;
+    this.output = output;
+  }
+
+  public static void main(final String[] args) throws IOException {
+    final DataOutputStream output =
+        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+    final DaemonMain daemon = new DaemonMain(LaunchTarget.parse(args), getClassPath(), output);
+    final PrintStream fallback = System.err;
+    System.setOut(new PrintStream(daemon.new InvocationOutput(DaemonProtocol.STDOUT, fallback), true));
+    System.setErr(new PrintStream(daemon.new InvocationOutput(DaemonProtocol.STDERR, fallback), true));
+    System.setIn(daemon.new InvocationInput());
+    daemon.serve(new DataInputStream(new BufferedInputStream(new FileInputStream(FileDescriptor.in))));
+    // The parent has gone away, don't wait for any programs still running
+    System.exit(0);
+  }
+
+  private static URL[] getClassPath() throws IOException {
+    final List<URL> urls = new ArrayList<>();
+    for (final String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+      if (!entry.isEmpty()) {
+        urls.add(new File(entry).toURI().toURL());
+      }
+    }
+    return urls.toArray(new URL[urls.size()]);
+  }
+
+  private void serve(final DataInputStream input) throws IOException {
+    while (true) {
+      final byte type;
+      try {
+        type = input.readByte();
+      }
+      catch (EOFException e) {
+        return;
+      }
+      final int id = input.readInt();
+      final Invocation invocation;
+      switch (type) {
+        case DaemonProtocol.START:
+          final String mainClass = input.readUTF();
+          final String[] arguments = new String[input.readInt()];
+          for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = input.readUTF();
+          }
+          start(new Invocation(id, mainClass, arguments));
+          break;
+        case DaemonProtocol.STDIN:
+          final byte[] bytes = new byte[input.readInt()];
+          input.readFully(bytes);
+          invocation = invocations.get(id);
+          if (null != invocation) {
+            invocation.input.write(bytes, 0, bytes.length);
+          }
+          break;
+        case DaemonProtocol.STDIN_CLOSE:
+          invocation = invocations.get(id);
+          if (null != invocation) {
+            invocation.input.finish();
+          }
+          break;
+        case DaemonProtocol.DESTROY:
+          invocation = invocations.get(id);
+          if (null != invocation) {
+            // finished first, so that the program cannot report an exit code of its own from being interrupted
+            finish(invocation, DaemonProtocol.DESTROYED_EXIT_CODE);
+            invocation.group.interrupt();
+          }
+          break;
+        default:
+          throw new IOException("Unknown frame type " + type);
+      }
+    }
+  }
+
+  private void start(final Invocation invocation) {
+    invocations.put(invocation.id, invocation);
+    final Thread thread = new Thread(invocation.group, new Runnable() {
+      @Override
+      public void run() {
+        current.set(invocation);
+        DaemonMain.this.run(invocation);
+      }
+    }, "main");
+    thread.setContextClassLoader(invocation.loader);
+    thread.start();
+  }
+
+  private void run(final Invocation invocation) {
+    int exitCode = 0;
+    try {
+      final Method main = invocation.mainClass.isEmpty() ? target.findMain(invocation.loader) :
+          LaunchTarget.findMain(invocation.mainClass, invocation.loader);
+      final String[] arguments =
+          invocation.mainClass.isEmpty() ? target.getArguments(invocation.arguments) : invocation.arguments;
+      LaunchTarget.invoke(main, arguments);
+    }
+    catch (Throwable t) {
+      System.err.print("Exception in thread \"main\" ");
+      t.printStackTrace();
+      exitCode = 1;
+    }
+    try {
+      // Like the JVM itself, an invocation ends when its last non-daemon thread does
+      awaitThreads(invocation.group);
+    }
+    catch (InterruptedException e) {
+      exitCode = DaemonProtocol.DESTROYED_EXIT_CODE;
+    }
+    finally {
+      System.out.flush();
+      System.err.flush();
+      try {
+        invocation.loader.close();
+      }
+      catch (IOException e) {
+        // Nothing more can be done with it
+      }
+    }
+    finish(invocation, exitCode);
+  }
+
+  private static void awaitThreads(final ThreadGroup group) throws InterruptedException {
+    boolean waited;
+    do {
+      waited = false;
+      final Thread[] threads = new Thread[group.activeCount() + 1];
+      final int count = group.enumerate(threads, true);
+      for (int i = 0; i < count; i++) {
+        if (Thread.currentThread() != threads[i] && !threads[i].isDaemon()) {
+          threads[i].join();
+          waited = true;
+        }
+      }
+    }
+    while (waited);
+  }
+
+  private void finish(final Invocation invocation, final int exitCode) {
+    if (invocation.finished.compareAndSet(false, true)) {
+      invocations.remove(invocation.id);
+      invocation.input.close();
+      synchronized (output) {
+        try {
+          output.writeByte(DaemonProtocol.EXIT);
+          output.writeInt(invocation.id);
+          output.writeInt(exitCode);
+          output.flush();
+        }
+        catch (IOException e) {
+          // The parent is no longer listening
+        }
+      }
+    }
+  }
+
+  private final class Invocation {
+    private final int id;
+    private final String mainClass;
+    private final String[] arguments;
+    private final ThreadGroup group;
+    private final URLClassLoader loader;
+    // filled by the one thread reading every frame from the parent, which must not wait for this invocation to read
+    private final ChunkPipe input = new ChunkPipe();
+    private final AtomicBoolean finished = new AtomicBoolean();
+
+    private Invocation(final int id, final String mainClass, final String[] arguments) {
+      this.id = id;
+      this.mainClass = mainClass;
+      this.arguments = arguments;
+      group = new ThreadGroup("invocation-" + id);
+      loader = new URLClassLoader(classPath, ClassLoader.getSystemClassLoader().getParent());
+    }
+  }
+
+  private final class InvocationOutput extends OutputStream {
+    private final byte type;
+    private final OutputStream fallback;
+
+    private InvocationOutput(final byte type, final OutputStream fallback) {
+      this.type = type;
+      this.fallback = fallback;
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+      write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+      final Invocation invocation = current.get();
+      if (null == invocation) {
+        fallback.write(bytes, offset, length);
+      }
+      else if (!invocation.finished.get()) {
+        synchronized (output) {
+          output.writeByte(type);
+          output.writeInt(invocation.id);
+          output.writeInt(length);
+          output.write(bytes, offset, length);
+          output.flush();
+        }
+      }
+    }
+  }
+
+  private final class InvocationInput extends InputStream {
+    @Override
+    public int read() throws IOException {
+      final Invocation invocation = current.get();
+      return null == invocation ? -1 : invocation.input.read();
+    }
+
+    @Override
+    public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+      final Invocation invocation = current.get();
+      return null == invocation ? -1 : invocation.input.read(bytes, offset, length);
+    }
+
+    @Override
+    public int available() {
+      final Invocation invocation = current.get();
+      return null == invocation ? 0 : invocation.input.available();
+    }
+  }
+}
@@ -0,0 +1,22 @@
+package ca.cutterslade.util.jvmbuilder.child;
+
+// Frames sent to a daemon start with a type and invocation id:
+//   START mainClass(UTF, empty for the launch target) argumentCount(int) arguments(UTF...)
+//   STDIN length(int) bytes, STDIN_CLOSE, DESTROY
+// Frames sent by a daemon start with a type and invocation id:
+//   STDOUT length(int) bytes, STDERR length(int) bytes, EXIT exitCode(int)
+public final class DaemonProtocol {
+  public static final byte START = 1;
+  public static final byte STDIN = 2;
+  public static final byte STDIN_CLOSE = 3;
+  public static final byte DESTROY = 4;
+
+  public static final byte STDOUT = 1;
+  public static final byte STDERR = 2;
+  public static final byte EXIT = 3;
+
+  public static final int DESTROYED_EXIT_CODE = 143;
+
+  private DaemonProtocol() {
+  }
+}
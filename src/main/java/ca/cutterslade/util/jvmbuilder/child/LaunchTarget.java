@@ -0,0 +1,84 @@
+package ca.cutterslade.util.jvmbuilder.child;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+import javax.annotation.concurrent.Immutable;
+
+// Loaded in child JVMs which may not have this library's dependencies, so only the JDK may be used here.
+@Immutable
+public final class LaunchTarget {
+  private final String mainClass;
+  private final String[] arguments;
+
+  private LaunchTarget(final String mainClass, final String[] arguments) {
+    this.mainClass = mainClass;
+    this.arguments = arguments;
+  }
+
+  public static LaunchTarget parse(final String[] args) throws IOException {
+    if (0 == args.length) {
+      throw new IllegalArgumentException("No launch target specified");
+    }
+    if ("-jar".equals(args[0])) {
+      if (2 > args.length) {
+        throw new IllegalArgumentException("No jar file specified");
+      }
+      return new LaunchTarget(getJarMainClass(args[1]), Arrays.copyOfRange(args, 2, args.length));
+    }
+    return new LaunchTarget(args[0], Arrays.copyOfRange(args, 1, args.length));
+  }
+
+  private static String getJarMainClass(final String jarPath) throws IOException {
+    try (JarFile jarFile = new JarFile(jarPath)) {
+      final Manifest manifest = jarFile.getManifest();
+      final String mainClass = null == manifest ? null : manifest.getMainAttributes().getValue(Attributes.Name.MAIN_CLASS);
+      if (null == mainClass) {
+        throw new IOException("No Main-Class attribute in manifest of " + jarPath);
+      }
+      return mainClass;
+    }
+  }
+
+  public String getMainClass() {
+    return mainClass;
+  }
+
+  public String[] getArguments() {
+    return arguments.clone();
+  }
+
+  public String[] getArguments(final String[] additional) {
+    final String[] result = Arrays.copyOf(arguments, arguments.length + additional.length);
+    System.arraycopy(additional, 0, result, arguments.length, additional.length);
+    return result;
+  }
+
+  public Method findMain(final ClassLoader loader) throws ClassNotFoundException, NoSuchMethodException {
+    return findMain(mainClass, loader);
+  }
+
+  public static Method findMain(final String mainClass, final ClassLoader loader)
+      throws ClassNotFoundException, NoSuchMethodException {
+    final Method main = Class.forName(mainClass, false, loader).getMethod("main", String[].class);
+    if (!Modifier.isStatic(main.getModifiers()) || void.class != main.getReturnType()) {
+      throw new NoSuchMethodException("main method of " + mainClass + " is not static void");
+    }
+    return main;
+  }
+
+  public static void invoke(final Method main, final String[] args) throws Throwable {
+    try {
+      main.invoke(null, (Object) args);
+    }
+    catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+}
@@ -0,0 +1,39 @@
+package ca.cutterslade.util.jvmbuilder.child;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+
+public final class PooledMain {
+  private static final byte[] READY = "\u0000jvm-builder-pool-ready\n".getBytes(StandardCharsets.US_ASCII);
+
+  private PooledMain() {
+  }
+
+  public static byte[] getReadyMarker() {
+    return READY.clone();
+  }
+
+  public static void main(final String[] args) throws Throwable {
+    final LaunchTarget target = LaunchTarget.parse(args);
+    final Method main = target.findMain(PooledMain.class.getClassLoader());
+    System.out.write(READY);
+    System.out.flush();
+    final String[] additional;
+    try {
+      final DataInputStream input = new DataInputStream(System.in);
+      additional = new String[input.readInt()];
+      for (int i = 0; i < additional.length; i++) {
+        final byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        additional[i] = new String(bytes, StandardCharsets.UTF_8);
+      }
+    }
+    catch (EOFException e) {
+      // The pool discarded this JVM without handing it out
+      return;
+    }
+    LaunchTarget.invoke(main, target.getArguments(additional));
+  }
+}
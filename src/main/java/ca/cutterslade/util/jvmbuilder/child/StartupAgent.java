@@ -0,0 +1,188 @@
+package ca.cutterslade.util.jvmbuilder.child;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.charset.StandardCharsets;
+import java.security.ProtectionDomain;
+
+/**
+ * A java agent which records when a JVM reached each stage of its startup, and writes them with some runtime totals and
+ * memory high-water marks to a report file when the JVM shuts down. The agent arguments are the main class name, which
+ * may be empty, a comma and the report file. Management beans are only touched at shutdown, to keep the agent from
+ * slowing the startup it measures. This class is packaged into its own jar, so it may only use the JDK and its own
+ * nested classes.
+ */
+public final class StartupAgent {
+  private static long anchorMillis;
+  private static long anchorNanos;
+  private static volatile long mainClassLoaded;
+  private static volatile long firstOutput;
+
+  private StartupAgent() {
+  }
+
+  public static void premain(final String arguments, final Instrumentation instrumentation) {
+    anchorNanos = System.nanoTime();
+    anchorMillis = System.currentTimeMillis();
+    final int separator = arguments.indexOf(',');
+    final String mainClass = arguments.substring(0, separator);
+    final File report = new File(arguments.substring(separator + 1));
+    if (!mainClass.isEmpty()) {
+      instrumentation.addTransformer(new MainClassWatcher(mainClass.replace('.', '/')));
+    }
+    System.setOut(watch(System.out, "stdout.encoding", "sun.stdout.encoding"));
+    System.setErr(watch(System.err, "stderr.encoding", "sun.stderr.encoding"));
+    Runtime.getRuntime().addShutdownHook(new Thread(new Reporter(report), "startup-agent-report"));
+  }
+
+  private static PrintStream watch(final PrintStream stream, final String encodingProperty,
+      final String legacyEncodingProperty) {
+    final String encoding = System.getProperty(encodingProperty, System.getProperty(legacyEncodingProperty,
+        System.getProperty("file.encoding")));
+    try {
+      return null == encoding ? new PrintStream(new OutputWatcher(stream), true) :
+          new PrintStream(new OutputWatcher(stream), true, encoding);
+    }
+    catch (UnsupportedEncodingException e) {
+      return stream;
+    }
+  }
+
+  static long toMicros(final long nanos) {
+    return 0 == nanos ? 0 : anchorMillis * 1000 + (nanos - anchorNanos) / 1000;
+  }
+
+  private static final class MainClassWatcher implements ClassFileTransformer {
+    private final String mainClass;
+
+    MainClassWatcher(final String mainClass) {
+      this.mainClass = mainClass;
+    }
+
+    @Override
+    public byte[] transform(final ClassLoader loader, final String className, final Class<?> classBeingRedefined,
+        final ProtectionDomain protectionDomain, final byte[] classfileBuffer) {
+      if (0 == mainClassLoaded && mainClass.equals(className)) {
+        mainClassLoaded = System.nanoTime();
+      }
+      return null;
+    }
+  }
+
+  private static final class OutputWatcher extends FilterOutputStream {
+    OutputWatcher(final OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+      if (0 == firstOutput) {
+        firstOutput = System.nanoTime();
+      }
+      out.write(b);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+      if (0 == firstOutput && 0 < len) {
+        firstOutput = System.nanoTime();
+      }
+      out.write(b, off, len);
+    }
+  }
+
+  private static long readPeakRss() {
+    final File status = new File("/proc/self/status");
+    if (!status.canRead()) {
+      return -1;
+    }
+    try (final BufferedReader reader = new BufferedReader(
+        new InputStreamReader(new FileInputStream(status), StandardCharsets.US_ASCII))) {
+      String line;
+      while (null != (line = reader.readLine())) {
+        if (line.startsWith("VmHWM:")) {
+          final String value = line.substring(6).trim();
+          return Long.parseLong(value.substring(0, value.indexOf(' '))) * 1024;
+        }
+      }
+    }
+    catch (IOException | RuntimeException e) {
+      return -1;
+    }
+    return -1;
+  }
+
+  private static final class Reporter implements Runnable {
+    private final File report;
+
+    Reporter(final File report) {
+      this.report = report;
+    }
+
+    @Override
+    public void run() {
+      final long shutdown = System.nanoTime();
+      final StringBuilder content = new StringBuilder()
+          .append("vmStartMillis=").append(ManagementFactory.getRuntimeMXBean().getStartTime()).append('\n')
+          .append("premainMicros=").append(toMicros(anchorNanos)).append('\n')
+          .append("mainClassLoadedMicros=").append(toMicros(mainClassLoaded)).append('\n')
+          .append("firstOutputMicros=").append(toMicros(firstOutput)).append('\n')
+          .append("shutdownMicros=").append(toMicros(shutdown)).append('\n')
+          .append("loadedClasses=").append(ManagementFactory.getClassLoadingMXBean().getTotalLoadedClassCount())
+          .append('\n');
+      final CompilationMXBean compilation = ManagementFactory.getCompilationMXBean();
+      content.append("jitMillis=").append(null != compilation && compilation.isCompilationTimeMonitoringSupported() ?
+          compilation.getTotalCompilationTime() : -1).append('\n');
+      long gcMillis = 0;
+      long gcCount = 0;
+      for (final GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+        gcMillis += Math.max(0, collector.getCollectionTime());
+        gcCount += Math.max(0, collector.getCollectionCount());
+      }
+      content.append("gcMillis=").append(gcMillis).append('\n')
+          .append("gcCount=").append(gcCount).append('\n');
+      long peakHeap = 0;
+      long liveHeap = 0;
+      for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+        if (MemoryType.HEAP == pool.getType()) {
+          final MemoryUsage peak = pool.getPeakUsage();
+          peakHeap += null == peak ? 0 : peak.getUsed();
+          // what the most recent collection of the pool left behind
+          final MemoryUsage collected = pool.getCollectionUsage();
+          liveHeap += null == collected ? 0 : collected.getUsed();
+        }
+      }
+      content.append("peakHeapUsed=").append(peakHeap).append('\n')
+          .append("liveHeapAfterGc=").append(0 == gcCount ? -1 : liveHeap).append('\n')
+          .append("peakRssBytes=").append(readPeakRss()).append('\n');
+      final File temporary = new File(report.getPath() + ".tmp");
+      try (final Writer writer = new OutputStreamWriter(new FileOutputStream(temporary), StandardCharsets.UTF_8)) {
+        writer.write(content.toString());
+      }
+      catch (IOException e) {
+        return;
+      }
+      if (!temporary.renameTo(report)) {
+        temporary.delete();
+      }
+    }
+  }
+}
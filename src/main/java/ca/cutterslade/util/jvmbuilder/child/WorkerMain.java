@@ -0,0 +1,211 @@
+package ca.cutterslade.util.jvmbuilder.child;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import ca.cutterslade.util.jvmbuilder.ipc.IpcChannel;
+import ca.cutterslade.util.jvmbuilder.ipc.IpcChild;
+
+/**
+ * Runs serialized tasks for a parent JVM, as described in {@link WorkerProtocol}, over the IPC channel the parent set
+ * up. Replies are queued and written by one thread, which flushes the channel once the queue is empty so that the
+ * replies of tasks which finish together are sent together.
+ */
+public final class WorkerMain {
+  private static final byte[] END = new byte[0];
+
+  private final IpcChannel channel;
+  private final ExecutorService executor;
+  private final BlockingQueue<byte[]> replies = new LinkedBlockingQueue<>();
+  private final Map<Long, Future<?>> running = new ConcurrentHashMap<>();
+
+  private WorkerMain(final IpcChannel channel, final int threads) {
+    this.channel = channel;
+    executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+      private int count;
+
+      @Override
+      public synchronized Thread newThread(final Runnable runnable) {
+        final Thread thread = new Thread(runnable, "jvm-worker-" + count++);
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+  }
+
+  public static void main(final String[] args) throws IOException, InterruptedException {
+    final int threads = Integer.getInteger(WorkerProtocol.THREADS_PROPERTY, 1);
+    try (final IpcChannel channel = IpcChild.connect()) {
+      new WorkerMain(channel, threads).serve();
+    }
+    // tasks may have left threads running which should not keep the worker alive
+    System.exit(0);
+  }
+
+  private void serve() throws IOException, InterruptedException {
+    final Thread writer = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        write();
+      }
+    }, "jvm-worker-writer");
+    writer.setDaemon(true);
+    writer.start();
+    replies.put(reply(WorkerProtocol.READY, 0, null));
+    byte[] frame;
+    while (null != (frame = channel.receive())) {
+      final DataInputStream input = new DataInputStream(new ByteArrayInputStream(frame));
+      final byte type = input.readByte();
+      final long id = input.readLong();
+      if (WorkerProtocol.TASK == type) {
+        final byte[] task = new byte[input.available()];
+        input.readFully(task);
+        submit(id, task);
+      }
+      else if (WorkerProtocol.CANCEL == type) {
+        final Future<?> future = running.get(id);
+        if (null != future) {
+          future.cancel(true);
+        }
+      }
+    }
+    executor.shutdown();
+    executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    replies.put(END);
+    writer.join();
+    channel.finish();
+  }
+
+  private void submit(final long id, final byte[] task) {
+    final AtomicBoolean started = new AtomicBoolean();
+    final FutureTask<Void> future = new FutureTask<Void>(new Runnable() {
+      @Override
+      public void run() {
+        started.set(true);
+        replies.add(execute(id, task));
+      }
+    }, null) {
+      @Override
+      protected void done() {
+        running.remove(id);
+        // a task cancelled before it started still has to free its place in the parent
+        if (isCancelled() && !started.get()) {
+          replies.add(failure(id, new CancellationException()));
+        }
+      }
+    };
+    running.put(id, future);
+    executor.execute(future);
+  }
+
+  private byte[] execute(final long id, final byte[] task) {
+    final Object result;
+    try {
+      final Object deserialized = new ObjectInputStream(new ByteArrayInputStream(task)).readObject();
+      if (deserialized instanceof Callable) {
+        result = ((Callable<?>) deserialized).call();
+      }
+      else {
+        ((Runnable) deserialized).run();
+        result = null;
+      }
+    }
+    catch (Throwable t) {
+      return failure(id, t);
+    }
+    try {
+      return reply(WorkerProtocol.RESULT, id, result);
+    }
+    catch (IOException e) {
+      return failure(id, e);
+    }
+  }
+
+  private static byte[] failure(final long id, final Throwable cause) {
+    try {
+      return reply(WorkerProtocol.FAILURE, id, cause);
+    }
+    catch (IOException e) {
+      try {
+        return reply(WorkerProtocol.FAILURE, id, new IOException("Task failed with " + cause +
+            ", which could not be serialized: " + e));
+      }
+      catch (IOException impossible) {
+        throw new IllegalStateException(impossible);
+      }
+    }
+  }
+
+  private static byte[] reply(final byte type, final long id, final Object value) throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final DataOutputStream output = new DataOutputStream(bytes);
+    output.writeByte(type);
+    output.writeLong(id);
+    output.writeLong(getRetainedHeap());
+    if (WorkerProtocol.READY != type) {
+      final ObjectOutputStream objects = new ObjectOutputStream(output);
+      objects.writeObject(value);
+      objects.flush();
+    }
+    return bytes.toByteArray();
+  }
+
+  // The heap still in use after the last collection of each pool, which grows with what tasks leave behind
+  private static long getRetainedHeap() {
+    long retained = 0;
+    for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      final MemoryUsage usage = MemoryType.HEAP == pool.getType() ? pool.getCollectionUsage() : null;
+      if (null != usage) {
+        retained += usage.getUsed();
+      }
+    }
+    return retained;
+  }
+
+  private void write() {
+    final List<byte[]> batch = new ArrayList<>();
+    try {
+      while (true) {
+        batch.add(replies.take());
+        replies.drainTo(batch);
+        for (final byte[] reply : batch) {
+          if (END == reply) {
+            channel.flush();
+            return;
+          }
+          channel.send(reply);
+        }
+        batch.clear();
+        channel.flush();
+      }
+    }
+    catch (IOException | InterruptedException e) {
+      // the parent has gone away
+      System.exit(1);
+    }
+  }
+}
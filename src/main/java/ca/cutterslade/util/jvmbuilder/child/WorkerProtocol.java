@@ -0,0 +1,22 @@
+package ca.cutterslade.util.jvmbuilder.child;
+
+// Frames are carried by an IPC channel, and start with a type and task id.
+// Frames sent to a worker:
+//   TASK serializedTask(bytes to the end of the frame), a Callable or a Runnable
+//   CANCEL
+// Frames sent by a worker, each followed by its retained heap(long):
+//   READY (id 0) once connected, RESULT serializedResult, FAILURE serializedThrowable
+// The worker exits once the parent finishes the channel and its tasks are done.
+public final class WorkerProtocol {
+  public static final byte TASK = 1;
+  public static final byte CANCEL = 2;
+
+  public static final byte READY = 1;
+  public static final byte RESULT = 2;
+  public static final byte FAILURE = 3;
+
+  public static final String THREADS_PROPERTY = "jvmbuilder.worker.threads";
+
+  private WorkerProtocol() {
+  }
+}
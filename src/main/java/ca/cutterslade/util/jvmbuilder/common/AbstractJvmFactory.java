@@ -2,9 +2,21 @@ package ca.cutterslade.util.jvmbuilder.common;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.ProcessBuilder.Redirect;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.regex.Pattern;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -13,25 +25,64 @@ import javax.annotation.concurrent.Immutable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import ca.cutterslade.util.jvmbuilder.BatchBuilder;
 import ca.cutterslade.util.jvmbuilder.Component;
+import ca.cutterslade.util.jvmbuilder.GcSettings;
 import ca.cutterslade.util.jvmbuilder.JvmArchitecture;
 import ca.cutterslade.util.jvmbuilder.JvmFactory;
+import ca.cutterslade.util.jvmbuilder.JvmProcess;
 import ca.cutterslade.util.jvmbuilder.JvmType;
+import ca.cutterslade.util.jvmbuilder.LaunchProfile;
+import ca.cutterslade.util.jvmbuilder.OutputSink;
 import ca.cutterslade.util.jvmbuilder.SizeArgument;
 import ca.cutterslade.util.jvmbuilder.Status;
+import ca.cutterslade.util.jvmbuilder.VariantBuilder;
+import ca.cutterslade.util.jvmbuilder.ipc.IpcChild;
+import ca.cutterslade.util.jvmbuilder.ipc.IpcServer;
+import ca.cutterslade.util.jvmbuilder.ipc.SharedRing;
+import ca.cutterslade.util.jvmbuilder.jdk.JdkRegistry;
+import ca.cutterslade.util.jvmbuilder.monitor.JvmMonitor;
+import ca.cutterslade.util.jvmbuilder.sizing.HeapAdvisor;
 
 import com.google.common.base.Joiner;
+import com.google.common.base.Predicate;
+import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
+import com.google.common.io.Closeables;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 
 @Immutable
 public abstract class AbstractJvmFactory<T extends AbstractJvmFactoryBuilder<T>> implements JvmFactory<T> {
   private static final Logger log = LoggerFactory.getLogger(AbstractJvmFactory.class);
+  private static final Path STARTUP_REPORT_DIRECTORY =
+      Paths.get(System.getProperty("java.io.tmpdir"), "jvm-builder-startup");
+  private static final Path GC_LOG_DIRECTORY = Paths.get(System.getProperty("java.io.tmpdir"), "jvm-builder-gc");
+  private static final Path IPC_DIRECTORY = Paths.get(System.getProperty("java.io.tmpdir"), "jvm-builder-ipc");
+  private static final Path SHARED_MEMORY_DIRECTORY = Paths.get("/dev/shm");
+  private static final Path RING_DIRECTORY = Paths.get(System.getProperty("java.io.tmpdir"), "jvm-builder-ring");
+  private static final Path PROFILE_ARCHIVE_DIRECTORY =
+      Paths.get(System.getProperty("java.io.tmpdir"), "jvm-builder-cds");
+  private static final Pattern GARBAGE_COLLECTOR_PATTERN = Pattern.compile("-XX:\\+Use\\w+GC");
+  private static final Pattern GARBAGE_COLLECTOR_OPTION_PATTERN = Pattern.compile(
+      "(?:-XX:[+-](?:Use\\w+GC|ZGenerational))|" +
+          "(?:-XX:(?:MaxGCPauseMillis|G1HeapRegionSize|ParallelGCThreads|ConcGCThreads|SoftMaxHeapSize)=.+)");
+  private static final Predicate<String> NOT_GARBAGE_COLLECTOR_OPTION_PREDICATE = new Predicate<String>() {
+    @Override
+    public boolean apply(@Nullable final String input) {
+      return !GARBAGE_COLLECTOR_OPTION_PATTERN.matcher(input).matches();
+    }
+  };
   private final Path javaHome;
   private final JvmType jvmType;
   private final JvmArchitecture jvmArchitecture;
   private final String jvmVersion;
+  private final JdkRegistry jdkRegistry;
   private final ImmutableList<String> classPath;
   private final ImmutableMap<String, String> properties;
   private final ImmutableMap<String, String> environment;
@@ -45,15 +96,35 @@ public abstract class AbstractJvmFactory<T extends AbstractJvmFactoryBuilder<T>>
   private final Path jarPath;
   private final String mainClass;
   private final SizeArgument maxHeapSize;
+  private final double maxHeapPercentage;
   private final SizeArgument initHeapSize;
   private final SizeArgument stackSize;
+  private final GcSettings garbageCollector;
+  private final LaunchProfile launchProfile;
   private final Path workingDirectory;
+  private final Path sharedArchiveDirectory;
+  private final Path argumentFileDirectory;
+  private final Executor asyncExecutor;
+  private final boolean startupInstrumentation;
+  private final boolean gcLogCapture;
+  private final boolean ipc;
+  private final int sharedRingCapacity;
+  private final JvmMonitor monitor;
+  private final HeapAdvisor heapAdvisor;
+  private final ConcurrentMap<Class<?>, LaunchTemplate> launcherTemplates = new ConcurrentHashMap<>();
+  private volatile ImmutableList<String> baseJvmOptions;
+  private volatile ImmutableList<String> jvmOptions;
+  private volatile LaunchTemplate template;
+  private volatile String[] environmentArray;
+  private volatile JavaRelease javaRelease;
+  private volatile String programMainClass;
 
   protected AbstractJvmFactory(final T builder) {
     javaHome = builder.getJavaHome();
     jvmType = builder.getJvmType();
     jvmArchitecture = builder.getJvmArchitecture();
     jvmVersion = builder.getJvmVersion();
+    jdkRegistry = builder.getJdkRegistry();
     classPath = null == builder.getClassPath() ? null : ImmutableList.copyOf(builder.getClassPath());
     properties = null == builder.getProperties() ? null : ImmutableMap.copyOf(builder.getProperties());
     environment = null == builder.getEnvironment() ? null : ImmutableMap.copyOf(builder.getEnvironment());
@@ -69,9 +140,105 @@ public abstract class AbstractJvmFactory<T extends AbstractJvmFactoryBuilder<T>>
     jarPath = startType == StartType.JAR ? builder.getJarPath() : null;
     mainClass = startType == StartType.CLASS ? builder.getMainClass() : null;
     maxHeapSize = builder.getMaxHeapArgument();
+    maxHeapPercentage = builder.getMaxHeapPercentage();
     initHeapSize = builder.getInitHeapArgument();
     stackSize = builder.getStackArgument();
+    garbageCollector = builder.getGarbageCollector();
+    launchProfile = builder.getLaunchProfile();
     workingDirectory = builder.getWorkingDirectory();
+    sharedArchiveDirectory = builder.getSharedArchiveDirectory();
+    argumentFileDirectory = builder.getArgumentFileDirectory();
+    asyncExecutor = builder.getAsyncExecutor();
+    startupInstrumentation = builder.isStartupInstrumentation();
+    gcLogCapture = builder.isGcLogCapture();
+    ipc = builder.isIpc();
+    sharedRingCapacity = builder.getSharedRingCapacity();
+    monitor = builder.getMonitor();
+    heapAdvisor = builder.getHeapAdvisor();
+  }
+
+  /**
+   * Creates a variant of a factory. Everything the variant does not change is shared with the factory, including
+   * the options, command and environment the factory has already worked out, and the inherited properties,
+   * environment and JVM arguments are read from the factory rather than from this JVM again.
+   */
+  protected AbstractJvmFactory(final AbstractJvmFactory<T> factory, final SimpleVariantBuilder<?> variant) {
+    javaHome = factory.javaHome;
+    jvmType = factory.jvmType;
+    jvmArchitecture = factory.jvmArchitecture;
+    jvmVersion = factory.jvmVersion;
+    jdkRegistry = factory.jdkRegistry;
+    classPath = factory.classPath;
+    assertions = factory.assertions;
+    assertionParts = factory.assertionParts;
+    systemAssertions = factory.systemAssertions;
+    verboseComponents = factory.verboseComponents;
+    startType = factory.startType;
+    jarPath = factory.jarPath;
+    maxHeapSize = factory.maxHeapSize;
+    maxHeapPercentage = factory.maxHeapPercentage;
+    initHeapSize = factory.initHeapSize;
+    stackSize = factory.stackSize;
+    garbageCollector = factory.garbageCollector;
+    launchProfile = factory.launchProfile;
+    sharedArchiveDirectory = factory.sharedArchiveDirectory;
+    argumentFileDirectory = factory.argumentFileDirectory;
+    asyncExecutor = factory.asyncExecutor;
+    startupInstrumentation = factory.startupInstrumentation;
+    gcLogCapture = factory.gcLogCapture;
+    ipc = factory.ipc;
+    sharedRingCapacity = factory.sharedRingCapacity;
+    monitor = factory.monitor;
+    heapAdvisor = factory.heapAdvisor;
+
+    final boolean propertiesChanged = !variant.getPropertyChanges().isEmpty();
+    final boolean environmentChanged = !variant.getEnvironmentChanges().isEmpty();
+    final boolean jvmArgumentsChanged = !variant.getAddedJvmArguments().isEmpty();
+    final boolean programChanged = null != variant.getMainClass() || null != variant.getProgramArguments();
+    properties = propertiesChanged ?
+        SimpleVariantBuilder.overlay(factory.getPropertiesBase(), variant.getPropertyChanges()) : factory.properties;
+    environment = environmentChanged ? SimpleVariantBuilder.overlay(
+        null == factory.environment ? SimpleMapBuilder.currentEnvironment() : factory.environment,
+        variant.getEnvironmentChanges()) : factory.environment;
+    jvmArguments = jvmArgumentsChanged ? ImmutableList.<String>builder()
+        .addAll(null == factory.jvmArguments ? factory.getInheritedJvmArguments() : factory.jvmArguments)
+        .addAll(variant.getAddedJvmArguments())
+        .build() : factory.jvmArguments;
+    programArguments = null == variant.getProgramArguments() ? factory.programArguments :
+        variant.getProgramArguments();
+    mainClass = null == variant.getMainClass() ? factory.mainClass : variant.getMainClass();
+    workingDirectory = null == variant.getWorkingDirectory() ? factory.workingDirectory :
+        variant.getWorkingDirectory();
+
+    javaRelease = factory.javaRelease;
+    programMainClass = factory.programMainClass;
+    // Resolved here rather than left to each variant, so that many variants of one factory work them out once
+    baseJvmOptions = jvmArgumentsChanged ? null : factory.getBaseJvmOptions();
+    jvmOptions = jvmArgumentsChanged || propertiesChanged ? null : factory.getCachedJvmOptions();
+    template = null == jvmOptions || programChanged ? null : factory.template;
+    environmentArray = environmentChanged ? null : factory.environmentArray;
+  }
+
+  /**
+   * Starts a variant of this factory.
+   */
+  public abstract VariantBuilder<? extends AbstractJvmFactory<T>> with();
+
+  private ImmutableMap<String, String> getPropertiesBase() {
+    if (null != properties) {
+      return properties;
+    }
+    final Map<String, String> inherited = Maps.newLinkedHashMap();
+    for (final String argument : getCurrentPropertiesArguments()) {
+      final int split = argument.indexOf('=');
+      if (0 > split) {
+        inherited.put(argument.substring(2), "");
+      }
+      else {
+        inherited.put(argument.substring(2, split), argument.substring(split + 1));
+      }
+    }
+    return ImmutableMap.copyOf(inherited);
   }
 
   Path getBuilderJavaHome() {
@@ -82,6 +249,10 @@ public abstract class AbstractJvmFactory<T extends AbstractJvmFactoryBuilder<T>>
     return jvmType;
   }
 
+  JdkRegistry getBuilderJdkRegistry() {
+    return jdkRegistry;
+  }
+
   JvmArchitecture getBuilderJvmArchitecture() {
     return jvmArchitecture;
   }
@@ -142,6 +313,10 @@ public abstract class AbstractJvmFactory<T extends AbstractJvmFactoryBuilder<T>>
     return maxHeapSize;
   }
 
+  double getBuilderMaxHeapPercentage() {
+    return maxHeapPercentage;
+  }
+
   SizeArgument getBuilderInitHeapSize() {
     return initHeapSize;
   }
@@ -154,14 +329,87 @@ public abstract class AbstractJvmFactory<T extends AbstractJvmFactoryBuilder<T>>
     return workingDirectory;
   }
 
+  Path getBuilderSharedArchiveDirectory() {
+    return sharedArchiveDirectory;
+  }
+
+  Path getBuilderArgumentFileDirectory() {
+    return argumentFileDirectory;
+  }
+
+  Executor getBuilderAsyncExecutor() {
+    return asyncExecutor;
+  }
+
+  boolean isBuilderStartupInstrumentation() {
+    return startupInstrumentation;
+  }
+
+  boolean isBuilderGcLogCapture() {
+    return gcLogCapture;
+  }
+
+  boolean isBuilderIpc() {
+    return ipc;
+  }
+
+  int getBuilderSharedRingCapacity() {
+    return sharedRingCapacity;
+  }
+
+  JvmMonitor getBuilderMonitor() {
+    return monitor;
+  }
+
+  HeapAdvisor getBuilderHeapAdvisor() {
+    return heapAdvisor;
+  }
+
+  GcSettings getBuilderGarbageCollector() {
+    return garbageCollector;
+  }
+
+  LaunchProfile getBuilderLaunchProfile() {
+    return launchProfile;
+  }
+
   protected ImmutableList<String> getCommand(final String[] args) {
-    return ImmutableList.<String>builder()
-        .add(getExecutable())
-        .addAll(getJvmOptions())
-        .addAll(getProgram())
-        .addAll(getProgramArguments())
-        .add(args)
-        .build();
+    return ImmutableList.copyOf(getTemplate().getCommand(ImmutableList.<String>of(), args));
+  }
+
+  // The factory is immutable, so whatever is resolved once holds for every launch; racing threads resolve equal values
+  private LaunchTemplate getTemplate() {
+    LaunchTemplate resolved = template;
+    if (null == resolved) {
+      resolved = createTemplate(getProgram());
+      template = resolved;
+    }
+    return resolved;
+  }
+
+  private LaunchTemplate getLauncherTemplate(final Class<?> launcher) {
+    LaunchTemplate resolved = launcherTemplates.get(launcher);
+    if (null == resolved) {
+      resolved = createTemplate(getLauncherProgram(launcher));
+      launcherTemplates.put(launcher, resolved);
+    }
+    return resolved;
+  }
+
+  private LaunchTemplate createTemplate(final ImmutableList<String> program) {
+    final Path argumentFileDirectory = getArgumentFileDirectory();
+    // Argument files are supported by the launcher from Java 9
+    if (null != argumentFileDirectory && getJavaRelease().isAtLeast(9)) {
+      try {
+        return LaunchTemplate.withArgumentFile(getExecutable(), ImmutableList.copyOf(getJvmOptions()), program,
+            getProgramArguments(), argumentFileDirectory);
+      }
+      catch (IOException e) {
+        log.warn("Could not write argument file in {}, passing all arguments on the command line",
+            argumentFileDirectory, e);
+      }
+    }
+    return new LaunchTemplate(getExecutable(), ImmutableList.copyOf(getJvmOptions()), program, getProgramArguments());
   }
 
   protected Path getJavaHome() {
@@ -173,17 +421,47 @@ public abstract class AbstractJvmFactory<T extends AbstractJvmFactoryBuilder<T>>
   }
 
   protected Iterable<String> getJvmOptions() {
-    final ImmutableList.Builder<String> builder = ImmutableList.builder();
-    addJvmTypeArgument(builder);
-    addJvmArchitectureArgument(builder);
-    addJvmVersionArgument(builder);
-    addAssertionArguments(builder);
-    addSystemAssertionArgument(builder);
-    addVerboseComponentsArgument(builder);
-    addJvmArguments(builder);
-    addSizeArguments(builder);
-    addPropertiesArguments(builder);
-    return builder.build();
+    return getCachedJvmOptions();
+  }
+
+  private ImmutableList<String> getCachedJvmOptions() {
+    ImmutableList<String> resolved = jvmOptions;
+    if (null == resolved) {
+      final ImmutableList.Builder<String> builder = ImmutableList.builder();
+      builder.addAll(getBaseJvmOptions());
+      addPropertiesArguments(builder);
+      resolved = builder.build();
+      jvmOptions = resolved;
+    }
+    return resolved;
+  }
+
+  // Every option but the properties, which are the options variants most often change
+  private ImmutableList<String> getBaseJvmOptions() {
+    ImmutableList<String> resolved = baseJvmOptions;
+    if (null == resolved) {
+      final ImmutableList.Builder<String> builder = ImmutableList.builder();
+      addJvmTypeArgument(builder);
+      addJvmArchitectureArgument(builder);
+      addJvmVersionArgument(builder);
+      addLaunchProfileArguments(builder);
+      addAssertionArguments(builder);
+      addSystemAssertionArgument(builder);
+      addVerboseComponentsArgument(builder);
+      addJvmArguments(builder);
+      addSizeArguments(builder);
+      addGarbageCollectorArguments(builder);
+      resolved = builder.build();
+      baseJvmOptions = resolved;
+    }
+    return resolved;
+  }
+
+  /**
+   * The options given to every JVM started by this factory, ahead of its program.
+   */
+  public ImmutableList<String> getLaunchOptions() {
+    return ImmutableList.copyOf(getJvmOptions());
   }
 
   protected void addJvmTypeArgument(@Nonnull final ImmutableList.Builder<String> builder) {
@@ -201,13 +479,14 @@ public abstract class AbstractJvmFactory<T extends AbstractJvmFactoryBuilder<T>>
   @Nullable
   protected abstract String getCurrentJvmTypeArgument();
 
+  /**
+   * Passes on the data model option this JVM was started with, to a JVM from before Java 10 which still takes it. A
+   * required architecture, like a required version, is met by the java home chosen when the factory was built.
+   */
   protected void addJvmArchitectureArgument(final ImmutableList.Builder<String> builder) {
-    if (null != jvmArchitecture) {
-      builder.add(jvmArchitecture.getArgument());
-    }
-    else {
+    if (null == jvmArchitecture) {
       final String currentJvmArchitectureArgument = getCurrentJvmArchitectureArgument();
-      if (null != currentJvmArchitectureArgument) {
+      if (null != currentJvmArchitectureArgument && !getJavaRelease().isAtLeast(10)) {
         builder.add(currentJvmArchitectureArgument);
       }
     }
@@ -216,10 +495,41 @@ public abstract class AbstractJvmFactory<T extends AbstractJvmFactoryBuilder<T>>
   @Nullable
   protected abstract String getCurrentJvmArchitectureArgument();
 
+  /**
+   * Adds nothing, and is kept for subclasses which override it.
+   *
+   * @deprecated a required version is met by the java home chosen when the factory is built, as launchers from Java 9
+   * reject the {@code -version:} option this used to add
+   */
+  @Deprecated
   protected void addJvmVersionArgument(final ImmutableList.Builder<String> builder) {
-    if (null != jvmVersion) {
-      builder.add("-version:" + jvmVersion);
+  }
+
+  /**
+   * Adds the options of the launch profile ahead of everything set explicitly, which overrides them. Its collector is
+   * left out if another is chosen, as two collectors would stop the JVM from starting.
+   */
+  protected void addLaunchProfileArguments(final ImmutableList.Builder<String> builder) {
+    if (null != launchProfile) {
+      if (null == garbageCollector &&
+          !choosesGarbageCollector(null == jvmArguments ? getInheritedJvmArguments() : jvmArguments)) {
+        builder.add(launchProfile.getGarbageCollector().getArgument());
+      }
+      builder.addAll(launchProfile.getArguments(getJavaRelease().getFeatureVersion(),
+          null != maxHeapSize || 0 < maxHeapPercentage || null != heapAdvisor,
+          HostResources.hasTransparentHugePages()));
+    }
+  }
+
+  private static boolean choosesGarbageCollector(@Nullable final Iterable<String> arguments) {
+    if (null != arguments) {
+      for (final String argument : arguments) {
+        if (GARBAGE_COLLECTOR_PATTERN.matcher(argument).matches()) {
+          return true;
+        }
+      }
     }
+    return false;
   }
 
   protected void addAssertionArguments(final ImmutableList.Builder<String> builder) {
@@ -254,19 +564,32 @@ public abstract class AbstractJvmFactory<T extends AbstractJvmFactoryBuilder<T>>
 
   protected void addJvmArguments(final ImmutableList.Builder<String> builder) {
     if (null == jvmArguments) {
-      builder.addAll(getCurrentJvmArguments());
+      builder.addAll(getInheritedJvmArguments());
     }
     else {
       builder.addAll(jvmArguments);
     }
   }
 
+  /**
+   * The options of this JVM which are passed on when no JVM arguments are set. This JVM's collector and its tuning are
+   * left out only if the factory chooses a collector of its own. The options unlocking experimental and diagnostic
+   * options are always kept, since other inherited options may need them.
+   */
+  protected Iterable<String> getInheritedJvmArguments() {
+    final Iterable<String> current = getCurrentJvmArguments();
+    return null == garbageCollector ? current : Iterables.filter(current, NOT_GARBAGE_COLLECTOR_OPTION_PREDICATE);
+  }
+
   protected abstract Iterable<String> getCurrentJvmArguments();
 
   protected void addSizeArguments(final ImmutableList.Builder<String> builder) {
     if (null != maxHeapSize) {
       builder.add(maxHeapSize.getArgument());
     }
+    if (0 < maxHeapPercentage) {
+      builder.add("-XX:MaxRAMPercentage=" + maxHeapPercentage);
+    }
     if (null != initHeapSize) {
       builder.add(initHeapSize.getArgument());
     }
@@ -275,6 +598,12 @@ public abstract class AbstractJvmFactory<T extends AbstractJvmFactoryBuilder<T>>
     }
   }
 
+  protected void addGarbageCollectorArguments(final ImmutableList.Builder<String> builder) {
+    if (null != garbageCollector) {
+      builder.addAll(garbageCollector.getArguments(getJavaRelease().getFeatureVersion()));
+    }
+  }
+
   protected void addPropertiesArguments(final ImmutableList.Builder<String> builder) {
     if (null == properties) {
       builder.addAll(getCurrentPropertiesArguments());
@@ -288,11 +617,39 @@ public abstract class AbstractJvmFactory<T extends AbstractJvmFactoryBuilder<T>>
 
   protected abstract Iterable<String> getCurrentPropertiesArguments();
 
-  protected Iterable<String> getProgram() {
+  protected ImmutableList<String> getProgram() {
     return StartType.JAR == startType ? ImmutableList.of("-jar", getJarPath()) :
         ImmutableList.of("-cp", getClassPath(), getMainClass());
   }
 
+  protected ImmutableList<String> getLauncherProgram(final Class<?> launcher) {
+    return ImmutableList.<String>builder()
+        .add("-cp", getLauncherClassPath(launcher), launcher.getName())
+        .addAll(getLauncherTarget())
+        .build();
+  }
+
+  private Iterable<String> getLauncherTarget() {
+    return StartType.JAR == startType ? ImmutableList.of("-jar", getJarPath()) : ImmutableList.of(getMainClass());
+  }
+
+  private String getLauncherClassPath(final Class<?> launcher) {
+    final String separator = System.getProperty("path.separator");
+    final String classPath = StartType.JAR == startType ? getJarPath() : getClassPath();
+    final String location = getCodeLocation(launcher);
+    return Iterables.contains(Splitter.on(separator).split(classPath), location) ? classPath :
+        classPath + separator + location;
+  }
+
+  private static String getCodeLocation(final Class<?> type) {
+    try {
+      return Paths.get(type.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+    }
+    catch (URISyntaxException e) {
+      throw new IllegalStateException("Could not locate code source of " + type.getName(), e);
+    }
+  }
+
   private String getJarPath() {
     return jarPath.toString();
   }
@@ -310,6 +667,32 @@ public abstract class AbstractJvmFactory<T extends AbstractJvmFactoryBuilder<T>>
     return null == programArguments ? ImmutableList.<String>of() : programArguments;
   }
 
+  /**
+   * The entries of the class path of the program, which is only the jar of a program started from one.
+   */
+  protected ImmutableList<String> getProgramClassPath() {
+    return StartType.JAR == startType ? ImmutableList.of(getJarPath()) :
+        ImmutableList.copyOf(Splitter.on(System.getProperty("path.separator")).split(getClassPath()));
+  }
+
+  /**
+   * The properties set for the program, or null if it inherits those of this JVM.
+   */
+  @Nullable
+  protected ImmutableMap<String, String> getProperties() {
+    return properties;
+  }
+
+  @Nullable
+  protected Status getAssertions() {
+    return assertions;
+  }
+
+  @Nullable
+  protected ImmutableList<String> getAssertionParts() {
+    return assertionParts;
+  }
+
   protected ImmutableMap<String, String> getEnvironment() {
     return environment;
   }
@@ -318,35 +701,223 @@ public abstract class AbstractJvmFactory<T extends AbstractJvmFactoryBuilder<T>>
     return workingDirectory;
   }
 
+  protected Path getSharedArchiveDirectory() {
+    return null == sharedArchiveDirectory && null != launchProfile && launchProfile.isSharedArchive() ?
+        PROFILE_ARCHIVE_DIRECTORY : sharedArchiveDirectory;
+  }
+
+  protected Path getArgumentFileDirectory() {
+    return argumentFileDirectory;
+  }
+
+  protected JavaRelease getJavaRelease() {
+    JavaRelease release = javaRelease;
+    if (null == release) {
+      release = JavaRelease.of(getJavaHome());
+      javaRelease = release;
+    }
+    return release;
+  }
+
   @Override
   public Process start(final String... args) throws IOException {
-    final String[] commandArray = getCommandArray(args);
-    final String[] environmentArray = getEnvironmentArray();
-    final File workingDirectoryFile = getWorkingDirectoryFile();
+    return launch(getTemplate(), args, Redirect.PIPE, Redirect.PIPE, ImmutableList.<String>of());
+  }
+
+  @Override
+  public ListenableFuture<JvmProcess> startAsync(final String... args) {
+    return startAsync(null, null, args);
+  }
+
+  @Override
+  public ListenableFuture<JvmProcess> startAsync(@Nullable final OutputSink stdOut, @Nullable final OutputSink stdErr,
+      final String... args) {
+    final HeapAdvisor.Launch advised = null == heapAdvisor ? null :
+        heapAdvisor.newLaunch(getLaunchOptions(), getProgram(), args);
+    final Path startupReport = startupInstrumentation || null != advised ?
+        STARTUP_REPORT_DIRECTORY.resolve(UUID.randomUUID() + ".properties") : null;
+    final GcLogTailer gcLog =
+        gcLogCapture ? new GcLogTailer(GC_LOG_DIRECTORY.resolve(UUID.randomUUID() + ".log")) : null;
+    final JvmMonitor.Launch monitored;
+    IpcServer ipcServer = null;
+    final SharedRing ring;
+    try {
+      monitored = null == monitor ? null : monitor.newLaunch();
+      ipcServer = ipc ? openIpcServer() : null;
+      ring = 0 == sharedRingCapacity ? null : createSharedRing();
+    }
+    catch (IOException e) {
+      Closeables.closeQuietly(ipcServer);
+      return Futures.immediateFailedFuture(e);
+    }
+    final IpcServer launchIpcServer = ipcServer;
+    final ListenableFuture<JvmProcess> future = AsyncLauncher.start(getAsyncExecutor(), new AsyncLauncher.Starter() {
+      @Override
+      public Process start(final Redirect stdOut, final Redirect stdErr) throws IOException {
+        final ImmutableList.Builder<String> options = ImmutableList.builder();
+        if (null != startupReport) {
+          options.add(getStartupAgentOption(startupReport));
+        }
+        if (null != gcLog) {
+          options.add(gcLog.getOption());
+        }
+        if (null != launchIpcServer) {
+          options.add(launchIpcServer.getOption());
+        }
+        if (null != ring) {
+          options.add("-D" + IpcChild.RING_PROPERTY + '=' + ring.getFile());
+        }
+        if (null != monitored) {
+          options.addAll(monitored.getOptions());
+        }
+        if (null != advised) {
+          options.addAll(advised.getOptions());
+        }
+        return launch(getTemplate(), args, stdOut, stdErr, options.build());
+      }
+    }, startupReport, gcLog, launchIpcServer, ring, stdOut, stdErr);
+    if (null != monitored || null != advised) {
+      Futures.addCallback(future, new FutureCallback<JvmProcess>() {
+        @Override
+        public void onSuccess(final JvmProcess process) {
+          if (null != monitored) {
+            monitored.started(process);
+          }
+          if (null != advised) {
+            advised.started(process);
+          }
+        }
+
+        @Override
+        public void onFailure(final Throwable t) {
+          // nothing was started, so there is nothing to watch
+        }
+      });
+    }
+    return future;
+  }
+
+  /**
+   * Opens a server for a child of this factory to connect an IPC channel to.
+   */
+  public IpcServer openIpcServer() throws IOException {
+    // Unix domain sockets reach the child from Java 16
+    return IpcServer.open(IPC_DIRECTORY, getJavaRelease().isAtLeast(16));
+  }
+
+  private SharedRing createSharedRing() throws IOException {
+    final Path directory = Files.isDirectory(SHARED_MEMORY_DIRECTORY) && Files.isWritable(SHARED_MEMORY_DIRECTORY) ?
+        SHARED_MEMORY_DIRECTORY : Files.createDirectories(RING_DIRECTORY);
+    return SharedRing.create(directory.resolve("jvm-builder-" + UUID.randomUUID() + ".ring"), sharedRingCapacity);
+  }
+
+  private String getStartupAgentOption(final Path startupReport) throws IOException {
+    Files.createDirectories(startupReport.getParent());
+    return "-javaagent:" + StartupAgentJar.get() + '=' + getProgramMainClass() + ',' + startupReport;
+  }
+
+  /**
+   * The main class of the program, read from the manifest of a jar; empty if the manifest does not name one.
+   */
+  protected String getProgramMainClass() throws IOException {
+    if (StartType.CLASS == startType) {
+      return getMainClass();
+    }
+    String resolved = programMainClass;
+    if (null == resolved) {
+      try (final JarFile jar = new JarFile(getJarPath())) {
+        final Manifest manifest = jar.getManifest();
+        final String value =
+            null == manifest ? null : manifest.getMainAttributes().getValue(Attributes.Name.MAIN_CLASS);
+        resolved = null == value ? "" : value.trim();
+      }
+      programMainClass = resolved;
+    }
+    return resolved;
+  }
+
+  @Override
+  public BatchBuilder batch(final Iterable<String[]> arguments) {
+    return new SimpleBatchBuilder(this, arguments);
+  }
+
+  public Executor getAsyncExecutor() {
+    return null == asyncExecutor ? AsyncLauncher.getDefaultExecutor() : asyncExecutor;
+  }
+
+  public Process startLauncher(final Class<?> launcher) throws IOException {
+    return startLauncher(launcher, ImmutableList.<String>of(), Redirect.PIPE, Redirect.PIPE);
+  }
+
+  /**
+   * Starts a launcher with options of its own, such as where to connect an IPC channel, after the factory's.
+   */
+  public Process startLauncher(final Class<?> launcher, final List<String> options, final Redirect stdOut,
+      final Redirect stdErr) throws IOException {
+    return launch(getLauncherTemplate(launcher), new String[0], stdOut, stdErr, ImmutableList.copyOf(options));
+  }
+
+  private Process launch(final LaunchTemplate template, final String[] args, final Redirect stdOut,
+      final Redirect stdErr, final ImmutableList<String> options) throws IOException {
+    final SharedArchiveCache.Launch archive = getSharedArchiveLaunch(template);
+    final String[] command = template.getCommand(options.isEmpty() ? archive.getOptions() :
+        ImmutableList.<String>builder().addAll(archive.getOptions()).addAll(options).build(), args);
+    final Process process;
+    try {
+      process = Redirect.PIPE == stdOut && Redirect.PIPE == stdErr ?
+          exec(command, getEnvironmentArray(), getWorkingDirectoryFile()) :
+          exec(command, getEnvironment(), getWorkingDirectoryFile(), stdOut, stdErr);
+    }
+    catch (IOException | RuntimeException e) {
+      archive.failed();
+      throw e;
+    }
+    archive.started(process);
+    return process;
+  }
+
+  private SharedArchiveCache.Launch getSharedArchiveLaunch(final LaunchTemplate template) {
+    final Path directory = getSharedArchiveDirectory();
+    return null == directory ? SharedArchiveCache.Launch.NONE :
+        SharedArchiveCache.forDirectory(directory).prepare(template, getJavaRelease());
+  }
+
+  protected Process exec(final String[] command, final String[] environment, final File workingDirectory)
+      throws IOException {
     log.debug("Starting JVM with command {}, environment {}, in workding directory {}",
-        commandArray, environmentArray, workingDirectoryFile);
-    return Runtime.getRuntime().exec(commandArray, environmentArray, workingDirectoryFile);
+        command, environment, workingDirectory);
+    return Runtime.getRuntime().exec(command, environment, workingDirectory);
+  }
+
+  protected Process exec(final String[] command, @Nullable final Map<String, String> environment,
+      final File workingDirectory, final Redirect stdOut, final Redirect stdErr) throws IOException {
+    log.debug("Starting JVM with command {}, environment {}, in workding directory {}, redirecting output to {} and {}",
+        command, environment, workingDirectory, stdOut, stdErr);
+    final ProcessBuilder builder = new ProcessBuilder(command).directory(workingDirectory)
+        .redirectOutput(stdOut).redirectError(stdErr);
+    if (null != environment) {
+      builder.environment().clear();
+      builder.environment().putAll(environment);
+    }
+    return builder.start();
   }
 
   private String[] getEnvironmentArray() {
     final ImmutableMap<String, String> environment = getEnvironment();
-    final String[] environmentArray;
     if (null == environment) {
-      environmentArray = null;
+      return null;
     }
-    else {
-      environmentArray = new String[environment.size()];
+    String[] resolved = environmentArray;
+    if (null == resolved) {
+      resolved = new String[environment.size()];
       int position = 0;
       for (final Map.Entry<String, String> entry : environment.entrySet()) {
-        environmentArray[position++] = entry.getKey() + '=' + entry.getValue();
+        resolved[position++] = entry.getKey() + '=' + entry.getValue();
       }
+      environmentArray = resolved;
     }
-    return environmentArray;
-  }
-
-  private String[] getCommandArray(final String[] args) {
-    final ImmutableList<String> command = getCommand(args);
-    return command.toArray(new String[command.size()]);
+    // Runtime.exec copies the environment rather than keeping the array
+    return resolved;
   }
 
   private File getWorkingDirectoryFile() {
@@ -374,15 +945,28 @@ public abstract class AbstractJvmFactory<T extends AbstractJvmFactoryBuilder<T>>
         !(jvmArguments != null ? !jvmArguments.equals(that.jvmArguments) : that.jvmArguments != null) &&
         jvmType == that.jvmType &&
         !(jvmVersion != null ? !jvmVersion.equals(that.jvmVersion) : that.jvmVersion != null) &&
+        !(jdkRegistry != null ? !jdkRegistry.equals(that.jdkRegistry) : that.jdkRegistry != null) &&
         !(mainClass != null ? !mainClass.equals(that.mainClass) : that.mainClass != null) &&
         !(maxHeapSize != null ? !maxHeapSize.equals(that.maxHeapSize) : that.maxHeapSize != null) &&
+        Double.compare(that.maxHeapPercentage, maxHeapPercentage) == 0 &&
         !(programArguments != null ? !programArguments.equals(that.programArguments) : that.programArguments != null) &&
         !(properties != null ? !properties.equals(that.properties) : that.properties != null) &&
         !(stackSize != null ? !stackSize.equals(that.stackSize) : that.stackSize != null) &&
+        !(garbageCollector != null ? !garbageCollector.equals(that.garbageCollector) :
+            that.garbageCollector != null) && launchProfile == that.launchProfile &&
         startType == that.startType && systemAssertions == that.systemAssertions &&
         !(verboseComponents != null ? !verboseComponents.equals(that.verboseComponents) :
             that.verboseComponents != null) &&
-        !(workingDirectory != null ? !workingDirectory.equals(that.workingDirectory) : that.workingDirectory != null);
+        !(workingDirectory != null ? !workingDirectory.equals(that.workingDirectory) : that.workingDirectory != null) &&
+        !(sharedArchiveDirectory != null ? !sharedArchiveDirectory.equals(that.sharedArchiveDirectory) :
+            that.sharedArchiveDirectory != null) &&
+        !(argumentFileDirectory != null ? !argumentFileDirectory.equals(that.argumentFileDirectory) :
+            that.argumentFileDirectory != null) &&
+        startupInstrumentation == that.startupInstrumentation && gcLogCapture == that.gcLogCapture &&
+        ipc == that.ipc && sharedRingCapacity == that.sharedRingCapacity &&
+        !(monitor != null ? !monitor.equals(that.monitor) : that.monitor != null) &&
+        !(heapAdvisor != null ? !heapAdvisor.equals(that.heapAdvisor) : that.heapAdvisor != null) &&
+        !(asyncExecutor != null ? !asyncExecutor.equals(that.asyncExecutor) : that.asyncExecutor != null);
   }
 
   @Override
@@ -391,6 +975,7 @@ public abstract class AbstractJvmFactory<T extends AbstractJvmFactoryBuilder<T>>
     result = 31 * result + (jvmType != null ? jvmType.hashCode() : 0);
     result = 31 * result + (jvmArchitecture != null ? jvmArchitecture.hashCode() : 0);
     result = 31 * result + (jvmVersion != null ? jvmVersion.hashCode() : 0);
+    result = 31 * result + (jdkRegistry != null ? jdkRegistry.hashCode() : 0);
     result = 31 * result + (classPath != null ? classPath.hashCode() : 0);
     result = 31 * result + (properties != null ? properties.hashCode() : 0);
     result = 31 * result + (environment != null ? environment.hashCode() : 0);
@@ -404,9 +989,22 @@ public abstract class AbstractJvmFactory<T extends AbstractJvmFactoryBuilder<T>>
     result = 31 * result + (jarPath != null ? jarPath.hashCode() : 0);
     result = 31 * result + (mainClass != null ? mainClass.hashCode() : 0);
     result = 31 * result + (maxHeapSize != null ? maxHeapSize.hashCode() : 0);
+    final long percentageBits = Double.doubleToLongBits(maxHeapPercentage);
+    result = 31 * result + (int) (percentageBits ^ (percentageBits >>> 32));
     result = 31 * result + (initHeapSize != null ? initHeapSize.hashCode() : 0);
     result = 31 * result + (stackSize != null ? stackSize.hashCode() : 0);
+    result = 31 * result + (garbageCollector != null ? garbageCollector.hashCode() : 0);
+    result = 31 * result + (launchProfile != null ? launchProfile.hashCode() : 0);
     result = 31 * result + (workingDirectory != null ? workingDirectory.hashCode() : 0);
+    result = 31 * result + (sharedArchiveDirectory != null ? sharedArchiveDirectory.hashCode() : 0);
+    result = 31 * result + (argumentFileDirectory != null ? argumentFileDirectory.hashCode() : 0);
+    result = 31 * result + (asyncExecutor != null ? asyncExecutor.hashCode() : 0);
+    result = 31 * result + (startupInstrumentation ? 1 : 0);
+    result = 31 * result + (gcLogCapture ? 1 : 0);
+    result = 31 * result + (ipc ? 1 : 0);
+    result = 31 * result + sharedRingCapacity;
+    result = 31 * result + (monitor != null ? monitor.hashCode() : 0);
+    result = 31 * result + (heapAdvisor != null ? heapAdvisor.hashCode() : 0);
     return result;
   }
 }
@@ -3,27 +3,39 @@ package ca.cutterslade.util.jvmbuilder.common;
 import java.io.IOException;
 import java.lang.reflect.Modifier;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 import javax.annotation.concurrent.NotThreadSafe;
 
 import ca.cutterslade.util.jvmbuilder.ArgumentsBuilder;
 import ca.cutterslade.util.jvmbuilder.ClassPathBuilder;
 import ca.cutterslade.util.jvmbuilder.Component;
+import ca.cutterslade.util.jvmbuilder.GarbageCollector;
+import ca.cutterslade.util.jvmbuilder.GcBuilder;
+import ca.cutterslade.util.jvmbuilder.GcSettings;
 import ca.cutterslade.util.jvmbuilder.JvmArchitecture;
 import ca.cutterslade.util.jvmbuilder.JvmFactory;
 import ca.cutterslade.util.jvmbuilder.JvmFactoryBuilder;
 import ca.cutterslade.util.jvmbuilder.JvmType;
+import ca.cutterslade.util.jvmbuilder.LaunchProfile;
 import ca.cutterslade.util.jvmbuilder.MapBuilder;
 import ca.cutterslade.util.jvmbuilder.ScopeBuilder;
 import ca.cutterslade.util.jvmbuilder.SizeArgument;
 import ca.cutterslade.util.jvmbuilder.SizeParameter;
 import ca.cutterslade.util.jvmbuilder.SizeUnit;
 import ca.cutterslade.util.jvmbuilder.Status;
+import ca.cutterslade.util.jvmbuilder.ipc.SharedRing;
+import ca.cutterslade.util.jvmbuilder.jdk.JdkInstallation;
+import ca.cutterslade.util.jvmbuilder.jdk.JdkRegistry;
+import ca.cutterslade.util.jvmbuilder.monitor.JvmMonitor;
+import ca.cutterslade.util.jvmbuilder.sizing.HeapAdvisor;
 
+import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicates;
 import com.google.common.collect.ImmutableList;
@@ -37,6 +49,8 @@ public abstract class AbstractJvmFactoryBuilder<T extends AbstractJvmFactoryBuil
     implements JvmFactoryBuilder<T> {
 
   private Path javaHome;
+  private Path resolvedJavaHome;
+  private JdkRegistry jdkRegistry;
   private JvmType jvmType;
   private JvmArchitecture jvmArchitecture;
   private String jvmVersion;
@@ -52,13 +66,27 @@ public abstract class AbstractJvmFactoryBuilder<T extends AbstractJvmFactoryBuil
   private StartType startType;
   private Path jarPath;
   private String mainClass;
-  private int maxHeapSize;
+  private long maxHeapSize;
   private SizeUnit maxHeapSizeUnit;
-  private int initHeapSize;
+  private double maxHeapPercentage;
+  private double maxHeapShare;
+  private int maxHeapShareJvms;
+  private long initHeapSize;
   private SizeUnit initHeapSizeUnit;
-  private int stackSize;
+  private long stackSize;
   private SizeUnit stackSizeUnit;
+  private GcSettings garbageCollector;
+  private LaunchProfile launchProfile;
   private Path workingDirectory;
+  private Path sharedArchiveDirectory;
+  private Path argumentFileDirectory;
+  private Executor asyncExecutor;
+  private boolean startupInstrumentation;
+  private boolean gcLogCapture;
+  private boolean ipc;
+  private int sharedRingCapacity;
+  private JvmMonitor monitor;
+  private HeapAdvisor heapAdvisor;
 
   public T from(final JvmFactory<?> factory) {
     final AbstractJvmFactory<?> ajf = (AbstractJvmFactory<?>) factory;
@@ -66,6 +94,7 @@ public abstract class AbstractJvmFactoryBuilder<T extends AbstractJvmFactoryBuil
     this.jvmType = ajf.getBuilderJvmType();
     this.jvmArchitecture = ajf.getBuilderJvmArchitecture();
     this.jvmVersion = ajf.getBuilderJvmVersion();
+    this.jdkRegistry = ajf.getBuilderJdkRegistry();
     this.classPath = ajf.getBuilderClassPath();
     this.properties = ajf.getBuilderProperties();
     this.environment = ajf.getBuilderEnvironment();
@@ -81,21 +110,46 @@ public abstract class AbstractJvmFactoryBuilder<T extends AbstractJvmFactoryBuil
     final SizeArgument builderMaxHeapSize = ajf.getBuilderMaxHeapSize();
     this.maxHeapSize = null == builderMaxHeapSize ? 0 : builderMaxHeapSize.getSize();
     this.maxHeapSizeUnit = null == builderMaxHeapSize ? null : builderMaxHeapSize.getUnit();
+    this.maxHeapPercentage = ajf.getBuilderMaxHeapPercentage();
     final SizeArgument builderInitHeapSize = ajf.getBuilderInitHeapSize();
     this.initHeapSize = null == builderInitHeapSize ? 0 : builderInitHeapSize.getSize();
     this.initHeapSizeUnit = null == builderInitHeapSize ? null : builderInitHeapSize.getUnit();
     final SizeArgument builderStackSize = ajf.getBuilderStackSize();
     this.stackSize = null == builderStackSize ? 0 : builderStackSize.getSize();
     this.stackSizeUnit = null == builderStackSize ? null : builderStackSize.getUnit();
+    this.garbageCollector = ajf.getBuilderGarbageCollector();
+    this.launchProfile = ajf.getBuilderLaunchProfile();
     this.workingDirectory = ajf.getBuilderWorkingDirectory();
+    this.sharedArchiveDirectory = ajf.getBuilderSharedArchiveDirectory();
+    this.argumentFileDirectory = ajf.getBuilderArgumentFileDirectory();
+    this.asyncExecutor = ajf.getBuilderAsyncExecutor();
+    this.startupInstrumentation = ajf.isBuilderStartupInstrumentation();
+    this.gcLogCapture = ajf.isBuilderGcLogCapture();
+    this.ipc = ajf.isBuilderIpc();
+    this.sharedRingCapacity = ajf.getBuilderSharedRingCapacity();
+    this.monitor = ajf.getBuilderMonitor();
+    this.heapAdvisor = ajf.getBuilderHeapAdvisor();
     return getThis();
   }
 
   protected void checkBuildPreconditions() {
     Preconditions.checkState(null != startType, "Start type has not been set");
+    resolveJavaHome();
     if (StartType.CLASS == startType) {
       Preconditions.checkState(null != mainClass, "Start classpath has been set, but main class has not");
     }
+    if (gcLogCapture) {
+      Preconditions.checkState(getJavaRelease().isAtLeast(9), "GC log capture requires Java 9");
+    }
+    if (0 != sharedRingCapacity) {
+      Preconditions.checkState(SharedRing.isSupported(), "Shared rings are not supported by this JVM");
+    }
+    if (null != garbageCollector) {
+      final JavaRelease release = getJavaRelease();
+      final List<String> problems = garbageCollector.validate(release.getFeatureVersion(), release.getImplementor());
+      Preconditions.checkState(problems.isEmpty(), "Java %s cannot use %s: %s", release.getVersion(),
+          garbageCollector, problems);
+    }
   }
 
   @Override
@@ -106,6 +160,35 @@ public abstract class AbstractJvmFactoryBuilder<T extends AbstractJvmFactoryBuil
     return getThis();
   }
 
+  /**
+   * Checks the java home which was set against the version and architecture requirements. Without one, this JVM's own
+   * java home is kept if it meets them, and otherwise the newest JDK in the registry which does is chosen.
+   */
+  private void resolveJavaHome() {
+    resolvedJavaHome = null;
+    if (null == jvmVersion && null == jvmArchitecture) {
+      return;
+    }
+    final JdkRegistry registry = null == jdkRegistry ? JdkRegistry.getDefault() : jdkRegistry;
+    if (null == javaHome) {
+      final Optional<JdkInstallation> current = registry.describe(Paths.get(System.getProperty("java.home")));
+      if (current.isPresent() && current.get().satisfies(jvmVersion, jvmArchitecture)) {
+        return;
+      }
+      final Optional<JdkInstallation> found = registry.find(jvmVersion, jvmArchitecture);
+      Preconditions.checkState(found.isPresent(), "No installed JDK is %s%s", null == jvmVersion ? "" :
+          "version " + jvmVersion + ' ', null == jvmArchitecture ? "" : jvmArchitecture);
+      resolvedJavaHome = found.get().getJavaHome();
+    }
+    else {
+      final Optional<JdkInstallation> installation = registry.describe(javaHome);
+      Preconditions.checkState(installation.isPresent(), "Could not determine the JDK at %s", javaHome);
+      Preconditions.checkState(installation.get().satisfies(jvmVersion, jvmArchitecture),
+          "%s does not meet the required version %s and architecture %s", installation.get(), jvmVersion,
+          jvmArchitecture);
+    }
+  }
+
   @Override
   public T client() {
     return setJvmType(JvmType.CLIENT);
@@ -150,6 +233,14 @@ public abstract class AbstractJvmFactoryBuilder<T extends AbstractJvmFactoryBuil
     return getThis();
   }
 
+  @Override
+  public T setJdkRegistry(final JdkRegistry jdkRegistry) {
+    Preconditions.checkArgument(null != jdkRegistry);
+    Preconditions.checkState(null == this.jdkRegistry);
+    this.jdkRegistry = jdkRegistry;
+    return getThis();
+  }
+
   @Override
   public ScopeBuilder<T> enableAssertions() {
     Preconditions.checkState(null == this.assertions);
@@ -280,17 +371,41 @@ public abstract class AbstractJvmFactoryBuilder<T extends AbstractJvmFactoryBuil
   }
 
   @Override
-  public T setMaxHeapSpace(final int size, final SizeUnit unit) {
+  public T setMaxHeapSpace(final long size, final SizeUnit unit) {
     Preconditions.checkArgument(0 < size);
     Preconditions.checkArgument(null != unit);
-    Preconditions.checkState(null == this.maxHeapSizeUnit);
+    checkMaxHeapUnset();
+    unit.toBytes(size);
     maxHeapSize = size;
     maxHeapSizeUnit = unit;
     return getThis();
   }
 
   @Override
-  public T setInitialHeapSpace(final int size, final SizeUnit unit) {
+  public T setMaxHeapPercentage(final double percentage) {
+    Preconditions.checkArgument(0 < percentage && 100 >= percentage, "percentage must be in (0, 100]");
+    checkMaxHeapUnset();
+    maxHeapPercentage = percentage;
+    return getThis();
+  }
+
+  @Override
+  public T setMaxHeapShare(final double fraction, final int jvms) {
+    Preconditions.checkArgument(0 < fraction && 1 >= fraction, "fraction must be in (0, 1]");
+    Preconditions.checkArgument(0 < jvms);
+    checkMaxHeapUnset();
+    maxHeapShare = fraction;
+    maxHeapShareJvms = jvms;
+    return getThis();
+  }
+
+  private void checkMaxHeapUnset() {
+    Preconditions.checkState(null == maxHeapSizeUnit && 0 == maxHeapPercentage && 0 == maxHeapShareJvms,
+        "The maximum heap size has already been set");
+  }
+
+  @Override
+  public T setInitialHeapSpace(final long size, final SizeUnit unit) {
     Preconditions.checkArgument(0 < size);
     Preconditions.checkArgument(null != unit);
     Preconditions.checkState(null == this.initHeapSizeUnit);
@@ -300,7 +415,7 @@ public abstract class AbstractJvmFactoryBuilder<T extends AbstractJvmFactoryBuil
   }
 
   @Override
-  public T setStackSize(final int size, final SizeUnit unit) {
+  public T setStackSize(final long size, final SizeUnit unit) {
     Preconditions.checkArgument(0 < size);
     Preconditions.checkArgument(null != unit);
     Preconditions.checkState(null == this.stackSizeUnit);
@@ -309,6 +424,28 @@ public abstract class AbstractJvmFactoryBuilder<T extends AbstractJvmFactoryBuil
     return getThis();
   }
 
+  @Override
+  public GcBuilder<T> garbageCollector(final GarbageCollector collector) {
+    Preconditions.checkState(null == this.garbageCollector);
+    return new SimpleGcBuilder<>(getThis(), collector);
+  }
+
+  @Override
+  public T setGarbageCollector(final GcSettings garbageCollector) {
+    Preconditions.checkArgument(null != garbageCollector);
+    Preconditions.checkState(null == this.garbageCollector);
+    this.garbageCollector = garbageCollector;
+    return getThis();
+  }
+
+  @Override
+  public T setLaunchProfile(final LaunchProfile launchProfile) {
+    Preconditions.checkArgument(null != launchProfile);
+    Preconditions.checkState(null == this.launchProfile);
+    this.launchProfile = launchProfile;
+    return getThis();
+  }
+
   @Override
   public T jar(final Path jarPath) {
     Preconditions.checkArgument(null != jarPath);
@@ -374,6 +511,73 @@ public abstract class AbstractJvmFactoryBuilder<T extends AbstractJvmFactoryBuil
     return getThis();
   }
 
+  @Override
+  public T setSharedArchiveDirectory(final Path sharedArchiveDirectory) {
+    Preconditions.checkArgument(null != sharedArchiveDirectory);
+    Preconditions.checkState(null == this.sharedArchiveDirectory);
+    this.sharedArchiveDirectory = sharedArchiveDirectory;
+    return getThis();
+  }
+
+  @Override
+  public T setArgumentFileDirectory(final Path argumentFileDirectory) {
+    Preconditions.checkArgument(null != argumentFileDirectory);
+    Preconditions.checkState(null == this.argumentFileDirectory);
+    this.argumentFileDirectory = argumentFileDirectory;
+    return getThis();
+  }
+
+  @Override
+  public T setAsyncExecutor(final Executor asyncExecutor) {
+    Preconditions.checkArgument(null != asyncExecutor);
+    Preconditions.checkState(null == this.asyncExecutor);
+    this.asyncExecutor = asyncExecutor;
+    return getThis();
+  }
+
+  @Override
+  public T enableStartupInstrumentation() {
+    this.startupInstrumentation = true;
+    return getThis();
+  }
+
+  @Override
+  public T enableGcLogCapture() {
+    this.gcLogCapture = true;
+    return getThis();
+  }
+
+  @Override
+  public T enableIpc() {
+    this.ipc = true;
+    return getThis();
+  }
+
+  @Override
+  public T setSharedRingCapacity(final int capacity) {
+    Preconditions.checkArgument(4096 <= capacity && 0 == (capacity & (capacity - 1)),
+        "Shared ring capacity must be a power of two of at least 4k");
+    Preconditions.checkState(0 == this.sharedRingCapacity);
+    this.sharedRingCapacity = capacity;
+    return getThis();
+  }
+
+  @Override
+  public T setMonitor(final JvmMonitor monitor) {
+    Preconditions.checkArgument(null != monitor);
+    Preconditions.checkState(null == this.monitor);
+    this.monitor = monitor;
+    return getThis();
+  }
+
+  @Override
+  public T setHeapAdvisor(final HeapAdvisor heapAdvisor) {
+    Preconditions.checkArgument(null != heapAdvisor);
+    Preconditions.checkState(null == this.heapAdvisor);
+    this.heapAdvisor = heapAdvisor;
+    return getThis();
+  }
+
   public T resetProgram() {
     this.startType = null;
     this.classPath = null;
@@ -388,8 +592,12 @@ public abstract class AbstractJvmFactoryBuilder<T extends AbstractJvmFactoryBuil
     return build().start();
   }
 
+  /**
+   * The java home which was set, or else the one chosen to meet the version and architecture requirements when the
+   * factory was last built.
+   */
   public Path getJavaHome() {
-    return javaHome;
+    return null == javaHome ? resolvedJavaHome : javaHome;
   }
 
   public JvmType getJvmType() {
@@ -404,6 +612,10 @@ public abstract class AbstractJvmFactoryBuilder<T extends AbstractJvmFactoryBuil
     return jvmVersion;
   }
 
+  public JdkRegistry getJdkRegistry() {
+    return jdkRegistry;
+  }
+
   public List<String> getClassPath() {
     return classPath;
   }
@@ -454,10 +666,44 @@ public abstract class AbstractJvmFactoryBuilder<T extends AbstractJvmFactoryBuil
     return mainClass;
   }
 
+  /**
+   * The maximum heap size argument. A heap share, or a heap percentage for a JVM older than Java 10 which cannot size
+   * its heap against a container limit itself, is worked out from the memory of this host when this is called.
+   */
   public SizeArgument getMaxHeapArgument() {
+    if (0 < maxHeapShareJvms) {
+      return getMemoryFraction(maxHeapShare / maxHeapShareJvms);
+    }
+    if (0 < maxHeapPercentage && !isMaxHeapPercentageSupported()) {
+      return getMemoryFraction(maxHeapPercentage / 100);
+    }
     return SizeParameter.MAX_HEAP.asArgument(maxHeapSize, maxHeapSizeUnit);
   }
 
+  private static SizeArgument getMemoryFraction(final double fraction) {
+    final long memory = HostResources.getMemory();
+    Preconditions.checkState(0 < memory, "Host memory could not be detected to size the heap");
+    final long megabytes = SizeUnit.MEGABYTES.fromBytes((long) (memory * fraction));
+    return SizeParameter.MAX_HEAP.asArgument(Math.max(1, megabytes), SizeUnit.MEGABYTES);
+  }
+
+  private boolean isMaxHeapPercentageSupported() {
+    return getJavaRelease().isAtLeast(10);
+  }
+
+  private JavaRelease getJavaRelease() {
+    final Path home = getJavaHome();
+    return null == home ? JavaRelease.current() : JavaRelease.of(home);
+  }
+
+  /**
+   * The percentage of its available memory the JVM is to size its maximum heap to, or 0 when the maximum heap is
+   * given by {@link #getMaxHeapArgument()}.
+   */
+  public double getMaxHeapPercentage() {
+    return 0 < maxHeapPercentage && isMaxHeapPercentageSupported() ? maxHeapPercentage : 0;
+  }
+
   public SizeArgument getInitHeapArgument() {
     return SizeParameter.INITIAL_HEAP.asArgument(initHeapSize, initHeapSizeUnit);
   }
@@ -471,10 +717,54 @@ public abstract class AbstractJvmFactoryBuilder<T extends AbstractJvmFactoryBuil
         Predicates.notNull());
   }
 
+  public GcSettings getGarbageCollector() {
+    return garbageCollector;
+  }
+
+  public LaunchProfile getLaunchProfile() {
+    return launchProfile;
+  }
+
   public Path getWorkingDirectory() {
     return workingDirectory;
   }
 
+  public Path getSharedArchiveDirectory() {
+    return sharedArchiveDirectory;
+  }
+
+  public Path getArgumentFileDirectory() {
+    return argumentFileDirectory;
+  }
+
+  public Executor getAsyncExecutor() {
+    return asyncExecutor;
+  }
+
+  public boolean isStartupInstrumentation() {
+    return startupInstrumentation;
+  }
+
+  public boolean isGcLogCapture() {
+    return gcLogCapture;
+  }
+
+  public boolean isIpc() {
+    return ipc;
+  }
+
+  public int getSharedRingCapacity() {
+    return sharedRingCapacity;
+  }
+
+  public JvmMonitor getMonitor() {
+    return monitor;
+  }
+
+  public HeapAdvisor getHeapAdvisor() {
+    return heapAdvisor;
+  }
+
   @SuppressWarnings("unchecked")
   protected T getThis() {
     return (T) this;
@@ -0,0 +1,223 @@
+package ca.cutterslade.util.jvmbuilder.common;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ProcessBuilder.Redirect;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ca.cutterslade.util.jvmbuilder.JvmProcess;
+import ca.cutterslade.util.jvmbuilder.OutputSink;
+import ca.cutterslade.util.jvmbuilder.ipc.IpcServer;
+import ca.cutterslade.util.jvmbuilder.ipc.SharedRing;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.Closeables;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Starts processes on an executor and watches them there: one task performs the exec, one pumps each output stream
+ * which has a sink and was not redirected by the exec, and one waits for the exit. The default executor starts a
+ * virtual thread per task when the runtime has them, so that watching a child costs no platform threads.
+ */
+@ThreadSafe
+public final class AsyncLauncher {
+  private static final Logger log = LoggerFactory.getLogger(AsyncLauncher.class);
+
+  private AsyncLauncher() {
+  }
+
+  /**
+   * Starts a process whose output streams are redirected as given. Launchers which can only pipe output should be
+   * passed as a {@link Callable} instead.
+   */
+  public interface Starter {
+    Process start(Redirect stdOut, Redirect stdErr) throws IOException;
+  }
+
+  private static final class DefaultExecutorHolder {
+    static final ExecutorService EXECUTOR = createDefaultExecutor();
+  }
+
+  public static Executor getDefaultExecutor() {
+    return DefaultExecutorHolder.EXECUTOR;
+  }
+
+  private static ExecutorService createDefaultExecutor() {
+    try {
+      final Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) method.invoke(null);
+    }
+    catch (ReflectiveOperationException | RuntimeException e) {
+      // Before Java 21, or with virtual threads still a preview feature
+      log.debug("Virtual threads are not available, watching processes with platform threads", e);
+      return Executors.newCachedThreadPool(
+          new ThreadFactoryBuilder().setDaemon(true).setNameFormat("jvm-builder-async-%d").build());
+    }
+  }
+
+  public static ListenableFuture<JvmProcess> start(final Executor executor, final Callable<? extends Process> starter,
+      @Nullable final OutputSink stdOut, @Nullable final OutputSink stdErr) {
+    Preconditions.checkArgument(null != starter);
+    return start(executor, new Starter() {
+      @Override
+      public Process start(final Redirect stdOut, final Redirect stdErr) throws IOException {
+        try {
+          return starter.call();
+        }
+        catch (IOException | RuntimeException e) {
+          throw e;
+        }
+        catch (Exception e) {
+          throw new IOException(e);
+        }
+      }
+    }, false, null, null, null, null, stdOut, stdErr);
+  }
+
+  public static ListenableFuture<JvmProcess> start(final Executor executor, final Starter starter,
+      @Nullable final OutputSink stdOut, @Nullable final OutputSink stdErr) {
+    return start(executor, starter, true, null, null, null, null, stdOut, stdErr);
+  }
+
+  /**
+   * Start a process which was told to write a startup report to the given file when it shuts down.
+   */
+  public static ListenableFuture<JvmProcess> start(final Executor executor, final Starter starter,
+      @Nullable final Path startupReport, @Nullable final OutputSink stdOut, @Nullable final OutputSink stdErr) {
+    return start(executor, starter, true, startupReport, null, null, null, stdOut, stdErr);
+  }
+
+  /**
+   * Start a process which was told to write its GC log to the file of the given tailer, to connect to the given IPC
+   * server and to map the given ring, as well as to write any startup report. The IPC server and ring are closed if
+   * the process cannot be started.
+   */
+  static ListenableFuture<JvmProcess> start(final Executor executor, final Starter starter,
+      @Nullable final Path startupReport, @Nullable final GcLogTailer gcLog, @Nullable final IpcServer ipc,
+      @Nullable final SharedRing ring, @Nullable final OutputSink stdOut, @Nullable final OutputSink stdErr) {
+    return start(executor, starter, true, startupReport, gcLog, ipc, ring, stdOut, stdErr);
+  }
+
+  private static ListenableFuture<JvmProcess> start(final Executor executor, final Starter starter,
+      final boolean redirects, @Nullable final Path startupReport, @Nullable final GcLogTailer gcLog,
+      @Nullable final IpcServer ipc, @Nullable final SharedRing ring, @Nullable final OutputSink stdOut,
+      @Nullable final OutputSink stdErr) {
+    Preconditions.checkArgument(null != executor);
+    Preconditions.checkArgument(null != starter);
+    final Redirect stdOutRedirect = getRedirect(redirects, stdOut);
+    final Redirect stdErrRedirect = getRedirect(redirects, stdErr);
+    final long submitted = System.nanoTime();
+    final SettableFuture<JvmProcess> future = SettableFuture.create();
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        final long execStartedMillis = System.currentTimeMillis();
+        final long execStarted = System.nanoTime();
+        final Process process;
+        try {
+          process = starter.start(stdOutRedirect, stdErrRedirect);
+        }
+        catch (Throwable e) {
+          Closeables.closeQuietly(ipc);
+          Closeables.closeQuietly(ring);
+          future.setException(e);
+          return;
+        }
+        final SimpleJvmProcess jvm = new SimpleJvmProcess(process, submitted, execStarted, System.nanoTime(),
+            execStartedMillis, startupReport, gcLog, ipc, ring);
+        try {
+          // Output which was redirected by the exec does not have to be pumped
+          watch(executor, jvm, Redirect.PIPE == stdOutRedirect ? stdOut : null,
+              Redirect.PIPE == stdErrRedirect ? stdErr : null);
+        }
+        catch (RuntimeException e) {
+          process.destroy();
+          jvm.failed(e);
+          future.setException(e);
+          return;
+        }
+        future.set(jvm);
+      }
+    });
+    return future;
+  }
+
+  private static Redirect getRedirect(final boolean redirects, @Nullable final OutputSink sink) {
+    return redirects && sink instanceof OutputSinks.RedirectSink ?
+        ((OutputSinks.RedirectSink) sink).getRedirect() : Redirect.PIPE;
+  }
+
+  private static void watch(final Executor executor, final SimpleJvmProcess jvm, @Nullable final OutputSink stdOut,
+      @Nullable final OutputSink stdErr) {
+    final CountDownLatch pumps = new CountDownLatch((null == stdOut ? 0 : 1) + (null == stdErr ? 0 : 1));
+    if (null != stdOut) {
+      executor.execute(new Pump(jvm, jvm.getProcess().getInputStream(), stdOut, pumps));
+    }
+    if (null != stdErr) {
+      executor.execute(new Pump(jvm, jvm.getProcess().getErrorStream(), stdErr, pumps));
+    }
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          final int exitValue = jvm.getProcess().waitFor();
+          pumps.await();
+          jvm.exited(exitValue);
+        }
+        catch (InterruptedException e) {
+          jvm.failed(e);
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+  }
+
+  private static final class Pump implements Runnable {
+    private final SimpleJvmProcess jvm;
+    private final InputStream stream;
+    private final OutputSink sink;
+    private final CountDownLatch done;
+
+    Pump(final SimpleJvmProcess jvm, final InputStream stream, final OutputSink sink, final CountDownLatch done) {
+      this.jvm = jvm;
+      this.stream = stream;
+      this.sink = sink;
+      this.done = done;
+    }
+
+    @Override
+    public void run() {
+      final byte[] buffer = BufferPool.acquireArray();
+      try (final InputStream in = stream; final OutputSink out = sink) {
+        int read;
+        while (-1 != (read = in.read(buffer))) {
+          if (0 < read) {
+            jvm.output();
+            out.write(buffer, 0, read);
+          }
+        }
+      }
+      catch (IOException | RuntimeException e) {
+        log.warn("Could not pump process output", e);
+      }
+      finally {
+        BufferPool.release(buffer);
+        done.countDown();
+      }
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package ca.cutterslade.util.jvmbuilder.common;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Buffers shared by everything pumping child output, so that watching many children does not allocate a buffer per
+ * stream. At most a fixed number of buffers of each kind are kept; any more are left to the garbage collector.
+ */
+@ThreadSafe
+final class BufferPool {
+  static final int BUFFER_SIZE = 64 * 1024;
+  private static final int MAX_POOLED = 64;
+
+  private static final Queue<byte[]> arrays = new ConcurrentLinkedQueue<>();
+  private static final AtomicInteger pooledArrays = new AtomicInteger();
+  private static final Queue<ByteBuffer> directBuffers = new ConcurrentLinkedQueue<>();
+  private static final AtomicInteger pooledDirectBuffers = new AtomicInteger();
+
+  private BufferPool() {
+  }
+
+  static byte[] acquireArray() {
+    final byte[] array = arrays.poll();
+    if (null == array) {
+      return new byte[BUFFER_SIZE];
+    }
+    pooledArrays.decrementAndGet();
+    return array;
+  }
+
+  static void release(final byte[] array) {
+    if (MAX_POOLED >= pooledArrays.incrementAndGet()) {
+      arrays.offer(array);
+    }
+    else {
+      pooledArrays.decrementAndGet();
+    }
+  }
+
+  static ByteBuffer acquireDirect() {
+    final ByteBuffer buffer = directBuffers.poll();
+    if (null == buffer) {
+      return ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+    pooledDirectBuffers.decrementAndGet();
+    buffer.clear();
+    return buffer;
+  }
+
+  static void release(final ByteBuffer buffer) {
+    if (MAX_POOLED >= pooledDirectBuffers.incrementAndGet()) {
+      directBuffers.offer(buffer);
+    }
+    else {
+      pooledDirectBuffers.decrementAndGet();
+    }
+  }
+}
@@ -0,0 +1,41 @@
+package ca.cutterslade.util.jvmbuilder.common;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+
+import com.google.common.hash.Hashing;
+
+/**
+ * Files in a cache directory named for a hash of their key, written once and then reused by every process which
+ * computes the same key.
+ */
+final class CachedFiles {
+  private CachedFiles() {
+  }
+
+  static Path getPath(final Path directory, final byte[] key, final String suffix) {
+    return directory.resolve(Hashing.sha1().hashBytes(key).toString() + suffix).toAbsolutePath();
+  }
+
+  static Path write(final Path file, final byte[] content) throws IOException {
+    if (!Files.isRegularFile(file)) {
+      Files.createDirectories(file.getParent());
+      final Path temporary = file.resolveSibling(file.getFileName() + "." + UUID.randomUUID());
+      Files.write(temporary, content);
+      try {
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+      }
+      catch (AtomicMoveNotSupportedException e) {
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+      finally {
+        Files.deleteIfExists(temporary);
+      }
+    }
+    return file;
+  }
+}
@@ -0,0 +1,44 @@
+package ca.cutterslade.util.jvmbuilder.common;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import ca.cutterslade.util.jvmbuilder.OutputSink;
+
+/**
+ * Keeps the first bytes of an output stream, up to a limit, dropping the rest.
+ */
+@ThreadSafe
+final class CaptureSink implements OutputSink {
+  private static final int INITIAL_SIZE = 256;
+
+  private final int limit;
+  private byte[] bytes = new byte[0];
+  private int size;
+
+  CaptureSink(final int limit) {
+    this.limit = limit;
+  }
+
+  @Override
+  public synchronized void write(final byte[] buffer, final int offset, final int length) {
+    final int count = Math.min(length, limit - size);
+    if (0 < count) {
+      if (bytes.length < size + count) {
+        bytes = Arrays.copyOf(bytes, Math.min(limit, Math.max(INITIAL_SIZE, Math.max(size + count, 2 * bytes.length))));
+      }
+      System.arraycopy(buffer, offset, bytes, size, count);
+      size += count;
+    }
+  }
+
+  @Override
+  public void close() {
+  }
+
+  synchronized String toString(final Charset charset) {
+    return new String(bytes, 0, size, charset);
+  }
+}
@@ -0,0 +1,247 @@
+package ca.cutterslade.util.jvmbuilder.common;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ca.cutterslade.util.jvmbuilder.GcEvent;
+import ca.cutterslade.util.jvmbuilder.GcEventListener;
+import ca.cutterslade.util.jvmbuilder.GcLog;
+import ca.cutterslade.util.jvmbuilder.GcPauseStatistics;
+import ca.cutterslade.util.jvmbuilder.SizeUnit;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Tails the unified GC log a child writes to a file of its own, parsing the pauses as they are appended. Every log is
+ * polled by one shared daemon thread, and a log is read to its end and deleted when its child exits.
+ */
+@ThreadSafe
+final class GcLogTailer implements GcLog {
+  private static final Logger log = LoggerFactory.getLogger(GcLogTailer.class);
+  static final int WINDOW_SIZE = 1024;
+  private static final long POLL_MILLIS = 100;
+  // Pauses are logged with the gc tag, except by ZGC which logs them with gc+phases, and generational ZGC names the
+  // generation collected ahead of the pause: Y or y for young, O or o for old
+  private static final Pattern PAUSE_PATTERN = Pattern.compile("\\[([\\d.]+)s\\]\\[(?:gc|gc,phases) *\\] " +
+      "GC\\((\\d+)\\) (?:([YyOo]): )?(Pause(?: [A-Za-z]+)+)((?: \\((?:[^()]|\\([^()]*\\))*\\))*)" +
+      "(?: (\\d+)([BKMGT])->(\\d+)([BKMGT])\\((\\d+)([BKMGT])\\))? ([\\d.]+)ms");
+  private static final Pattern GROUP_PATTERN = Pattern.compile(" \\(((?:[^()]|\\([^()]*\\))*)\\)");
+
+  private static final class ExecutorHolder {
+    static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("jvm-builder-gc-log").build());
+  }
+
+  private final Path file;
+  private final List<GcEventListener> listeners = new CopyOnWriteArrayList<>();
+  @GuardedBy("this")
+  private final ArrayDeque<GcEvent> window = new ArrayDeque<>();
+  @GuardedBy("this")
+  private final ByteBuffer buffer = ByteBuffer.allocate(8192);
+  @GuardedBy("this")
+  private final StringBuilder line = new StringBuilder();
+  @GuardedBy("this")
+  private long totalCount;
+  @GuardedBy("this")
+  private FileChannel channel;
+  @GuardedBy("this")
+  private boolean finished;
+  private volatile ScheduledFuture<?> polling;
+
+  GcLogTailer(final Path file) {
+    this.file = file;
+  }
+
+  /**
+   * The option which has a JVM from Java 9 write its GC log to the file of this tailer, without rotating it.
+   */
+  String getOption() throws IOException {
+    Files.createDirectories(file.getParent());
+    final String path = file.toString();
+    return "-Xlog:gc*:file=" + (path.indexOf(':') < 0 ? path : '"' + path + '"') + ":uptime,tags:filecount=0";
+  }
+
+  void start() {
+    polling = ExecutorHolder.EXECUTOR.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        poll();
+      }
+    }, POLL_MILLIS, POLL_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Reads whatever the exited child left in its log, then stops tailing and deletes the log.
+   */
+  void finish() {
+    final ScheduledFuture<?> task = polling;
+    if (null != task) {
+      task.cancel(false);
+    }
+    synchronized (this) {
+      poll();
+      if (0 < line.length()) {
+        parseLine();
+      }
+      finished = true;
+      try {
+        if (null != channel) {
+          channel.close();
+        }
+        Files.deleteIfExists(file);
+      }
+      catch (IOException e) {
+        log.debug("Could not remove GC log {}", file, e);
+      }
+    }
+  }
+
+  private synchronized void poll() {
+    if (finished) {
+      return;
+    }
+    try {
+      if (null == channel) {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+      }
+      while (0 < channel.read(buffer)) {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+          final char c = (char) (buffer.get() & 0xff);
+          if ('\n' == c) {
+            parseLine();
+          }
+          else if ('\r' != c) {
+            line.append(c);
+          }
+        }
+        buffer.clear();
+      }
+    }
+    catch (NoSuchFileException e) {
+      // the child has not opened its log yet
+    }
+    catch (IOException e) {
+      log.warn("Could not read GC log {}", file, e);
+    }
+  }
+
+  @GuardedBy("this")
+  private void parseLine() {
+    final GcEvent event = parse(line);
+    line.setLength(0);
+    if (null != event) {
+      window.addLast(event);
+      if (WINDOW_SIZE < window.size()) {
+        window.removeFirst();
+      }
+      totalCount++;
+      for (final GcEventListener listener : listeners) {
+        deliver(listener, event);
+      }
+    }
+  }
+
+  private static void deliver(final GcEventListener listener, final GcEvent event) {
+    try {
+      listener.event(event);
+    }
+    catch (RuntimeException e) {
+      log.warn("GC event listener {} failed", listener, e);
+    }
+  }
+
+  @Nullable
+  static GcEvent parse(final CharSequence line) {
+    final Matcher matcher = PAUSE_PATTERN.matcher(line);
+    if (!matcher.matches()) {
+      return null;
+    }
+    final boolean sized = null != matcher.group(6);
+    final StringBuilder type = new StringBuilder(matcher.group(4));
+    if (null != matcher.group(3)) {
+      type.append("O".equalsIgnoreCase(matcher.group(3)) ? " (Old)" : " (Young)");
+    }
+    String cause = null;
+    final Matcher groups = GROUP_PATTERN.matcher(matcher.group(5));
+    while (groups.find()) {
+      if (null != cause) {
+        type.append(" (").append(cause).append(')');
+      }
+      cause = groups.group(1);
+    }
+    // Collectors which log heap sizes with a pause give the cause last; the others qualify the pause type
+    if (!sized && null != cause) {
+      type.append(" (").append(cause).append(')');
+      cause = null;
+    }
+    return new GcEvent(Math.round(Double.parseDouble(matcher.group(1)) * 1000), Integer.parseInt(matcher.group(2)),
+        type.toString(), cause, Math.round(Double.parseDouble(matcher.group(12)) * 1000),
+        sized ? toBytes(matcher.group(6), matcher.group(7)) : -1,
+        sized ? toBytes(matcher.group(8), matcher.group(9)) : -1,
+        sized ? toBytes(matcher.group(10), matcher.group(11)) : -1);
+  }
+
+  private static long toBytes(final String size, final String unit) {
+    final SizeUnit sizeUnit;
+    switch (unit.charAt(0)) {
+      case 'K':
+        sizeUnit = SizeUnit.KILOBYTES;
+        break;
+      case 'M':
+        sizeUnit = SizeUnit.MEGABYTES;
+        break;
+      case 'G':
+        sizeUnit = SizeUnit.GIGABYTES;
+        break;
+      case 'T':
+        sizeUnit = SizeUnit.TERABYTES;
+        break;
+      default:
+        sizeUnit = SizeUnit.BYTES;
+    }
+    return sizeUnit.toBytes(Long.parseLong(size));
+  }
+
+  @Override
+  public synchronized void addListener(final GcEventListener listener) {
+    Preconditions.checkArgument(null != listener);
+    for (final GcEvent event : window) {
+      deliver(listener, event);
+    }
+    listeners.add(listener);
+  }
+
+  @Override
+  public void removeListener(final GcEventListener listener) {
+    listeners.remove(listener);
+  }
+
+  @Override
+  public synchronized GcPauseStatistics getStatistics() {
+    return GcPauseStatistics.of(totalCount, ImmutableList.copyOf(window));
+  }
+}
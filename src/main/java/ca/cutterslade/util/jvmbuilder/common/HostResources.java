@@ -0,0 +1,154 @@
+package ca.cutterslade.util.jvmbuilder.common;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.concurrent.Immutable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Optional;
+
+/**
+ * Detects the memory and processors available to this host, or to the container it runs in.
+ */
+@Immutable
+public final class HostResources {
+  private static final Logger log = LoggerFactory.getLogger(HostResources.class);
+  private static final Path PROCESS_CGROUPS = Paths.get("/proc/self/cgroup");
+  private static final Path CGROUP_ROOT = Paths.get("/sys/fs/cgroup");
+  private static final String CGROUP_V2_LIMIT = "memory.max";
+  private static final String CGROUP_V1_CONTROLLER = "memory";
+  private static final String CGROUP_V1_LIMIT = "memory.limit_in_bytes";
+  private static final Path TRANSPARENT_HUGE_PAGES = Paths.get("/sys/kernel/mm/transparent_hugepage/enabled");
+  // cgroup v1 reports an unset limit as a huge page aligned value rather than "max"
+  private static final long UNLIMITED_THRESHOLD = Long.MAX_VALUE / 2;
+
+  private HostResources() {
+  }
+
+  public static int getProcessors() {
+    return Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * The physical memory of the host, or the memory limit of this process's cgroup where it is lower; -1 if neither can
+   * be read.
+   */
+  public static long getMemory() {
+    final long physical = getPhysicalMemory();
+    final Optional<Long> limit = getContainerMemoryLimit();
+    return limit.isPresent() && (0 >= physical || limit.get() < physical) ? limit.get() : physical;
+  }
+
+  /**
+   * Whether a JVM on this host can ask for transparent huge pages, which Linux offers unless they are set to never.
+   */
+  public static boolean hasTransparentHugePages() {
+    if (Files.isReadable(TRANSPARENT_HUGE_PAGES)) {
+      try {
+        final String value = new String(Files.readAllBytes(TRANSPARENT_HUGE_PAGES), StandardCharsets.US_ASCII);
+        return value.contains("[always]") || value.contains("[madvise]");
+      }
+      catch (IOException e) {
+        log.debug("Could not read transparent huge page setting from {}", TRANSPARENT_HUGE_PAGES, e);
+      }
+    }
+    return false;
+  }
+
+  private static long getPhysicalMemory() {
+    final OperatingSystemMXBean bean = ManagementFactory.getOperatingSystemMXBean();
+    try {
+      final Class<?> type = Class.forName("com.sun.management.OperatingSystemMXBean");
+      if (type.isInstance(bean)) {
+        // getTotalMemorySize replaced getTotalPhysicalMemorySize in Java 14
+        for (final String name : new String[]{"getTotalMemorySize", "getTotalPhysicalMemorySize"}) {
+          try {
+            return ((Number) type.getMethod(name).invoke(bean)).longValue();
+          }
+          catch (NoSuchMethodException e) {
+            log.trace("No {} method", name, e);
+          }
+        }
+      }
+    }
+    catch (ReflectiveOperationException | RuntimeException e) {
+      log.debug("Could not read physical memory size", e);
+    }
+    return -1;
+  }
+
+  private static Optional<Long> getContainerMemoryLimit() {
+    List<String> cgroups = Collections.emptyList();
+    if (Files.isReadable(PROCESS_CGROUPS)) {
+      try {
+        cgroups = Files.readAllLines(PROCESS_CGROUPS, StandardCharsets.US_ASCII);
+      }
+      catch (IOException e) {
+        log.debug("Could not read cgroups from {}", PROCESS_CGROUPS, e);
+      }
+    }
+    return getMemoryLimit(cgroups, CGROUP_ROOT);
+  }
+
+  /**
+   * The lowest memory limit set on the cgroups of this process, given as in /proc/self/cgroup, or on any of their
+   * ancestors, under cgroup v2 or v1 mounted at the root. A cgroup which is not under the mount, as in a container
+   * without a cgroup namespace, leaves only the limit at the mount itself.
+   */
+  static Optional<Long> getMemoryLimit(final List<String> cgroups, final Path root) {
+    final long limit = Math.min(getLowestLimit(root, getCgroup(cgroups, null), CGROUP_V2_LIMIT),
+        getLowestLimit(root.resolve(CGROUP_V1_CONTROLLER), getCgroup(cgroups, CGROUP_V1_CONTROLLER), CGROUP_V1_LIMIT));
+    return UNLIMITED_THRESHOLD > limit ? Optional.of(limit) : Optional.<Long>absent();
+  }
+
+  // The path of the v2 cgroup, or the v1 cgroup of a controller, of a process
+  private static String getCgroup(final List<String> cgroups, final String controller) {
+    for (final String line : cgroups) {
+      final String[] parts = line.split(":", 3);
+      if (3 == parts.length && (null == controller ? "0".equals(parts[0]) && parts[1].isEmpty() :
+          Arrays.asList(parts[1].split(",")).contains(controller))) {
+        return parts[2];
+      }
+    }
+    return "/";
+  }
+
+  private static long getLowestLimit(final Path mount, final String cgroup, final String file) {
+    long lowest = Long.MAX_VALUE;
+    Path directory = mount.resolve(cgroup.replaceFirst("^/+", "")).normalize();
+    while (null != directory && directory.startsWith(mount)) {
+      lowest = Math.min(lowest, readLimit(directory.resolve(file)));
+      directory = directory.getParent();
+    }
+    return lowest;
+  }
+
+  private static long readLimit(final Path path) {
+    if (Files.isReadable(path)) {
+      try {
+        final String value = new String(Files.readAllBytes(path), StandardCharsets.US_ASCII).trim();
+        if (!"max".equals(value)) {
+          final long limit = Long.parseLong(value);
+          if (0 < limit) {
+            return limit;
+          }
+        }
+      }
+      catch (IOException | NumberFormatException e) {
+        log.debug("Could not read memory limit from {}", path, e);
+      }
+    }
+    return Long.MAX_VALUE;
+  }
+}
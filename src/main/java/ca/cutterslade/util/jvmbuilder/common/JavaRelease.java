@@ -0,0 +1,142 @@
+package ca.cutterslade.util.jvmbuilder.common;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Preconditions;
+
+/**
+ * The version, implementor and architecture of a java home, read from its {@code release} file.
+ */
+@Immutable
+public final class JavaRelease {
+  private static final Logger log = LoggerFactory.getLogger(JavaRelease.class);
+  private static final ConcurrentMap<Path, JavaRelease> RELEASES = new ConcurrentHashMap<>();
+
+  private final String version;
+  private final String implementor;
+  private final String architecture;
+
+  public JavaRelease(final String version, @Nullable final String implementor, @Nullable final String architecture) {
+    Preconditions.checkArgument(null != version);
+    this.version = version;
+    this.implementor = implementor;
+    this.architecture = architecture;
+  }
+
+  public static JavaRelease of(final Path javaHome) {
+    final Path key = javaHome.toAbsolutePath().normalize();
+    JavaRelease release = RELEASES.get(key);
+    if (null == release) {
+      release = read(key);
+      final JavaRelease existing = RELEASES.putIfAbsent(key, release);
+      release = null == existing ? release : existing;
+    }
+    return release;
+  }
+
+  public static JavaRelease current() {
+    return of(Paths.get(System.getProperty("java.home")));
+  }
+
+  /**
+   * Reads the release of a java home afresh, where {@link #of(Path)} keeps what it first read.
+   */
+  public static JavaRelease read(final Path javaHome) {
+    final Path releaseFile = javaHome.resolve("release");
+    if (Files.isRegularFile(releaseFile)) {
+      final Properties properties = new Properties();
+      try (Reader reader = Files.newBufferedReader(releaseFile, StandardCharsets.UTF_8)) {
+        properties.load(reader);
+        final String version = unquote(properties.getProperty("JAVA_VERSION"));
+        if (null != version) {
+          return new JavaRelease(version, unquote(properties.getProperty("IMPLEMENTOR")),
+              unquote(properties.getProperty("OS_ARCH")));
+        }
+      }
+      catch (IOException e) {
+        log.debug("Could not read {}", releaseFile, e);
+      }
+    }
+    final Path currentHome = Paths.get(System.getProperty("java.home")).toAbsolutePath().normalize();
+    // A Java 8 JRE nested in a JDK has no release file of its own
+    if (currentHome.equals(javaHome) || currentHome.equals(javaHome.resolve("jre"))) {
+      return new JavaRelease(System.getProperty("java.version"), System.getProperty("java.vendor"),
+          System.getProperty("os.arch"));
+    }
+    if (null != javaHome.getParent() && "jre".equals(String.valueOf(javaHome.getFileName()))) {
+      return read(javaHome.getParent());
+    }
+    throw new IllegalArgumentException("Could not determine the Java release of " + javaHome);
+  }
+
+  @Nullable
+  private static String unquote(@Nullable final String value) {
+    return null == value ? null : CharMatcher.is('"').trimFrom(value.trim());
+  }
+
+  public String getVersion() {
+    return version;
+  }
+
+  public int getFeatureVersion() {
+    final String[] parts = version.split("[._+-]");
+    final int first = Integer.parseInt(parts[0]);
+    return 1 == first && 1 < parts.length ? Integer.parseInt(parts[1]) : first;
+  }
+
+  public boolean isAtLeast(final int featureVersion) {
+    return getFeatureVersion() >= featureVersion;
+  }
+
+  @Nullable
+  public String getImplementor() {
+    return implementor;
+  }
+
+  @Nullable
+  public String getArchitecture() {
+    return architecture;
+  }
+
+  @Override
+  public boolean equals(final Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    final JavaRelease that = (JavaRelease) o;
+    return version.equals(that.version) &&
+        !(implementor != null ? !implementor.equals(that.implementor) : that.implementor != null) &&
+        !(architecture != null ? !architecture.equals(that.architecture) : that.architecture != null);
+  }
+
+  @Override
+  public int hashCode() {
+    int result = version.hashCode();
+    result = 31 * result + (implementor != null ? implementor.hashCode() : 0);
+    result = 31 * result + (architecture != null ? architecture.hashCode() : 0);
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return "JavaRelease{version=" + version + ", implementor=" + implementor + ", architecture=" + architecture + '}';
+  }
+}
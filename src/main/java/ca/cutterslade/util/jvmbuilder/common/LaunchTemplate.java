@@ -0,0 +1,122 @@
+package ca.cutterslade.util.jvmbuilder.common;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+
+/**
+ * The resolved parts of a command which are the same for every launch of a program from a factory, so that a launch
+ * only has to copy them and append its own arguments.
+ */
+@ThreadSafe
+final class LaunchTemplate {
+  private final String executable;
+  private final ImmutableList<String> jvmOptions;
+  private final ImmutableList<String> program;
+  private final String[] head;
+  private final String[] tail;
+  private volatile String archiveConfiguration;
+
+  LaunchTemplate(final String executable, final ImmutableList<String> jvmOptions, final ImmutableList<String> program,
+      final Iterable<String> programArguments) {
+    this(executable, jvmOptions, program,
+        ImmutableList.<String>builder().add(executable).addAll(jvmOptions).build(),
+        ImmutableList.<String>builder().addAll(program).addAll(programArguments).build());
+  }
+
+  private LaunchTemplate(final String executable, final ImmutableList<String> jvmOptions,
+      final ImmutableList<String> program, final List<String> head, final List<String> tail) {
+    this.executable = executable;
+    this.jvmOptions = jvmOptions;
+    this.program = program;
+    this.head = head.toArray(new String[head.size()]);
+    this.tail = tail.toArray(new String[tail.size()]);
+  }
+
+  /**
+   * Create a template which passes the JVM options and class path in an argument file. The main class or jar and the
+   * program arguments stay on the command line so that options added per launch still precede them. The file is named
+   * for a hash of its content, so it is written once and shared by every factory with the same configuration.
+   */
+  static LaunchTemplate withArgumentFile(final String executable, final ImmutableList<String> jvmOptions,
+      final ImmutableList<String> program, final Iterable<String> programArguments, final Path directory)
+      throws IOException {
+    final int classPathOptions = "-cp".equals(program.get(0)) ? 2 : 0;
+    final StringBuilder content = new StringBuilder();
+    for (final String argument : Iterables.concat(jvmOptions, program.subList(0, classPathOptions))) {
+      appendQuoted(content, argument).append('\n');
+    }
+    final byte[] bytes = content.toString().getBytes(StandardCharsets.UTF_8);
+    final Path file = CachedFiles.write(CachedFiles.getPath(directory, bytes, ".args"), bytes);
+    return new LaunchTemplate(executable, jvmOptions, program,
+        ImmutableList.of(executable, '@' + file.toString()),
+        ImmutableList.<String>builder().addAll(program.subList(classPathOptions, program.size()))
+            .addAll(programArguments).build());
+  }
+
+  private static StringBuilder appendQuoted(final StringBuilder builder, final String argument) {
+    builder.append('"');
+    for (int i = 0; i < argument.length(); i++) {
+      final char c = argument.charAt(i);
+      switch (c) {
+        case '"':
+        case '\\':
+          builder.append('\\').append(c);
+          break;
+        case '\n':
+          builder.append("\\n");
+          break;
+        case '\r':
+          builder.append("\\r");
+          break;
+        case '\t':
+          builder.append("\\t");
+          break;
+        case '\f':
+          builder.append("\\f");
+          break;
+        default:
+          builder.append(c);
+      }
+    }
+    return builder.append('"');
+  }
+
+  String getExecutable() {
+    return executable;
+  }
+
+  ImmutableList<String> getJvmOptions() {
+    return jvmOptions;
+  }
+
+  ImmutableList<String> getProgram() {
+    return program;
+  }
+
+  String getArchiveConfiguration() {
+    return archiveConfiguration;
+  }
+
+  void setArchiveConfiguration(final String archiveConfiguration) {
+    this.archiveConfiguration = archiveConfiguration;
+  }
+
+  String[] getCommand(final List<String> launchOptions, final String[] args) {
+    final String[] command = new String[head.length + launchOptions.size() + tail.length + args.length];
+    System.arraycopy(head, 0, command, 0, head.length);
+    int position = head.length;
+    for (final String option : launchOptions) {
+      command[position++] = option;
+    }
+    System.arraycopy(tail, 0, command, position, tail.length);
+    System.arraycopy(args, 0, command, position + tail.length, args.length);
+    return command;
+  }
+}
@@ -0,0 +1,224 @@
+package ca.cutterslade.util.jvmbuilder.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ProcessBuilder.Redirect;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import ca.cutterslade.util.jvmbuilder.LineListener;
+import ca.cutterslade.util.jvmbuilder.OutputSink;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Output sinks for {@link ca.cutterslade.util.jvmbuilder.JvmFactory#startAsync(OutputSink, OutputSink, String...)}.
+ * Discarding output and writing it to a file are done by redirecting the child's stream when the process is started,
+ * so that the output never passes through this JVM; they fall back to pumping for launchers which cannot redirect.
+ */
+public final class OutputSinks {
+  private static final File NULL_FILE =
+      new File(System.getProperty("os.name").startsWith("Windows") ? "NUL" : "/dev/null");
+
+  private OutputSinks() {
+  }
+
+  public static OutputSink discard() {
+    return new RedirectSink(Redirect.to(NULL_FILE));
+  }
+
+  public static OutputSink toFile(final Path file) {
+    Preconditions.checkArgument(null != file);
+    return new RedirectSink(Redirect.to(file.toFile()));
+  }
+
+  public static OutputSink appendToFile(final Path file) {
+    Preconditions.checkArgument(null != file);
+    return new RedirectSink(Redirect.appendTo(file.toFile()));
+  }
+
+  /**
+   * Writes output to a blocking channel through a pooled direct buffer. Output is copied into the buffer once; a heap
+   * buffer would be copied as well, into a temporary direct buffer of the JDK's. The channel is not closed when the
+   * output ends.
+   */
+  public static OutputSink toChannel(final WritableByteChannel channel) {
+    Preconditions.checkArgument(null != channel);
+    return new ChannelSink(channel, false);
+  }
+
+  public static OutputSink lines(final LineListener listener) {
+    return lines(Charset.defaultCharset(), listener);
+  }
+
+  public static OutputSink lines(final Charset charset, final LineListener listener) {
+    Preconditions.checkArgument(null != charset);
+    Preconditions.checkArgument(null != listener);
+    return new LineSink(charset, listener);
+  }
+
+  @NotThreadSafe
+  static final class RedirectSink implements OutputSink {
+    private final Redirect redirect;
+    private ChannelSink fallback;
+
+    RedirectSink(final Redirect redirect) {
+      this.redirect = redirect;
+    }
+
+    Redirect getRedirect() {
+      return redirect;
+    }
+
+    @Override
+    public void write(final byte[] buffer, final int offset, final int length) throws IOException {
+      if (NULL_FILE.equals(redirect.file())) {
+        return;
+      }
+      if (null == fallback) {
+        final StandardOpenOption mode =
+            Redirect.Type.APPEND == redirect.type() ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING;
+        fallback = new ChannelSink(FileChannel.open(redirect.file().toPath(), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, mode), true);
+      }
+      fallback.write(buffer, offset, length);
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (null != fallback) {
+        fallback.close();
+      }
+    }
+  }
+
+  @NotThreadSafe
+  private static final class ChannelSink implements OutputSink {
+    private final WritableByteChannel channel;
+    private final boolean closeChannel;
+    private ByteBuffer buffer;
+
+    ChannelSink(final WritableByteChannel channel, final boolean closeChannel) {
+      this.channel = channel;
+      this.closeChannel = closeChannel;
+    }
+
+    @Override
+    public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+      if (null == buffer) {
+        buffer = BufferPool.acquireDirect();
+      }
+      int position = offset;
+      final int end = offset + length;
+      while (position < end) {
+        final int count = Math.min(end - position, buffer.remaining());
+        buffer.put(bytes, position, count);
+        position += count;
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+        buffer.clear();
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (null != buffer) {
+        BufferPool.release(buffer);
+        buffer = null;
+      }
+      if (closeChannel) {
+        channel.close();
+      }
+    }
+  }
+
+  /**
+   * Decodes output into a reused character buffer and collects each line in a reused builder, so that splitting
+   * output into lines allocates nothing per character or per line.
+   */
+  @NotThreadSafe
+  private static final class LineSink implements OutputSink {
+    private static final int CHARS_SIZE = 8192;
+
+    private final CharsetDecoder decoder;
+    private final LineListener listener;
+    private final ByteBuffer bytes = ByteBuffer.allocate(CHARS_SIZE);
+    private final CharBuffer chars = CharBuffer.allocate(CHARS_SIZE);
+    private final StringBuilder line = new StringBuilder();
+
+    LineSink(final Charset charset, final LineListener listener) {
+      this.decoder = charset.newDecoder()
+          .onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+      this.listener = listener;
+    }
+
+    @Override
+    public void write(final byte[] buffer, final int offset, final int length) {
+      int position = offset;
+      final int end = offset + length;
+      while (position < end) {
+        final int count = Math.min(end - position, bytes.remaining());
+        bytes.put(buffer, position, count);
+        position += count;
+        bytes.flip();
+        decode(false);
+        bytes.compact();
+      }
+    }
+
+    @Override
+    public void close() {
+      bytes.flip();
+      decode(true);
+      decoder.flush(chars);
+      drainChars();
+      if (0 < line.length()) {
+        deliver();
+      }
+    }
+
+    private void decode(final boolean endOfInput) {
+      CoderResult result;
+      do {
+        result = decoder.decode(bytes, chars, endOfInput);
+        drainChars();
+      }
+      while (result.isOverflow());
+    }
+
+    private void drainChars() {
+      chars.flip();
+      while (chars.hasRemaining()) {
+        final char c = chars.get();
+        if ('\n' == c) {
+          deliver();
+        }
+        else {
+          line.append(c);
+        }
+      }
+      chars.clear();
+    }
+
+    private void deliver() {
+      final int length = line.length();
+      if (0 < length && '\r' == line.charAt(length - 1)) {
+        line.setLength(length - 1);
+      }
+      listener.line(line);
+      line.setLength(0);
+    }
+  }
+}
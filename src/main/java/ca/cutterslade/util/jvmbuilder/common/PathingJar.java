@@ -0,0 +1,83 @@
+package ca.cutterslade.util.jvmbuilder.common;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+
+/**
+ * A jar containing only a manifest whose {@code Class-Path} lists the entries of a class path, so that a child can be
+ * given a single class path entry however long its real class path is. Relative entries are resolved against the
+ * current working directory, as is an empty entry, and wildcard entries are expanded when the jar is created.
+ */
+final class PathingJar {
+  private static final String WILDCARD = "*";
+
+  private PathingJar() {
+  }
+
+  static Path create(final Path directory, final List<String> entries) throws IOException {
+    final List<String> uris = Lists.newArrayListWithCapacity(entries.size());
+    for (final String entry : entries) {
+      if (entry.equals(WILDCARD) || entry.endsWith('/' + WILDCARD) || entry.endsWith('\\' + WILDCARD)) {
+        for (final Path jar : expandWildcard(Paths.get(entry.substring(0, entry.length() - 1)))) {
+          uris.add(jar.toUri().toASCIIString());
+        }
+      }
+      else {
+        uris.add(toUri(entry).toASCIIString());
+      }
+    }
+    final String classPath = Joiner.on(' ').join(uris);
+    final Path file = CachedFiles.getPath(directory, classPath.getBytes(StandardCharsets.UTF_8), ".jar");
+    return Files.isRegularFile(file) ? file : CachedFiles.write(file, createJar(classPath));
+  }
+
+  private static URI toUri(final String entry) {
+    if (entry.startsWith("file:")) {
+      final URI uri = URI.create(entry);
+      return !uri.getPath().endsWith("/") && Files.isDirectory(Paths.get(uri)) ? URI.create(entry + '/') : uri;
+    }
+    // Path.toUri() adds the trailing slash which marks an existing directory, an empty entry is the working directory
+    return Paths.get(entry).toAbsolutePath().toUri();
+  }
+
+  private static List<Path> expandWildcard(final Path directory) throws IOException {
+    final List<Path> jars = Lists.newArrayList();
+    if (Files.isDirectory(directory.toAbsolutePath())) {
+      try (final DirectoryStream<Path> stream = Files.newDirectoryStream(directory.toAbsolutePath(), "*.{jar,JAR}")) {
+        for (final Path jar : stream) {
+          jars.add(jar);
+        }
+      }
+    }
+    // The order in which the launcher expands wildcards is unspecified, sort to keep the jar name stable
+    Collections.sort(jars);
+    return jars;
+  }
+
+  private static byte[] createJar(final String classPath) throws IOException {
+    final Manifest manifest = new Manifest();
+    final Attributes attributes = manifest.getMainAttributes();
+    attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    attributes.put(Attributes.Name.CLASS_PATH, classPath);
+    attributes.putValue("Created-By", "jvm-builder");
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (final JarOutputStream jar = new JarOutputStream(bytes, manifest)) {
+      jar.flush();
+    }
+    return bytes.toByteArray();
+  }
+}
@@ -0,0 +1,431 @@
+package ca.cutterslade.util.jvmbuilder.common;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Creates and reuses class data sharing archives for JVMs launched with the same java home, options, class path and
+ * program. The first launch of a configuration records an archive as it exits; once the archive has been verified by
+ * starting a JVM which requires it, later launches use it. Archives are replaced when a class path entry changes, and
+ * configurations which cannot be archived fall back to launching without one.
+ */
+@ThreadSafe
+public final class SharedArchiveCache {
+  private static final Logger log = LoggerFactory.getLogger(SharedArchiveCache.class);
+  private static final ConcurrentMap<Path, SharedArchiveCache> CACHES = new ConcurrentHashMap<>();
+  private static final ExecutorService TRAINING_EXECUTOR = Executors.newCachedThreadPool(
+      new ThreadFactoryBuilder().setDaemon(true).setNameFormat("shared-archive-%d").build());
+  private static final long STAMP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private final Path directory;
+  private final ConcurrentMap<String, Stamp> stamps = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, Boolean> training = new ConcurrentHashMap<>();
+  private final ConcurrentMap<Path, Boolean> touched = new ConcurrentHashMap<>();
+
+  private SharedArchiveCache(final Path directory) {
+    this.directory = directory;
+  }
+
+  public static SharedArchiveCache forDirectory(final Path directory) {
+    final Path key = directory.toAbsolutePath().normalize();
+    SharedArchiveCache cache = CACHES.get(key);
+    if (null == cache) {
+      cache = new SharedArchiveCache(key);
+      final SharedArchiveCache existing = CACHES.putIfAbsent(key, cache);
+      cache = null == existing ? cache : existing;
+    }
+    return cache;
+  }
+
+  public Path getDirectory() {
+    return directory;
+  }
+
+  public void clean(final long maxAge, final TimeUnit unit) throws IOException {
+    if (!Files.isDirectory(directory)) {
+      return;
+    }
+    final long oldest = System.currentTimeMillis() - unit.toMillis(maxAge);
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+      for (final Path file : files) {
+        if (Files.getLastModifiedTime(file).toMillis() < oldest) {
+          Files.deleteIfExists(file);
+          touched.remove(file);
+        }
+      }
+    }
+  }
+
+  Launch prepare(final LaunchTemplate template, final JavaRelease release) {
+    final Mode mode = Mode.of(release);
+    if (Mode.NONE == mode) {
+      return Launch.NONE;
+    }
+    final String executable = template.getExecutable();
+    final ImmutableList<String> jvmOptions = template.getJvmOptions();
+    final ImmutableList<String> program = template.getProgram();
+    String configuration = template.getArchiveConfiguration();
+    if (null == configuration) {
+      configuration = getConfigurationKey(executable, release, jvmOptions, program);
+      template.setArchiveConfiguration(configuration);
+    }
+    final Stamp stamp = getStamp(configuration, program);
+    if (!stamp.archivable) {
+      return Launch.NONE;
+    }
+    final String name = configuration + '-' + stamp.key;
+    final Path archive = directory.resolve(name + mode.extension);
+    if (Files.isRegularFile(archive)) {
+      touch(archive);
+      return new Launch(mode.useOptions(archive), null);
+    }
+    if (Files.exists(directory.resolve(name + ".failed")) || null != training.putIfAbsent(name, Boolean.TRUE)) {
+      return Launch.NONE;
+    }
+    try {
+      Files.createDirectories(directory);
+    }
+    catch (IOException e) {
+      training.remove(name);
+      log.warn("Could not create shared archive directory {}", directory, e);
+      return Launch.NONE;
+    }
+    final Path recording = directory.resolve(name + '.' + UUID.randomUUID() + mode.extension);
+    return new Launch(mode.recordOptions(recording),
+        new Training(mode, name, configuration, recording, archive, executable, jvmOptions, program));
+  }
+
+  private static String getConfigurationKey(final String executable, final JavaRelease release,
+      final Iterable<String> jvmOptions, final List<String> program) {
+    final Hasher hasher = Hashing.sha1().newHasher();
+    putString(hasher, executable);
+    putString(hasher, release.toString());
+    for (final String option : Iterables.concat(jvmOptions, program)) {
+      putString(hasher, option);
+    }
+    return hasher.hash().toString().substring(0, 16);
+  }
+
+  private static void putString(final Hasher hasher, final String value) {
+    hasher.putBytes(value.getBytes(StandardCharsets.UTF_8)).putByte((byte) 0);
+  }
+
+  private static String getClassPath(final List<String> program) {
+    // Programs start with either -cp or -jar
+    return program.get(1);
+  }
+
+  private Stamp getStamp(final String configuration, final List<String> program) {
+    final long now = System.nanoTime();
+    Stamp stamp = stamps.get(configuration);
+    if (null == stamp || now - stamp.created > STAMP_INTERVAL_NANOS) {
+      stamp = Stamp.of(program, now);
+      stamps.put(configuration, stamp);
+    }
+    return stamp;
+  }
+
+  private void touch(final Path archive) {
+    if (null == touched.putIfAbsent(archive, Boolean.TRUE)) {
+      try {
+        Files.setLastModifiedTime(archive, FileTime.fromMillis(System.currentTimeMillis()));
+      }
+      catch (IOException e) {
+        log.debug("Could not touch {}", archive, e);
+      }
+    }
+  }
+
+  private enum Mode {
+    NONE(""),
+    DYNAMIC(".jsa") {
+      @Override
+      ImmutableList<String> recordOptions(final Path file) {
+        return ImmutableList.of("-XX:ArchiveClassesAtExit=" + file, "-Xlog:cds*=off");
+      }
+
+      @Override
+      ImmutableList<String> useOptions(final Path file) {
+        return ImmutableList.of("-XX:SharedArchiveFile=" + file, "-Xshare:auto", "-Xlog:cds*=off");
+      }
+
+      @Override
+      ImmutableList<String> requireOptions(final Path file) {
+        return ImmutableList.of("-XX:SharedArchiveFile=" + file, "-Xshare:on");
+      }
+    },
+    AOT(".aot") {
+      @Override
+      ImmutableList<String> recordOptions(final Path file) {
+        return ImmutableList.of("-XX:AOTCacheOutput=" + file, "-Xlog:cds*=off", "-Xlog:aot*=off");
+      }
+
+      @Override
+      ImmutableList<String> useOptions(final Path file) {
+        return ImmutableList.of("-XX:AOTCache=" + file, "-Xlog:cds*=off", "-Xlog:aot*=off");
+      }
+
+      @Override
+      ImmutableList<String> requireOptions(final Path file) {
+        return ImmutableList.of("-XX:AOTCache=" + file, "-XX:AOTMode=on");
+      }
+    };
+
+    private final String extension;
+
+    Mode(final String extension) {
+      this.extension = extension;
+    }
+
+    static Mode of(final JavaRelease release) {
+      // Dynamic archives arrived in 13, single step AOT cache creation in 25
+      return release.isAtLeast(25) ? AOT : release.isAtLeast(13) ? DYNAMIC : NONE;
+    }
+
+    ImmutableList<String> recordOptions(final Path file) {
+      return ImmutableList.of();
+    }
+
+    ImmutableList<String> useOptions(final Path file) {
+      return ImmutableList.of();
+    }
+
+    ImmutableList<String> requireOptions(final Path file) {
+      return ImmutableList.of();
+    }
+  }
+
+  @Immutable
+  private static final class Stamp {
+    private final long created;
+    private final boolean archivable;
+    private final String key;
+
+    private Stamp(final long created, final boolean archivable, final String key) {
+      this.created = created;
+      this.archivable = archivable;
+      this.key = key;
+    }
+
+    static Stamp of(final List<String> program, final long now) {
+      final Hasher hasher = Hashing.sha1().newHasher();
+      final List<String> entries =
+          Lists.newArrayList(Splitter.on(System.getProperty("path.separator")).split(getClassPath(program)));
+      if (1 == entries.size() && Files.isRegularFile(Paths.get(entries.get(0)))) {
+        // A single jar may be a pathing jar, whose manifest class path has to be stamped as well
+        entries.addAll(getManifestClassPath(Paths.get(entries.get(0))));
+      }
+      for (final String entry : entries) {
+        if (entry.isEmpty()) {
+          // An empty entry is the working directory
+          return new Stamp(now, false, "");
+        }
+        try {
+          final BasicFileAttributes attributes =
+              Files.readAttributes(Paths.get(entry), BasicFileAttributes.class);
+          // Archives can only be created from class paths without class directories
+          if (attributes.isDirectory() && !isEmptyDirectory(Paths.get(entry))) {
+            return new Stamp(now, false, "");
+          }
+          putString(hasher, entry);
+          hasher.putLong(attributes.size()).putLong(attributes.lastModifiedTime().toMillis());
+        }
+        catch (IOException e) {
+          // Missing entries are fine, as long as they stay missing
+          putString(hasher, entry);
+        }
+      }
+      return new Stamp(now, true, hasher.hash().toString().substring(0, 16));
+    }
+
+    private static List<String> getManifestClassPath(final Path jar) {
+      final List<String> entries = Lists.newArrayList();
+      try (JarFile file = new JarFile(jar.toFile())) {
+        final Manifest manifest = file.getManifest();
+        final String classPath = null == manifest ? null :
+            manifest.getMainAttributes().getValue(Attributes.Name.CLASS_PATH);
+        if (null != classPath) {
+          for (final String entry : Splitter.on(' ').omitEmptyStrings().split(classPath)) {
+            final URI uri = jar.toUri().resolve(entry);
+            if ("file".equals(uri.getScheme())) {
+              entries.add(Paths.get(uri).toString());
+            }
+          }
+        }
+      }
+      catch (IOException | IllegalArgumentException e) {
+        log.debug("Could not read manifest class path of {}", jar, e);
+      }
+      return entries;
+    }
+
+    private static boolean isEmptyDirectory(final Path directory) throws IOException {
+      try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+        return !files.iterator().hasNext();
+      }
+    }
+  }
+
+  @ThreadSafe
+  static final class Launch {
+    static final Launch NONE = new Launch(ImmutableList.<String>of(), null);
+
+    private final ImmutableList<String> options;
+    private final Training training;
+
+    private Launch(final ImmutableList<String> options, final Training training) {
+      this.options = options;
+      this.training = training;
+    }
+
+    ImmutableList<String> getOptions() {
+      return options;
+    }
+
+    void started(final Process process) {
+      if (null != training) {
+        training.started(process);
+      }
+    }
+
+    void failed() {
+      if (null != training) {
+        training.finish();
+      }
+    }
+  }
+
+  @ThreadSafe
+  private final class Training {
+    private final Mode mode;
+    private final String name;
+    private final String configuration;
+    private final Path recording;
+    private final Path archive;
+    private final String executable;
+    private final Iterable<String> jvmOptions;
+    private final List<String> program;
+    private final long begin = System.nanoTime();
+
+    private Training(final Mode mode, final String name, final String configuration, final Path recording,
+        final Path archive, final String executable, final Iterable<String> jvmOptions, final List<String> program) {
+      this.mode = mode;
+      this.name = name;
+      this.configuration = configuration;
+      this.recording = recording;
+      this.archive = archive;
+      this.executable = executable;
+      this.jvmOptions = jvmOptions;
+      this.program = program;
+    }
+
+    void started(final Process process) {
+      TRAINING_EXECUTOR.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            complete(process.waitFor());
+          }
+          catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          catch (IOException | RuntimeException e) {
+            log.warn("Could not create shared archive {}", archive, e);
+          }
+          finally {
+            finish();
+          }
+        }
+      });
+    }
+
+    private void complete(final int exitCode) throws IOException, InterruptedException {
+      final long trainingNanos = System.nanoTime() - begin;
+      if (!Files.isRegularFile(recording)) {
+        if (0 == exitCode) {
+          markFailed("no archive was recorded");
+        }
+        return;
+      }
+      final long verifyBegin = System.nanoTime();
+      final int verifyExitCode = verify();
+      final long verifyNanos = System.nanoTime() - verifyBegin;
+      if (0 != verifyExitCode) {
+        markFailed("the recorded archive was rejected");
+        return;
+      }
+      Files.move(recording, archive, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      removeStale();
+      log.info("Created shared archive {}; recording launch ran for {} ms, verification launch for {} ms", archive,
+          TimeUnit.NANOSECONDS.toMillis(trainingNanos), TimeUnit.NANOSECONDS.toMillis(verifyNanos));
+    }
+
+    private int verify() throws IOException, InterruptedException {
+      final ImmutableList<String> command = ImmutableList.<String>builder()
+          .add(executable)
+          .addAll(jvmOptions)
+          .addAll(mode.requireOptions(recording))
+          .add("-cp", getClassPath(program), "-version")
+          .build();
+      final Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+      try (InputStream output = process.getInputStream()) {
+        ByteStreams.toByteArray(output);
+      }
+      return process.waitFor();
+    }
+
+    private void markFailed(final String reason) throws IOException {
+      log.info("Not using a shared archive for configuration {}: {}", name, reason);
+      Files.deleteIfExists(recording);
+      Files.write(directory.resolve(name + ".failed"), reason.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void removeStale() throws IOException {
+      try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, configuration + "-*")) {
+        for (final Path file : files) {
+          if (!file.equals(archive) && !file.getFileName().toString().startsWith(name)) {
+            Files.deleteIfExists(file);
+          }
+        }
+      }
+    }
+
+    void finish() {
+      training.remove(name);
+    }
+  }
+}
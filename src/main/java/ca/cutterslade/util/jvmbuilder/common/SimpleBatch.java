@@ -0,0 +1,177 @@
+package ca.cutterslade.util.jvmbuilder.common;
+
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import ca.cutterslade.util.jvmbuilder.Batch;
+import ca.cutterslade.util.jvmbuilder.BatchPolicy;
+import ca.cutterslade.util.jvmbuilder.BatchResult;
+import ca.cutterslade.util.jvmbuilder.JvmFactory;
+import ca.cutterslade.util.jvmbuilder.JvmProcess;
+import ca.cutterslade.util.jvmbuilder.OutputSink;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * Launches argument sets from the completion callbacks of earlier launches, so that no thread is held waiting for a
+ * free slot and at most the configured number of JVMs run at once.
+ */
+@ThreadSafe
+final class SimpleBatch implements Batch {
+  private final JvmFactory<?> factory;
+  private final ImmutableList<String[]> arguments;
+  private final BatchPolicy policy;
+  private final int outputLimit;
+  private final Charset charset;
+  private final AtomicInteger next = new AtomicInteger();
+  private final AtomicInteger owedLaunches = new AtomicInteger();
+  private final AtomicInteger remaining;
+  private final AtomicReferenceArray<BatchResult> results;
+  private final LinkedBlockingQueue<BatchResult> completed = new LinkedBlockingQueue<>();
+  private final SettableFuture<List<BatchResult>> all = SettableFuture.create();
+  private final Set<JvmProcess> running = Collections.newSetFromMap(new ConcurrentHashMap<JvmProcess, Boolean>());
+  private volatile boolean cancelled;
+
+  SimpleBatch(final JvmFactory<?> factory, final ImmutableList<String[]> arguments, final BatchPolicy policy,
+      final int outputLimit, final Charset charset) {
+    this.factory = factory;
+    this.arguments = arguments;
+    this.policy = policy;
+    this.outputLimit = outputLimit;
+    this.charset = charset;
+    remaining = new AtomicInteger(arguments.size());
+    results = new AtomicReferenceArray<>(arguments.size());
+  }
+
+  void start(final int parallelism) {
+    if (arguments.isEmpty()) {
+      all.set(ImmutableList.<BatchResult>of());
+    }
+    for (int i = 0; i < parallelism; i++) {
+      launch();
+    }
+  }
+
+  @Override
+  public int size() {
+    return arguments.size();
+  }
+
+  @Override
+  public BatchResult take() throws InterruptedException {
+    return completed.take();
+  }
+
+  @Override
+  public BatchResult poll(final long timeout, final TimeUnit unit) throws InterruptedException {
+    return completed.poll(timeout, unit);
+  }
+
+  @Override
+  public ListenableFuture<List<BatchResult>> getResults() {
+    return all;
+  }
+
+  @Override
+  public void cancel() {
+    cancelled = true;
+    int index;
+    while ((index = next.getAndIncrement()) < arguments.size()) {
+      complete(new BatchResult(index, ImmutableList.copyOf(arguments.get(index)), null, "", "", null,
+          new CancellationException("Batch was cancelled")));
+    }
+    for (final JvmProcess process : running) {
+      process.destroy();
+    }
+  }
+
+  /**
+   * Launches the next argument set, or leaves it to the thread already launching. A launch which fails on the calling
+   * thread completes, and asks for its successor, before its own launch returns; counting the launches owed rather
+   * than recursing keeps the stack flat however many fail that way.
+   */
+  private void launch() {
+    if (0 == owedLaunches.getAndIncrement()) {
+      do {
+        launchNext();
+      } while (0 != owedLaunches.decrementAndGet());
+    }
+  }
+
+  private void launchNext() {
+    if (cancelled) {
+      return;
+    }
+    final int index = next.getAndIncrement();
+    if (index >= arguments.size()) {
+      return;
+    }
+    final String[] args = arguments.get(index);
+    final CaptureSink stdOut = new CaptureSink(outputLimit);
+    final CaptureSink stdErr = new CaptureSink(outputLimit);
+    final ListenableFuture<JvmProcess> launch = factory.startAsync(getSink(stdOut), getSink(stdErr), args);
+    Futures.addCallback(launch, new FutureCallback<JvmProcess>() {
+      @Override
+      public void onSuccess(final JvmProcess process) {
+        running.add(process);
+        if (cancelled) {
+          process.destroy();
+        }
+        Futures.addCallback(process.getExitValue(), new FutureCallback<Integer>() {
+          @Override
+          public void onSuccess(final Integer exitValue) {
+            running.remove(process);
+            complete(new BatchResult(index, ImmutableList.copyOf(args), exitValue, stdOut.toString(charset),
+                stdErr.toString(charset), process.getTimings(), null));
+          }
+
+          @Override
+          public void onFailure(final Throwable t) {
+            running.remove(process);
+            complete(new BatchResult(index, ImmutableList.copyOf(args), null, stdOut.toString(charset),
+                stdErr.toString(charset), process.getTimings(), t));
+          }
+        });
+      }
+
+      @Override
+      public void onFailure(final Throwable t) {
+        complete(new BatchResult(index, ImmutableList.copyOf(args), null, "", "", null, t));
+      }
+    });
+  }
+
+  private OutputSink getSink(final CaptureSink capture) {
+    return 0 == outputLimit ? OutputSinks.discard() : capture;
+  }
+
+  private void complete(final BatchResult result) {
+    results.set(result.getIndex(), result);
+    completed.add(result);
+    if (BatchPolicy.FAIL_FAST == policy && !result.isSuccess() && !cancelled) {
+      cancel();
+    }
+    launch();
+    if (0 == remaining.decrementAndGet()) {
+      final BatchResult[] ordered = new BatchResult[results.length()];
+      for (int i = 0; i < ordered.length; i++) {
+        ordered[i] = results.get(i);
+      }
+      all.set(ImmutableList.copyOf(ordered));
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package ca.cutterslade.util.jvmbuilder.common;
+
+import java.nio.charset.Charset;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import ca.cutterslade.util.jvmbuilder.Batch;
+import ca.cutterslade.util.jvmbuilder.BatchBuilder;
+import ca.cutterslade.util.jvmbuilder.BatchPolicy;
+import ca.cutterslade.util.jvmbuilder.JvmFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+@NotThreadSafe
+public class SimpleBatchBuilder implements BatchBuilder {
+  private static final int DEFAULT_OUTPUT_LIMIT = 1024 * 1024;
+
+  private final JvmFactory<?> factory;
+  private final ImmutableList<String[]> arguments;
+  private int parallelism = Runtime.getRuntime().availableProcessors();
+  private BatchPolicy policy = BatchPolicy.COLLECT_ALL;
+  private int outputLimit = DEFAULT_OUTPUT_LIMIT;
+  private Charset charset = Charset.defaultCharset();
+
+  public SimpleBatchBuilder(final JvmFactory<?> factory, final Iterable<String[]> arguments) {
+    Preconditions.checkArgument(null != factory);
+    Preconditions.checkArgument(null != arguments);
+    this.factory = factory;
+    final ImmutableList.Builder<String[]> copies = ImmutableList.builder();
+    for (final String[] args : arguments) {
+      Preconditions.checkArgument(null != args);
+      copies.add(args.clone());
+    }
+    this.arguments = copies.build();
+  }
+
+  @Override
+  public BatchBuilder setParallelism(final int parallelism) {
+    Preconditions.checkArgument(0 < parallelism);
+    this.parallelism = parallelism;
+    return this;
+  }
+
+  @Override
+  public BatchBuilder setPolicy(final BatchPolicy policy) {
+    Preconditions.checkArgument(null != policy);
+    this.policy = policy;
+    return this;
+  }
+
+  @Override
+  public BatchBuilder setOutputLimit(final int bytes) {
+    Preconditions.checkArgument(0 <= bytes);
+    this.outputLimit = bytes;
+    return this;
+  }
+
+  @Override
+  public BatchBuilder setCharset(final Charset charset) {
+    Preconditions.checkArgument(null != charset);
+    this.charset = charset;
+    return this;
+  }
+
+  @Override
+  public Batch start() {
+    final SimpleBatch batch = new SimpleBatch(factory, arguments, policy, outputLimit, charset);
+    batch.start(parallelism);
+    return batch;
+  }
+}
@@ -1,5 +1,6 @@
 package ca.cutterslade.util.jvmbuilder.common;
 
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
@@ -8,18 +9,26 @@ import java.util.List;
 
 import javax.annotation.concurrent.NotThreadSafe;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import ca.cutterslade.util.jvmbuilder.ClassPathBuilder;
 import ca.cutterslade.util.jvmbuilder.JvmFactoryBuilder;
 
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 
 @NotThreadSafe
 public class SimpleClassPathBuilder<T extends JvmFactoryBuilder<T>> implements ClassPathBuilder<T> {
+  private static final Logger log = LoggerFactory.getLogger(SimpleClassPathBuilder.class);
 
   private final T builder;
 
   private final List<String> entries;
 
+  private Path pathingJarDirectory;
+
   public static <T extends JvmFactoryBuilder<T>> SimpleClassPathBuilder<T> clean(final T jvmBuilder) {
     return new SimpleClassPathBuilder<T>(jvmBuilder, Lists.<String>newArrayList());
   }
@@ -58,8 +67,24 @@ public class SimpleClassPathBuilder<T extends JvmFactoryBuilder<T>> implements C
     return addEntry(classPath.toString());
   }
 
+  @Override
+  public ClassPathBuilder<T> usePathingJar(final Path directory) {
+    Preconditions.checkArgument(null != directory);
+    Preconditions.checkState(null == pathingJarDirectory);
+    pathingJarDirectory = directory;
+    return this;
+  }
+
   @Override
   public JvmFactoryBuilder<T> build() {
+    if (null != pathingJarDirectory) {
+      try {
+        return builder.setClassPath(ImmutableList.of(PathingJar.create(pathingJarDirectory, entries).toString()));
+      }
+      catch (IOException e) {
+        log.warn("Could not create pathing jar in {}, using the full class path", pathingJarDirectory, e);
+      }
+    }
     return builder.setClassPath(entries);
   }
 }
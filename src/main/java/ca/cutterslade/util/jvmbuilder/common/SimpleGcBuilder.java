@@ -0,0 +1,74 @@
+package ca.cutterslade.util.jvmbuilder.common;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import ca.cutterslade.util.jvmbuilder.GarbageCollector;
+import ca.cutterslade.util.jvmbuilder.GcBuilder;
+import ca.cutterslade.util.jvmbuilder.GcSettings;
+import ca.cutterslade.util.jvmbuilder.JvmFactoryBuilder;
+import ca.cutterslade.util.jvmbuilder.SizeUnit;
+
+import com.google.common.base.Preconditions;
+
+@NotThreadSafe
+public class SimpleGcBuilder<T extends JvmFactoryBuilder<T>> implements GcBuilder<T> {
+  private final T builder;
+  private final GarbageCollector collector;
+  private long pauseTargetMillis;
+  private long regionSize;
+  private int parallelThreads;
+  private int concurrentThreads;
+  private long softMaxHeap;
+
+  public SimpleGcBuilder(final T builder, final GarbageCollector collector) {
+    Preconditions.checkArgument(null != collector);
+    this.builder = builder;
+    this.collector = collector;
+  }
+
+  @Override
+  public GcBuilder<T> setPauseTarget(final long duration, final TimeUnit unit) {
+    Preconditions.checkArgument(0 < duration);
+    Preconditions.checkArgument(null != unit);
+    pauseTargetMillis = Math.max(1, unit.toMillis(duration));
+    return this;
+  }
+
+  @Override
+  public GcBuilder<T> setRegionSize(final long size, final SizeUnit unit) {
+    Preconditions.checkArgument(0 < size);
+    Preconditions.checkArgument(null != unit);
+    regionSize = unit.toBytes(size);
+    return this;
+  }
+
+  @Override
+  public GcBuilder<T> setParallelThreads(final int threads) {
+    Preconditions.checkArgument(0 < threads);
+    parallelThreads = threads;
+    return this;
+  }
+
+  @Override
+  public GcBuilder<T> setConcurrentThreads(final int threads) {
+    Preconditions.checkArgument(0 < threads);
+    concurrentThreads = threads;
+    return this;
+  }
+
+  @Override
+  public GcBuilder<T> setSoftMaxHeap(final long size, final SizeUnit unit) {
+    Preconditions.checkArgument(0 < size);
+    Preconditions.checkArgument(null != unit);
+    softMaxHeap = unit.toBytes(size);
+    return this;
+  }
+
+  @Override
+  public T build() {
+    return builder.setGarbageCollector(
+        new GcSettings(collector, pauseTargetMillis, regionSize, parallelThreads, concurrentThreads, softMaxHeap));
+  }
+}
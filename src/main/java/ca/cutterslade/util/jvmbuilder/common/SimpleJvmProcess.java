@@ -0,0 +1,215 @@
+package ca.cutterslade.util.jvmbuilder.common;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ca.cutterslade.util.jvmbuilder.GcLog;
+import ca.cutterslade.util.jvmbuilder.JvmProcess;
+import ca.cutterslade.util.jvmbuilder.LaunchTimings;
+import ca.cutterslade.util.jvmbuilder.MemoryFootprint;
+import ca.cutterslade.util.jvmbuilder.StartupBreakdown;
+import ca.cutterslade.util.jvmbuilder.ipc.IpcChannel;
+import ca.cutterslade.util.jvmbuilder.ipc.IpcServer;
+import ca.cutterslade.util.jvmbuilder.ipc.SharedRing;
+
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+@ThreadSafe
+final class SimpleJvmProcess implements JvmProcess {
+  private static final Logger log = LoggerFactory.getLogger(SimpleJvmProcess.class);
+
+  private final Process process;
+  private final long submitted;
+  private final long execStarted;
+  private final long execFinished;
+  private final long execStartedMillis;
+  private final Path startupReport;
+  private final GcLogTailer gcLog;
+  private final IpcServer ipc;
+  private final SharedRing ring;
+  private final SettableFuture<Integer> exitValue = SettableFuture.create();
+  private volatile long firstOutput;
+  private volatile long exited;
+  private volatile Optional<Long> pid;
+  private volatile Optional<StartupBreakdown> startupBreakdown = Optional.absent();
+  private volatile Optional<MemoryFootprint> memoryFootprint = Optional.absent();
+
+  SimpleJvmProcess(final Process process, final long submitted, final long execStarted, final long execFinished,
+      final long execStartedMillis, @Nullable final Path startupReport, @Nullable final GcLogTailer gcLog,
+      @Nullable final IpcServer ipc, @Nullable final SharedRing ring) {
+    this.process = process;
+    this.submitted = submitted;
+    this.execStarted = execStarted;
+    this.execFinished = execFinished;
+    this.execStartedMillis = execStartedMillis;
+    this.startupReport = startupReport;
+    this.gcLog = gcLog;
+    this.ipc = ipc;
+    this.ring = ring;
+    if (null != gcLog) {
+      gcLog.start();
+    }
+  }
+
+  @Override
+  public Process getProcess() {
+    return process;
+  }
+
+  @Override
+  public Optional<Long> getPid() {
+    Optional<Long> result = pid;
+    if (null == result) {
+      pid = result = findPid(process);
+    }
+    return result;
+  }
+
+  @Override
+  public ListenableFuture<Integer> getExitValue() {
+    return exitValue;
+  }
+
+  @Override
+  public LaunchTimings getTimings() {
+    return new LaunchTimings(submitted, execStarted, execFinished, firstOutput, exited);
+  }
+
+  @Override
+  public Optional<StartupBreakdown> getStartupBreakdown() {
+    return startupBreakdown;
+  }
+
+  @Override
+  public Optional<MemoryFootprint> getMemoryFootprint() {
+    return memoryFootprint;
+  }
+
+  @Override
+  public Optional<GcLog> getGcLog() {
+    return Optional.<GcLog>fromNullable(gcLog);
+  }
+
+  @Override
+  public Optional<IpcChannel> getIpcChannel() {
+    return null == ipc ? Optional.<IpcChannel>absent() : Optional.of(ipc.getChannel());
+  }
+
+  @Override
+  public Optional<SharedRing> getSharedRing() {
+    return Optional.fromNullable(ring);
+  }
+
+  @Override
+  public void destroy() {
+    process.destroy();
+  }
+
+  void output() {
+    if (0 == firstOutput) {
+      firstOutput = System.nanoTime();
+    }
+  }
+
+  void exited(final int value) {
+    exited = System.nanoTime();
+    if (null != startupReport) {
+      readStartupReport();
+    }
+    if (null != gcLog) {
+      gcLog.finish();
+    }
+    closeIpc();
+    exitValue.set(value);
+  }
+
+  private void readStartupReport() {
+    final Properties report = new Properties();
+    try {
+      try (final Reader reader = Files.newBufferedReader(startupReport, StandardCharsets.UTF_8)) {
+        report.load(reader);
+      }
+      Files.delete(startupReport);
+      startupBreakdown = Optional.of(new StartupBreakdown(execStartedMillis, getLong(report, "vmStartMillis"),
+          getLong(report, "premainMicros"), getLong(report, "mainClassLoadedMicros"),
+          getLong(report, "firstOutputMicros"), getLong(report, "shutdownMicros"), getLong(report, "loadedClasses"),
+          getLong(report, "jitMillis"), getLong(report, "gcMillis"), getLong(report, "gcCount")));
+      memoryFootprint = Optional.of(new MemoryFootprint(getLong(report, "peakHeapUsed"),
+          getLong(report, "liveHeapAfterGc"), getLong(report, "peakRssBytes")));
+    }
+    catch (IOException | NumberFormatException e) {
+      // The child may have been killed, or have halted without running shutdown hooks
+      log.debug("Could not read startup report {}", startupReport, e);
+    }
+  }
+
+  private static long getLong(final Properties report, final String key) throws IOException {
+    final String value = report.getProperty(key);
+    if (null == value) {
+      throw new IOException("Startup report has no " + key);
+    }
+    return Long.parseLong(value);
+  }
+
+  void failed(final Throwable cause) {
+    if (null != gcLog) {
+      gcLog.finish();
+    }
+    closeIpc();
+    exitValue.setException(cause);
+  }
+
+  // A child which never connected never will, and whatever it sent before exiting can still be received; the ring's
+  // file goes, but its mapping stays for the parent to drain
+  private void closeIpc() {
+    if (null != ipc) {
+      try {
+        ipc.close();
+      }
+      catch (IOException e) {
+        log.debug("Could not close IPC server", e);
+      }
+    }
+    if (null != ring) {
+      try {
+        ring.close();
+      }
+      catch (IOException e) {
+        log.debug("Could not delete shared ring {}", ring.getFile(), e);
+      }
+    }
+  }
+
+  private static Optional<Long> findPid(final Process process) {
+    try {
+      // Process.pid() from Java 9, which throws UnsupportedOperationException for processes it does not know
+      final Method method = Process.class.getMethod("pid");
+      return Optional.of((Long) method.invoke(process));
+    }
+    catch (ReflectiveOperationException | RuntimeException e) {
+      // Before Java 9 the platform implementation keeps the pid in a field
+      try {
+        final Field field = process.getClass().getDeclaredField("pid");
+        field.setAccessible(true);
+        return Optional.of(((Number) field.get(process)).longValue());
+      }
+      catch (ReflectiveOperationException | RuntimeException ignored) {
+        return Optional.absent();
+      }
+    }
+  }
+}
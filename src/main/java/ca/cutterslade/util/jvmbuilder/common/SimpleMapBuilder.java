@@ -7,6 +7,7 @@ import javax.annotation.concurrent.NotThreadSafe;
 import ca.cutterslade.util.jvmbuilder.JvmFactoryBuilder;
 import ca.cutterslade.util.jvmbuilder.MapBuilder;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 
 @NotThreadSafe
@@ -15,7 +16,7 @@ public class SimpleMapBuilder<T extends JvmFactoryBuilder<T>> implements MapBuil
     PROPERTIES {
       @Override
       Map<String, String> inherit() {
-        return Maps.newHashMap(Maps.fromProperties(System.getProperties()));
+        return Maps.fromProperties(System.getProperties());
       }
 
       @Override
@@ -26,7 +27,7 @@ public class SimpleMapBuilder<T extends JvmFactoryBuilder<T>> implements MapBuil
     ENVIRONMENT {
       @Override
       Map<String, String> inherit() {
-        return System.getenv();
+        return currentEnvironment();
       }
 
       @Override
@@ -40,6 +41,13 @@ public class SimpleMapBuilder<T extends JvmFactoryBuilder<T>> implements MapBuil
     abstract Map<String, String> inherit();
   }
 
+  // The environment of a running JVM never changes, so it is copied once for every factory which inherits it
+  private static final ImmutableMap<String, String> CURRENT_ENVIRONMENT = ImmutableMap.copyOf(System.getenv());
+
+  static ImmutableMap<String, String> currentEnvironment() {
+    return CURRENT_ENVIRONMENT;
+  }
+
   public static <T extends JvmFactoryBuilder<T>> SimpleMapBuilder<T> cleanProperties(final T builder) {
     return clean(builder, Type.PROPERTIES);
   }
@@ -57,7 +65,7 @@ public class SimpleMapBuilder<T extends JvmFactoryBuilder<T>> implements MapBuil
   }
 
   static <T extends JvmFactoryBuilder<T>> SimpleMapBuilder<T> clean(final T builder, final Type type) {
-    return new SimpleMapBuilder<>(builder, Maps.<String, String>newHashMap(), type);
+    return new SimpleMapBuilder<>(builder, ImmutableMap.<String, String>of(), type);
   }
 
   static <T extends JvmFactoryBuilder<T>> SimpleMapBuilder<T> inherit(final T builder, final Type type) {
@@ -65,8 +73,9 @@ public class SimpleMapBuilder<T extends JvmFactoryBuilder<T>> implements MapBuil
   }
 
   private final T builder;
-  private final Map<String, String> map;
   private final Type type;
+  private Map<String, String> map;
+  private boolean copied;
 
   private SimpleMapBuilder(final T builder, final Map<String, String> map, final Type type) {
     this.builder = builder;
@@ -74,15 +83,24 @@ public class SimpleMapBuilder<T extends JvmFactoryBuilder<T>> implements MapBuil
     this.type = type;
   }
 
+  // An inherited map is shared, unmodified, until it is first changed
+  private Map<String, String> getModifiableMap() {
+    if (!copied) {
+      map = Maps.newHashMap(map);
+      copied = true;
+    }
+    return map;
+  }
+
   @Override
   public MapBuilder<T> set(final String key, final String value) {
-    map.put(key, value);
+    getModifiableMap().put(key, value);
     return this;
   }
 
   @Override
   public MapBuilder<T> remove(final String key) {
-    map.remove(key);
+    getModifiableMap().remove(key);
     return this;
   }
 
@@ -0,0 +1,152 @@
+package ca.cutterslade.util.jvmbuilder.common;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import ca.cutterslade.util.jvmbuilder.VariantBuilder;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Collects the changes a variant makes to its factory; a removal is recorded as a change to null.
+ */
+@NotThreadSafe
+public abstract class SimpleVariantBuilder<F extends AbstractJvmFactory<?>> implements VariantBuilder<F> {
+  private final AbstractJvmFactory<?> factory;
+  private final Map<String, String> propertyChanges = Maps.newLinkedHashMap();
+  private final Map<String, String> environmentChanges = Maps.newLinkedHashMap();
+  private final List<String> addedJvmArguments = Lists.newArrayList();
+  private ImmutableList<String> programArguments;
+  private String mainClass;
+  private Path workingDirectory;
+
+  protected SimpleVariantBuilder(final AbstractJvmFactory<?> factory) {
+    this.factory = factory;
+  }
+
+  @Override
+  public VariantBuilder<F> setProperty(final String key, final String value) {
+    Preconditions.checkArgument(null != key);
+    Preconditions.checkArgument(null != value);
+    propertyChanges.put(key, value);
+    return this;
+  }
+
+  @Override
+  public VariantBuilder<F> removeProperty(final String key) {
+    Preconditions.checkArgument(null != key);
+    propertyChanges.put(key, null);
+    return this;
+  }
+
+  @Override
+  public VariantBuilder<F> setEnvironmentVariable(final String key, final String value) {
+    Preconditions.checkArgument(null != key);
+    Preconditions.checkArgument(null != value);
+    environmentChanges.put(key, value);
+    return this;
+  }
+
+  @Override
+  public VariantBuilder<F> removeEnvironmentVariable(final String key) {
+    Preconditions.checkArgument(null != key);
+    environmentChanges.put(key, null);
+    return this;
+  }
+
+  @Override
+  public VariantBuilder<F> addJvmArguments(final String... arguments) {
+    addedJvmArguments.addAll(Arrays.asList(arguments));
+    return this;
+  }
+
+  @Override
+  public VariantBuilder<F> setProgramArguments(final String... arguments) {
+    return setProgramArguments(Arrays.asList(arguments));
+  }
+
+  @Override
+  public VariantBuilder<F> setProgramArguments(final List<String> arguments) {
+    Preconditions.checkArgument(null != arguments);
+    programArguments = ImmutableList.copyOf(arguments);
+    return this;
+  }
+
+  @Override
+  public VariantBuilder<F> setMainClass(final String type) {
+    Preconditions.checkArgument(null != type);
+    Preconditions.checkState(StartType.CLASS == factory.getBuilderStartType(), "The factory runs a jar");
+    mainClass = type;
+    return this;
+  }
+
+  @Override
+  public VariantBuilder<F> setWorkingDirectory(final Path workingDirectory) {
+    Preconditions.checkArgument(null != workingDirectory);
+    this.workingDirectory = workingDirectory;
+    return this;
+  }
+
+  @Override
+  public F build() {
+    return create();
+  }
+
+  /**
+   * Creates the variant, usually by passing this to a constructor which calls the variant constructor of
+   * {@link AbstractJvmFactory}.
+   */
+  protected abstract F create();
+
+  /**
+   * Overlays changes on a map, sharing the map if there are none.
+   */
+  static ImmutableMap<String, String> overlay(final ImmutableMap<String, String> map,
+      final Map<String, String> changes) {
+    if (changes.isEmpty()) {
+      return map;
+    }
+    final Map<String, String> result = Maps.newLinkedHashMap(map);
+    for (final Map.Entry<String, String> change : changes.entrySet()) {
+      if (null == change.getValue()) {
+        result.remove(change.getKey());
+      }
+      else {
+        result.put(change.getKey(), change.getValue());
+      }
+    }
+    return ImmutableMap.copyOf(result);
+  }
+
+  Map<String, String> getPropertyChanges() {
+    return propertyChanges;
+  }
+
+  Map<String, String> getEnvironmentChanges() {
+    return environmentChanges;
+  }
+
+  List<String> getAddedJvmArguments() {
+    return addedJvmArguments;
+  }
+
+  ImmutableList<String> getProgramArguments() {
+    return programArguments;
+  }
+
+  String getMainClass() {
+    return mainClass;
+  }
+
+  Path getWorkingDirectory() {
+    return workingDirectory;
+  }
+}
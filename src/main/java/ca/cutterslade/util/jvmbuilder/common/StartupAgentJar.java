@@ -0,0 +1,71 @@
+package ca.cutterslade.util.jvmbuilder.common;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import ca.cutterslade.util.jvmbuilder.child.StartupAgent;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ * The jar passed to {@code -javaagent} for startup instrumentation, created from the agent classes on this class path
+ * in the temporary directory. It is named for a hash of its content, so a changed agent gets a new jar.
+ */
+final class StartupAgentJar {
+  private static final Path DIRECTORY = Paths.get(System.getProperty("java.io.tmpdir"), "jvm-builder-agent");
+
+  private static volatile Path jar;
+
+  private StartupAgentJar() {
+  }
+
+  static Path get() throws IOException {
+    Path result = jar;
+    if (null == result) {
+      synchronized (StartupAgentJar.class) {
+        result = jar;
+        if (null == result) {
+          final byte[] content = createJar();
+          jar = result = CachedFiles.write(CachedFiles.getPath(DIRECTORY, content, ".jar"), content);
+        }
+      }
+    }
+    return result;
+  }
+
+  private static byte[] createJar() throws IOException {
+    final Manifest manifest = new Manifest();
+    manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    manifest.getMainAttributes().putValue("Premain-Class", StartupAgent.class.getName());
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (final JarOutputStream out = new JarOutputStream(bytes, manifest)) {
+      addClass(out, StartupAgent.class);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static void addClass(final JarOutputStream out, final Class<?> type) throws IOException {
+    final String name = type.getName().replace('.', '/') + ".class";
+    final JarEntry entry = new JarEntry(name);
+    // A fixed time keeps the content, and so the jar name, the same from run to run
+    entry.setTime(0);
+    out.putNextEntry(entry);
+    try (final InputStream in = type.getClassLoader().getResourceAsStream(name)) {
+      if (null == in) {
+        throw new IOException("Could not find class file " + name);
+      }
+      ByteStreams.copy(in, out);
+    }
+    out.closeEntry();
+    for (final Class<?> nested : type.getDeclaredClasses()) {
+      addClass(out, nested);
+    }
+  }
+}
@@ -0,0 +1,208 @@
+package ca.cutterslade.util.jvmbuilder.daemon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ca.cutterslade.util.jvmbuilder.child.DaemonMain;
+import ca.cutterslade.util.jvmbuilder.child.DaemonProtocol;
+import ca.cutterslade.util.jvmbuilder.common.AbstractJvmFactory;
+
+@ThreadSafe
+final class DaemonConnection {
+  private static final Logger log = LoggerFactory.getLogger(DaemonConnection.class);
+
+  private final Process process;
+  private final DataOutputStream output;
+  private final ConcurrentMap<Integer, DaemonProcess> invocations = new ConcurrentHashMap<>();
+  private volatile boolean alive = true;
+
+  private DaemonConnection(final Process process) {
+    this.process = process;
+    output = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+  }
+
+  static DaemonConnection start(final AbstractJvmFactory<?> launcher) throws IOException {
+    final DaemonConnection connection = new DaemonConnection(launcher.startLauncher(DaemonMain.class));
+    final Thread reader = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        connection.read();
+      }
+    }, "jvm-daemon-reader");
+    reader.setDaemon(true);
+    reader.start();
+    final Thread errors = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        connection.logErrors();
+      }
+    }, "jvm-daemon-errors");
+    errors.setDaemon(true);
+    errors.start();
+    return connection;
+  }
+
+  boolean isAlive() {
+    return alive;
+  }
+
+  DaemonProcess invoke(final int id, final String mainClass, final String[] args) throws IOException {
+    final DaemonProcess invocation = new DaemonProcess(this, id);
+    invocations.put(id, invocation);
+    if (!alive && null != invocations.remove(id)) {
+      throw new IOException("Daemon JVM has exited");
+    }
+    try {
+      synchronized (output) {
+        output.writeByte(DaemonProtocol.START);
+        output.writeInt(id);
+        output.writeUTF(mainClass);
+        output.writeInt(args.length);
+        for (final String arg : args) {
+          output.writeUTF(arg);
+        }
+        output.flush();
+      }
+    }
+    catch (IOException e) {
+      invocations.remove(id);
+      throw e;
+    }
+    return invocation;
+  }
+
+  void sendInput(final int id, final byte[] bytes, final int offset, final int length) throws IOException {
+    synchronized (output) {
+      output.writeByte(DaemonProtocol.STDIN);
+      output.writeInt(id);
+      output.writeInt(length);
+      output.write(bytes, offset, length);
+      output.flush();
+    }
+  }
+
+  void closeInput(final int id) throws IOException {
+    send(DaemonProtocol.STDIN_CLOSE, id);
+  }
+
+  void destroy(final int id) {
+    try {
+      send(DaemonProtocol.DESTROY, id);
+    }
+    catch (IOException e) {
+      log.debug("Could not destroy invocation {}", id, e);
+    }
+  }
+
+  private void send(final byte type, final int id) throws IOException {
+    synchronized (output) {
+      output.writeByte(type);
+      output.writeInt(id);
+      output.flush();
+    }
+  }
+
+  void close() {
+    try {
+      synchronized (output) {
+        output.close();
+      }
+    }
+    catch (IOException e) {
+      log.debug("Could not close daemon input", e);
+      process.destroy();
+    }
+  }
+
+  private void read() {
+    try (DataInputStream input = new DataInputStream(new BufferedInputStream(process.getInputStream()))) {
+      while (true) {
+        final byte type;
+        try {
+          type = input.readByte();
+        }
+        catch (EOFException e) {
+          break;
+        }
+        final DaemonProcess invocation = invocations.get(input.readInt());
+        switch (type) {
+          case DaemonProtocol.STDOUT:
+          case DaemonProtocol.STDERR:
+            final byte[] bytes = new byte[input.readInt()];
+            input.readFully(bytes);
+            if (null != invocation) {
+              if (DaemonProtocol.STDOUT == type) {
+                invocation.stdOut(bytes);
+              }
+              else {
+                invocation.stdErr(bytes);
+              }
+            }
+            break;
+          case DaemonProtocol.EXIT:
+            final int exitCode = input.readInt();
+            if (null != invocation) {
+              invocations.remove(invocation.getId());
+              invocation.exit(exitCode);
+            }
+            break;
+          default:
+            throw new IOException("Unknown frame type " + type);
+        }
+      }
+    }
+    catch (IOException e) {
+      log.warn("Lost connection to daemon JVM", e);
+    }
+    finally {
+      alive = false;
+      exitAll();
+    }
+  }
+
+  private void exitAll() {
+    int exitCode;
+    try {
+      exitCode = process.waitFor();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      exitCode = DaemonProtocol.DESTROYED_EXIT_CODE;
+    }
+    for (final DaemonProcess invocation : invocations.values()) {
+      try {
+        invocation.exit(exitCode);
+      }
+      catch (InterruptedIOException e) {
+        log.debug("Interrupted while ending invocation {}", invocation.getId(), e);
+      }
+    }
+    invocations.clear();
+  }
+
+  private void logErrors() {
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getErrorStream()))) {
+      String line;
+      while (null != (line = reader.readLine())) {
+        log.info("Daemon JVM: {}", line);
+      }
+    }
+    catch (IOException e) {
+      log.debug("Could not read daemon error stream", e);
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package ca.cutterslade.util.jvmbuilder.daemon;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.CountDownLatch;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import ca.cutterslade.util.jvmbuilder.child.ChunkPipe;
+
+@ThreadSafe
+final class DaemonProcess extends Process {
+  private final DaemonConnection connection;
+  private final int id;
+  // one reader thread delivers the output of every invocation, so it must not wait for any one of them to be read
+  private final ChunkPipe stdOut = new ChunkPipe();
+  private final ChunkPipe stdErr = new ChunkPipe();
+  private final OutputStream stdIn;
+  private final CountDownLatch exited = new CountDownLatch(1);
+  private volatile int exitCode;
+
+  DaemonProcess(final DaemonConnection connection, final int id) {
+    this.connection = connection;
+    this.id = id;
+    stdIn = new BufferedOutputStream(new OutputStream() {
+      @Override
+      public void write(final int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+      }
+
+      @Override
+      public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+        connection.sendInput(id, bytes, offset, length);
+      }
+
+      @Override
+      public void close() throws IOException {
+        connection.closeInput(id);
+      }
+    });
+  }
+
+  int getId() {
+    return id;
+  }
+
+  void stdOut(final byte[] bytes) throws InterruptedIOException {
+    stdOut.write(bytes, 0, bytes.length);
+  }
+
+  void stdErr(final byte[] bytes) throws InterruptedIOException {
+    stdErr.write(bytes, 0, bytes.length);
+  }
+
+  void exit(final int exitCode) throws InterruptedIOException {
+    if (0 != exited.getCount()) {
+      this.exitCode = exitCode;
+      stdOut.finish();
+      stdErr.finish();
+      exited.countDown();
+    }
+  }
+
+  @Override
+  public OutputStream getOutputStream() {
+    return stdIn;
+  }
+
+  @Override
+  public InputStream getInputStream() {
+    return stdOut;
+  }
+
+  @Override
+  public InputStream getErrorStream() {
+    return stdErr;
+  }
+
+  @Override
+  public int waitFor() throws InterruptedException {
+    exited.await();
+    return exitCode;
+  }
+
+  @Override
+  public int exitValue() {
+    if (0 != exited.getCount()) {
+      throw new IllegalThreadStateException("Invocation " + id + " has not exited");
+    }
+    return exitCode;
+  }
+
+  @Override
+  public void destroy() {
+    if (0 != exited.getCount()) {
+      connection.destroy(id);
+    }
+  }
+}
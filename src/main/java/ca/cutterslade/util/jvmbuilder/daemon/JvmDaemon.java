@@ -0,0 +1,113 @@
+package ca.cutterslade.util.jvmbuilder.daemon;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import ca.cutterslade.util.jvmbuilder.BatchBuilder;
+import ca.cutterslade.util.jvmbuilder.JvmFactory;
+import ca.cutterslade.util.jvmbuilder.JvmFactoryBuilder;
+import ca.cutterslade.util.jvmbuilder.JvmProcess;
+import ca.cutterslade.util.jvmbuilder.OutputSink;
+import ca.cutterslade.util.jvmbuilder.common.AbstractJvmFactory;
+import ca.cutterslade.util.jvmbuilder.common.AsyncLauncher;
+import ca.cutterslade.util.jvmbuilder.common.SimpleBatchBuilder;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * Runs programs inside a single long-lived JVM started from a factory, rather than starting a JVM for each one. Each
+ * program gets its own class loader, thread group and standard streams, and its exit code is reported when its last
+ * non-daemon thread ends. A program calling {@link System#exit(int)} ends the daemon JVM, and with it every program
+ * running in it; a new daemon JVM is started for the next program.
+ */
+@ThreadSafe
+public final class JvmDaemon<T extends JvmFactoryBuilder<T>> implements JvmFactory<T>, Closeable {
+  private final JvmFactory<T> factory;
+  private final AbstractJvmFactory<?> launcher;
+  private final AtomicInteger ids = new AtomicInteger();
+  private final Object lock = new Object();
+  @GuardedBy("lock")
+  private DaemonConnection connection;
+  @GuardedBy("lock")
+  private boolean closed;
+
+  public JvmDaemon(final JvmFactory<T> factory) {
+    Preconditions.checkArgument(factory instanceof AbstractJvmFactory, "Daemon mode requires an AbstractJvmFactory");
+    this.factory = factory;
+    this.launcher = (AbstractJvmFactory<?>) factory;
+  }
+
+  @Override
+  public T clearProgram() {
+    return factory.clearProgram();
+  }
+
+  @Override
+  public Process start(final String... args) throws IOException {
+    return invoke("", args);
+  }
+
+  @Override
+  public ListenableFuture<JvmProcess> startAsync(final String... args) {
+    return startAsync(null, null, args);
+  }
+
+  @Override
+  public ListenableFuture<JvmProcess> startAsync(@Nullable final OutputSink stdOut, @Nullable final OutputSink stdErr,
+      final String... args) {
+    return AsyncLauncher.start(launcher.getAsyncExecutor(), new Callable<Process>() {
+      @Override
+      public Process call() throws IOException {
+        return start(args);
+      }
+    }, stdOut, stdErr);
+  }
+
+  @Override
+  public BatchBuilder batch(final Iterable<String[]> arguments) {
+    return new SimpleBatchBuilder(this, arguments);
+  }
+
+  public Process startMain(final Class<?> mainClass, final String... args) throws IOException {
+    Preconditions.checkArgument(null != mainClass);
+    return startMain(mainClass.getName(), args);
+  }
+
+  public Process startMain(final String mainClass, final String... args) throws IOException {
+    Preconditions.checkArgument(null != mainClass && !mainClass.isEmpty());
+    return invoke(mainClass, args);
+  }
+
+  private Process invoke(final String mainClass, final String[] args) throws IOException {
+    Preconditions.checkArgument(null != args);
+    return getConnection().invoke(ids.incrementAndGet(), mainClass, args);
+  }
+
+  private DaemonConnection getConnection() throws IOException {
+    synchronized (lock) {
+      Preconditions.checkState(!closed, "Daemon has been closed");
+      if (null == connection || !connection.isAlive()) {
+        connection = DaemonConnection.start(launcher);
+      }
+      return connection;
+    }
+  }
+
+  @Override
+  public void close() {
+    synchronized (lock) {
+      closed = true;
+      if (null != connection) {
+        connection.close();
+        connection = null;
+      }
+    }
+  }
+}
@@ -0,0 +1,699 @@
+package ca.cutterslade.util.jvmbuilder.executor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.ProcessBuilder.Redirect;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ca.cutterslade.util.jvmbuilder.child.WorkerMain;
+import ca.cutterslade.util.jvmbuilder.child.WorkerProtocol;
+import ca.cutterslade.util.jvmbuilder.common.AbstractJvmFactory;
+import ca.cutterslade.util.jvmbuilder.ipc.IpcChannel;
+import ca.cutterslade.util.jvmbuilder.ipc.IpcServer;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Closeables;
+import com.google.common.util.concurrent.AbstractFuture;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+
+/**
+ * An executor which runs serializable tasks in a pool of worker JVMs, talking to each over an IPC channel.
+ * <p>
+ * Tasks are serialized by the submitting thread and queued for the least loaded worker. A worker which runs out of
+ * queued tasks steals from the back of the longest queue of another worker. A worker which exits loses the tasks it
+ * was running, which fail with an {@link IOException}, while the tasks queued for it are moved to other workers.
+ * Workers are replaced when they exit and, if so configured, once they have run a number of tasks or their retained
+ * heap has grown too much; the replacement is started before the old worker is finished so that it does not leave a
+ * gap in the pool.
+ */
+@ThreadSafe
+public final class JvmExecutorService extends AbstractExecutorService {
+  private static final Logger log = LoggerFactory.getLogger(JvmExecutorService.class);
+  private static final int MAX_CONSECUTIVE_START_FAILURES = 3;
+
+  private final AbstractJvmFactory<?> factory;
+  private final int maxInFlight;
+  private final long maxTasksPerWorker;
+  private final long maxHeapGrowth;
+  private final CountDownLatch terminated = new CountDownLatch(1);
+  private final Object lock = new Object();
+  @GuardedBy("lock")
+  private final List<Worker> workers = new ArrayList<>();
+  @GuardedBy("lock")
+  private boolean shutdown;
+  @GuardedBy("lock")
+  private int consecutiveStartFailures;
+  @GuardedBy("lock")
+  private long nextWorkerId;
+  @GuardedBy("lock")
+  private long nextTaskId;
+  @GuardedBy("lock")
+  private long submitted;
+  @GuardedBy("lock")
+  private long completed;
+  @GuardedBy("lock")
+  private long failed;
+  @GuardedBy("lock")
+  private long steals;
+  @GuardedBy("lock")
+  private long recycled;
+  @GuardedBy("lock")
+  private long workerFailures;
+
+  JvmExecutorService(final JvmExecutorServiceBuilder builder) {
+    factory = builder.getFactory();
+    maxInFlight = builder.getMaxInFlight();
+    maxTasksPerWorker = builder.getMaxTasksPerWorker();
+    maxHeapGrowth = builder.getMaxHeapGrowth();
+    final List<Worker> started = new ArrayList<>();
+    synchronized (lock) {
+      for (int i = 0; i < builder.getWorkers(); i++) {
+        started.add(newWorker());
+      }
+    }
+    for (final Worker worker : started) {
+      worker.start();
+    }
+  }
+
+  public JvmExecutorStats getStats() {
+    synchronized (lock) {
+      return new JvmExecutorStats(submitted, completed, failed, steals, recycled, workerFailures, workers.size());
+    }
+  }
+
+  @Override
+  public <T> ListenableFuture<T> submit(final Callable<T> task) {
+    final RemoteTask<T> future = newTask(task, null);
+    execute(future);
+    return future;
+  }
+
+  @Override
+  public ListenableFuture<?> submit(final Runnable task) {
+    final RemoteTask<?> future = newTask(task, null);
+    execute(future);
+    return future;
+  }
+
+  @Override
+  public <T> ListenableFuture<T> submit(final Runnable task, @Nullable final T result) {
+    final RemoteTask<T> future = newTask(task, result);
+    execute(future);
+    return future;
+  }
+
+  /**
+   * Returns the result of the first task to succeed and cancels the others. The inherited implementation would pass
+   * {@link #execute} futures of its own, which cannot be sent to a worker.
+   */
+  @Override
+  public <T> T invokeAny(final Collection<? extends Callable<T>> tasks)
+      throws InterruptedException, ExecutionException {
+    try {
+      return invokeAny(tasks, false, 0);
+    }
+    catch (TimeoutException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  @Override
+  public <T> T invokeAny(final Collection<? extends Callable<T>> tasks, final long timeout, final TimeUnit unit)
+      throws InterruptedException, ExecutionException, TimeoutException {
+    return invokeAny(tasks, true, unit.toNanos(timeout));
+  }
+
+  private <T> T invokeAny(final Collection<? extends Callable<T>> tasks, final boolean timed, final long nanos)
+      throws InterruptedException, ExecutionException, TimeoutException {
+    Preconditions.checkArgument(!tasks.isEmpty(), "No tasks to invoke");
+    final long deadline = System.nanoTime() + nanos;
+    final BlockingQueue<ListenableFuture<T>> done = new LinkedBlockingQueue<>();
+    final List<ListenableFuture<T>> futures = new ArrayList<>(tasks.size());
+    try {
+      for (final Callable<T> task : tasks) {
+        final ListenableFuture<T> future = submit(task);
+        futures.add(future);
+        future.addListener(new Runnable() {
+          @Override
+          public void run() {
+            done.add(future);
+          }
+        }, MoreExecutors.sameThreadExecutor());
+      }
+      ExecutionException failure = null;
+      for (int i = 0; i < futures.size(); i++) {
+        final ListenableFuture<T> future =
+            timed ? done.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS) : done.take();
+        if (null == future) {
+          throw new TimeoutException();
+        }
+        try {
+          return future.get();
+        }
+        catch (ExecutionException e) {
+          failure = e;
+        }
+        catch (CancellationException e) {
+          failure = new ExecutionException(e);
+        }
+      }
+      throw failure;
+    }
+    finally {
+      for (final ListenableFuture<T> future : futures) {
+        future.cancel(true);
+      }
+    }
+  }
+
+  @Override
+  protected <T> RunnableFuture<T> newTaskFor(final Callable<T> callable) {
+    return newTask(callable, null);
+  }
+
+  @Override
+  protected <T> RunnableFuture<T> newTaskFor(final Runnable runnable, @Nullable final T value) {
+    return newTask(runnable, value);
+  }
+
+  @Override
+  public void execute(final Runnable command) {
+    final RemoteTask<?> task = command instanceof RemoteTask && this == ((RemoteTask<?>) command).getService() ?
+        (RemoteTask<?>) command : newTask(command, null);
+    synchronized (lock) {
+      if (shutdown) {
+        throw new RejectedExecutionException("Executor has been shut down");
+      }
+      final Worker worker = leastLoaded(null);
+      if (null == worker) {
+        throw new RejectedExecutionException("No worker JVM could be started");
+      }
+      worker.queue.addLast(task);
+      submitted++;
+    }
+    dispatch();
+  }
+
+  @Override
+  public void shutdown() {
+    synchronized (lock) {
+      shutdown = true;
+      if (workers.isEmpty()) {
+        terminated.countDown();
+      }
+    }
+    dispatch();
+  }
+
+  /**
+   * Destroys every worker JVM. The tasks they were running fail, and those which had not been sent to a worker are
+   * returned.
+   */
+  @Override
+  public List<Runnable> shutdownNow() {
+    final List<Runnable> pending = new ArrayList<>();
+    final List<Worker> destroyed;
+    synchronized (lock) {
+      shutdown = true;
+      for (final Worker worker : workers) {
+        pending.addAll(worker.queue);
+        worker.queue.clear();
+      }
+      destroyed = ImmutableList.copyOf(workers);
+      if (workers.isEmpty()) {
+        terminated.countDown();
+      }
+    }
+    for (final Worker worker : destroyed) {
+      worker.destroy();
+    }
+    return pending;
+  }
+
+  @Override
+  public boolean isShutdown() {
+    synchronized (lock) {
+      return shutdown;
+    }
+  }
+
+  @Override
+  public boolean isTerminated() {
+    return 0 == terminated.getCount();
+  }
+
+  @Override
+  public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+    return terminated.await(timeout, unit);
+  }
+
+  private <T> RemoteTask<T> newTask(final Object task, @Nullable final T result) {
+    if (!(task instanceof Serializable)) {
+      throw new RejectedExecutionException(task + " is not serializable");
+    }
+    final long id;
+    synchronized (lock) {
+      id = ++nextTaskId;
+    }
+    try {
+      final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      final DataOutputStream output = new DataOutputStream(bytes);
+      output.writeByte(WorkerProtocol.TASK);
+      output.writeLong(id);
+      final ObjectOutputStream objects = new ObjectOutputStream(output);
+      objects.writeObject(task);
+      objects.flush();
+      return new RemoteTask<>(this, id, bytes.toByteArray(), !(task instanceof Callable), result);
+    }
+    catch (IOException e) {
+      throw new RejectedExecutionException("Could not serialize " + task, e);
+    }
+  }
+
+  @GuardedBy("lock")
+  private Worker newWorker() {
+    final Worker worker = new Worker(nextWorkerId++);
+    workers.add(worker);
+    return worker;
+  }
+
+  @GuardedBy("lock")
+  @Nullable
+  private Worker leastLoaded(@Nullable final Worker excluded) {
+    Worker least = null;
+    for (final Worker worker : workers) {
+      if (excluded != worker && !worker.retiring && !worker.finished &&
+          (null == least || worker.getLoad() < least.getLoad())) {
+        least = worker;
+      }
+    }
+    return least;
+  }
+
+  @GuardedBy("lock")
+  @Nullable
+  private RemoteTask<?> steal(final Worker thief) {
+    Worker victim = null;
+    for (final Worker worker : workers) {
+      if (thief != worker && (null == victim || worker.queue.size() > victim.queue.size())) {
+        victim = worker;
+      }
+    }
+    return null == victim ? null : poll(victim.queue.descendingIterator());
+  }
+
+  @Nullable
+  private static RemoteTask<?> poll(final Iterator<RemoteTask<?>> queue) {
+    while (queue.hasNext()) {
+      final RemoteTask<?> task = queue.next();
+      queue.remove();
+      if (!task.isCancelled()) {
+        return task;
+      }
+    }
+    return null;
+  }
+
+  // Fills the free places of ready workers, and finishes the workers which have nothing more to do. Frames are sent
+  // outside of the lock; a worker is only finished once all of its tasks have been answered, so after they were sent.
+  private void dispatch() {
+    final List<Worker> targets = new ArrayList<>();
+    final List<RemoteTask<?>> tasks = new ArrayList<>();
+    final List<Worker> finishing = new ArrayList<>();
+    synchronized (lock) {
+      boolean queued = false;
+      for (final Worker worker : workers) {
+        while (worker.ready && !worker.retiring && !worker.finished && worker.inFlight.size() < maxInFlight) {
+          RemoteTask<?> task = poll(worker.queue.iterator());
+          if (null == task) {
+            task = steal(worker);
+            if (null == task) {
+              break;
+            }
+            steals++;
+          }
+          task.worker = worker;
+          worker.inFlight.put(task.getId(), task);
+          targets.add(worker);
+          tasks.add(task);
+        }
+        queued |= !worker.queue.isEmpty();
+      }
+      for (final Worker worker : workers) {
+        if (worker.ready && !worker.finished && worker.inFlight.isEmpty() &&
+            (worker.retiring || shutdown && !queued)) {
+          worker.finished = true;
+          finishing.add(worker);
+        }
+      }
+    }
+    final List<Worker> flushing = new ArrayList<>();
+    for (int i = 0; i < tasks.size(); i++) {
+      final Worker worker = targets.get(i);
+      try {
+        worker.channel.send(tasks.get(i).getFrame());
+        if (!flushing.contains(worker)) {
+          flushing.add(worker);
+        }
+      }
+      catch (IOException e) {
+        log.warn("Could not send task to worker JVM {}", worker.id, e);
+        worker.destroy();
+      }
+    }
+    for (final Worker worker : flushing) {
+      try {
+        worker.channel.flush();
+      }
+      catch (IOException e) {
+        log.warn("Could not send tasks to worker JVM {}", worker.id, e);
+        worker.destroy();
+      }
+    }
+    for (final Worker worker : finishing) {
+      try {
+        worker.channel.finish();
+      }
+      catch (IOException e) {
+        log.warn("Could not finish worker JVM {}", worker.id, e);
+        worker.destroy();
+      }
+    }
+  }
+
+  private void ready(final Worker worker) {
+    synchronized (lock) {
+      worker.ready = true;
+      consecutiveStartFailures = 0;
+    }
+    dispatch();
+  }
+
+  private void reply(final Worker worker, final byte[] frame) throws IOException {
+    final DataInputStream input = new DataInputStream(new ByteArrayInputStream(frame));
+    final byte type = input.readByte();
+    final long id = input.readLong();
+    final long retainedHeap = input.readLong();
+    final Object value;
+    try {
+      value = new ObjectInputStream(input).readObject();
+    }
+    catch (ClassNotFoundException e) {
+      throw new IOException("Could not read reply of worker JVM " + worker.id, e);
+    }
+    final RemoteTask<?> task;
+    Worker replacement = null;
+    synchronized (lock) {
+      task = worker.inFlight.remove(id);
+      worker.completed++;
+      if (0 == worker.baselineHeap) {
+        worker.baselineHeap = retainedHeap;
+      }
+      if (!worker.retiring && !shutdown && (0 < maxTasksPerWorker && worker.completed >= maxTasksPerWorker ||
+          0 < maxHeapGrowth && 0 < worker.baselineHeap && retainedHeap - worker.baselineHeap > maxHeapGrowth)) {
+        log.debug("Recycling worker JVM {} after {} tasks, retaining {} bytes", worker.id, worker.completed,
+            retainedHeap);
+        worker.retiring = true;
+        recycled++;
+        replacement = newWorker();
+      }
+      if (null != task && !task.isCancelled()) {
+        if (WorkerProtocol.RESULT == type) {
+          completed++;
+        }
+        else {
+          failed++;
+        }
+      }
+    }
+    if (null != replacement) {
+      replacement.start();
+    }
+    if (null != task) {
+      task.complete(WorkerProtocol.RESULT == type, value);
+    }
+    dispatch();
+  }
+
+  private void exited(final Worker worker) {
+    final List<RemoteTask<?>> lost;
+    final List<RemoteTask<?>> rejected = new ArrayList<>();
+    Worker replacement = null;
+    synchronized (lock) {
+      workers.remove(worker);
+      lost = ImmutableList.copyOf(worker.inFlight.values());
+      worker.inFlight.clear();
+      failed += lost.size();
+      if (!worker.finished) {
+        workerFailures++;
+        if (!worker.ready) {
+          consecutiveStartFailures++;
+        }
+        if (!worker.retiring && !shutdown) {
+          if (MAX_CONSECUTIVE_START_FAILURES > consecutiveStartFailures) {
+            replacement = newWorker();
+          }
+          else {
+            log.error("Giving up on worker JVMs after {} failed to start", consecutiveStartFailures);
+          }
+        }
+      }
+      for (final RemoteTask<?> task : worker.queue) {
+        final Worker target = leastLoaded(null);
+        if (null == target) {
+          rejected.add(task);
+        }
+        else {
+          target.queue.addLast(task);
+        }
+      }
+      failed += rejected.size();
+      worker.queue.clear();
+      if (shutdown && workers.isEmpty()) {
+        terminated.countDown();
+      }
+    }
+    for (final RemoteTask<?> task : lost) {
+      task.complete(false, new IOException("Worker JVM " + worker.id + " exited while running the task"));
+    }
+    for (final RemoteTask<?> task : rejected) {
+      task.complete(false, new RejectedExecutionException("No worker JVM is available to run the task"));
+    }
+    if (null != replacement) {
+      replacement.start();
+    }
+    dispatch();
+  }
+
+  private void cancel(final RemoteTask<?> task) {
+    final Worker worker;
+    synchronized (lock) {
+      worker = task.worker;
+      if (null == worker || !worker.inFlight.containsKey(task.getId()) || worker.finished) {
+        return;
+      }
+    }
+    try {
+      final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      final DataOutputStream output = new DataOutputStream(bytes);
+      output.writeByte(WorkerProtocol.CANCEL);
+      output.writeLong(task.getId());
+      worker.channel.send(bytes.toByteArray());
+      worker.channel.flush();
+    }
+    catch (IOException e) {
+      log.debug("Could not cancel task in worker JVM {}", worker.id, e);
+    }
+  }
+
+  private final class Worker implements Runnable {
+    private final long id;
+    @GuardedBy("lock")
+    private final Deque<RemoteTask<?>> queue = new ArrayDeque<>();
+    @GuardedBy("lock")
+    private final Map<Long, RemoteTask<?>> inFlight = new HashMap<>();
+    @GuardedBy("lock")
+    private boolean ready;
+    @GuardedBy("lock")
+    private boolean retiring;
+    @GuardedBy("lock")
+    private boolean finished;
+    @GuardedBy("lock")
+    private long completed;
+    @GuardedBy("lock")
+    private long baselineHeap;
+    private volatile IpcChannel channel;
+    private volatile Process process;
+    private volatile boolean destroyed;
+
+    Worker(final long id) {
+      this.id = id;
+    }
+
+    void start() {
+      final Thread thread = new Thread(this, "jvm-executor-worker-" + id);
+      thread.setDaemon(true);
+      thread.start();
+    }
+
+    @GuardedBy("lock")
+    int getLoad() {
+      return queue.size() + inFlight.size();
+    }
+
+    void destroy() {
+      destroyed = true;
+      final Process started = process;
+      if (null != started) {
+        started.destroy();
+      }
+    }
+
+    @Override
+    public void run() {
+      IpcServer server = null;
+      try {
+        server = factory.openIpcServer();
+        process = factory.startLauncher(WorkerMain.class,
+            ImmutableList.of(server.getOption(), "-D" + WorkerProtocol.THREADS_PROPERTY + '=' + maxInFlight),
+            Redirect.INHERIT, Redirect.INHERIT);
+        if (destroyed) {
+          process.destroy();
+        }
+        watch(server);
+        channel = server.getChannel();
+        byte[] frame = channel.receive();
+        if (null == frame || WorkerProtocol.READY != frame[0]) {
+          throw new IOException("Worker JVM " + id + " did not become ready");
+        }
+        ready(this);
+        while (null != (frame = channel.receive())) {
+          reply(this, frame);
+        }
+      }
+      catch (IOException | RuntimeException e) {
+        if (!destroyed) {
+          log.warn("Worker JVM {} failed", id, e);
+        }
+      }
+      finally {
+        Closeables.closeQuietly(channel);
+        Closeables.closeQuietly(server);
+        final Process started = process;
+        if (null != started) {
+          started.destroy();
+        }
+        exited(this);
+      }
+    }
+
+    // A worker which exits before connecting would otherwise leave its reader waiting for the connection forever
+    private void watch(final IpcServer server) {
+      final Thread watcher = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            process.waitFor();
+          }
+          catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          Closeables.closeQuietly(server);
+        }
+      }, "jvm-executor-watcher-" + id);
+      watcher.setDaemon(true);
+      watcher.start();
+    }
+  }
+
+  private static final class RemoteTask<T> extends AbstractFuture<T> implements RunnableFuture<T> {
+    private final JvmExecutorService service;
+    private final long id;
+    private final byte[] frame;
+    private final boolean runnable;
+    private final T result;
+    @GuardedBy("service.lock")
+    private Worker worker;
+
+    RemoteTask(final JvmExecutorService service, final long id, final byte[] frame, final boolean runnable,
+        @Nullable final T result) {
+      this.service = service;
+      this.id = id;
+      this.frame = frame;
+      this.runnable = runnable;
+      this.result = result;
+    }
+
+    JvmExecutorService getService() {
+      return service;
+    }
+
+    long getId() {
+      return id;
+    }
+
+    byte[] getFrame() {
+      return frame;
+    }
+
+    @SuppressWarnings("unchecked")
+    void complete(final boolean success, final Object value) {
+      if (success) {
+        set(runnable ? result : (T) value);
+      }
+      else {
+        setException((Throwable) value);
+      }
+    }
+
+    @Override
+    public void run() {
+      throw new UnsupportedOperationException("Remote tasks are run by a worker JVM");
+    }
+
+    @Override
+    public boolean cancel(final boolean mayInterruptIfRunning) {
+      if (!super.cancel(mayInterruptIfRunning)) {
+        return false;
+      }
+      if (mayInterruptIfRunning) {
+        service.cancel(this);
+      }
+      return true;
+    }
+  }
+}
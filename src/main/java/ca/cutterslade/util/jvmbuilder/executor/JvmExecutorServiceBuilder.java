@@ -0,0 +1,81 @@
+package ca.cutterslade.util.jvmbuilder.executor;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import ca.cutterslade.util.jvmbuilder.JvmFactory;
+import ca.cutterslade.util.jvmbuilder.common.AbstractJvmFactory;
+
+import com.google.common.base.Preconditions;
+
+@NotThreadSafe
+public final class JvmExecutorServiceBuilder {
+  private final AbstractJvmFactory<?> factory;
+  private int workers = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+  private int maxInFlight = 1;
+  private long maxTasksPerWorker;
+  private long maxHeapGrowth;
+
+  public JvmExecutorServiceBuilder(final JvmFactory<?> factory) {
+    Preconditions.checkArgument(factory instanceof AbstractJvmFactory,
+        "Worker JVMs require an AbstractJvmFactory");
+    this.factory = (AbstractJvmFactory<?>) factory;
+  }
+
+  public JvmExecutorServiceBuilder setWorkers(final int workers) {
+    Preconditions.checkArgument(0 < workers);
+    this.workers = workers;
+    return this;
+  }
+
+  /**
+   * Sets how many tasks may be sent to a worker at once, which is also how many threads it runs them with.
+   */
+  public JvmExecutorServiceBuilder setMaxInFlight(final int maxInFlight) {
+    Preconditions.checkArgument(0 < maxInFlight);
+    this.maxInFlight = maxInFlight;
+    return this;
+  }
+
+  /**
+   * Replaces a worker once it has completed the given number of tasks.
+   */
+  public JvmExecutorServiceBuilder setMaxTasksPerWorker(final long maxTasksPerWorker) {
+    Preconditions.checkArgument(0 < maxTasksPerWorker);
+    this.maxTasksPerWorker = maxTasksPerWorker;
+    return this;
+  }
+
+  /**
+   * Replaces a worker once the heap it retains after collections has grown by more than the given number of bytes
+   * since its first collection, as it does when tasks leave state behind.
+   */
+  public JvmExecutorServiceBuilder setMaxHeapGrowth(final long bytes) {
+    Preconditions.checkArgument(0 < bytes);
+    this.maxHeapGrowth = bytes;
+    return this;
+  }
+
+  public JvmExecutorService build() {
+    return new JvmExecutorService(this);
+  }
+
+  AbstractJvmFactory<?> getFactory() {
+    return factory;
+  }
+
+  int getWorkers() {
+    return workers;
+  }
+
+  int getMaxInFlight() {
+    return maxInFlight;
+  }
+
+  long getMaxTasksPerWorker() {
+    return maxTasksPerWorker;
+  }
+
+  long getMaxHeapGrowth() {
+    return maxHeapGrowth;
+  }
+}
@@ -0,0 +1,72 @@
+package ca.cutterslade.util.jvmbuilder.executor;
+
+import javax.annotation.concurrent.Immutable;
+
+@Immutable
+public final class JvmExecutorStats {
+  private final long submitted;
+  private final long completed;
+  private final long failed;
+  private final long steals;
+  private final long recycled;
+  private final long workerFailures;
+  private final int workers;
+
+  JvmExecutorStats(final long submitted, final long completed, final long failed, final long steals,
+      final long recycled, final long workerFailures, final int workers) {
+    this.submitted = submitted;
+    this.completed = completed;
+    this.failed = failed;
+    this.steals = steals;
+    this.recycled = recycled;
+    this.workerFailures = workerFailures;
+    this.workers = workers;
+  }
+
+  public long getSubmitted() {
+    return submitted;
+  }
+
+  /**
+   * The number of tasks which returned a result.
+   */
+  public long getCompleted() {
+    return completed;
+  }
+
+  /**
+   * The number of tasks which threw, or were lost with their worker.
+   */
+  public long getFailed() {
+    return failed;
+  }
+
+  /**
+   * The number of tasks run by a worker other than the one they were queued for.
+   */
+  public long getSteals() {
+    return steals;
+  }
+
+  public long getRecycled() {
+    return recycled;
+  }
+
+  /**
+   * The number of workers which exited, or could not be started, without being asked to.
+   */
+  public long getWorkerFailures() {
+    return workerFailures;
+  }
+
+  public int getWorkers() {
+    return workers;
+  }
+
+  @Override
+  public String toString() {
+    return "JvmExecutorStats{submitted=" + submitted + ", completed=" + completed + ", failed=" + failed +
+        ", steals=" + steals + ", recycled=" + recycled + ", workerFailures=" + workerFailures + ", workers=" +
+        workers + '}';
+  }
+}
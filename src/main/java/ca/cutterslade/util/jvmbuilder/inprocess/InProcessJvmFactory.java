@@ -0,0 +1,158 @@
+package ca.cutterslade.util.jvmbuilder.inprocess;
+
+import java.io.IOException;
+import java.lang.ProcessBuilder.Redirect;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import javax.annotation.Nullable;
+
+import ca.cutterslade.util.jvmbuilder.JvmProcess;
+import ca.cutterslade.util.jvmbuilder.OutputSink;
+import ca.cutterslade.util.jvmbuilder.Status;
+import ca.cutterslade.util.jvmbuilder.VariantBuilder;
+import ca.cutterslade.util.jvmbuilder.common.AbstractJvmFactory;
+import ca.cutterslade.util.jvmbuilder.common.AsyncLauncher;
+import ca.cutterslade.util.jvmbuilder.common.SimpleVariantBuilder;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * Runs programs in this JVM rather than starting a JVM for each, for tests and small jobs which are not worth the
+ * time a JVM takes to start. Each program is loaded from the factory's class path by a class loader of its own, with
+ * its assertion settings, and sees its own standard streams and the factory's properties over this JVM's.
+ * <p>
+ * Whatever only a new JVM could apply, such as JVM options, heap sizes, the environment and the working directory, is
+ * ignored, as are the options which watch a child JVM. Programs share this JVM, so one which calls
+ * {@link System#exit} ends it, and one which is destroyed is only interrupted.
+ */
+public class InProcessJvmFactory extends AbstractJvmFactory<InProcessJvmFactoryBuilder> {
+  private volatile URL[] classPathUrls;
+
+  public InProcessJvmFactory(final InProcessJvmFactoryBuilder builder) {
+    super(builder);
+  }
+
+  protected InProcessJvmFactory(final InProcessJvmFactory factory, final SimpleVariantBuilder<?> variant) {
+    super(factory, variant);
+    classPathUrls = factory.classPathUrls;
+  }
+
+  @Override
+  public VariantBuilder<InProcessJvmFactory> with() {
+    return new SimpleVariantBuilder<InProcessJvmFactory>(this) {
+      @Override
+      protected InProcessJvmFactory create() {
+        return new InProcessJvmFactory(InProcessJvmFactory.this, this);
+      }
+    };
+  }
+
+  @Override
+  public Process start(final String... args) throws IOException {
+    final String mainClass = getProgramMainClass();
+    if (mainClass.isEmpty()) {
+      throw new IOException("No Main-Class attribute in manifest of " + getProgramClassPath().get(0));
+    }
+    InProcessSystem.install();
+    final URLClassLoader loader =
+        new URLClassLoader(getClassPathUrls(), ClassLoader.getSystemClassLoader().getParent());
+    setAssertionStatus(loader);
+    final ImmutableMap<String, String> properties = getProperties();
+    final InProcessProcess process =
+        new InProcessProcess(loader, null == properties ? ImmutableMap.<String, String>of() : properties);
+    process.start(mainClass, Iterables.toArray(Iterables.concat(getProgramArguments(), ImmutableList.copyOf(args)),
+        String.class));
+    return process;
+  }
+
+  @Override
+  public ListenableFuture<JvmProcess> startAsync(@Nullable final OutputSink stdOut, @Nullable final OutputSink stdErr,
+      final String... args) {
+    return AsyncLauncher.start(getAsyncExecutor(), new Callable<Process>() {
+      @Override
+      public Process call() throws IOException {
+        return start(args);
+      }
+    }, stdOut, stdErr);
+  }
+
+  /**
+   * Launchers run in a JVM of their own, so they can not be started by this factory.
+   */
+  @Override
+  public Process startLauncher(final Class<?> launcher, final List<String> options, final Redirect stdOut,
+      final Redirect stdErr) {
+    throw new UnsupportedOperationException("Launchers can not be run in process");
+  }
+
+  private URL[] getClassPathUrls() throws IOException {
+    URL[] resolved = classPathUrls;
+    if (null == resolved) {
+      final ImmutableList<String> classPath = getProgramClassPath();
+      resolved = new URL[classPath.size()];
+      for (int i = 0; i < resolved.length; i++) {
+        resolved[i] = Paths.get(classPath.get(i)).toUri().toURL();
+      }
+      classPathUrls = resolved;
+    }
+    return resolved.clone();
+  }
+
+  private void setAssertionStatus(final ClassLoader loader) {
+    final Status assertions = getAssertions();
+    if (null == assertions) {
+      return;
+    }
+    final boolean enabled = Status.ENABLED == assertions;
+    final ImmutableList<String> parts = getAssertionParts();
+    if (null == parts || parts.isEmpty()) {
+      loader.setDefaultAssertionStatus(enabled);
+      return;
+    }
+    for (final String part : parts) {
+      if ("...".equals(part)) {
+        loader.setPackageAssertionStatus(null, enabled);
+      }
+      else if (part.endsWith("...")) {
+        loader.setPackageAssertionStatus(part.substring(0, part.length() - 3), enabled);
+      }
+      else {
+        loader.setClassAssertionStatus(part, enabled);
+      }
+    }
+  }
+
+  @Override
+  protected String getCurrentJvmTypeArgument() {
+    return null;
+  }
+
+  @Nullable
+  @Override
+  protected String getCurrentJvmArchitectureArgument() {
+    return null;
+  }
+
+  @Override
+  protected Iterable<String> getCurrentJvmArguments() {
+    return ImmutableList.of();
+  }
+
+  // Programs see the properties of this JVM anyway, under those set for them
+  @Override
+  protected Iterable<String> getCurrentPropertiesArguments() {
+    return ImmutableList.of();
+  }
+
+  @Override
+  public InProcessJvmFactoryBuilder clearProgram() {
+    return new InProcessJvmFactoryBuilder().from(this).resetProgram();
+  }
+}
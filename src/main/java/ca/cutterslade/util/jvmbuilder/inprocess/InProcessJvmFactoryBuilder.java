@@ -0,0 +1,22 @@
+package ca.cutterslade.util.jvmbuilder.inprocess;
+
+import ca.cutterslade.util.jvmbuilder.JvmFactory;
+import ca.cutterslade.util.jvmbuilder.common.AbstractJvmFactoryBuilder;
+
+public final class InProcessJvmFactoryBuilder extends AbstractJvmFactoryBuilder<InProcessJvmFactoryBuilder> {
+  @Override
+  protected void checkBuildPreconditions() {
+    super.checkBuildPreconditions();
+  }
+
+  @Override
+  public InProcessJvmFactory build() {
+    checkBuildPreconditions();
+    return new InProcessJvmFactory(this);
+  }
+
+  @Override
+  public InProcessJvmFactoryBuilder from(final JvmFactory<?> factory) {
+    return super.from(factory);
+  }
+}
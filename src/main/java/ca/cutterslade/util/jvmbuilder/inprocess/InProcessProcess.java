@@ -0,0 +1,196 @@
+package ca.cutterslade.util.jvmbuilder.inprocess;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.URLClassLoader;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import ca.cutterslade.util.jvmbuilder.child.ChunkPipe;
+import ca.cutterslade.util.jvmbuilder.child.DaemonProtocol;
+import ca.cutterslade.util.jvmbuilder.child.LaunchTarget;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * A program run in its own thread group and class loader in this JVM, presented as a process whose standard streams
+ * are those the program sees.
+ */
+@ThreadSafe
+final class InProcessProcess extends Process {
+  private static final int INPUT_CAPACITY = 16;
+  private static final AtomicInteger invocations = new AtomicInteger();
+
+  private final URLClassLoader loader;
+  private final ImmutableMap<String, String> properties;
+  private final ThreadGroup group = new ThreadGroup("in-process-" + invocations.incrementAndGet());
+  // programs write through the one System.out and System.err of this JVM, which must not wait for any reader
+  private final ChunkPipe stdOut = new ChunkPipe();
+  private final ChunkPipe stdErr = new ChunkPipe();
+  private final ChunkPipe input = new ChunkPipe(INPUT_CAPACITY);
+  private final OutputStream stdIn;
+  private final AtomicBoolean finished = new AtomicBoolean();
+  private final CountDownLatch exited = new CountDownLatch(1);
+  private volatile int exitCode;
+
+  InProcessProcess(final URLClassLoader loader, final ImmutableMap<String, String> properties) {
+    this.loader = loader;
+    this.properties = properties;
+    stdIn = new BufferedOutputStream(new OutputStream() {
+      @Override
+      public void write(final int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+      }
+
+      @Override
+      public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+        input.write(bytes, offset, length);
+      }
+
+      @Override
+      public void close() throws IOException {
+        input.finish();
+      }
+    });
+  }
+
+  void start(final String mainClass, final String[] args) {
+    final Thread thread = new Thread(group, new Runnable() {
+      @Override
+      public void run() {
+        InProcessSystem.enter(InProcessProcess.this);
+        InProcessProcess.this.run(mainClass, args);
+      }
+    }, "main");
+    // started from a daemon thread of an executor, but the program's threads must keep it running as they would a JVM
+    thread.setDaemon(false);
+    thread.setContextClassLoader(loader);
+    thread.start();
+  }
+
+  private void run(final String mainClass, final String[] args) {
+    int status = 0;
+    try {
+      final Method main = LaunchTarget.findMain(mainClass, loader);
+      LaunchTarget.invoke(main, args);
+    }
+    catch (Throwable t) {
+      System.err.print("Exception in thread \"main\" ");
+      t.printStackTrace();
+      status = 1;
+    }
+    try {
+      // Like a JVM, a program ends when its last non-daemon thread does
+      awaitThreads(group);
+    }
+    catch (InterruptedException e) {
+      status = DaemonProtocol.DESTROYED_EXIT_CODE;
+    }
+    finally {
+      try {
+        loader.close();
+      }
+      catch (IOException e) {
+        // Nothing more can be done with it
+      }
+    }
+    finish(status);
+  }
+
+  private static void awaitThreads(final ThreadGroup group) throws InterruptedException {
+    boolean waited;
+    do {
+      waited = false;
+      final Thread[] threads = new Thread[group.activeCount() + 1];
+      final int count = group.enumerate(threads, true);
+      for (int i = 0; i < count; i++) {
+        if (Thread.currentThread() != threads[i] && !threads[i].isDaemon()) {
+          threads[i].join();
+          waited = true;
+        }
+      }
+    }
+    while (waited);
+  }
+
+  private void finish(final int exitCode) {
+    if (finished.compareAndSet(false, true)) {
+      this.exitCode = exitCode;
+      input.close();
+      try {
+        stdOut.finish();
+        stdErr.finish();
+      }
+      catch (InterruptedIOException e) {
+        Thread.currentThread().interrupt();
+      }
+      finally {
+        exited.countDown();
+      }
+    }
+  }
+
+  void output(final boolean error, final byte[] bytes, final int offset, final int length)
+      throws InterruptedIOException {
+    // Threads the program left running may still write once it has exited, when nothing is reading any more
+    if (!finished.get()) {
+      (error ? stdErr : stdOut).write(bytes, offset, length);
+    }
+  }
+
+  InputStream getInput() {
+    return input;
+  }
+
+  String getProperty(final String key) {
+    return properties.get(key);
+  }
+
+  @Override
+  public OutputStream getOutputStream() {
+    return stdIn;
+  }
+
+  @Override
+  public InputStream getInputStream() {
+    return stdOut;
+  }
+
+  @Override
+  public InputStream getErrorStream() {
+    return stdErr;
+  }
+
+  @Override
+  public int waitFor() throws InterruptedException {
+    exited.await();
+    return exitCode;
+  }
+
+  @Override
+  public int exitValue() {
+    if (0 != exited.getCount()) {
+      throw new IllegalThreadStateException("Program has not exited");
+    }
+    return exitCode;
+  }
+
+  /**
+   * Interrupts the threads of the program, which can not be stopped outright.
+   */
+  @Override
+  public void destroy() {
+    if (!finished.get()) {
+      // finished first, so that the program cannot report an exit code of its own from being interrupted
+      finish(DaemonProtocol.DESTROYED_EXIT_CODE);
+      group.interrupt();
+    }
+  }
+}
@@ -0,0 +1,113 @@
+package ca.cutterslade.util.jvmbuilder.inprocess;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Properties;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Routes the standard streams and system properties of this JVM to the program the current thread was started for,
+ * which the threads it starts inherit. Every other thread sees this JVM's own streams and properties.
+ */
+@ThreadSafe
+final class InProcessSystem {
+  private static final InheritableThreadLocal<InProcessProcess> current = new InheritableThreadLocal<>();
+  @GuardedBy("InProcessSystem.class")
+  private static boolean installed;
+
+  private InProcessSystem() {
+  }
+
+  static synchronized void install() {
+    if (!installed) {
+      System.setOut(new PrintStream(new InvocationOutput(false, System.out), true));
+      System.setErr(new PrintStream(new InvocationOutput(true, System.err), true));
+      System.setIn(new InvocationInput(System.in));
+      System.setProperties(new InvocationProperties(System.getProperties()));
+      installed = true;
+    }
+  }
+
+  static void enter(final InProcessProcess process) {
+    current.set(process);
+  }
+
+  private static final class InvocationOutput extends OutputStream {
+    private final boolean error;
+    private final OutputStream fallback;
+
+    private InvocationOutput(final boolean error, final OutputStream fallback) {
+      this.error = error;
+      this.fallback = fallback;
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+      write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+      final InProcessProcess process = current.get();
+      if (null == process) {
+        fallback.write(bytes, offset, length);
+      }
+      else {
+        process.output(error, bytes, offset, length);
+      }
+    }
+
+    @Override
+    public void flush() throws IOException {
+      if (null == current.get()) {
+        fallback.flush();
+      }
+    }
+  }
+
+  private static final class InvocationInput extends InputStream {
+    private final InputStream fallback;
+
+    private InvocationInput(final InputStream fallback) {
+      this.fallback = fallback;
+    }
+
+    @Override
+    public int read() throws IOException {
+      final InProcessProcess process = current.get();
+      return null == process ? fallback.read() : process.getInput().read();
+    }
+
+    @Override
+    public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+      final InProcessProcess process = current.get();
+      return null == process ? fallback.read(bytes, offset, length) : process.getInput().read(bytes, offset, length);
+    }
+
+    @Override
+    public int available() throws IOException {
+      final InProcessProcess process = current.get();
+      return null == process ? fallback.available() : process.getInput().available();
+    }
+  }
+
+  // Only lookups see the properties of a program; setting a property still sets it for the whole JVM
+  private static final class InvocationProperties extends Properties {
+    private static final long serialVersionUID = 1L;
+
+    private InvocationProperties(final Properties properties) {
+      putAll(properties);
+    }
+
+    @Override
+    public String getProperty(final String key) {
+      final InProcessProcess process = current.get();
+      final String value = null == process ? null : process.getProperty(key);
+      return null == value ? super.getProperty(key) : value;
+    }
+  }
+}
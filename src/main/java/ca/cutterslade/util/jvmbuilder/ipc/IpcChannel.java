@@ -0,0 +1,215 @@
+package ca.cutterslade.util.jvmbuilder.ipc;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * One end of a channel between a parent and a child JVM, carrying frames of bytes both ways. Each frame is sent as
+ * its length followed by its bytes.
+ * <p>
+ * Frames sent are batched in a buffer which is written when it fills or when the channel is {@link #flush()}ed, so
+ * many small frames cost one write. Frames received are read in bulk and split from the buffer. A sender blocks
+ * while the other end is not reading, once the socket buffers between them are full.
+ * <p>
+ * One thread may send while another receives. The parent's end of a channel connects when first used, blocking until
+ * the child has connected.
+ */
+@ThreadSafe
+public final class IpcChannel implements Closeable {
+  public static final int MAX_FRAME_LENGTH = 64 << 20;
+  private static final int BUFFER_SIZE = 64 << 10;
+  private static final int HEADER_LENGTH = 4;
+
+  private final IpcServer server;
+  private final Object connectLock = new Object();
+  @GuardedBy("sendLock")
+  private final ByteBuffer sendBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+  private final Object sendLock = new Object();
+  @GuardedBy("receiveLock")
+  private final ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+  private final Object receiveLock = new Object();
+  private volatile SocketChannel channel;
+  private volatile boolean closed;
+
+  IpcChannel(final SocketChannel channel) {
+    this(null, channel);
+  }
+
+  IpcChannel(final IpcServer server) {
+    this(server, null);
+  }
+
+  private IpcChannel(@Nullable final IpcServer server, @Nullable final SocketChannel channel) {
+    this.server = server;
+    this.channel = channel;
+    receiveBuffer.flip();
+  }
+
+  public void send(final byte[] frame) throws IOException {
+    send(frame, 0, frame.length);
+  }
+
+  /**
+   * Queues a frame, writing the frames before it if there is no room for it in the buffer. Frames too large for the
+   * buffer are written straight away.
+   */
+  public void send(final byte[] frame, final int offset, final int length) throws IOException {
+    if (0 > offset || 0 > length || offset + length > frame.length) {
+      throw new IndexOutOfBoundsException();
+    }
+    if (MAX_FRAME_LENGTH < length) {
+      throw new IllegalArgumentException("Frame of " + length + " bytes exceeds " + MAX_FRAME_LENGTH);
+    }
+    synchronized (sendLock) {
+      final SocketChannel channel = getChannel();
+      if (HEADER_LENGTH + length > sendBuffer.remaining()) {
+        drain(channel);
+      }
+      sendBuffer.putInt(length);
+      if (length <= sendBuffer.remaining()) {
+        sendBuffer.put(frame, offset, length);
+      }
+      else {
+        drain(channel);
+        final ByteBuffer bytes = ByteBuffer.wrap(frame, offset, length);
+        while (bytes.hasRemaining()) {
+          channel.write(bytes);
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes every frame queued so far.
+   */
+  public void flush() throws IOException {
+    synchronized (sendLock) {
+      if (0 < sendBuffer.position()) {
+        drain(getChannel());
+      }
+    }
+  }
+
+  /**
+   * Flushes and then tells the other end that no more frames will be sent, leaving this end able to receive.
+   */
+  public void finish() throws IOException {
+    synchronized (sendLock) {
+      final SocketChannel channel = getChannel();
+      drain(channel);
+      channel.shutdownOutput();
+    }
+  }
+
+  @GuardedBy("sendLock")
+  private void drain(final SocketChannel channel) throws IOException {
+    sendBuffer.flip();
+    try {
+      while (sendBuffer.hasRemaining()) {
+        channel.write(sendBuffer);
+      }
+    }
+    finally {
+      sendBuffer.clear();
+    }
+  }
+
+  /**
+   * Waits for the next frame, returning null once the other end has finished or closed the channel.
+   */
+  @Nullable
+  public byte[] receive() throws IOException {
+    synchronized (receiveLock) {
+      final SocketChannel channel = getChannel();
+      if (!fill(channel, HEADER_LENGTH)) {
+        return null;
+      }
+      final int length = receiveBuffer.getInt();
+      if (0 > length || MAX_FRAME_LENGTH < length) {
+        throw new IOException("Invalid frame length " + length);
+      }
+      final byte[] frame = new byte[length];
+      final int buffered = Math.min(length, receiveBuffer.remaining());
+      receiveBuffer.get(frame, 0, buffered);
+      if (buffered < length) {
+        // read the rest of a large frame straight into it
+        final ByteBuffer rest = ByteBuffer.wrap(frame, buffered, length - buffered);
+        while (rest.hasRemaining()) {
+          if (0 > channel.read(rest)) {
+            throw new EOFException("Channel ended within a frame");
+          }
+        }
+      }
+      return frame;
+    }
+  }
+
+  @GuardedBy("receiveLock")
+  private boolean fill(final SocketChannel channel, final int required) throws IOException {
+    while (receiveBuffer.remaining() < required) {
+      receiveBuffer.compact();
+      final int read;
+      try {
+        read = channel.read(receiveBuffer);
+      }
+      finally {
+        receiveBuffer.flip();
+      }
+      if (0 > read) {
+        if (receiveBuffer.hasRemaining()) {
+          throw new EOFException("Channel ended within a frame");
+        }
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private SocketChannel getChannel() throws IOException {
+    SocketChannel connected = channel;
+    if (null == connected) {
+      synchronized (connectLock) {
+        connected = channel;
+        if (null == connected) {
+          connected = server.accept();
+          channel = connected;
+          if (closed) {
+            connected.close();
+          }
+        }
+      }
+    }
+    return connected;
+  }
+
+  /**
+   * Flushes queued frames if the channel is connected, and closes it.
+   */
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    final SocketChannel connected = channel;
+    if (null == connected) {
+      server.close();
+      return;
+    }
+    try {
+      if (connected.isOpen()) {
+        flush();
+      }
+    }
+    finally {
+      connected.close();
+    }
+  }
+}
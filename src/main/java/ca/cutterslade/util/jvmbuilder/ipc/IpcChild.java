@@ -0,0 +1,42 @@
+package ca.cutterslade.util.jvmbuilder.ipc;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Connects a child to the IPC channel its parent set up when starting it.
+ */
+public final class IpcChild {
+  public static final String ADDRESS_PROPERTY = "jvmbuilder.ipc";
+  public static final String RING_PROPERTY = "jvmbuilder.ring";
+
+  private IpcChild() {
+  }
+
+  public static boolean isAvailable() {
+    return null != System.getProperty(ADDRESS_PROPERTY);
+  }
+
+  public static IpcChannel connect() throws IOException {
+    final String address = System.getProperty(ADDRESS_PROPERTY);
+    if (null == address) {
+      throw new IllegalStateException("This JVM was not started with an IPC channel");
+    }
+    return new IpcChannel(IpcTransport.connect(address));
+  }
+
+  public static boolean isSharedRingAvailable() {
+    return null != System.getProperty(RING_PROPERTY);
+  }
+
+  /**
+   * Maps the shared ring its parent created when starting it, to which the child produces and the parent consumes.
+   */
+  public static SharedRing openSharedRing() throws IOException {
+    final String path = System.getProperty(RING_PROPERTY);
+    if (null == path) {
+      throw new IllegalStateException("This JVM was not started with a shared ring");
+    }
+    return SharedRing.open(Paths.get(path));
+  }
+}
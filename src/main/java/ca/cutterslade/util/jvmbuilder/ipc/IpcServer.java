@@ -0,0 +1,116 @@
+package ca.cutterslade.util.jvmbuilder.ipc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * The parent's side of an IPC channel being set up for one child, which is told where to connect by
+ * {@link #getOption()}. Only the first connection is accepted; the socket is closed, and its file removed, once the
+ * child has connected or the server is closed.
+ */
+@ThreadSafe
+public final class IpcServer implements Closeable {
+  private final ServerSocketChannel server;
+  private final Path socketFile;
+  private final String address;
+  private final IpcChannel channel = new IpcChannel(this);
+
+  private IpcServer(final ServerSocketChannel server, @Nullable final Path socketFile, final String address) {
+    this.server = server;
+    this.socketFile = socketFile;
+    this.address = address;
+  }
+
+  /**
+   * Opens a Unix domain socket in the given directory if unix domain sockets are wanted, and this JVM and the
+   * directory allow it, or else a loopback TCP socket.
+   */
+  public static IpcServer open(final Path directory, final boolean unixDomain) throws IOException {
+    if (unixDomain && IpcTransport.isUnixDomainSupported()) {
+      final Path socketFile = directory.resolve(UUID.randomUUID() + ".sock").toAbsolutePath();
+      if (IpcTransport.MAX_UNIX_PATH_LENGTH >= socketFile.toString().length()) {
+        createDirectory(directory);
+        return new IpcServer(IpcTransport.bindUnix(socketFile), socketFile,
+            IpcTransport.UNIX_PREFIX + socketFile);
+      }
+    }
+    final ServerSocketChannel server = IpcTransport.bindLoopback();
+    final InetSocketAddress bound = (InetSocketAddress) server.getLocalAddress();
+    return new IpcServer(server, null,
+        IpcTransport.TCP_PREFIX + bound.getAddress().getHostAddress() + ':' + bound.getPort());
+  }
+
+  // Only the owner may reach sockets in the directory, where the file system allows it to be said
+  private static void createDirectory(final Path directory) throws IOException {
+    if (!Files.isDirectory(directory)) {
+      if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+        Files.createDirectories(directory,
+            PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+      }
+      else {
+        Files.createDirectories(directory);
+      }
+    }
+  }
+
+  public String getAddress() {
+    return address;
+  }
+
+  /**
+   * The option which tells a child started with it where to connect.
+   */
+  public String getOption() {
+    return "-D" + IpcChild.ADDRESS_PROPERTY + '=' + address;
+  }
+
+  /**
+   * The parent's end of the channel, which connects when first used.
+   */
+  public IpcChannel getChannel() {
+    return channel;
+  }
+
+  SocketChannel accept() throws IOException {
+    try {
+      final SocketChannel accepted = server.accept();
+      if (null == socketFile) {
+        accepted.socket().setTcpNoDelay(true);
+      }
+      return accepted;
+    }
+    catch (ClosedChannelException e) {
+      throw new IOException("The IPC server was closed before the child connected", e);
+    }
+    finally {
+      close();
+    }
+  }
+
+  /**
+   * Stops waiting for the child to connect, failing any use of the channel which is waiting for it.
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      server.close();
+    }
+    finally {
+      if (null != socketFile) {
+        Files.deleteIfExists(socketFile);
+      }
+    }
+  }
+}
@@ -0,0 +1,140 @@
+package ca.cutterslade.util.jvmbuilder.ipc;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+
+/**
+ * Opens the sockets of an IPC channel. Unix domain sockets are only reachable through reflection, as they were added
+ * in Java 16; loopback TCP is used where they are not available. Only the JDK is used here, as the child side may not
+ * have anything else on its class path.
+ */
+final class IpcTransport {
+  static final String UNIX_PREFIX = "unix:";
+  static final String TCP_PREFIX = "tcp:";
+  // sun_path is 108 bytes on Linux and 104 on macOS, including the terminator
+  static final int MAX_UNIX_PATH_LENGTH = 100;
+
+  private static final ProtocolFamily UNIX;
+  private static final Method OPEN_SERVER;
+  private static final Method OPEN_CLIENT;
+  private static final Method UNIX_ADDRESS;
+
+  static {
+    ProtocolFamily unix = null;
+    Method openServer = null;
+    Method openClient = null;
+    Method unixAddress = null;
+    try {
+      unix = StandardProtocolFamily.valueOf("UNIX");
+      openServer = ServerSocketChannel.class.getMethod("open", ProtocolFamily.class);
+      openClient = SocketChannel.class.getMethod("open", ProtocolFamily.class);
+      unixAddress = Class.forName("java.net.UnixDomainSocketAddress").getMethod("of", String.class);
+    }
+    catch (IllegalArgumentException | ReflectiveOperationException e) {
+      unix = null;
+    }
+    UNIX = unix;
+    OPEN_SERVER = openServer;
+    OPEN_CLIENT = openClient;
+    UNIX_ADDRESS = unixAddress;
+  }
+
+  private IpcTransport() {
+  }
+
+  static boolean isUnixDomainSupported() {
+    return null != UNIX;
+  }
+
+  static ServerSocketChannel bindUnix(final Path path) throws IOException {
+    final ServerSocketChannel server = (ServerSocketChannel) invoke(OPEN_SERVER, UNIX);
+    try {
+      server.bind(unixAddress(path.toString()));
+    }
+    catch (IOException | RuntimeException e) {
+      server.close();
+      throw e;
+    }
+    return server;
+  }
+
+  static ServerSocketChannel bindLoopback() throws IOException {
+    final ServerSocketChannel server = ServerSocketChannel.open();
+    try {
+      server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    }
+    catch (IOException | RuntimeException e) {
+      server.close();
+      throw e;
+    }
+    return server;
+  }
+
+  static SocketChannel connect(final String address) throws IOException {
+    if (address.startsWith(UNIX_PREFIX)) {
+      if (!isUnixDomainSupported()) {
+        throw new IOException("Unix domain sockets require Java 16: " + address);
+      }
+      final SocketChannel channel = (SocketChannel) invoke(OPEN_CLIENT, UNIX);
+      return connect(channel, unixAddress(address.substring(UNIX_PREFIX.length())));
+    }
+    if (address.startsWith(TCP_PREFIX)) {
+      final int split = address.lastIndexOf(':');
+      final String host = address.substring(TCP_PREFIX.length(), split);
+      final int port;
+      try {
+        port = Integer.parseInt(address.substring(split + 1));
+      }
+      catch (NumberFormatException e) {
+        throw new IOException("Invalid IPC address: " + address, e);
+      }
+      final SocketChannel channel = SocketChannel.open();
+      channel.socket().setTcpNoDelay(true);
+      return connect(channel, new InetSocketAddress(host, port));
+    }
+    throw new IOException("Invalid IPC address: " + address);
+  }
+
+  private static SocketChannel connect(final SocketChannel channel, final SocketAddress address) throws IOException {
+    try {
+      channel.connect(address);
+    }
+    catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+    return channel;
+  }
+
+  private static SocketAddress unixAddress(final String path) throws IOException {
+    return (SocketAddress) invoke(UNIX_ADDRESS, path);
+  }
+
+  private static Object invoke(final Method method, final Object argument) throws IOException {
+    try {
+      return method.invoke(null, argument);
+    }
+    catch (InvocationTargetException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IOException(cause);
+    }
+    catch (IllegalAccessException e) {
+      throw new IOException(e);
+    }
+  }
+}
@@ -0,0 +1,452 @@
+package ca.cutterslade.util.jvmbuilder.ipc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * A single producer, single consumer ring of records in a memory mapped file, shared by a parent and a child JVM.
+ * Records move between the processes without system calls; the producer and consumer only meet at two sequence
+ * counters, which are published with ordered writes and read with volatile reads.
+ * <p>
+ * Each record is its length followed by its bytes, aligned to eight bytes. A record which would not fit before the
+ * end of the ring is preceded by padding to the end, so that every record is contiguous and can be read in place by
+ * {@link #read(RecordHandler, int)}.
+ * <p>
+ * One thread may produce while another consumes; neither side may be used by more than one thread.
+ */
+@NotThreadSafe
+public final class SharedRing implements Closeable {
+  public interface RecordHandler {
+    /**
+     * Receives a record, between the position and limit of a buffer which is only valid until this method returns.
+     */
+    void record(ByteBuffer record);
+  }
+
+  private static final int MAGIC = 0x52494e47;
+  private static final int PADDING = -1;
+  private static final int RECORD_ALIGNMENT = 8;
+  private static final int HEADER_LENGTH = 4;
+  // each counter on a cache line of its own, so that the producer and consumer do not contend for one
+  private static final int WRITE_SEQUENCE_OFFSET = 64;
+  private static final int READ_SEQUENCE_OFFSET = 128;
+  private static final int FINISHED_OFFSET = 192;
+  private static final int DATA_OFFSET = 256;
+  private static final int MIN_CAPACITY = 4096;
+  private static final int MAX_CAPACITY = 1 << 30;
+  private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  // sun.misc.Unsafe is only reached reflectively, so that compiling against it does not warn
+  private static final long ADDRESS_OFFSET;
+  private static final MethodHandle GET_LONG;
+  private static final MethodHandle GET_LONG_VOLATILE;
+  private static final MethodHandle PUT_LONG_VOLATILE;
+  private static final MethodHandle PUT_ORDERED_LONG;
+
+  static {
+    long addressOffset = -1;
+    MethodHandle getLong = null;
+    MethodHandle getLongVolatile = null;
+    MethodHandle putLongVolatile = null;
+    MethodHandle putOrderedLong = null;
+    try {
+      final Class<?> type = Class.forName("sun.misc.Unsafe");
+      final Field field = type.getDeclaredField("theUnsafe");
+      field.setAccessible(true);
+      final Object unsafe = field.get(null);
+      final MethodHandles.Lookup lookup = MethodHandles.lookup();
+      addressOffset = (Long) type.getMethod("objectFieldOffset", Field.class)
+          .invoke(unsafe, Buffer.class.getDeclaredField("address"));
+      getLong = lookup.unreflect(type.getMethod("getLong", Object.class, long.class)).bindTo(unsafe);
+      getLongVolatile = lookup.unreflect(type.getMethod("getLongVolatile", Object.class, long.class)).bindTo(unsafe);
+      putLongVolatile =
+          lookup.unreflect(type.getMethod("putLongVolatile", Object.class, long.class, long.class)).bindTo(unsafe);
+      putOrderedLong =
+          lookup.unreflect(type.getMethod("putOrderedLong", Object.class, long.class, long.class)).bindTo(unsafe);
+    }
+    catch (ReflectiveOperationException | RuntimeException e) {
+      addressOffset = -1;
+    }
+    ADDRESS_OFFSET = addressOffset;
+    GET_LONG = getLong;
+    GET_LONG_VOLATILE = getLongVolatile;
+    PUT_LONG_VOLATILE = putLongVolatile;
+    PUT_ORDERED_LONG = putOrderedLong;
+  }
+
+  private final Path file;
+  private final boolean owner;
+  private final MappedByteBuffer mapped;
+  private final long writeSequenceAddress;
+  private final long readSequenceAddress;
+  private final long finishedAddress;
+  private final int capacity;
+  private final int mask;
+  private final ByteBuffer producerView;
+  private final ByteBuffer consumerView;
+  private long writePosition;
+  private long cachedReadPosition;
+  private long readPosition;
+  private long cachedWritePosition;
+
+  private SharedRing(final Path file, final boolean owner, final MappedByteBuffer mapped, final int capacity) {
+    this.file = file;
+    this.owner = owner;
+    this.mapped = mapped;
+    final long address = getLong(mapped, ADDRESS_OFFSET);
+    writeSequenceAddress = address + WRITE_SEQUENCE_OFFSET;
+    readSequenceAddress = address + READ_SEQUENCE_OFFSET;
+    finishedAddress = address + FINISHED_OFFSET;
+    this.capacity = capacity;
+    mask = capacity - 1;
+    mapped.position(DATA_OFFSET);
+    final ByteBuffer data = mapped.slice().order(ByteOrder.nativeOrder());
+    producerView = data.duplicate().order(ByteOrder.nativeOrder());
+    consumerView = data.duplicate().order(ByteOrder.nativeOrder());
+    writePosition = getLongVolatile(writeSequenceAddress);
+    cachedReadPosition = getLongVolatile(readSequenceAddress);
+    readPosition = cachedReadPosition;
+    cachedWritePosition = writePosition;
+  }
+
+  public static boolean isSupported() {
+    return 0 <= ADDRESS_OFFSET;
+  }
+
+  /**
+   * Creates a ring in a new file, which is deleted when this side is closed.
+   *
+   * @param capacity the size of the ring in bytes, a power of two of at least 4k
+   */
+  public static SharedRing create(final Path file, final int capacity) throws IOException {
+    checkSupported();
+    if (MIN_CAPACITY > capacity || MAX_CAPACITY < capacity || 0 != (capacity & (capacity - 1))) {
+      throw new IllegalArgumentException("Capacity must be a power of two from 4k to 1g: " + capacity);
+    }
+    final MappedByteBuffer mapped;
+    try (final FileChannel channel = FileChannel.open(file,
+        StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, DATA_OFFSET + capacity);
+    }
+    mapped.order(ByteOrder.nativeOrder());
+    mapped.putInt(4, capacity);
+    mapped.putInt(0, MAGIC);
+    return new SharedRing(file, true, mapped, capacity);
+  }
+
+  /**
+   * Maps a ring created by the other side.
+   */
+  public static SharedRing open(final Path file) throws IOException {
+    checkSupported();
+    final MappedByteBuffer mapped;
+    try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      if (DATA_OFFSET + MIN_CAPACITY > channel.size()) {
+        throw new IOException("Not a shared ring: " + file);
+      }
+      mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+    }
+    mapped.order(ByteOrder.nativeOrder());
+    final int capacity = mapped.getInt(4);
+    if (MAGIC != mapped.getInt(0) || DATA_OFFSET + (long) capacity != mapped.capacity()) {
+      throw new IOException("Not a shared ring: " + file);
+    }
+    return new SharedRing(file, false, mapped, capacity);
+  }
+
+  private static void checkSupported() {
+    if (!isSupported()) {
+      throw new UnsupportedOperationException("Shared rings need sun.misc.Unsafe");
+    }
+  }
+
+  public Path getFile() {
+    return file;
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * The largest record the ring can hold; a record of up to half the ring always fits once the ring is empty, however
+   * much padding it needs.
+   */
+  public int getMaxRecordLength() {
+    return capacity / 2 - HEADER_LENGTH;
+  }
+
+  public boolean offer(final byte[] record) {
+    return offer(record, 0, record.length);
+  }
+
+  /**
+   * Adds a record if there is room for it, without waiting.
+   */
+  public boolean offer(final byte[] record, final int offset, final int length) {
+    if (0 > offset || 0 > length || offset + length > record.length) {
+      throw new IndexOutOfBoundsException();
+    }
+    if (!claim(length)) {
+      return false;
+    }
+    producerView.position((int) (writePosition & mask) + HEADER_LENGTH);
+    producerView.put(record, offset, length);
+    publish(length);
+    return true;
+  }
+
+  /**
+   * Adds the remaining bytes of a buffer as a record if there is room for it, without waiting, advancing the position
+   * of the buffer if it was added.
+   */
+  public boolean offer(final ByteBuffer record) {
+    final int length = record.remaining();
+    if (!claim(length)) {
+      return false;
+    }
+    producerView.position((int) (writePosition & mask) + HEADER_LENGTH);
+    producerView.put(record);
+    publish(length);
+    return true;
+  }
+
+  /**
+   * Adds a record, waiting for room for it.
+   */
+  public void put(final byte[] record) throws InterruptedException {
+    int idle = 0;
+    while (!offer(record)) {
+      idle = idle(idle);
+    }
+  }
+
+  // Makes room for a record, padding the rest of the ring if the record would not fit before the end
+  private boolean claim(final int length) {
+    if (getMaxRecordLength() < length) {
+      throw new IllegalArgumentException("Record of " + length + " bytes exceeds " + getMaxRecordLength());
+    }
+    final int recordLength = align(HEADER_LENGTH + length);
+    final int index = (int) (writePosition & mask);
+    final int toEnd = capacity - index;
+    final int required = recordLength > toEnd ? toEnd + recordLength : recordLength;
+    if (writePosition + required - cachedReadPosition > capacity) {
+      cachedReadPosition = getLongVolatile(readSequenceAddress);
+      if (writePosition + required - cachedReadPosition > capacity) {
+        return false;
+      }
+    }
+    if (recordLength > toEnd) {
+      producerView.putInt(index, PADDING);
+      writePosition += toEnd;
+    }
+    return true;
+  }
+
+  private void publish(final int length) {
+    producerView.putInt((int) (writePosition & mask), length);
+    writePosition += align(HEADER_LENGTH + length);
+    // the ordered write makes the record visible to the consumer before the sequence which covers it
+    putOrderedLong(writeSequenceAddress, writePosition);
+  }
+
+  /**
+   * Tells the consumer that no more records will be added.
+   */
+  public void finish() {
+    putLongVolatile(finishedAddress, 1);
+  }
+
+  /**
+   * Takes the next record if there is one, without waiting.
+   */
+  @Nullable
+  public byte[] poll() {
+    final int index = next();
+    if (0 > index) {
+      return null;
+    }
+    final byte[] record = new byte[consumerView.getInt(index)];
+    consumerView.position(index + HEADER_LENGTH);
+    consumerView.get(record);
+    release(record.length);
+    return record;
+  }
+
+  /**
+   * Takes the next record, waiting for one, or returns null once the producer has finished and every record has been
+   * taken.
+   */
+  @Nullable
+  public byte[] take() throws InterruptedException {
+    int idle = 0;
+    byte[] record;
+    while (null == (record = poll())) {
+      if (isFinished()) {
+        // records may have been added between the poll and reading the flag
+        return poll();
+      }
+      idle = idle(idle);
+    }
+    return record;
+  }
+
+  /**
+   * Passes up to a number of records to a handler in place, without copying them, and releases their space to the
+   * producer together once they have all been handled.
+   *
+   * @return the number of records handled
+   */
+  public int read(final RecordHandler handler, final int maxRecords) {
+    int count = 0;
+    long released = readPosition;
+    while (count < maxRecords) {
+      final int index = next();
+      if (0 > index) {
+        break;
+      }
+      final int length = consumerView.getInt(index);
+      consumerView.limit(index + HEADER_LENGTH + length).position(index + HEADER_LENGTH);
+      try {
+        handler.record(consumerView);
+      }
+      finally {
+        consumerView.clear();
+      }
+      readPosition += align(HEADER_LENGTH + length);
+      count++;
+    }
+    if (released != readPosition) {
+      putOrderedLong(readSequenceAddress, readPosition);
+    }
+    return count;
+  }
+
+  /**
+   * Whether the producer has finished; records may remain to be taken.
+   */
+  public boolean isFinished() {
+    return 0 != getLongVolatile(finishedAddress);
+  }
+
+  // The index of the next record, skipping padding, or -1 if there is none yet
+  private int next() {
+    while (true) {
+      if (readPosition == cachedWritePosition) {
+        cachedWritePosition = getLongVolatile(writeSequenceAddress);
+        if (readPosition == cachedWritePosition) {
+          return -1;
+        }
+      }
+      final int index = (int) (readPosition & mask);
+      if (PADDING != consumerView.getInt(index)) {
+        return index;
+      }
+      readPosition += capacity - index;
+    }
+  }
+
+  private void release(final int length) {
+    readPosition += align(HEADER_LENGTH + length);
+    putOrderedLong(readSequenceAddress, readPosition);
+  }
+
+  private static long getLong(final Object object, final long offset) {
+    try {
+      return (long) GET_LONG.invokeExact(object, offset);
+    }
+    catch (Throwable e) {
+      throw propagate(e);
+    }
+  }
+
+  private static long getLongVolatile(final long address) {
+    try {
+      return (long) GET_LONG_VOLATILE.invokeExact((Object) null, address);
+    }
+    catch (Throwable e) {
+      throw propagate(e);
+    }
+  }
+
+  private static void putLongVolatile(final long address, final long value) {
+    try {
+      PUT_LONG_VOLATILE.invokeExact((Object) null, address, value);
+    }
+    catch (Throwable e) {
+      throw propagate(e);
+    }
+  }
+
+  private static void putOrderedLong(final long address, final long value) {
+    try {
+      PUT_ORDERED_LONG.invokeExact((Object) null, address, value);
+    }
+    catch (Throwable e) {
+      throw propagate(e);
+    }
+  }
+
+  // this package only uses the JDK, so that children can load it without Guava
+  private static RuntimeException propagate(final Throwable e) {
+    if (e instanceof RuntimeException) {
+      throw (RuntimeException) e;
+    }
+    if (e instanceof Error) {
+      throw (Error) e;
+    }
+    throw new IllegalStateException(e);
+  }
+
+  private static int align(final int length) {
+    return (length + RECORD_ALIGNMENT - 1) & -RECORD_ALIGNMENT;
+  }
+
+  // Spins briefly, then yields, then parks for increasing times up to a millisecond
+  private static int idle(final int idle) throws InterruptedException {
+    if (Thread.interrupted()) {
+      throw new InterruptedException();
+    }
+    if (100 > idle) {
+      return idle + 1;
+    }
+    if (200 > idle) {
+      Thread.yield();
+      return idle + 1;
+    }
+    LockSupport.parkNanos(Math.min(MAX_PARK_NANOS, 1L << Math.min(20, idle - 190)));
+    return idle + 1;
+  }
+
+  /**
+   * Deletes the file if this side created it. The mapping itself is released once the ring is garbage collected, so
+   * the other side may go on using it.
+   */
+  @Override
+  public void close() throws IOException {
+    if (owner) {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "SharedRing{file=" + file + ", capacity=" + capacity + '}';
+  }
+}
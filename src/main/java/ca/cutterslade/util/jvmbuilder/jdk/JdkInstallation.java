@@ -0,0 +1,98 @@
+package ca.cutterslade.util.jvmbuilder.jdk;
+
+import java.nio.file.Path;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import ca.cutterslade.util.jvmbuilder.JvmArchitecture;
+import ca.cutterslade.util.jvmbuilder.common.JavaRelease;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A java home found by a {@link JdkRegistry}, with what its release file or a probe of it reported.
+ */
+@Immutable
+public final class JdkInstallation {
+  private final Path javaHome;
+  private final JavaRelease release;
+  private final JvmArchitecture architecture;
+
+  JdkInstallation(final Path javaHome, final JavaRelease release, @Nullable final JvmArchitecture architecture) {
+    Preconditions.checkArgument(null != javaHome);
+    Preconditions.checkArgument(null != release);
+    this.javaHome = javaHome;
+    this.release = release;
+    this.architecture = architecture;
+  }
+
+  public Path getJavaHome() {
+    return javaHome;
+  }
+
+  public JavaRelease getRelease() {
+    return release;
+  }
+
+  public String getVersion() {
+    return release.getVersion();
+  }
+
+  public int getFeatureVersion() {
+    return release.getFeatureVersion();
+  }
+
+  @Nullable
+  public String getImplementor() {
+    return release.getImplementor();
+  }
+
+  /**
+   * The data model of the JVM, or null if neither its release file nor a probe could tell.
+   */
+  @Nullable
+  public JvmArchitecture getArchitecture() {
+    return architecture;
+  }
+
+  /**
+   * Whether this installation satisfies a version requirement, as described by {@link JdkRegistry#find(String,
+   * JvmArchitecture)}, and the architecture if one is given.
+   */
+  public boolean satisfies(@Nullable final String versionRequirement,
+      @Nullable final JvmArchitecture requiredArchitecture) {
+    return (null == requiredArchitecture || requiredArchitecture == architecture) &&
+        (null == versionRequirement || VersionRequirement.parse(versionRequirement).isSatisfiedBy(getVersion()));
+  }
+
+  @Override
+  public boolean equals(final Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    final JdkInstallation that = (JdkInstallation) o;
+    return javaHome.equals(that.javaHome) && release.equals(that.release) && architecture == that.architecture;
+  }
+
+  @Override
+  public int hashCode() {
+    int result = javaHome.hashCode();
+    result = 31 * result + release.hashCode();
+    result = 31 * result + (architecture != null ? architecture.hashCode() : 0);
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return "JdkInstallation{" +
+        "javaHome=" + javaHome +
+        ", version='" + getVersion() + '\'' +
+        ", implementor='" + getImplementor() + '\'' +
+        ", architecture=" + architecture +
+        '}';
+  }
+}
@@ -0,0 +1,373 @@
+package ca.cutterslade.util.jvmbuilder.jdk;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ca.cutterslade.util.jvmbuilder.JvmArchitecture;
+import ca.cutterslade.util.jvmbuilder.common.JavaRelease;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Optional;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.CharStreams;
+
+/**
+ * The JDKs installed under a set of roots. Each java home is probed once, from its {@code release} file where that
+ * names the version and architecture and otherwise by running it with {@code -XshowSettings:properties}, and the
+ * results are cached on disk keyed by the home and the modification time of what was probed. Finding an
+ * installation for a requirement then only searches the scanned list.
+ */
+@ThreadSafe
+public final class JdkRegistry {
+  private static final Logger log = LoggerFactory.getLogger(JdkRegistry.class);
+  private static final Joiner CACHE_JOINER = Joiner.on('|').useForNull("");
+  private static final Splitter CACHE_SPLITTER = Splitter.on('|');
+  private static final Pattern SETTING_PATTERN = Pattern.compile("\\s+([\\w.]+) = (.*)");
+  private static final Comparator<JdkInstallation> NEWEST_FIRST = new Comparator<JdkInstallation>() {
+    @Override
+    public int compare(final JdkInstallation first, final JdkInstallation second) {
+      final int[] a = VersionRequirement.components(first.getVersion());
+      final int[] b = VersionRequirement.components(second.getVersion());
+      for (int i = 0; i < Math.max(a.length, b.length); i++) {
+        final int difference = (i < b.length ? b[i] : 0) - (i < a.length ? a[i] : 0);
+        if (0 != difference) {
+          return difference;
+        }
+      }
+      return first.getJavaHome().compareTo(second.getJavaHome());
+    }
+  };
+
+  private static final class DefaultHolder {
+    static final JdkRegistry DEFAULT = new JdkRegistryBuilder().build();
+  }
+
+  private final ImmutableList<Path> roots;
+  private final Path cache;
+  @GuardedBy("this")
+  private final Map<String, String> cached;
+  private volatile ImmutableList<JdkInstallation> installations;
+
+  JdkRegistry(final JdkRegistryBuilder builder) {
+    roots = builder.getRoots();
+    cache = builder.getCache();
+    cached = null == cache ? Maps.<String, String>newHashMap() : load(cache);
+    refresh();
+  }
+
+  /**
+   * The registry of the default roots, scanned when it is first used.
+   */
+  public static JdkRegistry getDefault() {
+    return DefaultHolder.DEFAULT;
+  }
+
+  /**
+   * Scans the roots again, probing only homes which are new or have changed.
+   */
+  public synchronized void refresh() {
+    final List<JdkInstallation> found = Lists.newArrayList();
+    boolean changed = false;
+    for (final Path home : findJavaHomes(roots)) {
+      final String key = home.toString();
+      final String previous = cached.get(key);
+      final Optional<JdkInstallation> installation = probe(home);
+      if (installation.isPresent()) {
+        found.add(installation.get());
+      }
+      changed |= !String.valueOf(previous).equals(String.valueOf(cached.get(key)));
+    }
+    Collections.sort(found, NEWEST_FIRST);
+    installations = ImmutableList.copyOf(found);
+    if (changed && null != cache) {
+      try {
+        save();
+      }
+      catch (IOException e) {
+        log.warn("Could not save JDK probe results to {}", cache, e);
+      }
+    }
+    log.debug("Found JDK installations {}", installations);
+  }
+
+  /**
+   * The installations found, newest first.
+   */
+  public ImmutableList<JdkInstallation> getInstallations() {
+    return installations;
+  }
+
+  /**
+   * Finds the newest installation satisfying a version requirement and architecture, either of which may be null. A
+   * requirement is written as it was for the {@code -version:} launcher option, so {@code 21+} is any release from
+   * 21 on, {@code 17} any Java 17, {@code 1.8 11} Java 8 or 11, and {@code 11+&17} any Java 17.
+   */
+  public Optional<JdkInstallation> find(@Nullable final String versionRequirement,
+      @Nullable final JvmArchitecture architecture) {
+    final VersionRequirement requirement = null == versionRequirement ? null :
+        VersionRequirement.parse(versionRequirement);
+    for (final JdkInstallation installation : installations) {
+      if ((null == architecture || architecture == installation.getArchitecture()) &&
+          (null == requirement || requirement.isSatisfiedBy(installation.getVersion()))) {
+        return Optional.of(installation);
+      }
+    }
+    return Optional.absent();
+  }
+
+  /**
+   * Describes a java home, which need not be under one of the roots, from the cache where it is current.
+   */
+  public synchronized Optional<JdkInstallation> describe(final Path javaHome) {
+    final Path home;
+    try {
+      home = javaHome.toRealPath();
+    }
+    catch (IOException e) {
+      log.debug("Could not resolve java home {}", javaHome, e);
+      return Optional.absent();
+    }
+    for (final JdkInstallation installation : installations) {
+      if (installation.getJavaHome().equals(home)) {
+        return Optional.of(installation);
+      }
+    }
+    final String previous = cached.get(home.toString());
+    final Optional<JdkInstallation> installation = probe(home);
+    if (null != cache && !String.valueOf(previous).equals(String.valueOf(cached.get(home.toString())))) {
+      try {
+        save();
+      }
+      catch (IOException e) {
+        log.warn("Could not save JDK probe results to {}", cache, e);
+      }
+    }
+    return installation;
+  }
+
+  static boolean isJavaHome(@Nullable final Path path) {
+    return null != path && (Files.isRegularFile(path.resolve("bin").resolve("java")) ||
+        Files.isRegularFile(path.resolve("bin").resolve("java.exe")));
+  }
+
+  private static Set<Path> findJavaHomes(final Iterable<Path> roots) {
+    final Set<Path> homes = Sets.newLinkedHashSet();
+    for (final Path root : roots) {
+      if (!Files.isDirectory(root)) {
+        continue;
+      }
+      if (isJavaHome(root)) {
+        addHome(homes, root);
+        continue;
+      }
+      try (final DirectoryStream<Path> children = Files.newDirectoryStream(root)) {
+        for (final Path child : children) {
+          if (isJavaHome(child)) {
+            addHome(homes, child);
+          }
+          else if (isJavaHome(child.resolve("Contents").resolve("Home"))) {
+            addHome(homes, child.resolve("Contents").resolve("Home"));
+          }
+        }
+      }
+      catch (IOException e) {
+        log.debug("Could not list JDK root {}", root, e);
+      }
+    }
+    return homes;
+  }
+
+  private static void addHome(final Set<Path> homes, final Path home) {
+    try {
+      // links such as SDKMAN!'s current and Debian's default-java name homes which are found anyway
+      homes.add(home.toRealPath());
+    }
+    catch (IOException e) {
+      log.debug("Could not resolve java home {}", home, e);
+    }
+  }
+
+  @GuardedBy("this")
+  private Optional<JdkInstallation> probe(final Path home) {
+    final Path releaseFile = home.resolve("release");
+    final Path probed = Files.isRegularFile(releaseFile) ? releaseFile : getJavaExecutable(home);
+    final long modified;
+    try {
+      modified = Files.getLastModifiedTime(probed).toMillis();
+    }
+    catch (IOException e) {
+      log.debug("Could not probe java home {}", home, e);
+      return Optional.absent();
+    }
+    final String key = home.toString();
+    final String entry = cached.get(key);
+    if (null != entry) {
+      final List<String> values = ImmutableList.copyOf(CACHE_SPLITTER.split(entry));
+      if (5 == values.size() && String.valueOf(modified).equals(values.get(0))) {
+        return Optional.of(new JdkInstallation(home, new JavaRelease(values.get(1), emptyToNull(values.get(2)),
+            emptyToNull(values.get(3))), parseArchitecture(values.get(4))));
+      }
+    }
+    final Optional<JdkInstallation> installation = probeUncached(home, releaseFile);
+    if (installation.isPresent()) {
+      final JdkInstallation found = installation.get();
+      cached.put(key, CACHE_JOINER.join(modified, found.getVersion(), found.getImplementor(),
+          found.getRelease().getArchitecture(), found.getArchitecture()));
+    }
+    else {
+      cached.remove(key);
+    }
+    return installation;
+  }
+
+  private static Optional<JdkInstallation> probeUncached(final Path home, final Path releaseFile) {
+    if (Files.isRegularFile(releaseFile)) {
+      try {
+        final JavaRelease release = JavaRelease.read(home);
+        final JvmArchitecture architecture = toArchitecture(release.getArchitecture(), null);
+        if (null != architecture) {
+          return Optional.of(new JdkInstallation(home, release, architecture));
+        }
+      }
+      catch (IllegalArgumentException e) {
+        log.debug("Could not read {}", releaseFile, e);
+      }
+    }
+    return runProbe(home);
+  }
+
+  private static Optional<JdkInstallation> runProbe(final Path home) {
+    log.debug("Probing java home {}", home);
+    final Map<String, String> settings = Maps.newHashMap();
+    try {
+      final Process process = new ProcessBuilder(getJavaExecutable(home).toString(), "-XshowSettings:properties",
+          "-version").redirectErrorStream(true).start();
+      process.getOutputStream().close();
+      final List<String> lines;
+      try (final Reader reader = new InputStreamReader(process.getInputStream(), Charset.defaultCharset())) {
+        lines = CharStreams.readLines(reader);
+      }
+      process.waitFor();
+      for (final String line : lines) {
+        final Matcher matcher = SETTING_PATTERN.matcher(line);
+        if (matcher.matches()) {
+          settings.put(matcher.group(1), matcher.group(2).trim());
+        }
+      }
+    }
+    catch (IOException e) {
+      log.debug("Could not probe java home {}", home, e);
+      return Optional.absent();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return Optional.absent();
+    }
+    final String version = settings.get("java.version");
+    if (null == version) {
+      log.debug("Probing java home {} did not report a version", home);
+      return Optional.absent();
+    }
+    final String arch = settings.get("os.arch");
+    return Optional.of(new JdkInstallation(home, new JavaRelease(version, settings.get("java.vendor"), arch),
+        toArchitecture(arch, settings.get("sun.arch.data.model"))));
+  }
+
+  private static Path getJavaExecutable(final Path home) {
+    final Path java = home.resolve("bin").resolve("java");
+    return Files.isRegularFile(java) ? java : home.resolve("bin").resolve("java.exe");
+  }
+
+  @Nullable
+  static JvmArchitecture toArchitecture(@Nullable final String arch, @Nullable final String dataModel) {
+    if (null != dataModel) {
+      return "64".equals(dataModel) ? JvmArchitecture.ARCH_64_BIT :
+          "32".equals(dataModel) ? JvmArchitecture.ARCH_32_BIT : null;
+    }
+    if (null == arch) {
+      return null;
+    }
+    return arch.contains("64") || "sparcv9".equals(arch) ? JvmArchitecture.ARCH_64_BIT : JvmArchitecture.ARCH_32_BIT;
+  }
+
+  @Nullable
+  private static JvmArchitecture parseArchitecture(final String value) {
+    return value.isEmpty() ? null : JvmArchitecture.valueOf(value);
+  }
+
+  @Nullable
+  private static String emptyToNull(final String value) {
+    return value.isEmpty() ? null : value;
+  }
+
+  private static Map<String, String> load(final Path cache) {
+    final Map<String, String> loaded = Maps.newHashMap();
+    if (!Files.exists(cache)) {
+      return loaded;
+    }
+    final Properties properties = new Properties();
+    try (final Reader reader = Files.newBufferedReader(cache, StandardCharsets.UTF_8)) {
+      properties.load(reader);
+    }
+    catch (IOException e) {
+      log.warn("Could not read JDK probe results from {}, probing afresh", cache, e);
+      return loaded;
+    }
+    for (final String key : properties.stringPropertyNames()) {
+      loaded.put(key, properties.getProperty(key));
+    }
+    return loaded;
+  }
+
+  @GuardedBy("this")
+  private void save() throws IOException {
+    final Properties properties = new Properties();
+    properties.putAll(cached);
+    final Path directory = cache.toAbsolutePath().getParent();
+    Files.createDirectories(directory);
+    final Path temporary = directory.resolve(cache.getFileName() + "." + UUID.randomUUID() + ".tmp");
+    try {
+      try (final Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+        properties.store(writer, "modified|version|implementor|os.arch|data model of probed java homes");
+      }
+      try {
+        Files.move(temporary, cache, StandardCopyOption.ATOMIC_MOVE);
+      }
+      catch (AtomicMoveNotSupportedException e) {
+        Files.move(temporary, cache, StandardCopyOption.REPLACE_EXISTING);
+      }
+    }
+    finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+}
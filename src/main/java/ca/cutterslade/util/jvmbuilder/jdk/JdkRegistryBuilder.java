@@ -0,0 +1,87 @@
+package ca.cutterslade.util.jvmbuilder.jdk;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Set;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
+
+@NotThreadSafe
+public final class JdkRegistryBuilder {
+  private final Set<Path> roots = Sets.newLinkedHashSet();
+  private Path cache = Paths.get(System.getProperty("user.home"), ".jvm-builder", "jdks.properties");
+
+  /**
+   * Adds a directory which is either a java home or contains java homes, directly or as macOS bundles. If no root is
+   * added the default roots are scanned.
+   */
+  public JdkRegistryBuilder addRoot(final Path root) {
+    Preconditions.checkArgument(null != root);
+    roots.add(root);
+    return this;
+  }
+
+  /**
+   * Adds the running java home, JAVA_HOME, and the places JDKs are usually installed by operating system packages,
+   * SDKMAN! and IDEs.
+   */
+  public JdkRegistryBuilder addDefaultRoots() {
+    Path current = Paths.get(System.getProperty("java.home"));
+    // A Java 8 JRE nested in a JDK is registered as the JDK
+    if ("jre".equals(String.valueOf(current.getFileName())) && JdkRegistry.isJavaHome(current.getParent())) {
+      current = current.getParent();
+    }
+    roots.add(current);
+    final String javaHome = System.getenv("JAVA_HOME");
+    if (null != javaHome && !javaHome.isEmpty()) {
+      roots.add(Paths.get(javaHome));
+    }
+    final String userHome = System.getProperty("user.home");
+    roots.add(Paths.get("/usr/lib/jvm"));
+    roots.add(Paths.get("/usr/java"));
+    roots.add(Paths.get("/opt/java"));
+    roots.add(Paths.get("/Library/Java/JavaVirtualMachines"));
+    roots.add(Paths.get(userHome, "Library", "Java", "JavaVirtualMachines"));
+    roots.add(Paths.get(userHome, ".sdkman", "candidates", "java"));
+    roots.add(Paths.get(userHome, ".jdks"));
+    final String programFiles = System.getenv("ProgramFiles");
+    if (null != programFiles && !programFiles.isEmpty()) {
+      roots.add(Paths.get(programFiles, "Java"));
+    }
+    return this;
+  }
+
+  /**
+   * The file probe results are kept in, keyed by java home and the modification time of what was probed; defaults to
+   * jdks.properties in ~/.jvm-builder.
+   */
+  public JdkRegistryBuilder setCache(final Path cache) {
+    Preconditions.checkArgument(null != cache);
+    this.cache = cache;
+    return this;
+  }
+
+  public JdkRegistryBuilder disableCache() {
+    this.cache = null;
+    return this;
+  }
+
+  public JdkRegistry build() {
+    if (roots.isEmpty()) {
+      addDefaultRoots();
+    }
+    return new JdkRegistry(this);
+  }
+
+  ImmutableList<Path> getRoots() {
+    return ImmutableList.copyOf(roots);
+  }
+
+  Path getCache() {
+    return cache;
+  }
+}
@@ -0,0 +1,105 @@
+package ca.cutterslade.util.jvmbuilder.jdk;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+import javax.annotation.concurrent.Immutable;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Ints;
+
+/**
+ * A version requirement in the syntax of the old {@code -version:} launcher option: alternatives separated by spaces,
+ * each of which may join terms with {@code &}. A term is a version, matching that version and any more specific one,
+ * or a version followed by {@code +}, matching it and anything later; {@code *} is accepted as a synonym for the
+ * plain form. Versions are compared by their numbers, with a leading {@code 1.} dropped, so {@code 1.8} and {@code 8}
+ * are the same requirement.
+ */
+@Immutable
+final class VersionRequirement {
+  private static final Splitter ALTERNATIVES = Splitter.on(CharMatcher.WHITESPACE).omitEmptyStrings();
+  private static final Splitter TERMS = Splitter.on('&').trimResults().omitEmptyStrings();
+  private static final Pattern COMPONENT_SEPARATOR = Pattern.compile("[._+-]");
+
+  private final ImmutableList<ImmutableList<Term>> alternatives;
+
+  private VersionRequirement(final ImmutableList<ImmutableList<Term>> alternatives) {
+    this.alternatives = alternatives;
+  }
+
+  static VersionRequirement parse(final String requirement) {
+    final ImmutableList.Builder<ImmutableList<Term>> alternatives = ImmutableList.builder();
+    for (final String alternative : ALTERNATIVES.split(requirement)) {
+      final ImmutableList.Builder<Term> terms = ImmutableList.builder();
+      for (final String term : TERMS.split(alternative)) {
+        final boolean orLater = term.endsWith("+");
+        final String version = orLater || term.endsWith("*") ? term.substring(0, term.length() - 1) : term;
+        final int[] components = components(version);
+        Preconditions.checkArgument(0 < components.length, "Invalid version requirement: %s", requirement);
+        terms.add(new Term(components, orLater));
+      }
+      alternatives.add(terms.build());
+    }
+    final ImmutableList<ImmutableList<Term>> parsed = alternatives.build();
+    Preconditions.checkArgument(!parsed.isEmpty(), "Invalid version requirement: %s", requirement);
+    return new VersionRequirement(parsed);
+  }
+
+  boolean isSatisfiedBy(final String version) {
+    final int[] components = components(version);
+    for (final List<Term> terms : alternatives) {
+      boolean satisfied = true;
+      for (final Term term : terms) {
+        satisfied &= term.isSatisfiedBy(components);
+      }
+      if (satisfied) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * The leading numbers of a version, stopping at the first part which is not a number, such as {@code ea}.
+   */
+  static int[] components(final String version) {
+    final String[] parts = COMPONENT_SEPARATOR.split(version);
+    final List<Integer> components = Lists.newArrayListWithCapacity(parts.length);
+    for (final String part : parts) {
+      final Integer value = Ints.tryParse(part);
+      if (null == value) {
+        break;
+      }
+      components.add(value);
+    }
+    if (1 < components.size() && 1 == components.get(0)) {
+      components.remove(0);
+    }
+    return Ints.toArray(components);
+  }
+
+  @Immutable
+  private static final class Term {
+    private final int[] version;
+    private final boolean orLater;
+
+    Term(final int[] version, final boolean orLater) {
+      this.version = version;
+      this.orLater = orLater;
+    }
+
+    boolean isSatisfiedBy(final int[] candidate) {
+      for (int i = 0; i < version.length; i++) {
+        final int value = i < candidate.length ? candidate[i] : 0;
+        if (value != version[i]) {
+          return orLater && value > version[i];
+        }
+      }
+      return true;
+    }
+  }
+}
@@ -0,0 +1,119 @@
+package ca.cutterslade.util.jvmbuilder.monitor;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Totals over the most recent samples of every child watched by a {@link JvmMonitor}. Children which have not yet
+ * been sampled are counted, but contribute nothing else.
+ */
+@Immutable
+public final class FleetSummary {
+  private final int jvmCount;
+  private final int sampledCount;
+  private final long totalHeapUsed;
+  private final long totalHeapCommitted;
+  private final long maxHeapUsed;
+  private final long totalNonHeapUsed;
+  private final int totalThreadCount;
+  private final long totalGcTimeMillis;
+  private final double maxGcFraction;
+  private final double totalCpuLoad;
+
+  private FleetSummary(final int jvmCount, final int sampledCount, final long totalHeapUsed,
+      final long totalHeapCommitted, final long maxHeapUsed, final long totalNonHeapUsed, final int totalThreadCount,
+      final long totalGcTimeMillis, final double maxGcFraction, final double totalCpuLoad) {
+    this.jvmCount = jvmCount;
+    this.sampledCount = sampledCount;
+    this.totalHeapUsed = totalHeapUsed;
+    this.totalHeapCommitted = totalHeapCommitted;
+    this.maxHeapUsed = maxHeapUsed;
+    this.totalNonHeapUsed = totalNonHeapUsed;
+    this.totalThreadCount = totalThreadCount;
+    this.totalGcTimeMillis = totalGcTimeMillis;
+    this.maxGcFraction = maxGcFraction;
+    this.totalCpuLoad = totalCpuLoad;
+  }
+
+  static FleetSummary of(final Iterable<MonitoredJvm> jvms) {
+    int jvmCount = 0;
+    int sampledCount = 0;
+    long totalHeapUsed = 0;
+    long totalHeapCommitted = 0;
+    long maxHeapUsed = 0;
+    long totalNonHeapUsed = 0;
+    int totalThreadCount = 0;
+    long totalGcTimeMillis = 0;
+    double maxGcFraction = 0;
+    double totalCpuLoad = 0;
+    for (final MonitoredJvm jvm : jvms) {
+      jvmCount++;
+      final JvmSample sample = jvm.getLatestSample().orNull();
+      if (null != sample) {
+        sampledCount++;
+        totalHeapUsed += sample.getHeapUsed();
+        totalHeapCommitted += sample.getHeapCommitted();
+        maxHeapUsed = Math.max(maxHeapUsed, sample.getHeapUsed());
+        totalNonHeapUsed += sample.getNonHeapUsed();
+        totalThreadCount += sample.getThreadCount();
+        totalGcTimeMillis += sample.getGcTimeMillis();
+        maxGcFraction = Math.max(maxGcFraction, jvm.getGcFraction().or(0d));
+        totalCpuLoad += jvm.getCpuLoad().or(0d);
+      }
+    }
+    return new FleetSummary(jvmCount, sampledCount, totalHeapUsed, totalHeapCommitted, maxHeapUsed, totalNonHeapUsed,
+        totalThreadCount, totalGcTimeMillis, maxGcFraction, totalCpuLoad);
+  }
+
+  public int getJvmCount() {
+    return jvmCount;
+  }
+
+  public int getSampledCount() {
+    return sampledCount;
+  }
+
+  public long getTotalHeapUsed() {
+    return totalHeapUsed;
+  }
+
+  public long getTotalHeapCommitted() {
+    return totalHeapCommitted;
+  }
+
+  public long getMaxHeapUsed() {
+    return maxHeapUsed;
+  }
+
+  public long getTotalNonHeapUsed() {
+    return totalNonHeapUsed;
+  }
+
+  public int getTotalThreadCount() {
+    return totalThreadCount;
+  }
+
+  public long getTotalGcTimeMillis() {
+    return totalGcTimeMillis;
+  }
+
+  public double getMaxGcFraction() {
+    return maxGcFraction;
+  }
+
+  public double getTotalCpuLoad() {
+    return totalCpuLoad;
+  }
+
+  @Override
+  public String toString() {
+    return "FleetSummary{" +
+        "jvmCount=" + jvmCount +
+        ", sampledCount=" + sampledCount +
+        ", totalHeapUsed=" + totalHeapUsed +
+        ", maxHeapUsed=" + maxHeapUsed +
+        ", totalThreadCount=" + totalThreadCount +
+        ", maxGcFraction=" + maxGcFraction +
+        ", totalCpuLoad=" + totalCpuLoad +
+        '}';
+  }
+}
@@ -0,0 +1,17 @@
+package ca.cutterslade.util.jvmbuilder.monitor;
+
+import javax.annotation.concurrent.Immutable;
+
+@Immutable
+public enum JmxMode {
+  /**
+   * Attach to each child by process id and start its local management agent. Needs the Attach API of a full JDK in
+   * this JVM and a child running as the same user.
+   */
+  ATTACH,
+  /**
+   * Start each child with a JMX connector on a free loopback port. The connector is unauthenticated, so any local user
+   * can connect to it; prefer {@link #ATTACH} where it is available.
+   */
+  CONNECTOR
+}
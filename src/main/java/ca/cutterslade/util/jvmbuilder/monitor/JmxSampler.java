@@ -0,0 +1,134 @@
+package ca.cutterslade.util.jvmbuilder.monitor;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.JMException;
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * A JMX connection to one child, and the reading of a sample from it. Attributes are fetched one bean at a time, so a
+ * sample costs one round trip per bean rather than one per value.
+ */
+@NotThreadSafe
+final class JmxSampler implements Closeable {
+  private static final String[] MEMORY_ATTRIBUTES = {"HeapMemoryUsage", "NonHeapMemoryUsage"};
+  private static final String[] GC_ATTRIBUTES = {"CollectionCount", "CollectionTime"};
+  private static final String[] THREAD_ATTRIBUTES = {"ThreadCount", "PeakThreadCount", "DaemonThreadCount"};
+  private static final String[] OS_ATTRIBUTES = {"ProcessCpuTime", "SystemLoadAverage"};
+
+  private final JMXConnector connector;
+  private final MBeanServerConnection connection;
+  private final List<ObjectName> collectors;
+
+  private JmxSampler(final JMXConnector connector) throws IOException, JMException {
+    this.connector = connector;
+    this.connection = connector.getMBeanServerConnection();
+    final Set<ObjectName> names = connection.queryNames(
+        new ObjectName(ManagementFactory.GARBAGE_COLLECTOR_MXBEAN_DOMAIN_TYPE + ",*"), null);
+    this.collectors = ImmutableList.copyOf(names);
+  }
+
+  static JmxSampler connect(final JMXServiceURL url) throws IOException {
+    final JMXConnector connector = JMXConnectorFactory.connect(url);
+    try {
+      return new JmxSampler(connector);
+    }
+    catch (IOException | JMException | RuntimeException e) {
+      connector.close();
+      throw e instanceof IOException ? (IOException) e : new IOException(e);
+    }
+  }
+
+  /**
+   * Whether the child has created its attach socket, so that attaching will not have to signal it. This can only be
+   * told on Linux, elsewhere the child is assumed to be ready.
+   */
+  static boolean isAttachable(final long pid) {
+    return !"Linux".equals(System.getProperty("os.name")) || new File("/tmp/.java_pid" + pid).exists();
+  }
+
+  static JMXServiceURL attach(final long pid) throws IOException {
+    try {
+      final Class<?> type = Class.forName("com.sun.tools.attach.VirtualMachine");
+      final Object vm = type.getMethod("attach", String.class).invoke(null, String.valueOf(pid));
+      try {
+        final Method start = type.getMethod("startLocalManagementAgent");
+        return new JMXServiceURL((String) start.invoke(vm));
+      }
+      finally {
+        type.getMethod("detach").invoke(vm);
+      }
+    }
+    catch (InvocationTargetException e) {
+      throw new IOException("Could not attach to " + pid, e.getCause());
+    }
+    catch (ReflectiveOperationException | LinkageError e) {
+      throw new IOException("The attach API is not available", e);
+    }
+  }
+
+  JvmSample sample() throws IOException {
+    try {
+      final AttributeList memory = connection.getAttributes(
+          new ObjectName(ManagementFactory.MEMORY_MXBEAN_NAME), MEMORY_ATTRIBUTES);
+      final MemoryUsage heap = MemoryUsage.from((CompositeData) get(memory, "HeapMemoryUsage"));
+      final MemoryUsage nonHeap = MemoryUsage.from((CompositeData) get(memory, "NonHeapMemoryUsage"));
+      long gcCount = 0;
+      long gcTime = 0;
+      for (final ObjectName collector : collectors) {
+        final AttributeList gc = connection.getAttributes(collector, GC_ATTRIBUTES);
+        gcCount += Math.max(0, getLong(gc, "CollectionCount", 0));
+        gcTime += Math.max(0, getLong(gc, "CollectionTime", 0));
+      }
+      final AttributeList threads = connection.getAttributes(
+          new ObjectName(ManagementFactory.THREAD_MXBEAN_NAME), THREAD_ATTRIBUTES);
+      final AttributeList os = connection.getAttributes(
+          new ObjectName(ManagementFactory.OPERATING_SYSTEM_MXBEAN_NAME), OS_ATTRIBUTES);
+      final Object load = get(os, "SystemLoadAverage");
+      return new JvmSample(System.currentTimeMillis(), heap.getUsed(), heap.getCommitted(), heap.getMax(),
+          null == nonHeap ? 0 : nonHeap.getUsed(), gcCount, gcTime, (int) getLong(threads, "ThreadCount", 0),
+          (int) getLong(threads, "PeakThreadCount", 0), (int) getLong(threads, "DaemonThreadCount", 0),
+          getLong(os, "ProcessCpuTime", -1), load instanceof Number ? ((Number) load).doubleValue() : -1);
+    }
+    catch (JMException | RuntimeException e) {
+      throw new IOException("Could not sample management beans", e);
+    }
+  }
+
+  private static Object get(final AttributeList attributes, final String name) {
+    for (final Attribute attribute : attributes.asList()) {
+      if (name.equals(attribute.getName())) {
+        return attribute.getValue();
+      }
+    }
+    return null;
+  }
+
+  private static long getLong(final AttributeList attributes, final String name, final long absent) {
+    final Object value = get(attributes, name);
+    return value instanceof Number ? ((Number) value).longValue() : absent;
+  }
+
+  @Override
+  public void close() throws IOException {
+    connector.close();
+  }
+}
@@ -0,0 +1,217 @@
+package ca.cutterslade.util.jvmbuilder.monitor;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.management.remote.JMXServiceURL;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ca.cutterslade.util.jvmbuilder.JvmProcess;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Ordering;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Periodically samples the memory, garbage collector, thread and operating system management beans of child JVMs,
+ * keeping the most recent samples of each child until it exits. Children are sampled one after another by a single
+ * daemon thread, and a child which cannot be reached yet is retried on the next pass.
+ */
+@ThreadSafe
+public final class JvmMonitor implements Closeable {
+  private static final Logger log = LoggerFactory.getLogger(JvmMonitor.class);
+  private static final String LOOPBACK = "127.0.0.1";
+  private static final Ordering<MonitoredJvm> BY_HEAP_USED = new Ordering<MonitoredJvm>() {
+    @Override
+    public int compare(final MonitoredJvm left, final MonitoredJvm right) {
+      return Long.compare(getHeapUsed(left), getHeapUsed(right));
+    }
+
+    private long getHeapUsed(final MonitoredJvm jvm) {
+      final JvmSample sample = jvm.getLatestSample().orNull();
+      return null == sample ? -1 : sample.getHeapUsed();
+    }
+  };
+  private static final Ordering<MonitoredJvm> BY_GC_FRACTION = new Ordering<MonitoredJvm>() {
+    @Override
+    public int compare(final MonitoredJvm left, final MonitoredJvm right) {
+      return Double.compare(left.getGcFraction().or(-1d), right.getGcFraction().or(-1d));
+    }
+  };
+
+  private final JmxMode mode;
+  private final ScheduledExecutorService executor;
+  private final ConcurrentMap<Long, MonitoredJvm> jvms = new ConcurrentHashMap<>();
+  private volatile boolean closed;
+
+  public JvmMonitor(final JmxMode mode, final long interval, final TimeUnit unit) {
+    checkArgument(null != mode, "mode may not be null");
+    checkArgument(0 < interval, "interval must be positive");
+    checkArgument(null != unit, "unit may not be null");
+    this.mode = mode;
+    executor = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("jvm-monitor-%d").build());
+    executor.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        sampleAll();
+      }
+    }, 0, interval, unit);
+  }
+
+  public JmxMode getMode() {
+    return mode;
+  }
+
+  /**
+   * Prepares the launch of a child to be watched, choosing the options it must be started with.
+   */
+  public Launch newLaunch() throws IOException {
+    checkState(!closed, "monitor has been closed");
+    switch (mode) {
+      case ATTACH:
+        return new Launch(ImmutableList.of("-XX:+StartAttachListener"), null);
+      case CONNECTOR:
+        final int port = getFreePort();
+        return new Launch(ImmutableList.of(
+            "-Dcom.sun.management.jmxremote.port=" + port,
+            "-Dcom.sun.management.jmxremote.rmi.port=" + port,
+            "-Dcom.sun.management.jmxremote.host=" + LOOPBACK,
+            "-Dcom.sun.management.jmxremote.local.only=true",
+            "-Dcom.sun.management.jmxremote.authenticate=false",
+            "-Dcom.sun.management.jmxremote.ssl=false",
+            "-Djava.rmi.server.hostname=" + LOOPBACK),
+            new JMXServiceURL("service:jmx:rmi:///jndi/rmi://" + LOOPBACK + ':' + port + "/jmxrmi"));
+      default:
+        throw new IllegalStateException("Unknown mode " + mode);
+    }
+  }
+
+  private static int getFreePort() throws IOException {
+    try (final ServerSocket socket = new ServerSocket(0, 1, InetAddress.getByName(LOOPBACK))) {
+      return socket.getLocalPort();
+    }
+  }
+
+  /**
+   * Watches a child which was started without the options of a {@link Launch}. In {@link JmxMode#ATTACH} mode the
+   * child is sampled once it has started its attach listener, which it does the first time it is attached to on
+   * platforms other than Linux; other children are never connected.
+   */
+  public Optional<MonitoredJvm> watch(final JvmProcess process) {
+    return watch(process, null);
+  }
+
+  private Optional<MonitoredJvm> watch(final JvmProcess process, @Nullable final JMXServiceURL url) {
+    checkArgument(null != process, "process may not be null");
+    if (closed || !process.getPid().isPresent() || process.getExitValue().isDone()) {
+      return Optional.absent();
+    }
+    final MonitoredJvm jvm = new MonitoredJvm(process, process.getPid().get(), mode, url);
+    jvms.put(jvm.getPid(), jvm);
+    Futures.addCallback(process.getExitValue(), new FutureCallback<Integer>() {
+      @Override
+      public void onSuccess(final Integer result) {
+        jvm.exited();
+      }
+
+      @Override
+      public void onFailure(final Throwable t) {
+        jvm.exited();
+      }
+    });
+    return Optional.of(jvm);
+  }
+
+  public ImmutableList<MonitoredJvm> getJvms() {
+    return ImmutableList.copyOf(jvms.values());
+  }
+
+  public Optional<MonitoredJvm> getJvm(final long pid) {
+    return Optional.fromNullable(jvms.get(pid));
+  }
+
+  public FleetSummary getFleetSummary() {
+    return FleetSummary.of(jvms.values());
+  }
+
+  public List<MonitoredJvm> getTopByHeapUsed(final int count) {
+    return BY_HEAP_USED.greatestOf(getJvms(), count);
+  }
+
+  public List<MonitoredJvm> getTopByGcFraction(final int count) {
+    return BY_GC_FRACTION.greatestOf(getJvms(), count);
+  }
+
+  private void sampleAll() {
+    for (final Iterator<MonitoredJvm> iterator = jvms.values().iterator(); iterator.hasNext(); ) {
+      final MonitoredJvm jvm = iterator.next();
+      if (jvm.isExited()) {
+        iterator.remove();
+        jvm.close();
+      }
+      else {
+        jvm.sample();
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    executor.shutdown();
+    try {
+      if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+        log.warn("Sampling did not finish while closing monitor");
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    for (final MonitoredJvm jvm : jvms.values()) {
+      jvm.close();
+    }
+    jvms.clear();
+  }
+
+  /**
+   * The options and connection details of one child about to be launched.
+   */
+  @ThreadSafe
+  public final class Launch {
+    private final ImmutableList<String> options;
+    private final JMXServiceURL url;
+
+    private Launch(final ImmutableList<String> options, @Nullable final JMXServiceURL url) {
+      this.options = options;
+      this.url = url;
+    }
+
+    public ImmutableList<String> getOptions() {
+      return options;
+    }
+
+    public Optional<MonitoredJvm> started(final JvmProcess process) {
+      return watch(process, url);
+    }
+  }
+}
@@ -0,0 +1,105 @@
+package ca.cutterslade.util.jvmbuilder.monitor;
+
+import javax.annotation.concurrent.Immutable;
+
+import com.google.common.base.Optional;
+
+/**
+ * One reading of a child's platform management beans. Values the child's JVM does not provide are absent.
+ */
+@Immutable
+public final class JvmSample {
+  private final long timestampMillis;
+  private final long heapUsed;
+  private final long heapCommitted;
+  private final long heapMax;
+  private final long nonHeapUsed;
+  private final long gcCount;
+  private final long gcTimeMillis;
+  private final int threadCount;
+  private final int peakThreadCount;
+  private final int daemonThreadCount;
+  private final long processCpuTimeNanos;
+  private final double systemLoadAverage;
+
+  JvmSample(final long timestampMillis, final long heapUsed, final long heapCommitted, final long heapMax,
+      final long nonHeapUsed, final long gcCount, final long gcTimeMillis, final int threadCount,
+      final int peakThreadCount, final int daemonThreadCount, final long processCpuTimeNanos,
+      final double systemLoadAverage) {
+    this.timestampMillis = timestampMillis;
+    this.heapUsed = heapUsed;
+    this.heapCommitted = heapCommitted;
+    this.heapMax = heapMax;
+    this.nonHeapUsed = nonHeapUsed;
+    this.gcCount = gcCount;
+    this.gcTimeMillis = gcTimeMillis;
+    this.threadCount = threadCount;
+    this.peakThreadCount = peakThreadCount;
+    this.daemonThreadCount = daemonThreadCount;
+    this.processCpuTimeNanos = processCpuTimeNanos;
+    this.systemLoadAverage = systemLoadAverage;
+  }
+
+  public long getTimestampMillis() {
+    return timestampMillis;
+  }
+
+  public long getHeapUsed() {
+    return heapUsed;
+  }
+
+  public long getHeapCommitted() {
+    return heapCommitted;
+  }
+
+  public Optional<Long> getHeapMax() {
+    return 0 > heapMax ? Optional.<Long>absent() : Optional.of(heapMax);
+  }
+
+  public long getNonHeapUsed() {
+    return nonHeapUsed;
+  }
+
+  public long getGcCount() {
+    return gcCount;
+  }
+
+  public long getGcTimeMillis() {
+    return gcTimeMillis;
+  }
+
+  public int getThreadCount() {
+    return threadCount;
+  }
+
+  public int getPeakThreadCount() {
+    return peakThreadCount;
+  }
+
+  public int getDaemonThreadCount() {
+    return daemonThreadCount;
+  }
+
+  public Optional<Long> getProcessCpuTimeNanos() {
+    return 0 > processCpuTimeNanos ? Optional.<Long>absent() : Optional.of(processCpuTimeNanos);
+  }
+
+  public Optional<Double> getSystemLoadAverage() {
+    return 0 > systemLoadAverage ? Optional.<Double>absent() : Optional.of(systemLoadAverage);
+  }
+
+  @Override
+  public String toString() {
+    return "JvmSample{" +
+        "timestampMillis=" + timestampMillis +
+        ", heapUsed=" + heapUsed +
+        ", heapCommitted=" + heapCommitted +
+        ", heapMax=" + heapMax +
+        ", nonHeapUsed=" + nonHeapUsed +
+        ", gcCount=" + gcCount +
+        ", gcTimeMillis=" + gcTimeMillis +
+        ", threadCount=" + threadCount +
+        ", processCpuTimeNanos=" + processCpuTimeNanos +
+        '}';
+  }
+}
@@ -0,0 +1,149 @@
+package ca.cutterslade.util.jvmbuilder.monitor;
+
+import java.io.IOException;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.management.remote.JMXServiceURL;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ca.cutterslade.util.jvmbuilder.JvmProcess;
+
+import com.google.common.base.Optional;
+
+/**
+ * A child watched by a {@link JvmMonitor}, with its most recent sample and the rates derived from the two most recent
+ * samples.
+ */
+@ThreadSafe
+public final class MonitoredJvm {
+  private static final Logger log = LoggerFactory.getLogger(MonitoredJvm.class);
+  private final JvmProcess process;
+  private final long pid;
+  private final JmxMode mode;
+  private volatile JMXServiceURL url;
+  private volatile boolean exited;
+  private volatile boolean connected;
+  // only used by the monitor's sampling thread, so that a slow child does not block readers
+  private JmxSampler sampler;
+  private JvmSample previous;
+  private JvmSample latest;
+  private long peakHeapUsed;
+
+  MonitoredJvm(final JvmProcess process, final long pid, final JmxMode mode, @Nullable final JMXServiceURL url) {
+    this.process = process;
+    this.pid = pid;
+    this.mode = mode;
+    this.url = url;
+  }
+
+  public JvmProcess getProcess() {
+    return process;
+  }
+
+  public long getPid() {
+    return pid;
+  }
+
+  public boolean isConnected() {
+    return connected;
+  }
+
+  public synchronized Optional<JvmSample> getLatestSample() {
+    return Optional.fromNullable(latest);
+  }
+
+  public synchronized long getPeakHeapUsed() {
+    return peakHeapUsed;
+  }
+
+  /**
+   * The fraction of wall clock time spent collecting garbage between the two most recent samples.
+   */
+  public synchronized Optional<Double> getGcFraction() {
+    if (null == previous || latest.getTimestampMillis() <= previous.getTimestampMillis()) {
+      return Optional.absent();
+    }
+    final double elapsed = latest.getTimestampMillis() - previous.getTimestampMillis();
+    return Optional.of(Math.min(1, (latest.getGcTimeMillis() - previous.getGcTimeMillis()) / elapsed));
+  }
+
+  /**
+   * The number of processors kept busy by the child between the two most recent samples.
+   */
+  public synchronized Optional<Double> getCpuLoad() {
+    if (null == previous || latest.getTimestampMillis() <= previous.getTimestampMillis() ||
+        !latest.getProcessCpuTimeNanos().isPresent() || !previous.getProcessCpuTimeNanos().isPresent()) {
+      return Optional.absent();
+    }
+    final double elapsedNanos = (latest.getTimestampMillis() - previous.getTimestampMillis()) * 1e6;
+    return Optional.of(
+        (latest.getProcessCpuTimeNanos().get() - previous.getProcessCpuTimeNanos().get()) / elapsedNanos);
+  }
+
+  boolean isExited() {
+    return exited;
+  }
+
+  void exited() {
+    exited = true;
+  }
+
+  /**
+   * Takes a sample, connecting first if needed. Connection failures are expected while the child is starting, so they
+   * are only logged at debug and retried on the next call.
+   */
+  void sample() {
+    if (exited) {
+      return;
+    }
+    try {
+      if (null == sampler) {
+        if (null == url) {
+          if (!JmxSampler.isAttachable(pid)) {
+            return;
+          }
+          url = JmxSampler.attach(pid);
+        }
+        sampler = JmxSampler.connect(url);
+        connected = true;
+      }
+      update(sampler.sample());
+    }
+    catch (IOException | RuntimeException e) {
+      log.debug("Could not sample JVM {} using {}", pid, mode, e);
+      close();
+    }
+  }
+
+  private synchronized void update(final JvmSample sample) {
+    previous = latest;
+    latest = sample;
+    peakHeapUsed = Math.max(peakHeapUsed, sample.getHeapUsed());
+  }
+
+  void close() {
+    connected = false;
+    if (null != sampler) {
+      try {
+        sampler.close();
+      }
+      catch (IOException e) {
+        log.debug("Could not close JMX connection to {}", pid, e);
+      }
+      sampler = null;
+    }
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "MonitoredJvm{" +
+        "pid=" + pid +
+        ", connected=" + connected +
+        ", latest=" + latest +
+        ", peakHeapUsed=" + peakHeapUsed +
+        '}';
+  }
+}
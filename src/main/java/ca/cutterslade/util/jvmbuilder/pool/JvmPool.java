@@ -0,0 +1,229 @@
+package ca.cutterslade.util.jvmbuilder.pool;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ca.cutterslade.util.jvmbuilder.BatchBuilder;
+import ca.cutterslade.util.jvmbuilder.JvmFactory;
+import ca.cutterslade.util.jvmbuilder.JvmFactoryBuilder;
+import ca.cutterslade.util.jvmbuilder.JvmProcess;
+import ca.cutterslade.util.jvmbuilder.OutputSink;
+import ca.cutterslade.util.jvmbuilder.common.AbstractJvmFactory;
+import ca.cutterslade.util.jvmbuilder.common.AsyncLauncher;
+import ca.cutterslade.util.jvmbuilder.common.SimpleBatchBuilder;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Keeps JVMs started from a factory booted and parked, so that {@link #start(String...)} only has to hand the program
+ * arguments to an already running JVM. Falls back to starting a JVM directly when no parked JVM is available.
+ */
+@ThreadSafe
+public final class JvmPool<T extends JvmFactoryBuilder<T>> implements JvmFactory<T>, Closeable {
+  private static final Logger log = LoggerFactory.getLogger(JvmPool.class);
+
+  private final JvmFactory<T> factory;
+  private final AbstractJvmFactory<?> launcher;
+  private final int minIdle;
+  private final int maxIdle;
+  private final long maxAgeNanos;
+  private final LinkedBlockingDeque<PooledJvm> idle = new LinkedBlockingDeque<>();
+  private final AtomicInteger starting = new AtomicInteger();
+  private final AtomicInteger target;
+  private final ScheduledExecutorService executor;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+  private final AtomicLong failures = new AtomicLong();
+  private final AtomicLong refills = new AtomicLong();
+  private final AtomicLong totalRefillNanos = new AtomicLong();
+  private final AtomicLong maxRefillNanos = new AtomicLong();
+  private volatile boolean closed;
+
+  private final Runnable refillTask = new Runnable() {
+    @Override
+    public void run() {
+      final long begin = System.nanoTime();
+      try {
+        final PooledJvm jvm = PooledJvm.start(launcher);
+        recordRefill(System.nanoTime() - begin);
+        idle.offerLast(jvm);
+        if (closed && idle.remove(jvm)) {
+          jvm.destroy();
+        }
+      }
+      catch (IOException | RuntimeException e) {
+        failures.incrementAndGet();
+        log.warn("Could not start pooled JVM", e);
+      }
+      finally {
+        starting.decrementAndGet();
+      }
+    }
+  };
+
+  private final Runnable maintenanceTask = new Runnable() {
+    @Override
+    public void run() {
+      try {
+        evictExpired();
+        refill();
+      }
+      catch (RuntimeException e) {
+        log.warn("JVM pool maintenance failed", e);
+      }
+    }
+  };
+
+  JvmPool(final JvmPoolBuilder<T> builder) {
+    factory = builder.getFactory();
+    launcher = (AbstractJvmFactory<?>) factory;
+    minIdle = builder.getMinIdle();
+    maxIdle = builder.getMaxIdle();
+    maxAgeNanos = builder.getMaxAgeNanos();
+    target = new AtomicInteger(minIdle);
+    executor = Executors.newScheduledThreadPool(Math.min(maxIdle, Runtime.getRuntime().availableProcessors()),
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("jvm-pool-%d").build());
+    executor.scheduleWithFixedDelay(maintenanceTask, 0, builder.getMaintenanceIntervalNanos(), TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public T clearProgram() {
+    return factory.clearProgram();
+  }
+
+  @Override
+  public Process start(final String... args) throws IOException {
+    Preconditions.checkState(!closed, "Pool has been closed");
+    PooledJvm jvm;
+    while (null != (jvm = idle.pollFirst())) {
+      if (jvm.isExpired(System.nanoTime(), maxAgeNanos) || !jvm.isAlive()) {
+        evict(jvm);
+        continue;
+      }
+      try {
+        final Process process = jvm.handOff(args);
+        hits.incrementAndGet();
+        refill();
+        return process;
+      }
+      catch (IOException e) {
+        failures.incrementAndGet();
+        log.debug("Pooled JVM could not be handed off, discarding it", e);
+        jvm.destroy();
+      }
+    }
+    misses.incrementAndGet();
+    adjustTarget(1);
+    refill();
+    return factory.start(args);
+  }
+
+  @Override
+  public ListenableFuture<JvmProcess> startAsync(final String... args) {
+    return startAsync(null, null, args);
+  }
+
+  @Override
+  public ListenableFuture<JvmProcess> startAsync(@Nullable final OutputSink stdOut, @Nullable final OutputSink stdErr,
+      final String... args) {
+    return AsyncLauncher.start(launcher.getAsyncExecutor(), new Callable<Process>() {
+      @Override
+      public Process call() throws IOException {
+        return start(args);
+      }
+    }, stdOut, stdErr);
+  }
+
+  @Override
+  public BatchBuilder batch(final Iterable<String[]> arguments) {
+    return new SimpleBatchBuilder(this, arguments);
+  }
+
+  public JvmPoolStats getStats() {
+    return new JvmPoolStats(hits.get(), misses.get(), evictions.get(), failures.get(), refills.get(),
+        totalRefillNanos.get(), maxRefillNanos.get(), idle.size());
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    executor.shutdownNow();
+    PooledJvm jvm;
+    while (null != (jvm = idle.pollFirst())) {
+      jvm.destroy();
+    }
+  }
+
+  private void evictExpired() {
+    final long now = System.nanoTime();
+    for (final Iterator<PooledJvm> iterator = idle.iterator(); iterator.hasNext(); ) {
+      final PooledJvm jvm = iterator.next();
+      if ((jvm.isExpired(now, maxAgeNanos) || !jvm.isAlive()) && idle.remove(jvm)) {
+        evict(jvm);
+      }
+    }
+  }
+
+  private void evict(final PooledJvm jvm) {
+    evictions.incrementAndGet();
+    // A JVM which sat idle for its whole life means more are being kept than are needed
+    adjustTarget(-1);
+    jvm.destroy();
+  }
+
+  private void adjustTarget(final int delta) {
+    int current;
+    int next;
+    do {
+      current = target.get();
+      next = Math.max(minIdle, Math.min(maxIdle, current + delta));
+    }
+    while (current != next && !target.compareAndSet(current, next));
+  }
+
+  private void refill() {
+    while (!closed) {
+      final int current = starting.get();
+      if (idle.size() + current >= target.get()) {
+        return;
+      }
+      if (starting.compareAndSet(current, current + 1)) {
+        try {
+          executor.execute(refillTask);
+        }
+        catch (RejectedExecutionException e) {
+          starting.decrementAndGet();
+          return;
+        }
+      }
+    }
+  }
+
+  private void recordRefill(final long nanos) {
+    refills.incrementAndGet();
+    totalRefillNanos.addAndGet(nanos);
+    long max;
+    do {
+      max = maxRefillNanos.get();
+    }
+    while (nanos > max && !maxRefillNanos.compareAndSet(max, nanos));
+  }
+}
@@ -0,0 +1,76 @@
+package ca.cutterslade.util.jvmbuilder.pool;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import ca.cutterslade.util.jvmbuilder.JvmFactory;
+import ca.cutterslade.util.jvmbuilder.JvmFactoryBuilder;
+import ca.cutterslade.util.jvmbuilder.common.AbstractJvmFactory;
+
+import com.google.common.base.Preconditions;
+
+@NotThreadSafe
+public final class JvmPoolBuilder<T extends JvmFactoryBuilder<T>> {
+  private final JvmFactory<T> factory;
+  private int minIdle = 1;
+  private int maxIdle = 4;
+  private long maxAgeNanos = TimeUnit.MINUTES.toNanos(10);
+  private long maintenanceIntervalNanos = TimeUnit.SECONDS.toNanos(1);
+
+  public JvmPoolBuilder(final JvmFactory<T> factory) {
+    Preconditions.checkArgument(factory instanceof AbstractJvmFactory, "Pooling requires an AbstractJvmFactory");
+    this.factory = factory;
+  }
+
+  public JvmPoolBuilder<T> setMinIdle(final int minIdle) {
+    Preconditions.checkArgument(0 <= minIdle);
+    this.minIdle = minIdle;
+    return this;
+  }
+
+  public JvmPoolBuilder<T> setMaxIdle(final int maxIdle) {
+    Preconditions.checkArgument(0 < maxIdle);
+    this.maxIdle = maxIdle;
+    return this;
+  }
+
+  public JvmPoolBuilder<T> setMaxAge(final long maxAge, final TimeUnit unit) {
+    Preconditions.checkArgument(0 < maxAge);
+    Preconditions.checkArgument(null != unit);
+    this.maxAgeNanos = unit.toNanos(maxAge);
+    return this;
+  }
+
+  public JvmPoolBuilder<T> setMaintenanceInterval(final long interval, final TimeUnit unit) {
+    Preconditions.checkArgument(0 < interval);
+    Preconditions.checkArgument(null != unit);
+    this.maintenanceIntervalNanos = unit.toNanos(interval);
+    return this;
+  }
+
+  public JvmPool<T> build() {
+    Preconditions.checkState(minIdle <= maxIdle, "minIdle (%s) must not exceed maxIdle (%s)", minIdle, maxIdle);
+    return new JvmPool<>(this);
+  }
+
+  JvmFactory<T> getFactory() {
+    return factory;
+  }
+
+  int getMinIdle() {
+    return minIdle;
+  }
+
+  int getMaxIdle() {
+    return maxIdle;
+  }
+
+  long getMaxAgeNanos() {
+    return maxAgeNanos;
+  }
+
+  long getMaintenanceIntervalNanos() {
+    return maintenanceIntervalNanos;
+  }
+}
@@ -0,0 +1,73 @@
+package ca.cutterslade.util.jvmbuilder.pool;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.concurrent.Immutable;
+
+@Immutable
+public final class JvmPoolStats {
+  private final long hits;
+  private final long misses;
+  private final long evictions;
+  private final long failures;
+  private final long refills;
+  private final long totalRefillNanos;
+  private final long maxRefillNanos;
+  private final int idle;
+
+  JvmPoolStats(final long hits, final long misses, final long evictions, final long failures, final long refills,
+      final long totalRefillNanos, final long maxRefillNanos, final int idle) {
+    this.hits = hits;
+    this.misses = misses;
+    this.evictions = evictions;
+    this.failures = failures;
+    this.refills = refills;
+    this.totalRefillNanos = totalRefillNanos;
+    this.maxRefillNanos = maxRefillNanos;
+    this.idle = idle;
+  }
+
+  public long getHits() {
+    return hits;
+  }
+
+  public long getMisses() {
+    return misses;
+  }
+
+  public double getHitRate() {
+    final long requests = hits + misses;
+    return 0 == requests ? 0 : (double) hits / requests;
+  }
+
+  public long getEvictions() {
+    return evictions;
+  }
+
+  public long getFailures() {
+    return failures;
+  }
+
+  public long getRefills() {
+    return refills;
+  }
+
+  public long getMeanRefillLatency(final TimeUnit unit) {
+    return 0 == refills ? 0 : unit.convert(totalRefillNanos / refills, TimeUnit.NANOSECONDS);
+  }
+
+  public long getMaxRefillLatency(final TimeUnit unit) {
+    return unit.convert(maxRefillNanos, TimeUnit.NANOSECONDS);
+  }
+
+  public int getIdle() {
+    return idle;
+  }
+
+  @Override
+  public String toString() {
+    return "JvmPoolStats{hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + ", failures=" + failures +
+        ", refills=" + refills + ", meanRefillMillis=" + getMeanRefillLatency(TimeUnit.MILLISECONDS) +
+        ", maxRefillMillis=" + getMaxRefillLatency(TimeUnit.MILLISECONDS) + ", idle=" + idle + '}';
+  }
+}
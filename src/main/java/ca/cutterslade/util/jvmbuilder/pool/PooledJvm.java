@@ -0,0 +1,80 @@
+package ca.cutterslade.util.jvmbuilder.pool;
+
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import ca.cutterslade.util.jvmbuilder.child.PooledMain;
+import ca.cutterslade.util.jvmbuilder.common.AbstractJvmFactory;
+
+@NotThreadSafe
+final class PooledJvm {
+  private static final byte[] READY = PooledMain.getReadyMarker();
+
+  private final Process process;
+  private final long createdNanos;
+
+  private PooledJvm(final Process process, final long createdNanos) {
+    this.process = process;
+    this.createdNanos = createdNanos;
+  }
+
+  static PooledJvm start(final AbstractJvmFactory<?> factory) throws IOException {
+    final Process process = factory.startLauncher(PooledMain.class);
+    try {
+      awaitReady(process.getInputStream());
+    }
+    catch (IOException | RuntimeException e) {
+      process.destroy();
+      throw e;
+    }
+    return new PooledJvm(process, System.nanoTime());
+  }
+
+  private static void awaitReady(final InputStream inputStream) throws IOException {
+    // Anything the JVM writes before the marker (e.g. -verbose output) is discarded
+    int matched = 0;
+    while (matched < READY.length) {
+      final int read = inputStream.read();
+      if (-1 == read) {
+        throw new EOFException("Pooled JVM exited before becoming ready");
+      }
+      matched = READY[matched] == (byte) read ? matched + 1 : READY[0] == (byte) read ? 1 : 0;
+    }
+  }
+
+  boolean isExpired(final long nowNanos, final long maxAgeNanos) {
+    return nowNanos - createdNanos > maxAgeNanos;
+  }
+
+  boolean isAlive() {
+    try {
+      process.exitValue();
+      return false;
+    }
+    catch (IllegalThreadStateException e) {
+      return true;
+    }
+  }
+
+  Process handOff(final String[] args) throws IOException {
+    final DataOutputStream output = new DataOutputStream(process.getOutputStream());
+    output.writeInt(args.length);
+    for (final String arg : args) {
+      // writeUTF() is limited to 64 kB, which a single argument may exceed
+      final byte[] bytes = arg.getBytes(StandardCharsets.UTF_8);
+      output.writeInt(bytes.length);
+      output.write(bytes);
+    }
+    output.flush();
+    return process;
+  }
+
+  void destroy() {
+    process.destroy();
+  }
+}
@@ -0,0 +1,146 @@
+package ca.cutterslade.util.jvmbuilder.schedule;
+
+import java.util.Locale;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * The memory a launched JVM is expected to use, worked out from its options. Every part is an upper bound the JVM
+ * may grow to rather than what it commits at startup; memory not named by an option is covered by the native overhead.
+ */
+@Immutable
+public final class LaunchEstimate {
+  private static final long DEFAULT_STACK_SIZE = 1024 * 1024;
+
+  private final long heap;
+  private final long threadStacks;
+  private final long metaspace;
+  private final long codeCache;
+  private final long directMemory;
+  private final long nativeOverhead;
+
+  private LaunchEstimate(final long heap, final long threadStacks, final long metaspace, final long codeCache,
+      final long directMemory, final long nativeOverhead) {
+    this.heap = heap;
+    this.threadStacks = threadStacks;
+    this.metaspace = metaspace;
+    this.codeCache = codeCache;
+    this.directMemory = directMemory;
+    this.nativeOverhead = nativeOverhead;
+  }
+
+  /**
+   * Estimates from JVM options as the JVM reads them, where the last occurrence of an option wins. Without a maximum
+   * heap size the JVM's default of a quarter of the host memory, or the given MaxRAMPercentage of it, is charged.
+   */
+  static LaunchEstimate of(final Iterable<String> options, final long hostMemory, final int expectedThreads,
+      final long defaultMetaspace, final long nativeOverhead) {
+    long heap = -1;
+    double ramPercentage = 25;
+    long stackSize = DEFAULT_STACK_SIZE;
+    long metaspace = defaultMetaspace;
+    long codeCache = 0;
+    long directMemory = 0;
+    for (final String option : options) {
+      if (option.startsWith("-Xmx")) {
+        heap = parseSize(option.substring(4), heap);
+      }
+      else if (option.startsWith("-XX:MaxHeapSize=")) {
+        heap = parseSize(option.substring(16), heap);
+      }
+      else if (option.startsWith("-XX:MaxRAMPercentage=")) {
+        try {
+          ramPercentage = Double.parseDouble(option.substring(21));
+        }
+        catch (NumberFormatException e) {
+          // the JVM will refuse to start, which releases the reservation straight away
+        }
+      }
+      else if (option.startsWith("-Xss")) {
+        stackSize = parseSize(option.substring(4), stackSize);
+      }
+      else if (option.startsWith("-XX:ThreadStackSize=")) {
+        // given in kilobytes unless a unit is named
+        final long size = parseSize(option.substring(20), -1);
+        stackSize = 0 > size ? stackSize : Character.isDigit(option.charAt(option.length() - 1)) ? size * 1024 : size;
+      }
+      else if (option.startsWith("-XX:MaxMetaspaceSize=")) {
+        metaspace = parseSize(option.substring(21), metaspace);
+      }
+      else if (option.startsWith("-XX:ReservedCodeCacheSize=")) {
+        codeCache = parseSize(option.substring(26), codeCache);
+      }
+      else if (option.startsWith("-XX:MaxDirectMemorySize=")) {
+        directMemory = parseSize(option.substring(24), directMemory);
+      }
+    }
+    if (0 > heap) {
+      heap = (long) (Math.max(0, hostMemory) * ramPercentage / 100);
+    }
+    return new LaunchEstimate(heap, stackSize * expectedThreads, metaspace, codeCache, directMemory, nativeOverhead);
+  }
+
+  static long parseSize(final String value, final long invalid) {
+    if (value.isEmpty()) {
+      return invalid;
+    }
+    final char suffix = Character.toLowerCase(value.charAt(value.length() - 1));
+    final long multiplier;
+    switch (suffix) {
+      case 'k':
+        multiplier = 1L << 10;
+        break;
+      case 'm':
+        multiplier = 1L << 20;
+        break;
+      case 'g':
+        multiplier = 1L << 30;
+        break;
+      case 't':
+        multiplier = 1L << 40;
+        break;
+      default:
+        multiplier = 1;
+    }
+    try {
+      return Long.parseLong(1 == multiplier ? value : value.substring(0, value.length() - 1)) * multiplier;
+    }
+    catch (NumberFormatException e) {
+      return invalid;
+    }
+  }
+
+  public long getHeap() {
+    return heap;
+  }
+
+  public long getThreadStacks() {
+    return threadStacks;
+  }
+
+  public long getMetaspace() {
+    return metaspace;
+  }
+
+  public long getCodeCache() {
+    return codeCache;
+  }
+
+  public long getDirectMemory() {
+    return directMemory;
+  }
+
+  public long getNativeOverhead() {
+    return nativeOverhead;
+  }
+
+  public long getTotal() {
+    return heap + threadStacks + metaspace + codeCache + directMemory + nativeOverhead;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(Locale.ROOT, "LaunchEstimate{total=%dm, heap=%dm, threadStacks=%dm, metaspace=%dm}",
+        getTotal() >> 20, heap >> 20, threadStacks >> 20, metaspace >> 20);
+  }
+}
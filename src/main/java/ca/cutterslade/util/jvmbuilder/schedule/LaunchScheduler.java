@@ -0,0 +1,257 @@
+package ca.cutterslade.util.jvmbuilder.schedule;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ca.cutterslade.util.jvmbuilder.JvmFactory;
+import ca.cutterslade.util.jvmbuilder.JvmFactoryBuilder;
+import ca.cutterslade.util.jvmbuilder.common.AbstractJvmFactory;
+import ca.cutterslade.util.jvmbuilder.common.HostResources;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * Admits launches from any number of factories against shared memory and processor budgets. Each launch reserves the
+ * {@link LaunchEstimate} of its factory until the launched JVM exits; launches which do not fit wait in a queue.
+ * <p>
+ * The queue is served in priority order, oldest first within a priority, and a waiting launch gains a priority for
+ * every aging interval it has waited. The launch at the head of the queue is never overtaken by a smaller one which
+ * would fit, so that large launches are not starved. A launch larger than the whole budget is admitted only when no
+ * other launch holds a reservation.
+ */
+@ThreadSafe
+public final class LaunchScheduler implements Closeable {
+  private static final Logger log = LoggerFactory.getLogger(LaunchScheduler.class);
+
+  private final long memoryBudget;
+  private final int coreBudget;
+  private final int coresPerLaunch;
+  private final int expectedThreads;
+  private final long metaspaceEstimate;
+  private final long nativeOverhead;
+  private final long hostMemory;
+  private final long agingIntervalNanos;
+  private final RateLimiter forkLimiter;
+  private final Object lock = new Object();
+  @GuardedBy("lock")
+  private final List<Ticket> queue = new ArrayList<>();
+  @GuardedBy("lock")
+  private long sequence;
+  @GuardedBy("lock")
+  private long reservedMemory;
+  @GuardedBy("lock")
+  private int reservedCores;
+  @GuardedBy("lock")
+  private int running;
+  @GuardedBy("lock")
+  private long admitted;
+  @GuardedBy("lock")
+  private long totalQueueNanos;
+  @GuardedBy("lock")
+  private long maxQueueNanos;
+  @GuardedBy("lock")
+  private boolean closed;
+
+  LaunchScheduler(final LaunchSchedulerBuilder builder) {
+    memoryBudget = builder.getMemoryBudget();
+    coreBudget = builder.getCoreBudget();
+    coresPerLaunch = builder.getCoresPerLaunch();
+    expectedThreads = builder.getExpectedThreads();
+    metaspaceEstimate = builder.getMetaspaceEstimate();
+    nativeOverhead = builder.getNativeOverhead();
+    hostMemory = HostResources.getMemory();
+    agingIntervalNanos = builder.getAgingIntervalNanos();
+    forkLimiter = 0 < builder.getMaxForkRate() ? RateLimiter.create(builder.getMaxForkRate()) : null;
+  }
+
+  /**
+   * Wraps a factory so that its launches are admitted by this scheduler.
+   */
+  public <T extends JvmFactoryBuilder<T>> ScheduledJvmFactory<T> schedule(final JvmFactory<T> factory) {
+    Preconditions.checkArgument(factory instanceof AbstractJvmFactory, "Scheduling requires an AbstractJvmFactory");
+    final LaunchEstimate estimate = estimate((AbstractJvmFactory<?>) factory);
+    if (estimate.getTotal() > memoryBudget) {
+      log.warn("Launches estimated at {} exceed the memory budget of {} bytes and will run alone",
+          estimate, memoryBudget);
+    }
+    return new ScheduledJvmFactory<>(this, factory, estimate, ScheduledJvmFactory.DEFAULT_PRIORITY);
+  }
+
+  public LaunchEstimate estimate(final AbstractJvmFactory<?> factory) {
+    return LaunchEstimate.of(factory.getLaunchOptions(), hostMemory, expectedThreads, metaspaceEstimate,
+        nativeOverhead);
+  }
+
+  public long getMemoryBudget() {
+    return memoryBudget;
+  }
+
+  public int getCoreBudget() {
+    return coreBudget;
+  }
+
+  public LaunchSchedulerStats getStats() {
+    synchronized (lock) {
+      return new LaunchSchedulerStats(queue.size(), running, reservedMemory, reservedCores, admitted,
+          totalQueueNanos, maxQueueNanos);
+    }
+  }
+
+  /**
+   * Fails every queued launch and refuses new ones; launches already admitted keep their reservations until they exit.
+   */
+  @Override
+  public void close() {
+    final List<Ticket> abandoned;
+    synchronized (lock) {
+      closed = true;
+      abandoned = new ArrayList<>(queue);
+      queue.clear();
+    }
+    for (final Ticket ticket : abandoned) {
+      ticket.future.setException(new IOException("Launch scheduler has been closed"));
+    }
+  }
+
+  ListenableFuture<Reservation> reserve(final LaunchEstimate estimate, final int priority) {
+    final SettableFuture<Reservation> future = SettableFuture.create();
+    final List<Ticket> ready;
+    synchronized (lock) {
+      if (closed) {
+        future.setException(new IOException("Launch scheduler has been closed"));
+        return future;
+      }
+      queue.add(new Ticket(estimate.getTotal(), priority, sequence++, System.nanoTime(), future));
+      ready = dispatch();
+    }
+    admit(ready);
+    return future;
+  }
+
+  void awaitFork() {
+    if (null != forkLimiter) {
+      forkLimiter.acquire();
+    }
+  }
+
+  @GuardedBy("lock")
+  private List<Ticket> dispatch() {
+    final List<Ticket> ready = new ArrayList<>();
+    final long now = System.nanoTime();
+    while (!queue.isEmpty()) {
+      final Ticket next = getNext(now);
+      if (null == next) {
+        break;
+      }
+      final boolean fits = reservedMemory + next.memory <= memoryBudget && reservedCores + coresPerLaunch <= coreBudget;
+      if (!fits && 0 != running) {
+        break;
+      }
+      queue.remove(next);
+      reservedMemory += next.memory;
+      reservedCores += coresPerLaunch;
+      running++;
+      admitted++;
+      final long waited = now - next.queuedNanos;
+      totalQueueNanos += waited;
+      maxQueueNanos = Math.max(maxQueueNanos, waited);
+      ready.add(next);
+    }
+    return ready;
+  }
+
+  @GuardedBy("lock")
+  private Ticket getNext(final long now) {
+    Ticket best = null;
+    long bestPriority = 0;
+    for (final Iterator<Ticket> iterator = queue.iterator(); iterator.hasNext(); ) {
+      final Ticket ticket = iterator.next();
+      if (ticket.future.isDone()) {
+        // cancelled while waiting
+        iterator.remove();
+        continue;
+      }
+      final long priority = ticket.priority + (now - ticket.queuedNanos) / agingIntervalNanos;
+      if (null == best || priority > bestPriority || priority == bestPriority && ticket.sequence < best.sequence) {
+        best = ticket;
+        bestPriority = priority;
+      }
+    }
+    return best;
+  }
+
+  // futures are completed outside the lock, as their listeners may launch directly
+  private void admit(final List<Ticket> ready) {
+    for (final Ticket ticket : ready) {
+      final Reservation reservation = new Reservation(ticket.memory);
+      if (!ticket.future.set(reservation)) {
+        reservation.release();
+      }
+    }
+  }
+
+  private void release(final long memory) {
+    final List<Ticket> ready;
+    synchronized (lock) {
+      reservedMemory -= memory;
+      reservedCores -= coresPerLaunch;
+      running--;
+      ready = dispatch();
+    }
+    admit(ready);
+  }
+
+  private static final class Ticket {
+    private final long memory;
+    private final int priority;
+    private final long sequence;
+    private final long queuedNanos;
+    private final SettableFuture<Reservation> future;
+
+    private Ticket(final long memory, final int priority, final long sequence, final long queuedNanos,
+        final SettableFuture<Reservation> future) {
+      this.memory = memory;
+      this.priority = priority;
+      this.sequence = sequence;
+      this.queuedNanos = queuedNanos;
+      this.future = future;
+    }
+  }
+
+  /**
+   * An admitted launch's hold on the budget; running it releases the hold, so it can be added as a listener to the
+   * launched JVM's exit.
+   */
+  final class Reservation implements Runnable {
+    private final long memory;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    private Reservation(final long memory) {
+      this.memory = memory;
+    }
+
+    void release() {
+      if (released.compareAndSet(false, true)) {
+        LaunchScheduler.this.release(memory);
+      }
+    }
+
+    @Override
+    public void run() {
+      release();
+    }
+  }
+}
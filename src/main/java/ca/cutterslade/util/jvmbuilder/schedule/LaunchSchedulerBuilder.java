@@ -0,0 +1,141 @@
+package ca.cutterslade.util.jvmbuilder.schedule;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import ca.cutterslade.util.jvmbuilder.common.HostResources;
+
+import com.google.common.base.Preconditions;
+
+@NotThreadSafe
+public final class LaunchSchedulerBuilder {
+  private static final double DEFAULT_MEMORY_FRACTION = 0.75;
+
+  private long memoryBudget = -1;
+  private int coreBudget = -1;
+  private int coresPerLaunch = 1;
+  private int expectedThreads = 32;
+  private long metaspaceEstimate = 64L << 20;
+  private long nativeOverhead = 64L << 20;
+  private double maxForkRate;
+  private long agingIntervalNanos = TimeUnit.SECONDS.toNanos(1);
+
+  /**
+   * The memory launched JVMs may reserve between them. Defaults to three quarters of the memory of the host, or of
+   * the container when it has a lower limit.
+   */
+  public LaunchSchedulerBuilder setMemoryBudget(final long bytes) {
+    Preconditions.checkArgument(0 < bytes);
+    this.memoryBudget = bytes;
+    return this;
+  }
+
+  /**
+   * The processors launched JVMs may occupy between them. Defaults to the processors available to this JVM.
+   */
+  public LaunchSchedulerBuilder setCoreBudget(final int cores) {
+    Preconditions.checkArgument(0 < cores);
+    this.coreBudget = cores;
+    return this;
+  }
+
+  public LaunchSchedulerBuilder setCoresPerLaunch(final int cores) {
+    Preconditions.checkArgument(0 < cores);
+    this.coresPerLaunch = cores;
+    return this;
+  }
+
+  /**
+   * The number of threads each launched JVM is expected to run, charged at its thread stack size.
+   */
+  public LaunchSchedulerBuilder setExpectedThreads(final int threads) {
+    Preconditions.checkArgument(0 < threads);
+    this.expectedThreads = threads;
+    return this;
+  }
+
+  /**
+   * The metaspace charged to launches which do not set -XX:MaxMetaspaceSize.
+   */
+  public LaunchSchedulerBuilder setMetaspaceEstimate(final long bytes) {
+    Preconditions.checkArgument(0 <= bytes);
+    this.metaspaceEstimate = bytes;
+    return this;
+  }
+
+  /**
+   * The memory charged to every launch for the code cache, GC structures and other native allocations.
+   */
+  public LaunchSchedulerBuilder setNativeOverhead(final long bytes) {
+    Preconditions.checkArgument(0 <= bytes);
+    this.nativeOverhead = bytes;
+    return this;
+  }
+
+  /**
+   * Limits how many JVMs may be forked per second; unlimited by default.
+   */
+  public LaunchSchedulerBuilder setMaxForkRate(final double launchesPerSecond) {
+    Preconditions.checkArgument(0 < launchesPerSecond);
+    this.maxForkRate = launchesPerSecond;
+    return this;
+  }
+
+  /**
+   * How long a queued launch waits before its priority is raised by one, so that a steady stream of high priority
+   * launches cannot starve lower priority ones.
+   */
+  public LaunchSchedulerBuilder setAgingInterval(final long interval, final TimeUnit unit) {
+    Preconditions.checkArgument(0 < interval);
+    Preconditions.checkArgument(null != unit);
+    this.agingIntervalNanos = unit.toNanos(interval);
+    return this;
+  }
+
+  public LaunchScheduler build() {
+    if (0 > memoryBudget) {
+      final long memory = HostResources.getMemory();
+      Preconditions.checkState(0 < memory, "Host memory could not be detected, a memory budget must be set");
+      memoryBudget = (long) (memory * DEFAULT_MEMORY_FRACTION);
+    }
+    if (0 > coreBudget) {
+      coreBudget = HostResources.getProcessors();
+    }
+    Preconditions.checkState(coresPerLaunch <= coreBudget, "coresPerLaunch (%s) must not exceed coreBudget (%s)",
+        coresPerLaunch, coreBudget);
+    return new LaunchScheduler(this);
+  }
+
+  long getMemoryBudget() {
+    return memoryBudget;
+  }
+
+  int getCoreBudget() {
+    return coreBudget;
+  }
+
+  int getCoresPerLaunch() {
+    return coresPerLaunch;
+  }
+
+  int getExpectedThreads() {
+    return expectedThreads;
+  }
+
+  long getMetaspaceEstimate() {
+    return metaspaceEstimate;
+  }
+
+  long getNativeOverhead() {
+    return nativeOverhead;
+  }
+
+  double getMaxForkRate() {
+    return maxForkRate;
+  }
+
+  long getAgingIntervalNanos() {
+    return agingIntervalNanos;
+  }
+}
@@ -0,0 +1,66 @@
+package ca.cutterslade.util.jvmbuilder.schedule;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.concurrent.Immutable;
+
+@Immutable
+public final class LaunchSchedulerStats {
+  private final int queued;
+  private final int running;
+  private final long reservedMemory;
+  private final int reservedCores;
+  private final long admitted;
+  private final long totalQueueNanos;
+  private final long maxQueueNanos;
+
+  LaunchSchedulerStats(final int queued, final int running, final long reservedMemory, final int reservedCores,
+      final long admitted, final long totalQueueNanos, final long maxQueueNanos) {
+    this.queued = queued;
+    this.running = running;
+    this.reservedMemory = reservedMemory;
+    this.reservedCores = reservedCores;
+    this.admitted = admitted;
+    this.totalQueueNanos = totalQueueNanos;
+    this.maxQueueNanos = maxQueueNanos;
+  }
+
+  public int getQueued() {
+    return queued;
+  }
+
+  public int getRunning() {
+    return running;
+  }
+
+  public long getReservedMemory() {
+    return reservedMemory;
+  }
+
+  public int getReservedCores() {
+    return reservedCores;
+  }
+
+  public long getAdmitted() {
+    return admitted;
+  }
+
+  public long getMeanQueueTime(final TimeUnit unit) {
+    return 0 == admitted ? 0 : unit.convert(totalQueueNanos / admitted, TimeUnit.NANOSECONDS);
+  }
+
+  public long getMaxQueueTime(final TimeUnit unit) {
+    return unit.convert(maxQueueNanos, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public String toString() {
+    return "LaunchSchedulerStats{" +
+        "queued=" + queued +
+        ", running=" + running +
+        ", reservedMemory=" + reservedMemory +
+        ", reservedCores=" + reservedCores +
+        ", admitted=" + admitted +
+        '}';
+  }
+}
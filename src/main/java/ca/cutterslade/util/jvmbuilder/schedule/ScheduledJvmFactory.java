@@ -0,0 +1,190 @@
+package ca.cutterslade.util.jvmbuilder.schedule;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import ca.cutterslade.util.jvmbuilder.BatchBuilder;
+import ca.cutterslade.util.jvmbuilder.JvmFactory;
+import ca.cutterslade.util.jvmbuilder.JvmFactoryBuilder;
+import ca.cutterslade.util.jvmbuilder.JvmProcess;
+import ca.cutterslade.util.jvmbuilder.OutputSink;
+import ca.cutterslade.util.jvmbuilder.common.AbstractJvmFactory;
+import ca.cutterslade.util.jvmbuilder.common.SimpleBatchBuilder;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * A factory whose launches wait for admission by a {@link LaunchScheduler}, and hold their reservation until the
+ * launched JVM exits.
+ */
+@Immutable
+public final class ScheduledJvmFactory<T extends JvmFactoryBuilder<T>> implements JvmFactory<T> {
+  public static final int DEFAULT_PRIORITY = 0;
+
+  private final LaunchScheduler scheduler;
+  private final JvmFactory<T> factory;
+  private final LaunchEstimate estimate;
+  private final int priority;
+
+  ScheduledJvmFactory(final LaunchScheduler scheduler, final JvmFactory<T> factory, final LaunchEstimate estimate,
+      final int priority) {
+    this.scheduler = scheduler;
+    this.factory = factory;
+    this.estimate = estimate;
+    this.priority = priority;
+  }
+
+  /**
+   * A factory sharing this one's scheduler and estimate whose launches are queued at the given priority; higher
+   * priorities are admitted first.
+   */
+  public ScheduledJvmFactory<T> withPriority(final int priority) {
+    return priority == this.priority ? this : new ScheduledJvmFactory<>(scheduler, factory, estimate, priority);
+  }
+
+  public int getPriority() {
+    return priority;
+  }
+
+  public LaunchEstimate getEstimate() {
+    return estimate;
+  }
+
+  @Override
+  public T clearProgram() {
+    return factory.clearProgram();
+  }
+
+  @Override
+  public Process start(final String... args) throws IOException {
+    final LaunchScheduler.Reservation reservation = awaitReservation();
+    try {
+      scheduler.awaitFork();
+      final Process process = factory.start(args);
+      getExecutor().execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            process.waitFor();
+          }
+          catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          finally {
+            reservation.release();
+          }
+        }
+      });
+      return process;
+    }
+    catch (IOException | RuntimeException e) {
+      reservation.release();
+      throw e;
+    }
+  }
+
+  private LaunchScheduler.Reservation awaitReservation() throws IOException {
+    final ListenableFuture<LaunchScheduler.Reservation> future = scheduler.reserve(estimate, priority);
+    try {
+      return future.get();
+    }
+    catch (InterruptedException e) {
+      if (!future.cancel(false)) {
+        // admitted while being interrupted
+        Futures.getUnchecked(future).release();
+      }
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for launch admission");
+    }
+    catch (ExecutionException e) {
+      throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+    }
+  }
+
+  @Override
+  public ListenableFuture<JvmProcess> startAsync(final String... args) {
+    return startAsync(null, null, args);
+  }
+
+  @Override
+  public ListenableFuture<JvmProcess> startAsync(@Nullable final OutputSink stdOut, @Nullable final OutputSink stdErr,
+      final String... args) {
+    final SettableFuture<JvmProcess> result = SettableFuture.create();
+    final ListenableFuture<LaunchScheduler.Reservation> admission = scheduler.reserve(estimate, priority);
+    result.addListener(new Runnable() {
+      @Override
+      public void run() {
+        if (result.isCancelled()) {
+          admission.cancel(false);
+        }
+      }
+    }, MoreExecutors.sameThreadExecutor());
+    Futures.addCallback(admission, new FutureCallback<LaunchScheduler.Reservation>() {
+      @Override
+      public void onSuccess(final LaunchScheduler.Reservation reservation) {
+        try {
+          // the fork rate limit may block, which must not hold up the thread admitting launches
+          getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+              launch(reservation, result, stdOut, stdErr, args);
+            }
+          });
+        }
+        catch (RejectedExecutionException e) {
+          reservation.release();
+          result.setException(e);
+        }
+      }
+
+      @Override
+      public void onFailure(final Throwable t) {
+        result.setException(t);
+      }
+    });
+    return result;
+  }
+
+  private void launch(final LaunchScheduler.Reservation reservation, final SettableFuture<JvmProcess> result,
+      @Nullable final OutputSink stdOut, @Nullable final OutputSink stdErr, final String[] args) {
+    if (result.isCancelled()) {
+      reservation.release();
+      return;
+    }
+    scheduler.awaitFork();
+    Futures.addCallback(factory.startAsync(stdOut, stdErr, args), new FutureCallback<JvmProcess>() {
+      @Override
+      public void onSuccess(final JvmProcess process) {
+        process.getExitValue().addListener(reservation, MoreExecutors.sameThreadExecutor());
+        if (!result.set(process)) {
+          process.destroy();
+        }
+      }
+
+      @Override
+      public void onFailure(final Throwable t) {
+        reservation.release();
+        result.setException(t);
+      }
+    });
+  }
+
+  private Executor getExecutor() {
+    return ((AbstractJvmFactory<?>) factory).getAsyncExecutor();
+  }
+
+  @Override
+  public BatchBuilder batch(final Iterable<String[]> arguments) {
+    return new SimpleBatchBuilder(this, arguments);
+  }
+}
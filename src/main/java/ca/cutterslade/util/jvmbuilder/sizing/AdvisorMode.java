@@ -0,0 +1,15 @@
+package ca.cutterslade.util.jvmbuilder.sizing;
+
+import javax.annotation.concurrent.Immutable;
+
+@Immutable
+public enum AdvisorMode {
+  /**
+   * Log advice as it changes, and make it available from the advisor, without changing any launch.
+   */
+  SUGGEST,
+  /**
+   * Start launches with the advised heap sizes, overriding sizes set on the factory.
+   */
+  APPLY
+}
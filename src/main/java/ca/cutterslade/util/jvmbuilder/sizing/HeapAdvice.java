@@ -0,0 +1,108 @@
+package ca.cutterslade.util.jvmbuilder.sizing;
+
+import javax.annotation.concurrent.Immutable;
+
+import ca.cutterslade.util.jvmbuilder.MemoryFootprint;
+import ca.cutterslade.util.jvmbuilder.SizeArgument;
+import ca.cutterslade.util.jvmbuilder.SizeParameter;
+import ca.cutterslade.util.jvmbuilder.SizeUnit;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Heap sizes advised from the recorded footprints of earlier launches. The maximum heap covers the largest peak heap
+ * seen, and the initial heap the largest live set seen after a collection, each with the advisor's headroom added.
+ * Advice is equal to other advice for the same sizes, however many launches either was drawn from.
+ */
+@Immutable
+public final class HeapAdvice {
+  private final int observations;
+  private final long maxHeapMegabytes;
+  private final long initialHeapMegabytes;
+  private final long peakRss;
+
+  private HeapAdvice(final int observations, final long maxHeapMegabytes, final long initialHeapMegabytes,
+      final long peakRss) {
+    this.observations = observations;
+    this.maxHeapMegabytes = maxHeapMegabytes;
+    this.initialHeapMegabytes = initialHeapMegabytes;
+    this.peakRss = peakRss;
+  }
+
+  static HeapAdvice of(final ImmutableList<MemoryFootprint> footprints, final double headroom) {
+    long peak = 0;
+    long live = -1;
+    long rss = -1;
+    for (final MemoryFootprint footprint : footprints) {
+      peak = Math.max(peak, footprint.getPeakHeapUsed());
+      live = Math.max(live, footprint.getLiveHeapAfterGc().or(-1L));
+      rss = Math.max(rss, footprint.getPeakRss().or(-1L));
+    }
+    peak = Math.max(peak, live);
+    final long maxHeap = toMegabytes(peak, headroom);
+    return new HeapAdvice(footprints.size(), maxHeap, 0 > live ? -1 : Math.min(maxHeap, toMegabytes(live, headroom)),
+        rss);
+  }
+
+  private static long toMegabytes(final long bytes, final double headroom) {
+    final long megabyte = SizeUnit.MEGABYTES.toBytes(1);
+    return Math.max(1, (long) Math.ceil(bytes * (1 + headroom) / megabyte));
+  }
+
+  public int getObservations() {
+    return observations;
+  }
+
+  public SizeArgument getMaxHeap() {
+    return SizeParameter.MAX_HEAP.asArgument(maxHeapMegabytes, SizeUnit.MEGABYTES);
+  }
+
+  public Optional<SizeArgument> getInitialHeap() {
+    return 0 > initialHeapMegabytes ? Optional.<SizeArgument>absent() :
+        Optional.of(SizeParameter.INITIAL_HEAP.asArgument(initialHeapMegabytes, SizeUnit.MEGABYTES));
+  }
+
+  /**
+   * The largest resident set size recorded, which includes memory outside the heap.
+   */
+  public Optional<Long> getPeakRss() {
+    return 0 > peakRss ? Optional.<Long>absent() : Optional.of(peakRss);
+  }
+
+  public ImmutableList<String> getOptions() {
+    final ImmutableList.Builder<String> options = ImmutableList.builder();
+    if (0 <= initialHeapMegabytes) {
+      options.add(getInitialHeap().get().getArgument());
+    }
+    return options.add(getMaxHeap().getArgument()).build();
+  }
+
+  @Override
+  public boolean equals(final Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    final HeapAdvice that = (HeapAdvice) o;
+    return maxHeapMegabytes == that.maxHeapMegabytes && initialHeapMegabytes == that.initialHeapMegabytes;
+  }
+
+  @Override
+  public int hashCode() {
+    int result = (int) (maxHeapMegabytes ^ (maxHeapMegabytes >>> 32));
+    result = 31 * result + (int) (initialHeapMegabytes ^ (initialHeapMegabytes >>> 32));
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return "HeapAdvice{" +
+        "options=" + getOptions() +
+        ", observations=" + observations +
+        ", peakRss=" + peakRss +
+        '}';
+  }
+}
@@ -0,0 +1,252 @@
+package ca.cutterslade.util.jvmbuilder.sizing;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ca.cutterslade.util.jvmbuilder.JvmProcess;
+import ca.cutterslade.util.jvmbuilder.MemoryFootprint;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Optional;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.MoreExecutors;
+
+/**
+ * Records the memory footprint of instrumented launches and advises heap sizes for later launches of the same
+ * program. Launches are keyed by a hash of their JVM options, leaving out heap sizes, and their program, optionally
+ * with the program arguments. Footprints are kept in a properties file, rewritten as each launch exits, so advice
+ * survives restarts of this JVM; parents sharing a file each keep their own view of it and the last to write wins.
+ */
+@ThreadSafe
+public final class HeapAdvisor {
+  private static final Logger log = LoggerFactory.getLogger(HeapAdvisor.class);
+  private static final Pattern HEAP_OPTION = Pattern.compile(
+      "-Xm[xs].*|-XX:(?:Max|Min|Initial)RAMPercentage=.*|-XX:(?:Max|Initial)HeapSize=.*");
+  private static final Joiner FOOTPRINT_JOINER = Joiner.on(',');
+  private static final Splitter FOOTPRINT_SPLITTER = Splitter.on(',').omitEmptyStrings();
+  private static final Splitter VALUE_SPLITTER = Splitter.on(':');
+
+  private final Path store;
+  private final AdvisorMode mode;
+  private final double headroom;
+  private final int window;
+  private final int minObservations;
+  private final boolean keyByArguments;
+  @GuardedBy("this")
+  private final Map<String, ImmutableList<MemoryFootprint>> footprints;
+  private final ConcurrentMap<String, HeapAdvice> advice = new ConcurrentHashMap<>();
+
+  HeapAdvisor(final HeapAdvisorBuilder builder) {
+    store = builder.getStore();
+    mode = builder.getMode();
+    headroom = builder.getHeadroom();
+    window = builder.getWindow();
+    minObservations = builder.getMinObservations();
+    keyByArguments = builder.isKeyByArguments();
+    footprints = load(store);
+    for (final Map.Entry<String, ImmutableList<MemoryFootprint>> entry : footprints.entrySet()) {
+      updateAdvice(entry.getKey(), entry.getValue());
+    }
+  }
+
+  public AdvisorMode getMode() {
+    return mode;
+  }
+
+  /**
+   * Prepares a launch, working out its key and, in {@link AdvisorMode#APPLY} mode, the heap options it is given.
+   */
+  public Launch newLaunch(final Iterable<String> jvmOptions, final Iterable<String> program, final String[] args) {
+    final String key = getKey(jvmOptions, program, args);
+    final Optional<HeapAdvice> current = getAdvice(key);
+    if (current.isPresent() && AdvisorMode.APPLY == mode) {
+      log.debug("Applying {} to {}", current.get(), Iterables.getLast(program));
+      return new Launch(key, current.get().getOptions());
+    }
+    return new Launch(key, ImmutableList.<String>of());
+  }
+
+  public String getKey(final Iterable<String> jvmOptions, final Iterable<String> program, final String[] args) {
+    final Hasher hasher = Hashing.sha1().newHasher();
+    for (final String option : jvmOptions) {
+      if (!HEAP_OPTION.matcher(option).matches()) {
+        putString(hasher, option);
+      }
+    }
+    hasher.putByte((byte) 1);
+    for (final String element : program) {
+      putString(hasher, element);
+    }
+    if (keyByArguments) {
+      hasher.putByte((byte) 1);
+      for (final String arg : args) {
+        putString(hasher, arg);
+      }
+    }
+    return hasher.hash().toString();
+  }
+
+  private static void putString(final Hasher hasher, final String value) {
+    hasher.putBytes(value.getBytes(StandardCharsets.UTF_8)).putByte((byte) 0);
+  }
+
+  public Optional<HeapAdvice> getAdvice(final String key) {
+    return Optional.fromNullable(advice.get(key));
+  }
+
+  public ImmutableMap<String, HeapAdvice> getAdvice() {
+    return ImmutableMap.copyOf(advice);
+  }
+
+  public void record(final String key, final MemoryFootprint footprint) {
+    final Optional<HeapAdvice> previousAdvice = getAdvice(key);
+    final Optional<HeapAdvice> updated;
+    // saving under the lock keeps an older snapshot from overwriting a newer one
+    synchronized (this) {
+      final ImmutableList<MemoryFootprint> previous = footprints.get(key);
+      final ImmutableList<MemoryFootprint> all = null == previous ? ImmutableList.of(footprint) :
+          ImmutableList.<MemoryFootprint>builder().addAll(previous).add(footprint).build();
+      final ImmutableList<MemoryFootprint> recorded = all.subList(Math.max(0, all.size() - window), all.size());
+      footprints.put(key, recorded);
+      updated = updateAdvice(key, recorded);
+      try {
+        save();
+      }
+      catch (IOException e) {
+        log.warn("Could not save heap advice to {}", store, e);
+      }
+    }
+    if (updated.isPresent() && !updated.equals(previousAdvice)) {
+      log.info("Advised heap for launches keyed {} is now {}", key, updated.get());
+    }
+  }
+
+  private Optional<HeapAdvice> updateAdvice(final String key, final ImmutableList<MemoryFootprint> recorded) {
+    if (recorded.size() < minObservations) {
+      return Optional.absent();
+    }
+    final HeapAdvice updated = HeapAdvice.of(recorded, headroom);
+    advice.put(key, updated);
+    return Optional.of(updated);
+  }
+
+  private static Map<String, ImmutableList<MemoryFootprint>> load(final Path store) {
+    final Map<String, ImmutableList<MemoryFootprint>> loaded = new ConcurrentHashMap<>();
+    if (!Files.exists(store)) {
+      return loaded;
+    }
+    final Properties properties = new Properties();
+    try (final Reader reader = Files.newBufferedReader(store, StandardCharsets.UTF_8)) {
+      properties.load(reader);
+    }
+    catch (IOException e) {
+      log.warn("Could not read heap advice from {}, starting afresh", store, e);
+      return loaded;
+    }
+    for (final String key : properties.stringPropertyNames()) {
+      try {
+        final ImmutableList.Builder<MemoryFootprint> recorded = ImmutableList.builder();
+        for (final String footprint : FOOTPRINT_SPLITTER.split(properties.getProperty(key))) {
+          final String[] values = Iterables.toArray(VALUE_SPLITTER.split(footprint), String.class);
+          recorded.add(new MemoryFootprint(Long.parseLong(values[0]), Long.parseLong(values[1]),
+              Long.parseLong(values[2])));
+        }
+        loaded.put(key, recorded.build());
+      }
+      catch (RuntimeException e) {
+        log.debug("Ignoring unreadable heap advice entry {}", key, e);
+      }
+    }
+    return loaded;
+  }
+
+  @GuardedBy("this")
+  private void save() throws IOException {
+    final Properties properties = new Properties();
+    for (final Map.Entry<String, ImmutableList<MemoryFootprint>> entry : footprints.entrySet()) {
+      final ImmutableList.Builder<String> values = ImmutableList.builder();
+      for (final MemoryFootprint footprint : entry.getValue()) {
+        values.add(footprint.getPeakHeapUsed() + ":" + footprint.getLiveHeapAfterGc().or(-1L) + ':' +
+            footprint.getPeakRss().or(-1L));
+      }
+      properties.setProperty(entry.getKey(), FOOTPRINT_JOINER.join(values.build()));
+    }
+    final Path directory = store.toAbsolutePath().getParent();
+    Files.createDirectories(directory);
+    final Path temporary = directory.resolve(store.getFileName() + "." + UUID.randomUUID() + ".tmp");
+    try {
+      try (final Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+        properties.store(writer, "peak heap:live heap after GC:peak RSS, in bytes, of recent launches by key");
+      }
+      try {
+        Files.move(temporary, store, StandardCopyOption.ATOMIC_MOVE);
+      }
+      catch (AtomicMoveNotSupportedException e) {
+        Files.move(temporary, store, StandardCopyOption.REPLACE_EXISTING);
+      }
+    }
+    finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  /**
+   * One launch's key and the heap options it is to be started with.
+   */
+  @ThreadSafe
+  public final class Launch {
+    private final String key;
+    private final ImmutableList<String> options;
+
+    private Launch(final String key, final ImmutableList<String> options) {
+      this.key = key;
+      this.options = options;
+    }
+
+    public String getKey() {
+      return key;
+    }
+
+    public ImmutableList<String> getOptions() {
+      return options;
+    }
+
+    /**
+     * Records the footprint of the started JVM once it has exited, if it reported one.
+     */
+    public void started(final JvmProcess process) {
+      process.getExitValue().addListener(new Runnable() {
+        @Override
+        public void run() {
+          final Optional<MemoryFootprint> footprint = process.getMemoryFootprint();
+          if (footprint.isPresent()) {
+            record(key, footprint.get());
+          }
+        }
+      }, MoreExecutors.sameThreadExecutor());
+    }
+  }
+}
@@ -0,0 +1,98 @@
+package ca.cutterslade.util.jvmbuilder.sizing;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.google.common.base.Preconditions;
+
+@NotThreadSafe
+public final class HeapAdvisorBuilder {
+  private Path store = Paths.get(System.getProperty("user.home"), ".jvm-builder", "heap-advice.properties");
+  private AdvisorMode mode = AdvisorMode.SUGGEST;
+  private double headroom = 0.25;
+  private int window = 10;
+  private int minObservations = 3;
+  private boolean keyByArguments;
+
+  /**
+   * The file recorded footprints are kept in; defaults to heap-advice.properties in ~/.jvm-builder.
+   */
+  public HeapAdvisorBuilder setStore(final Path store) {
+    Preconditions.checkArgument(null != store);
+    this.store = store;
+    return this;
+  }
+
+  public HeapAdvisorBuilder setMode(final AdvisorMode mode) {
+    Preconditions.checkArgument(null != mode);
+    this.mode = mode;
+    return this;
+  }
+
+  /**
+   * The fraction added to the observed sizes when advising; defaults to 0.25.
+   */
+  public HeapAdvisorBuilder setHeadroom(final double headroom) {
+    Preconditions.checkArgument(0 <= headroom);
+    this.headroom = headroom;
+    return this;
+  }
+
+  /**
+   * The number of most recent launches advice is drawn from; defaults to 10.
+   */
+  public HeapAdvisorBuilder setWindow(final int window) {
+    Preconditions.checkArgument(0 < window);
+    this.window = window;
+    return this;
+  }
+
+  /**
+   * The number of launches which must have been recorded before advice is given; defaults to 3.
+   */
+  public HeapAdvisorBuilder setMinObservations(final int minObservations) {
+    Preconditions.checkArgument(0 < minObservations);
+    this.minObservations = minObservations;
+    return this;
+  }
+
+  /**
+   * Keeps launches with different program arguments apart, for programs whose footprint depends on them.
+   */
+  public HeapAdvisorBuilder keyByArguments() {
+    this.keyByArguments = true;
+    return this;
+  }
+
+  public HeapAdvisor build() {
+    Preconditions.checkState(minObservations <= window, "minObservations (%s) must not exceed window (%s)",
+        minObservations, window);
+    return new HeapAdvisor(this);
+  }
+
+  Path getStore() {
+    return store;
+  }
+
+  AdvisorMode getMode() {
+    return mode;
+  }
+
+  double getHeadroom() {
+    return headroom;
+  }
+
+  int getWindow() {
+    return window;
+  }
+
+  int getMinObservations() {
+    return minObservations;
+  }
+
+  boolean isKeyByArguments() {
+    return keyByArguments;
+  }
+}
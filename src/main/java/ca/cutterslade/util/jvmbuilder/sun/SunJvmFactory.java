@@ -6,7 +6,9 @@ import java.util.regex.Pattern;
 import javax.annotation.Nullable;
 
 import ca.cutterslade.util.jvmbuilder.JvmType;
+import ca.cutterslade.util.jvmbuilder.VariantBuilder;
 import ca.cutterslade.util.jvmbuilder.common.AbstractJvmFactory;
+import ca.cutterslade.util.jvmbuilder.common.SimpleVariantBuilder;
 
 import com.google.common.base.Predicate;
 import com.google.common.collect.Collections2;
@@ -15,7 +17,7 @@ import com.google.common.collect.Iterables;
 public class SunJvmFactory extends AbstractJvmFactory<SunJvmFactoryBuilder> {
 
   private static final Pattern HANDLED_ARGUMENTS_PATTERN = Pattern.compile(
-      "(?:-X(?:mx|ms|ss)\\d+[kmg]?)|-client|-server|" +
+      "(?:-X(?:mx|ms|ss)\\d+[kKmMgGtT]?)|(?:-XX:MaxRAMPercentage=[\\d.]+)|-client|-server|" +
           "(?:(?:-ea|-enableassertions|-da|-disableassertions)(?::.+)?)|" +
           "-esa|-enablesystemassertions|-dsa|-disablesystemassertions|" +
           "(?:-verbose(?::.+)?)|(?:-version:.+)|-d32|-d64|(?:-D.+)");
@@ -44,6 +46,20 @@ public class SunJvmFactory extends AbstractJvmFactory<SunJvmFactoryBuilder> {
     super(sunJvmFactoryBuilder);
   }
 
+  protected SunJvmFactory(final SunJvmFactory factory, final SimpleVariantBuilder<?> variant) {
+    super(factory, variant);
+  }
+
+  @Override
+  public VariantBuilder<SunJvmFactory> with() {
+    return new SimpleVariantBuilder<SunJvmFactory>(this) {
+      @Override
+      protected SunJvmFactory create() {
+        return new SunJvmFactory(SunJvmFactory.this, this);
+      }
+    };
+  }
+
   @Override
   protected String getCurrentJvmTypeArgument() {
     final String nameString = ManagementFactory.getRuntimeMXBean().getVmName().toLowerCase();
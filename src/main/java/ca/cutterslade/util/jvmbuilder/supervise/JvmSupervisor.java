@@ -0,0 +1,477 @@
+package ca.cutterslade.util.jvmbuilder.supervise;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ca.cutterslade.util.jvmbuilder.JvmProcess;
+import ca.cutterslade.util.jvmbuilder.LineListener;
+import ca.cutterslade.util.jvmbuilder.common.OutputSinks;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Keeps long running JVMs running, restarting them when they exit, fail to become ready or stop sending heartbeats.
+ * A child whose JVM is still running when it is restarted keeps it until the replacement is ready, so that it does not
+ * go without a JVM while the replacement starts.
+ * <p>
+ * The state of the children is only changed by the supervisor's own thread, which every event is passed to.
+ */
+@ThreadSafe
+public final class JvmSupervisor implements Closeable {
+  private static final Logger log = LoggerFactory.getLogger(JvmSupervisor.class);
+
+  private final ImmutableMap<String, SupervisedJvm> children;
+  private final ImmutableList<Slot> slots;
+  private final RestartStrategy strategy;
+  private final long initialBackoffNanos;
+  private final long maxBackoffNanos;
+  private final int maxRestarts;
+  private final long restartWindowNanos;
+  private final Pattern readinessPattern;
+  private final long readinessTimeoutNanos;
+  private final Pattern heartbeatPattern;
+  private final long heartbeatTimeoutNanos;
+  private final ScheduledThreadPoolExecutor executor;
+  private final AtomicLong restarts = new AtomicLong();
+  private final AtomicLong failures = new AtomicLong();
+  private final AtomicLong heartbeatTimeouts = new AtomicLong();
+  private final AtomicLong crashLoops = new AtomicLong();
+  private final AtomicLong recoveries = new AtomicLong();
+  private final AtomicLong totalRestartNanos = new AtomicLong();
+  private final AtomicLong maxRestartNanos = new AtomicLong();
+  private volatile boolean closed;
+
+  private final Runnable checkTask = new Runnable() {
+    @Override
+    public void run() {
+      try {
+        check();
+      }
+      catch (RuntimeException e) {
+        log.warn("JVM supervisor check failed", e);
+      }
+    }
+  };
+
+  JvmSupervisor(final JvmSupervisorBuilder builder) {
+    final ImmutableMap.Builder<String, SupervisedJvm> childrenBuilder = ImmutableMap.builder();
+    final ImmutableList.Builder<Slot> slotsBuilder = ImmutableList.builder();
+    for (final SupervisedJvm child : builder.getChildren()) {
+      childrenBuilder.put(child.getName(), child);
+      slotsBuilder.add(new Slot(child));
+    }
+    children = childrenBuilder.build();
+    slots = slotsBuilder.build();
+    strategy = builder.getStrategy();
+    initialBackoffNanos = builder.getInitialBackoffNanos();
+    maxBackoffNanos = builder.getMaxBackoffNanos();
+    maxRestarts = builder.getMaxRestarts();
+    restartWindowNanos = builder.getRestartWindowNanos();
+    readinessPattern = builder.getReadinessPattern();
+    readinessTimeoutNanos = builder.getReadinessTimeoutNanos();
+    heartbeatPattern = builder.getHeartbeatPattern();
+    heartbeatTimeoutNanos = builder.getHeartbeatTimeoutNanos();
+    executor = new ScheduledThreadPoolExecutor(1,
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("jvm-supervisor-%d").build());
+    executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        for (final Slot slot : slots) {
+          launch(slot);
+        }
+      }
+    });
+    executor.scheduleWithFixedDelay(checkTask, builder.getCheckIntervalNanos(), builder.getCheckIntervalNanos(),
+        TimeUnit.NANOSECONDS);
+  }
+
+  public ImmutableList<SupervisedJvm> getChildren() {
+    return children.values().asList();
+  }
+
+  public SupervisedJvm getChild(final String name) {
+    final SupervisedJvm child = children.get(name);
+    Preconditions.checkArgument(null != child, "No child named %s", name);
+    return child;
+  }
+
+  public JvmSupervisorStats getStats() {
+    int running = 0;
+    for (final SupervisedJvm child : children.values()) {
+      if (SupervisedJvm.State.RUNNING == child.getState()) {
+        running++;
+      }
+    }
+    return new JvmSupervisorStats(restarts.get(), failures.get(), heartbeatTimeouts.get(), crashLoops.get(),
+        recoveries.get(), totalRestartNanos.get(), maxRestartNanos.get(), running);
+  }
+
+  /**
+   * Stops supervising, destroying every JVM of every child.
+   */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    final Future<?> stopped;
+    try {
+      stopped = executor.submit(new Runnable() {
+        @Override
+        public void run() {
+          for (final Slot slot : slots) {
+            stop(slot, SupervisedJvm.State.STOPPED);
+          }
+        }
+      });
+    }
+    finally {
+      executor.shutdown();
+    }
+    try {
+      stopped.get();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    catch (ExecutionException e) {
+      log.warn("Could not stop supervised JVMs", e.getCause());
+    }
+  }
+
+  private void launch(final Slot slot) {
+    final Launch launch = new Launch(slot);
+    slot.pending = launch;
+    final ImmutableList<String> arguments = slot.child.getArguments();
+    final ListenableFuture<JvmProcess> future = slot.child.getFactory().startAsync(
+        OutputSinks.lines(launch.stdOut), OutputSinks.lines(launch.stdErr),
+        arguments.toArray(new String[arguments.size()]));
+    Futures.addCallback(future, new FutureCallback<JvmProcess>() {
+      @Override
+      public void onSuccess(final JvmProcess process) {
+        submit(new Runnable() {
+          @Override
+          public void run() {
+            started(launch, process);
+          }
+        }, process);
+      }
+
+      @Override
+      public void onFailure(final Throwable t) {
+        log.warn("Could not start supervised JVM {}", slot.child.getName(), t);
+        submit(new Runnable() {
+          @Override
+          public void run() {
+            exited(launch);
+          }
+        }, null);
+      }
+    });
+  }
+
+  // Once closed, events are dropped, but a JVM which started too late to be stopped must still be destroyed
+  private void submit(final Runnable task, @Nullable final JvmProcess process) {
+    try {
+      if (!closed) {
+        executor.execute(task);
+        return;
+      }
+    }
+    catch (RejectedExecutionException e) {
+      log.debug("Supervisor closed, dropping event", e);
+    }
+    if (null != process) {
+      process.destroy();
+    }
+  }
+
+  private void started(final Launch launch, final JvmProcess process) {
+    launch.process = process;
+    if (launch.retired) {
+      process.destroy();
+      return;
+    }
+    Futures.addCallback(process.getExitValue(), new FutureCallback<Integer>() {
+      @Override
+      public void onSuccess(final Integer exitValue) {
+        log.debug("Supervised JVM {} exited with {}", launch.slot.child.getName(), exitValue);
+        onExit();
+      }
+
+      @Override
+      public void onFailure(final Throwable t) {
+        log.debug("Supervised JVM {} failed", launch.slot.child.getName(), t);
+        onExit();
+      }
+
+      private void onExit() {
+        submit(new Runnable() {
+          @Override
+          public void run() {
+            exited(launch);
+          }
+        }, null);
+      }
+    });
+    if (null == readinessPattern || launch.readyLineSeen) {
+      ready(launch);
+    }
+  }
+
+  private void ready(final Launch launch) {
+    final Slot slot = launch.slot;
+    // the readiness line can overtake the start, which then makes the launch ready itself
+    if (launch.ready || launch.retired || null == launch.process || slot.pending != launch) {
+      return;
+    }
+    final long now = System.nanoTime();
+    launch.ready = true;
+    launch.lastBeatNanos = now;
+    final Launch previous = slot.current;
+    slot.current = launch;
+    slot.pending = null;
+    slot.child.setProcess(launch.process);
+    slot.child.setState(SupervisedJvm.State.RUNNING);
+    if (null != previous) {
+      retire(previous);
+    }
+    if (0 != slot.failedAtNanos) {
+      recordRecovery(now - slot.failedAtNanos);
+      slot.failedAtNanos = 0;
+    }
+  }
+
+  private void exited(final Launch launch) {
+    final Slot slot = launch.slot;
+    if (launch.retired) {
+      return;
+    }
+    launch.retired = true;
+    failures.incrementAndGet();
+    if (slot.current == launch) {
+      slot.current = null;
+      slot.child.setProcess(null);
+      if (null != slot.pending || slot.restartScheduled) {
+        // already being replaced
+        slot.child.setState(SupervisedJvm.State.RESTARTING);
+        return;
+      }
+    }
+    else if (slot.pending == launch) {
+      slot.pending = null;
+    }
+    else {
+      return;
+    }
+    failed(slot);
+  }
+
+  private void failed(final Slot slot) {
+    final long now = System.nanoTime();
+    if (0 == slot.failedAtNanos) {
+      slot.failedAtNanos = now;
+    }
+    while (!slot.restartTimes.isEmpty() && now - slot.restartTimes.peekFirst() > restartWindowNanos) {
+      slot.restartTimes.removeFirst();
+    }
+    if (slot.restartTimes.size() >= maxRestarts) {
+      crashLoops.incrementAndGet();
+      log.error("Supervised JVM {} failed {} times within {}ms, giving up", slot.child.getName(),
+          slot.restartTimes.size() + 1, TimeUnit.NANOSECONDS.toMillis(restartWindowNanos));
+      if (RestartStrategy.ALL_FOR_ONE == strategy) {
+        for (final Slot each : slots) {
+          stop(each, SupervisedJvm.State.FAILED);
+        }
+      }
+      else {
+        stop(slot, SupervisedJvm.State.FAILED);
+      }
+      return;
+    }
+    final long delay = getBackoffNanos(slot.restartTimes.size());
+    slot.restartTimes.addLast(now);
+    slot.restartScheduled = true;
+    slot.child.setState(SupervisedJvm.State.RESTARTING);
+    log.info("Restarting supervised JVM {} in {}ms", slot.child.getName(), TimeUnit.NANOSECONDS.toMillis(delay));
+    executor.schedule(new Runnable() {
+      @Override
+      public void run() {
+        restart(slot);
+      }
+    }, delay, TimeUnit.NANOSECONDS);
+  }
+
+  private long getBackoffNanos(final int recentRestarts) {
+    long delay = initialBackoffNanos;
+    for (int i = 0; i < recentRestarts && delay < maxBackoffNanos; i++) {
+      delay *= 2;
+    }
+    return Math.min(delay, maxBackoffNanos);
+  }
+
+  private void restart(final Slot slot) {
+    slot.restartScheduled = false;
+    if (closed || SupervisedJvm.State.FAILED == slot.child.getState()) {
+      return;
+    }
+    if (RestartStrategy.ALL_FOR_ONE == strategy) {
+      for (final Slot each : slots) {
+        if (SupervisedJvm.State.FAILED != each.child.getState()) {
+          replace(each);
+        }
+      }
+    }
+    else {
+      replace(slot);
+    }
+  }
+
+  // The JVM being replaced, if it is still running, is only retired once the replacement is ready
+  private void replace(final Slot slot) {
+    if (null == slot.pending) {
+      restarts.incrementAndGet();
+      slot.child.restarted();
+      slot.child.setState(SupervisedJvm.State.RESTARTING);
+      launch(slot);
+    }
+  }
+
+  private void retire(final Launch launch) {
+    launch.retired = true;
+    if (null != launch.process) {
+      launch.process.destroy();
+    }
+  }
+
+  private void stop(final Slot slot, final SupervisedJvm.State state) {
+    slot.child.setState(state);
+    slot.child.setProcess(null);
+    if (null != slot.current) {
+      retire(slot.current);
+      slot.current = null;
+    }
+    if (null != slot.pending) {
+      retire(slot.pending);
+      slot.pending = null;
+    }
+  }
+
+  private void check() {
+    final long now = System.nanoTime();
+    for (final Slot slot : slots) {
+      final Launch pending = slot.pending;
+      if (null != pending && !pending.ready && null != pending.process &&
+          now - pending.startedNanos > readinessTimeoutNanos) {
+        log.warn("Supervised JVM {} did not become ready within {}ms", slot.child.getName(),
+            TimeUnit.NANOSECONDS.toMillis(readinessTimeoutNanos));
+        // its exit is handled as a failure
+        pending.process.destroy();
+      }
+      final Launch current = slot.current;
+      if (null != heartbeatPattern && null != current && null == pending && !slot.restartScheduled &&
+          now - current.lastBeatNanos > heartbeatTimeoutNanos) {
+        log.warn("Supervised JVM {} sent no heartbeat for {}ms", slot.child.getName(),
+            TimeUnit.NANOSECONDS.toMillis(now - current.lastBeatNanos));
+        heartbeatTimeouts.incrementAndGet();
+        failures.incrementAndGet();
+        failed(slot);
+      }
+    }
+  }
+
+  private void recordRecovery(final long nanos) {
+    recoveries.incrementAndGet();
+    totalRestartNanos.addAndGet(nanos);
+    long max;
+    do {
+      max = maxRestartNanos.get();
+    }
+    while (nanos > max && !maxRestartNanos.compareAndSet(max, nanos));
+  }
+
+  /**
+   * The supervisor's record of a child, only used by the supervisor thread.
+   */
+  private static final class Slot {
+    private final SupervisedJvm child;
+    private final ArrayDeque<Long> restartTimes = new ArrayDeque<>();
+    private Launch current;
+    private Launch pending;
+    private boolean restartScheduled;
+    private long failedAtNanos;
+
+    Slot(final SupervisedJvm child) {
+      this.child = child;
+    }
+  }
+
+  /**
+   * One JVM started for a child.
+   */
+  private final class Launch {
+    private final Slot slot;
+    private final long startedNanos = System.nanoTime();
+    private volatile long lastBeatNanos = startedNanos;
+    private volatile boolean readyLineSeen;
+    private volatile JvmProcess process;
+    private boolean ready;
+    private boolean retired;
+
+    private final LineListener stdOut = new LineListener() {
+      @Override
+      public void line(final CharSequence line) {
+        if (log.isDebugEnabled()) {
+          log.debug("{}: {}", slot.child.getName(), line);
+        }
+        if (null != heartbeatPattern && heartbeatPattern.matcher(line).find()) {
+          lastBeatNanos = System.nanoTime();
+        }
+        if (!readyLineSeen && null != readinessPattern && readinessPattern.matcher(line).find()) {
+          readyLineSeen = true;
+          submit(new Runnable() {
+            @Override
+            public void run() {
+              ready(Launch.this);
+            }
+          }, null);
+        }
+      }
+    };
+
+    private final LineListener stdErr = new LineListener() {
+      @Override
+      public void line(final CharSequence line) {
+        if (log.isDebugEnabled()) {
+          log.debug("{} (stderr): {}", slot.child.getName(), line);
+        }
+      }
+    };
+
+    Launch(final Slot slot) {
+      this.slot = slot;
+    }
+  }
+}
@@ -0,0 +1,160 @@
+package ca.cutterslade.util.jvmbuilder.supervise;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import ca.cutterslade.util.jvmbuilder.JvmFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+
+@NotThreadSafe
+public final class JvmSupervisorBuilder {
+  private final Map<String, SupervisedJvm> children = Maps.newLinkedHashMap();
+  private RestartStrategy strategy = RestartStrategy.ONE_FOR_ONE;
+  private long initialBackoffNanos = TimeUnit.MILLISECONDS.toNanos(100);
+  private long maxBackoffNanos = TimeUnit.SECONDS.toNanos(30);
+  private int maxRestarts = 5;
+  private long restartWindowNanos = TimeUnit.MINUTES.toNanos(1);
+  private Pattern readinessPattern;
+  private long readinessTimeoutNanos = TimeUnit.MINUTES.toNanos(1);
+  private Pattern heartbeatPattern;
+  private long heartbeatTimeoutNanos;
+  private long checkIntervalNanos = TimeUnit.MILLISECONDS.toNanos(100);
+
+  public JvmSupervisorBuilder addChild(final String name, final JvmFactory<?> factory, final String... args) {
+    return addChild(name, factory, Arrays.asList(args));
+  }
+
+  public JvmSupervisorBuilder addChild(final String name, final JvmFactory<?> factory, final List<String> args) {
+    Preconditions.checkArgument(null != name);
+    Preconditions.checkArgument(null != factory);
+    Preconditions.checkArgument(!children.containsKey(name), "Duplicate child name %s", name);
+    children.put(name, new SupervisedJvm(name, factory, ImmutableList.copyOf(args)));
+    return this;
+  }
+
+  public JvmSupervisorBuilder setStrategy(final RestartStrategy strategy) {
+    Preconditions.checkArgument(null != strategy);
+    this.strategy = strategy;
+    return this;
+  }
+
+  /**
+   * Sets the delay before a failed child is restarted, which doubles with each restart in the restart window.
+   */
+  public JvmSupervisorBuilder setBackoff(final long initial, final long max, final TimeUnit unit) {
+    Preconditions.checkArgument(0 <= initial);
+    Preconditions.checkArgument(initial <= max);
+    Preconditions.checkArgument(null != unit);
+    this.initialBackoffNanos = unit.toNanos(initial);
+    this.maxBackoffNanos = unit.toNanos(max);
+    return this;
+  }
+
+  /**
+   * Sets how many restarts a child may need within a window before it is judged to be crash looping and given up on;
+   * under {@link RestartStrategy#ALL_FOR_ONE} every child is given up on.
+   */
+  public JvmSupervisorBuilder setMaxRestarts(final int maxRestarts, final long window, final TimeUnit unit) {
+    Preconditions.checkArgument(0 <= maxRestarts);
+    Preconditions.checkArgument(0 < window);
+    Preconditions.checkArgument(null != unit);
+    this.maxRestarts = maxRestarts;
+    this.restartWindowNanos = unit.toNanos(window);
+    return this;
+  }
+
+  /**
+   * Waits for a child to print a line matching a pattern to its standard output before treating it as ready. Without
+   * a readiness pattern a child is ready as soon as it has started.
+   */
+  public JvmSupervisorBuilder setReadiness(final Pattern pattern, final long timeout, final TimeUnit unit) {
+    Preconditions.checkArgument(null != pattern);
+    Preconditions.checkArgument(0 < timeout);
+    Preconditions.checkArgument(null != unit);
+    this.readinessPattern = pattern;
+    this.readinessTimeoutNanos = unit.toNanos(timeout);
+    return this;
+  }
+
+  /**
+   * Treats a ready child as hung, and replaces it, if it goes longer than the timeout without printing a line
+   * matching a pattern to its standard output.
+   */
+  public JvmSupervisorBuilder setHeartbeat(final Pattern pattern, final long timeout, final TimeUnit unit) {
+    Preconditions.checkArgument(null != pattern);
+    Preconditions.checkArgument(0 < timeout);
+    Preconditions.checkArgument(null != unit);
+    this.heartbeatPattern = pattern;
+    this.heartbeatTimeoutNanos = unit.toNanos(timeout);
+    return this;
+  }
+
+  public JvmSupervisorBuilder setCheckInterval(final long interval, final TimeUnit unit) {
+    Preconditions.checkArgument(0 < interval);
+    Preconditions.checkArgument(null != unit);
+    this.checkIntervalNanos = unit.toNanos(interval);
+    return this;
+  }
+
+  public JvmSupervisor build() {
+    Preconditions.checkState(!children.isEmpty(), "No children to supervise");
+    return new JvmSupervisor(this);
+  }
+
+  // Each supervisor gets children of its own, as the builder may build more than one
+  ImmutableList<SupervisedJvm> getChildren() {
+    final ImmutableList.Builder<SupervisedJvm> builder = ImmutableList.builder();
+    for (final SupervisedJvm child : children.values()) {
+      builder.add(new SupervisedJvm(child.getName(), child.getFactory(), child.getArguments()));
+    }
+    return builder.build();
+  }
+
+  RestartStrategy getStrategy() {
+    return strategy;
+  }
+
+  long getInitialBackoffNanos() {
+    return initialBackoffNanos;
+  }
+
+  long getMaxBackoffNanos() {
+    return maxBackoffNanos;
+  }
+
+  int getMaxRestarts() {
+    return maxRestarts;
+  }
+
+  long getRestartWindowNanos() {
+    return restartWindowNanos;
+  }
+
+  Pattern getReadinessPattern() {
+    return readinessPattern;
+  }
+
+  long getReadinessTimeoutNanos() {
+    return readinessTimeoutNanos;
+  }
+
+  Pattern getHeartbeatPattern() {
+    return heartbeatPattern;
+  }
+
+  long getHeartbeatTimeoutNanos() {
+    return heartbeatTimeoutNanos;
+  }
+
+  long getCheckIntervalNanos() {
+    return checkIntervalNanos;
+  }
+}
@@ -0,0 +1,82 @@
+package ca.cutterslade.util.jvmbuilder.supervise;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.concurrent.Immutable;
+
+@Immutable
+public final class JvmSupervisorStats {
+  private final long restarts;
+  private final long failures;
+  private final long heartbeatTimeouts;
+  private final long crashLoops;
+  private final long recoveries;
+  private final long totalRestartNanos;
+  private final long maxRestartNanos;
+  private final int running;
+
+  JvmSupervisorStats(final long restarts, final long failures, final long heartbeatTimeouts, final long crashLoops,
+      final long recoveries, final long totalRestartNanos, final long maxRestartNanos, final int running) {
+    this.restarts = restarts;
+    this.failures = failures;
+    this.heartbeatTimeouts = heartbeatTimeouts;
+    this.crashLoops = crashLoops;
+    this.recoveries = recoveries;
+    this.totalRestartNanos = totalRestartNanos;
+    this.maxRestartNanos = maxRestartNanos;
+    this.running = running;
+  }
+
+  /**
+   * The number of replacement JVMs started, including those started alongside a failed child by
+   * {@link RestartStrategy#ALL_FOR_ONE}.
+   */
+  public long getRestarts() {
+    return restarts;
+  }
+
+  /**
+   * The number of JVMs which could not be started, exited, or did not become ready in time.
+   */
+  public long getFailures() {
+    return failures;
+  }
+
+  public long getHeartbeatTimeouts() {
+    return heartbeatTimeouts;
+  }
+
+  public long getCrashLoops() {
+    return crashLoops;
+  }
+
+  /**
+   * The number of failed children which have a ready JVM again.
+   */
+  public long getRecoveries() {
+    return recoveries;
+  }
+
+  /**
+   * The mean time from detecting a failure to the replacement being ready, including backoff.
+   */
+  public long getMeanRestartLatency(final TimeUnit unit) {
+    return 0 == recoveries ? 0 : unit.convert(totalRestartNanos / recoveries, TimeUnit.NANOSECONDS);
+  }
+
+  public long getMaxRestartLatency(final TimeUnit unit) {
+    return unit.convert(maxRestartNanos, TimeUnit.NANOSECONDS);
+  }
+
+  public int getRunning() {
+    return running;
+  }
+
+  @Override
+  public String toString() {
+    return "JvmSupervisorStats{restarts=" + restarts + ", failures=" + failures + ", heartbeatTimeouts=" +
+        heartbeatTimeouts + ", crashLoops=" + crashLoops + ", recoveries=" + recoveries + ", meanRestartMillis=" +
+        getMeanRestartLatency(TimeUnit.MILLISECONDS) + ", maxRestartMillis=" +
+        getMaxRestartLatency(TimeUnit.MILLISECONDS) + ", running=" + running + '}';
+  }
+}
@@ -0,0 +1,12 @@
+package ca.cutterslade.util.jvmbuilder.supervise;
+
+public enum RestartStrategy {
+  /**
+   * Only the child which failed is replaced.
+   */
+  ONE_FOR_ONE,
+  /**
+   * Every child is replaced when any of them fails, for children which depend on each other.
+   */
+  ALL_FOR_ONE
+}
@@ -0,0 +1,90 @@
+package ca.cutterslade.util.jvmbuilder.supervise;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import ca.cutterslade.util.jvmbuilder.JvmFactory;
+import ca.cutterslade.util.jvmbuilder.JvmProcess;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * A child of a supervisor, which lives on through every JVM started to replace it.
+ */
+@ThreadSafe
+public final class SupervisedJvm {
+  public enum State {
+    /**
+     * The first JVM of the child has been started but is not ready yet.
+     */
+    STARTING,
+    RUNNING,
+    /**
+     * The child failed and is waiting out its backoff, or its replacement is starting.
+     */
+    RESTARTING,
+    /**
+     * The child failed too often and is no longer restarted.
+     */
+    FAILED,
+    STOPPED
+  }
+
+  private final String name;
+  private final JvmFactory<?> factory;
+  private final ImmutableList<String> arguments;
+  private volatile State state = State.STARTING;
+  private volatile JvmProcess process;
+  private volatile long restarts;
+
+  SupervisedJvm(final String name, final JvmFactory<?> factory, final ImmutableList<String> arguments) {
+    this.name = name;
+    this.factory = factory;
+    this.arguments = arguments;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public State getState() {
+    return state;
+  }
+
+  /**
+   * The ready JVM currently serving as this child, absent while the child has none.
+   */
+  public Optional<JvmProcess> getProcess() {
+    return Optional.fromNullable(process);
+  }
+
+  public long getRestarts() {
+    return restarts;
+  }
+
+  JvmFactory<?> getFactory() {
+    return factory;
+  }
+
+  ImmutableList<String> getArguments() {
+    return arguments;
+  }
+
+  void setState(final State state) {
+    this.state = state;
+  }
+
+  void setProcess(final JvmProcess process) {
+    this.process = process;
+  }
+
+  void restarted() {
+    // only written by the supervisor thread
+    restarts = restarts + 1;
+  }
+
+  @Override
+  public String toString() {
+    return "SupervisedJvm{name=" + name + ", state=" + state + ", restarts=" + restarts + '}';
+  }
+}
@@ -0,0 +1,27 @@
+package ca.cutterslade.util.jvmbuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+public class BufferSink implements OutputSink {
+  private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+  private volatile boolean closed;
+
+  @Override
+  public synchronized void write(final byte[] bytes, final int offset, final int length) {
+    buffer.write(bytes, offset, length);
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+  }
+
+  public boolean isClosed() {
+    return closed;
+  }
+
+  public synchronized String getResult() {
+    return new String(buffer.toByteArray(), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,57 @@
+package ca.cutterslade.util.jvmbuilder.common;
+
+import org.junit.Test;
+
+import ca.cutterslade.util.jvmbuilder.GcEvent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class GcLogTailerTest {
+
+  @Test
+  public void testSizedPause() {
+    final GcEvent event = GcLogTailer.parse(
+        "[0.512s][gc          ] GC(3) Pause Young (Normal) (G1 Evacuation Pause) 24M->8M(256M) 3.250ms");
+    assertEquals(512, event.getUptimeMillis());
+    assertEquals(3, event.getGcId());
+    assertEquals("Pause Young (Normal)", event.getType());
+    assertEquals("G1 Evacuation Pause", event.getCause().get());
+    assertEquals(24L << 20, event.getHeapBefore());
+    assertEquals(8L << 20, event.getHeapAfter());
+    assertEquals(256L << 20, event.getHeapCapacity());
+    assertEquals(3250, event.getDurationMicros());
+  }
+
+  @Test
+  public void testZPause() {
+    final GcEvent event = GcLogTailer.parse("[1.204s][gc,phases   ] GC(0) Pause Mark Start 0.012ms");
+    assertEquals("Pause Mark Start", event.getType());
+    assertFalse(event.hasHeapSizes());
+    assertEquals(12, event.getDurationMicros());
+  }
+
+  @Test
+  public void testGenerationalZPauses() {
+    final GcEvent minor = GcLogTailer.parse("[0.233s][gc,phases   ] GC(0) Y: Pause Mark Start 0.011ms");
+    assertEquals(0, minor.getGcId());
+    assertEquals("Pause Mark Start (Young)", minor.getType());
+    assertEquals(11, minor.getDurationMicros());
+    final GcEvent major = GcLogTailer.parse("[0.498s][gc,phases   ] GC(1) y: Pause Relocate Start 0.009ms");
+    assertEquals("Pause Relocate Start (Young)", major.getType());
+    final GcEvent old = GcLogTailer.parse("[0.561s][gc,phases   ] GC(1) O: Pause Mark End 0.020ms");
+    assertEquals(1, old.getGcId());
+    assertEquals("Pause Mark End (Old)", old.getType());
+    assertFalse(old.hasHeapSizes());
+    assertFalse(old.getCause().isPresent());
+    assertTrue(old.getDurationMicros() > 0);
+  }
+
+  @Test
+  public void testNotAPause() {
+    assertNull(GcLogTailer.parse("[0.561s][gc,phases   ] GC(1) O: Concurrent Mark 12.345ms"));
+    assertNull(GcLogTailer.parse("[0.020s][gc,init     ] Heap Max Capacity: 256M"));
+  }
+}
@@ -0,0 +1,60 @@
+package ca.cutterslade.util.jvmbuilder.common;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.ImmutableList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class HostResourcesTest {
+  @Rule
+  public final TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testLowestLimitUpTheV2Tree() throws IOException {
+    final Path root = folder.getRoot().toPath();
+    write(root.resolve("system.slice"), "memory.max", "1073741824");
+    write(root.resolve("system.slice/app.service"), "memory.max", "max");
+    assertEquals(Long.valueOf(1L << 30),
+        HostResources.getMemoryLimit(ImmutableList.of("0::/system.slice/app.service"), root).get());
+  }
+
+  @Test
+  public void testV1CgroupOutsideTheMount() throws IOException {
+    final Path root = folder.getRoot().toPath();
+    write(root.resolve("memory"), "memory.limit_in_bytes", "536870912");
+    // a container without a cgroup namespace sees the host's path for a cgroup mounted at the root
+    assertEquals(Long.valueOf(1L << 29), HostResources.getMemoryLimit(
+        ImmutableList.of("5:cpu,cpuacct:/docker/abc", "4:memory:/docker/abc", "0::/"), root).get());
+  }
+
+  @Test
+  public void testLowestOfV1AndV2() throws IOException {
+    final Path root = folder.getRoot().toPath();
+    write(root.resolve("memory/batch"), "memory.limit_in_bytes", "536870912");
+    write(root.resolve("batch"), "memory.max", "268435456");
+    assertEquals(Long.valueOf(1L << 28),
+        HostResources.getMemoryLimit(ImmutableList.of("4:memory:/batch", "0::/batch"), root).get());
+  }
+
+  @Test
+  public void testNoLimit() throws IOException {
+    final Path root = folder.getRoot().toPath();
+    write(root.resolve("memory"), "memory.limit_in_bytes", "9223372036854771712");
+    write(root.resolve("user.slice"), "memory.max", "max");
+    assertFalse(HostResources.getMemoryLimit(ImmutableList.of("4:memory:/", "0::/user.slice"), root).isPresent());
+  }
+
+  private static void write(final Path directory, final String file, final String value) throws IOException {
+    Files.createDirectories(directory);
+    Files.write(directory.resolve(file), (value + '\n').getBytes(StandardCharsets.US_ASCII));
+  }
+}
@@ -0,0 +1,29 @@
+package ca.cutterslade.util.jvmbuilder.common;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.ImmutableList;
+
+import static org.junit.Assert.assertEquals;
+
+public class PathingJarTest {
+  @Rule
+  public final TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testEmptyEntryIsWorkingDirectory() throws IOException {
+    final Path jar = PathingJar.create(folder.getRoot().toPath(), ImmutableList.of(""));
+    try (final JarFile file = new JarFile(jar.toFile())) {
+      assertEquals(Paths.get("").toAbsolutePath().toUri().toASCIIString(),
+          file.getManifest().getMainAttributes().getValue(Attributes.Name.CLASS_PATH));
+    }
+  }
+}
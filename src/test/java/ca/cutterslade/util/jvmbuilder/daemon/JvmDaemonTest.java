@@ -0,0 +1,205 @@
+package ca.cutterslade.util.jvmbuilder.daemon;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.Test;
+
+import ca.cutterslade.util.jvmbuilder.BufferSink;
+import ca.cutterslade.util.jvmbuilder.JvmProcess;
+import ca.cutterslade.util.jvmbuilder.ReaderThread;
+import ca.cutterslade.util.jvmbuilder.common.OutputSinks;
+import ca.cutterslade.util.jvmbuilder.sun.SunJvmFactoryBuilder;
+
+import com.google.common.base.Joiner;
+import com.google.common.io.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JvmDaemonTest {
+
+  public static final class PrintArgumentMain {
+    public static void main(String[] args) {
+      System.out.println(Joiner.on(' ').join(args));
+    }
+  }
+
+  public static final class CounterMain {
+    private static int count;
+
+    public static void main(String[] args) {
+      System.out.println(++count + " " + ManagementFactory.getRuntimeMXBean().getName());
+    }
+  }
+
+  public static final class EchoMain {
+    public static void main(String[] args) throws IOException {
+      final BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+      System.out.println(reader.readLine().toUpperCase());
+    }
+  }
+
+  public static final class ThreadMain {
+    public static void main(String[] args) {
+      new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            Thread.sleep(200);
+          }
+          catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+          }
+          System.out.println("from thread");
+        }
+      }).start();
+    }
+  }
+
+  public static final class LoudMain {
+    public static void main(String[] args) {
+      final char[] line = new char[1024];
+      Arrays.fill(line, 'x');
+      for (int i = 0; i < 1024; i++) {
+        System.out.println(line);
+        System.out.flush();
+      }
+    }
+  }
+
+  public static final class SleepMain {
+    public static void main(String[] args) throws InterruptedException {
+      Thread.sleep(60_000);
+    }
+  }
+
+  public static final class AssertFalseMain {
+    public static void main(String[] args) {
+      throw new AssertionError("failed");
+    }
+  }
+
+  @Test(timeout = 20_000)
+  public void testDefaultMain() throws IOException, InterruptedException {
+    try (JvmDaemon<SunJvmFactoryBuilder> daemon = getDaemon()) {
+      assertEquals("hello first", getStdOut(daemon.start("first"), 0));
+      assertEquals("hello second", getStdOut(daemon.start("second"), 0));
+    }
+  }
+
+  @Test(timeout = 20_000)
+  public void testInvocationsShareJvmButNotClasses() throws IOException, InterruptedException {
+    try (JvmDaemon<SunJvmFactoryBuilder> daemon = getDaemon()) {
+      final String first = getStdOut(daemon.startMain(CounterMain.class), 0);
+      final String second = getStdOut(daemon.startMain(CounterMain.class), 0);
+      assertTrue(first, first.startsWith("1 "));
+      assertEquals(first, second);
+    }
+  }
+
+  @Test(timeout = 20_000)
+  public void testStandardInput() throws IOException, InterruptedException {
+    try (JvmDaemon<SunJvmFactoryBuilder> daemon = getDaemon()) {
+      final Process process = daemon.startMain(EchoMain.class);
+      final OutputStream stdIn = process.getOutputStream();
+      stdIn.write("shout\n".getBytes(StandardCharsets.UTF_8));
+      stdIn.close();
+      assertEquals("SHOUT", getStdOut(process, 0));
+    }
+  }
+
+  @Test(timeout = 20_000)
+  public void testWaitsForNonDaemonThreads() throws IOException, InterruptedException {
+    try (JvmDaemon<SunJvmFactoryBuilder> daemon = getDaemon()) {
+      assertEquals("from thread", getStdOut(daemon.startMain(ThreadMain.class), 0));
+    }
+  }
+
+  @Test(timeout = 20_000)
+  public void testUndrainedOutputDoesNotStallOthers() throws IOException, InterruptedException {
+    try (JvmDaemon<SunJvmFactoryBuilder> daemon = getDaemon()) {
+      final Process loud = daemon.startMain(LoudMain.class);
+      assertEquals("hello other", getStdOut(daemon.start("other"), 0));
+      assertEquals(1024, getStdOut(loud, 0).split("\\s+").length);
+    }
+  }
+
+  @Test(timeout = 20_000)
+  public void testUnreadInputDoesNotStallOthers() throws IOException, InterruptedException {
+    try (JvmDaemon<SunJvmFactoryBuilder> daemon = getDaemon()) {
+      final Process ignoring = daemon.startMain(SleepMain.class);
+      final byte[] line = new byte[1024];
+      Arrays.fill(line, (byte) 'x');
+      try (OutputStream stdIn = ignoring.getOutputStream()) {
+        for (int i = 0; i < 1024; i++) {
+          stdIn.write(line);
+        }
+      }
+      assertEquals("hello other", getStdOut(daemon.start("other"), 0));
+      ignoring.destroy();
+      ignoring.waitFor();
+    }
+  }
+
+  @Test(timeout = 20_000)
+  public void testException() throws IOException, InterruptedException {
+    try (JvmDaemon<SunJvmFactoryBuilder> daemon = getDaemon()) {
+      final Process process = daemon.startMain(AssertFalseMain.class);
+      final ReaderThread stdErr = new ReaderThread(process.getErrorStream());
+      stdErr.start();
+      assertEquals("", getStdOut(process, 1));
+      stdErr.join();
+      assertTrue(stdErr.getResult(),
+          stdErr.getResult().startsWith("Exception in thread \"main\" java.lang.AssertionError: failed"));
+      assertEquals("hello again", getStdOut(daemon.start("again"), 0));
+    }
+  }
+
+  @Test(timeout = 20_000)
+  public void testStartAsync() throws InterruptedException, ExecutionException {
+    try (JvmDaemon<SunJvmFactoryBuilder> daemon = getDaemon()) {
+      final BufferSink stdOut = new BufferSink();
+      final JvmProcess process = daemon.startAsync(stdOut, null, "async").get();
+      assertEquals(0, (int) process.getExitValue().get());
+      assertEquals("hello async", stdOut.getResult().trim());
+      // Invocations run inside the daemon JVM, and have no process id of their own
+      assertFalse(process.getPid().isPresent());
+    }
+  }
+
+  @Test(timeout = 20_000)
+  public void testFileSinkIsPumped() throws InterruptedException, ExecutionException, IOException {
+    final File file = File.createTempFile("stdout", ".txt");
+    try (JvmDaemon<SunJvmFactoryBuilder> daemon = getDaemon()) {
+      // The daemon cannot redirect an invocation's output, so the sink writes the file itself
+      final JvmProcess process = daemon.startAsync(OutputSinks.toFile(file.toPath()), null, "file").get();
+      assertEquals(0, (int) process.getExitValue().get());
+      assertEquals("hello file", Files.toString(file, StandardCharsets.UTF_8).trim());
+    }
+    finally {
+      file.delete();
+    }
+  }
+
+  private static JvmDaemon<SunJvmFactoryBuilder> getDaemon() {
+    return new JvmDaemon<>(new SunJvmFactoryBuilder().setMainClass(PrintArgumentMain.class)
+        .setProgramArguments(Arrays.asList("hello")).build());
+  }
+
+  private static String getStdOut(final Process process, final int exitValue) throws InterruptedException {
+    final ReaderThread stdOut = new ReaderThread(process.getInputStream());
+    stdOut.start();
+    assertEquals(exitValue, process.waitFor());
+    stdOut.join();
+    return stdOut.getResult().trim();
+  }
+}
@@ -0,0 +1,300 @@
+package ca.cutterslade.util.jvmbuilder.executor;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+
+import ca.cutterslade.util.jvmbuilder.child.WorkerMain;
+import ca.cutterslade.util.jvmbuilder.sun.SunJvmFactoryBuilder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JvmExecutorServiceTest {
+
+  public static final class SquareTask implements Callable<Integer>, Serializable {
+    private static final long serialVersionUID = 1L;
+    private final int value;
+
+    public SquareTask(int value) {
+      this.value = value;
+    }
+
+    @Override
+    public Integer call() {
+      return value * value;
+    }
+  }
+
+  public static final class NameTask implements Callable<String>, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public String call() {
+      return ManagementFactory.getRuntimeMXBean().getName();
+    }
+  }
+
+  public static final class ThrowingTask implements Callable<Void>, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public Void call() {
+      throw new IllegalArgumentException("thrown remotely");
+    }
+  }
+
+  public static final class SlowTask implements Callable<String>, Serializable {
+    private static final long serialVersionUID = 1L;
+    private final long millis;
+
+    public SlowTask(long millis) {
+      this.millis = millis;
+    }
+
+    @Override
+    public String call() throws InterruptedException {
+      Thread.sleep(millis);
+      return "slept " + millis;
+    }
+  }
+
+  public static final class ExitTask implements Runnable, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public void run() {
+      Runtime.getRuntime().halt(3);
+    }
+  }
+
+  public static final class SleepTask implements Runnable, Serializable {
+    private static final long serialVersionUID = 1L;
+    private final long millis;
+
+    public SleepTask(long millis) {
+      this.millis = millis;
+    }
+
+    @Override
+    public void run() {
+      try {
+        Thread.sleep(millis);
+      }
+      catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+
+  public static final class RetainTask implements Callable<String>, Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final List<byte[]> retained = new ArrayList<>();
+    private final int megabytes;
+
+    public RetainTask(int megabytes) {
+      this.megabytes = megabytes;
+    }
+
+    @Override
+    public String call() {
+      for (int i = 0; i < megabytes; i++) {
+        retained.add(new byte[1 << 20]);
+      }
+      System.gc();
+      return ManagementFactory.getRuntimeMXBean().getName();
+    }
+  }
+
+  @Test(timeout = 30_000)
+  public void testResults() throws Exception {
+    final JvmExecutorService executor = newExecutor().setWorkers(2).setMaxInFlight(2).build();
+    try {
+      final List<Callable<Integer>> tasks = new ArrayList<>();
+      for (int i = 0; i < 50; i++) {
+        tasks.add(new SquareTask(i));
+      }
+      final List<Future<Integer>> results = executor.invokeAll(tasks);
+      for (int i = 0; i < 50; i++) {
+        assertEquals(i * i, results.get(i).get().intValue());
+      }
+      assertEquals("done", executor.submit(new SleepTask(0), "done").get());
+      assertEquals(51, executor.getStats().getCompleted());
+    }
+    finally {
+      shutdown(executor);
+    }
+  }
+
+  @Test(timeout = 30_000)
+  public void testInvokeAny() throws Exception {
+    final JvmExecutorService executor = newExecutor().setWorkers(2).build();
+    try {
+      assertEquals("slept 10", executor.invokeAny(Arrays.asList(new SlowTask(5_000), new SlowTask(10))));
+      try {
+        executor.invokeAny(Arrays.asList(new ThrowingTask(), new ThrowingTask()));
+        fail("Expected an exception");
+      }
+      catch (ExecutionException e) {
+        assertTrue(e.getCause() instanceof IllegalArgumentException);
+      }
+      try {
+        executor.invokeAny(Arrays.asList(new SlowTask(5_000)), 100, TimeUnit.MILLISECONDS);
+        fail("Expected a timeout");
+      }
+      catch (TimeoutException e) {
+        // expected
+      }
+    }
+    finally {
+      shutdown(executor);
+    }
+  }
+
+  @Test(timeout = 30_000)
+  public void testRemoteException() throws Exception {
+    final JvmExecutorService executor = newExecutor().setWorkers(1).build();
+    try {
+      executor.submit(new ThrowingTask()).get();
+      fail("Expected an exception");
+    }
+    catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof IllegalArgumentException);
+      assertEquals("thrown remotely", e.getCause().getMessage());
+      assertEquals(1, executor.getStats().getFailed());
+    }
+    finally {
+      shutdown(executor);
+    }
+  }
+
+  @Test(timeout = 30_000)
+  public void testNotSerializable() throws Exception {
+    final JvmExecutorService executor = newExecutor().setWorkers(1).build();
+    try {
+      executor.submit(new Callable<String>() {
+        @Override
+        public String call() {
+          return "local";
+        }
+      });
+      fail("Expected rejection");
+    }
+    catch (RejectedExecutionException e) {
+      assertEquals(0, executor.getStats().getSubmitted());
+    }
+    finally {
+      shutdown(executor);
+    }
+  }
+
+  @Test(timeout = 30_000)
+  public void testRecycleAfterTasks() throws Exception {
+    final JvmExecutorService executor = newExecutor().setWorkers(1).setMaxTasksPerWorker(2).build();
+    try {
+      final Set<String> names = new HashSet<>();
+      for (int i = 0; i < 6; i++) {
+        names.add(executor.submit(new NameTask()).get());
+      }
+      assertEquals(3, names.size());
+      assertTrue(executor.getStats().getRecycled() >= 2);
+    }
+    finally {
+      shutdown(executor);
+    }
+  }
+
+  @Test(timeout = 30_000)
+  public void testRecycleOnHeapGrowth() throws Exception {
+    final JvmExecutorService executor = newExecutor().setWorkers(1).setMaxHeapGrowth(8 << 20).build();
+    try {
+      final String first = executor.submit(new RetainTask(0)).get();
+      assertEquals(first, executor.submit(new RetainTask(32)).get());
+      assertNotEquals(first, executor.submit(new NameTask()).get());
+      assertEquals(1, executor.getStats().getRecycled());
+    }
+    finally {
+      shutdown(executor);
+    }
+  }
+
+  @Test(timeout = 30_000)
+  public void testWorkerExit() throws Exception {
+    final JvmExecutorService executor = newExecutor().setWorkers(1).build();
+    try {
+      executor.submit(new ExitTask()).get();
+      fail("Expected an exception");
+    }
+    catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof IOException);
+      assertEquals(9, executor.submit(new SquareTask(3)).get().intValue());
+      assertEquals(1, executor.getStats().getWorkerFailures());
+    }
+    finally {
+      shutdown(executor);
+    }
+  }
+
+  @Test(timeout = 30_000)
+  public void testWorkStealing() throws Exception {
+    final JvmExecutorService executor = newExecutor().setWorkers(2).build();
+    try {
+      final List<Future<?>> futures = new ArrayList<>();
+      futures.add(executor.submit(new SleepTask(2_000)));
+      for (int i = 0; i < 10; i++) {
+        futures.add(executor.submit(new SleepTask(10)));
+      }
+      for (final Future<?> future : futures.subList(1, futures.size())) {
+        future.get();
+      }
+      assertTrue(executor.getStats().getSteals() > 0);
+      futures.get(0).get();
+    }
+    finally {
+      shutdown(executor);
+    }
+  }
+
+  @Test(timeout = 30_000)
+  public void testShutdown() throws Exception {
+    final JvmExecutorService executor = newExecutor().setWorkers(2).build();
+    final Future<?> pending = executor.submit(new SleepTask(200));
+    executor.shutdown();
+    assertTrue(executor.isShutdown());
+    try {
+      executor.submit(new NameTask());
+      fail("Expected rejection");
+    }
+    catch (RejectedExecutionException e) {
+      // expected
+    }
+    assertTrue(executor.awaitTermination(20, TimeUnit.SECONDS));
+    assertTrue(pending.isDone());
+    pending.get();
+    assertEquals(0, executor.getStats().getWorkers());
+  }
+
+  private static JvmExecutorServiceBuilder newExecutor() {
+    return new JvmExecutorServiceBuilder(new SunJvmFactoryBuilder().setMainClass(WorkerMain.class).build());
+  }
+
+  private static void shutdown(final JvmExecutorService executor) throws InterruptedException {
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(20, TimeUnit.SECONDS));
+  }
+}
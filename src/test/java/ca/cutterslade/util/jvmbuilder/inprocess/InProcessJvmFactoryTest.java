@@ -0,0 +1,169 @@
+package ca.cutterslade.util.jvmbuilder.inprocess;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import ca.cutterslade.util.jvmbuilder.BufferSink;
+import ca.cutterslade.util.jvmbuilder.JvmProcess;
+import ca.cutterslade.util.jvmbuilder.ReaderThread;
+import ca.cutterslade.util.jvmbuilder.child.DaemonProtocol;
+import ca.cutterslade.util.jvmbuilder.sun.SunJvmFactory;
+import ca.cutterslade.util.jvmbuilder.sun.SunJvmFactoryBuilder;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class InProcessJvmFactoryTest {
+  private static final String PROPERTY = "jvmbuilder.inprocess.test";
+
+  public static final class PrintMain {
+    public static void main(String[] args) {
+      System.out.println(System.getProperty(PROPERTY) + ' ' + Joiner.on(' ').join(args));
+    }
+  }
+
+  public static final class CounterMain {
+    private static int count;
+
+    public static void main(String[] args) {
+      System.out.println(++count);
+    }
+  }
+
+  public static final class AssertMain {
+    public static void main(String[] args) {
+      assert false : "asserted";
+    }
+  }
+
+  public static final class EchoMain {
+    public static void main(String[] args) throws IOException {
+      final BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+      String line;
+      while (null != (line = reader.readLine())) {
+        System.out.println(line.toUpperCase());
+      }
+    }
+  }
+
+  public static final class ChattyMain {
+    public static void main(String[] args) throws InterruptedException {
+      for (int i = 0; i < 1000; i++) {
+        System.out.println("line " + i);
+      }
+      Thread.sleep(60_000);
+    }
+  }
+
+  public static final class ThreadMain {
+    public static void main(String[] args) {
+      new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            Thread.sleep(200);
+          }
+          catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+          }
+          System.out.println("from thread " + System.getProperty(PROPERTY));
+        }
+      }).start();
+    }
+  }
+
+  @Test(timeout = 10_000)
+  public void testPropertiesAndArguments() throws Exception {
+    final InProcessJvmFactory factory = new InProcessJvmFactoryBuilder().setMainClass(PrintMain.class)
+        .cleanProperties().set(PROPERTY, "in process").build().setProgramArguments(ImmutableList.of("first")).build();
+    assertEquals("in process first second", run(factory, "second"));
+    assertNull(System.getProperty(PROPERTY));
+    assertEquals("variant first", run(factory.with().setProperty(PROPERTY, "variant").build()));
+  }
+
+  @Test(timeout = 10_000)
+  public void testClassLoaderPerProgram() throws Exception {
+    final InProcessJvmFactory factory = new InProcessJvmFactoryBuilder().setMainClass(CounterMain.class).build();
+    assertEquals("1", run(factory));
+    assertEquals("1", run(factory));
+  }
+
+  @Test(timeout = 10_000)
+  public void testAssertions() throws Exception {
+    final Process disabled =
+        new InProcessJvmFactoryBuilder().setMainClass(AssertMain.class).disableAssertions().build().start();
+    assertEquals(0, disabled.waitFor());
+    final Process enabled = new InProcessJvmFactoryBuilder().setMainClass(AssertMain.class).enableAssertions()
+        .includePackage(AssertMain.class.getPackage()).build().build().start();
+    final ReaderThread stdErr = new ReaderThread(enabled.getErrorStream());
+    stdErr.start();
+    assertEquals(1, enabled.waitFor());
+    stdErr.join();
+    assertTrue(stdErr.getResult().contains("AssertionError: asserted"));
+  }
+
+  @Test(timeout = 10_000)
+  public void testStandardInput() throws Exception {
+    final Process process = new InProcessJvmFactoryBuilder().setMainClass(EchoMain.class).build().start();
+    final ReaderThread stdOut = new ReaderThread(process.getInputStream());
+    stdOut.start();
+    try (OutputStream stdIn = process.getOutputStream()) {
+      stdIn.write("hello\nworld\n".getBytes(StandardCharsets.UTF_8));
+    }
+    assertEquals(0, process.waitFor());
+    stdOut.join();
+    assertEquals("HELLO\nWORLD\n", stdOut.getResult().replace(System.lineSeparator(), "\n"));
+  }
+
+  @Test(timeout = 10_000)
+  public void testProgramThreads() throws Exception {
+    final BufferSink stdOut = new BufferSink();
+    final JvmProcess process = new InProcessJvmFactoryBuilder().setMainClass(ThreadMain.class)
+        .cleanProperties().set(PROPERTY, "inherited").build().build().startAsync(stdOut, new BufferSink()).get();
+    assertEquals(0, (int) process.getExitValue().get());
+    assertEquals("from thread inherited", stdOut.getResult().trim());
+  }
+
+  @Test(timeout = 10_000)
+  public void testUnreadOutputDoesNotBlock() throws Exception {
+    final Process process = new InProcessJvmFactoryBuilder().setMainClass(ChattyMain.class).build().start();
+    Thread.sleep(500);
+    // the program's output goes nowhere, but this JVM's own output and destroying the program must not wait for it
+    System.out.println("parent output");
+    process.destroy();
+    assertEquals(DaemonProtocol.DESTROYED_EXIT_CODE, process.waitFor());
+  }
+
+  @Test(timeout = 20_000)
+  public void testSameConfigurationForks() throws Exception {
+    final InProcessJvmFactory inProcess = new InProcessJvmFactoryBuilder().setMainClass(PrintMain.class)
+        .cleanProperties().set(PROPERTY, "either").build().build();
+    final SunJvmFactory forked = new SunJvmFactoryBuilder().from(inProcess).build();
+    assertEquals(run(inProcess, "way"), run(forked, "way"));
+  }
+
+  private static String run(final InProcessJvmFactory factory, final String... args) throws Exception {
+    return getStdOut(factory.start(args));
+  }
+
+  private static String run(final SunJvmFactory factory, final String... args) throws Exception {
+    return getStdOut(factory.start(args));
+  }
+
+  private static String getStdOut(final Process process) throws InterruptedException {
+    final ReaderThread stdOut = new ReaderThread(process.getInputStream());
+    stdOut.start();
+    assertEquals(0, process.waitFor());
+    stdOut.join();
+    return stdOut.getResult().trim();
+  }
+}
@@ -0,0 +1,140 @@
+package ca.cutterslade.util.jvmbuilder.ipc;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import ca.cutterslade.util.jvmbuilder.JvmProcess;
+import ca.cutterslade.util.jvmbuilder.sun.SunJvmFactoryBuilder;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class IpcChannelTest {
+  private static final int FRAMES = 10_000;
+
+  public static final class EchoMain {
+    public static void main(String[] args) throws IOException {
+      try (IpcChannel channel = IpcChild.connect()) {
+        byte[] frame;
+        while (null != (frame = channel.receive())) {
+          channel.send(frame);
+        }
+        channel.finish();
+      }
+    }
+  }
+
+  public static final class SilentMain {
+    public static void main(String[] args) {
+    }
+  }
+
+  @Test(timeout = 20_000)
+  public void testEchoChild() throws Exception {
+    final JvmProcess process = new SunJvmFactoryBuilder().setMainClass(EchoMain.class).enableIpc().build()
+        .startAsync().get();
+    final IpcChannel channel = process.getIpcChannel().get();
+    try {
+      assertEchoed(channel);
+      assertEquals(0, process.getExitValue().get(10, TimeUnit.SECONDS).intValue());
+    }
+    finally {
+      channel.close();
+    }
+  }
+
+  @Test(timeout = 20_000)
+  public void testLoopbackFallback() throws Exception {
+    final Path directory = Files.createTempDir().toPath();
+    final IpcServer server = IpcServer.open(directory, false);
+    assertTrue(server.getAddress().startsWith(IpcTransport.TCP_PREFIX));
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try (IpcChannel parent = server.getChannel()) {
+      final Future<?> child = executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws IOException {
+          try (IpcChannel channel = new IpcChannel(IpcTransport.connect(server.getAddress()))) {
+            byte[] frame;
+            while (null != (frame = channel.receive())) {
+              channel.send(frame);
+            }
+            channel.finish();
+          }
+          return null;
+        }
+      });
+      assertEchoed(parent);
+      child.get();
+    }
+    finally {
+      executor.shutdownNow();
+      directory.toFile().delete();
+    }
+  }
+
+  @Test(timeout = 20_000)
+  public void testChildWhichNeverConnects() throws Exception {
+    final JvmProcess process = new SunJvmFactoryBuilder().setMainClass(SilentMain.class).enableIpc().build()
+        .startAsync().get();
+    process.getExitValue().get(10, TimeUnit.SECONDS);
+    try {
+      process.getIpcChannel().get().receive();
+      fail("The child never connected");
+    }
+    catch (IOException e) {
+      // expected
+    }
+  }
+
+  // Sends many small frames and one larger than the buffers, receiving the echoes on another thread
+  private static void assertEchoed(final IpcChannel channel) throws Exception {
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      final Future<List<byte[]>> received = executor.submit(new Callable<List<byte[]>>() {
+        @Override
+        public List<byte[]> call() throws IOException {
+          final List<byte[]> frames = Lists.newArrayList();
+          byte[] frame;
+          while (null != (frame = channel.receive())) {
+            frames.add(frame);
+          }
+          return frames;
+        }
+      });
+      for (int i = 0; i < FRAMES; i++) {
+        channel.send(String.valueOf(i).getBytes("UTF-8"));
+      }
+      final byte[] large = new byte[1 << 20];
+      Arrays.fill(large, (byte) 7);
+      channel.send(large);
+      channel.send(new byte[0]);
+      channel.finish();
+      final List<byte[]> frames = received.get();
+      assertEquals(FRAMES + 2, frames.size());
+      for (int i = 0; i < FRAMES; i++) {
+        assertArrayEquals(String.valueOf(i).getBytes("UTF-8"), frames.get(i));
+      }
+      assertArrayEquals(large, frames.get(FRAMES));
+      assertEquals(0, frames.get(FRAMES + 1).length);
+      assertNull(channel.receive());
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+}
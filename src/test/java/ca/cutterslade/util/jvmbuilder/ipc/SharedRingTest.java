@@ -0,0 +1,130 @@
+package ca.cutterslade.util.jvmbuilder.ipc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import ca.cutterslade.util.jvmbuilder.JvmProcess;
+import ca.cutterslade.util.jvmbuilder.sun.SunJvmFactoryBuilder;
+
+import com.google.common.io.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SharedRingTest {
+  private static final int RECORDS = 100_000;
+
+  public static final class ProducerMain {
+    public static void main(String[] args) throws IOException, InterruptedException {
+      try (SharedRing ring = IpcChild.openSharedRing()) {
+        for (int i = 0; i < RECORDS; i++) {
+          ring.put(record(i));
+        }
+        ring.finish();
+      }
+    }
+  }
+
+  private Path directory;
+
+  @Before
+  public void createDirectory() {
+    directory = Files.createTempDir().toPath();
+  }
+
+  @After
+  public void deleteDirectory() {
+    directory.toFile().delete();
+  }
+
+  @Test(timeout = 20_000)
+  public void testRecordsWrapAroundRing() throws Exception {
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try (SharedRing producer = SharedRing.create(directory.resolve("ring"), 4096);
+         SharedRing consumer = SharedRing.open(producer.getFile())) {
+      final Future<?> produced = executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws InterruptedException {
+          for (int i = 0; i < RECORDS; i++) {
+            producer.put(record(i));
+          }
+          producer.finish();
+          return null;
+        }
+      });
+      final int[] next = new int[1];
+      final SharedRing.RecordHandler handler = new SharedRing.RecordHandler() {
+        @Override
+        public void record(final ByteBuffer record) {
+          final byte[] bytes = new byte[record.remaining()];
+          record.get(bytes);
+          assertRecord(next[0]++, bytes);
+        }
+      };
+      while (next[0] < RECORDS) {
+        // alternate between copying records out and handling them in place
+        if (0 == next[0] % 2) {
+          final byte[] record = consumer.take();
+          assertRecord(next[0]++, record);
+        }
+        else if (0 == consumer.read(handler, 16)) {
+          Thread.yield();
+        }
+      }
+      assertNull(consumer.take());
+      assertTrue(consumer.isFinished());
+      produced.get();
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test(timeout = 20_000)
+  public void testChildProducer() throws Exception {
+    final JvmProcess process = new SunJvmFactoryBuilder().setMainClass(ProducerMain.class)
+        .setSharedRingCapacity(1 << 16).build().startAsync().get();
+    final SharedRing ring = process.getSharedRing().get();
+    for (int i = 0; i < RECORDS; i++) {
+      assertRecord(i, ring.take());
+    }
+    assertNull(ring.take());
+    assertEquals(0, process.getExitValue().get(10, TimeUnit.SECONDS).intValue());
+    assertFalse(ring.getFile().toFile().exists());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRecordTooLarge() throws IOException {
+    try (SharedRing ring = SharedRing.create(directory.resolve("ring"), 4096)) {
+      ring.offer(new byte[ring.getMaxRecordLength() + 1]);
+    }
+  }
+
+  private static byte[] record(final int index) {
+    final byte[] record = new byte[index % 1500];
+    for (int i = 0; i < record.length; i++) {
+      record[i] = (byte) (index + i);
+    }
+    return record;
+  }
+
+  private static void assertRecord(final int index, final byte[] actual) {
+    final byte[] expected = record(index);
+    assertEquals(expected.length, actual.length);
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals(expected[i], actual[i]);
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package ca.cutterslade.util.jvmbuilder.jdk;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import ca.cutterslade.util.jvmbuilder.JvmArchitecture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JdkRegistryTest {
+  private Path directory;
+
+  @Before
+  public void createDirectory() throws IOException {
+    directory = Files.createTempDirectory("jdk-registry");
+  }
+
+  @After
+  public void deleteDirectory() throws IOException {
+    Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+        Files.delete(file);
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult postVisitDirectory(final Path dir, final IOException exc) throws IOException {
+        Files.delete(dir);
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+  private static Path createHome(final Path home, final String version, final String arch) throws IOException {
+    Files.createDirectories(home.resolve("bin"));
+    Files.createFile(home.resolve("bin").resolve("java"));
+    writeRelease(home, version, arch);
+    return home;
+  }
+
+  private static void writeRelease(final Path home, final String version, final String arch) throws IOException {
+    Files.write(home.resolve("release"), Arrays.asList("JAVA_VERSION=\"" + version + '"', "IMPLEMENTOR=\"Test\"",
+        "OS_ARCH=\"" + arch + '"'), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testFindsAndCachesInstallations() throws IOException {
+    final Path roots = Files.createDirectory(directory.resolve("roots"));
+    final Path eleven = createHome(roots.resolve("jdk-11"), "11.0.2", "x86_64");
+    createHome(roots.resolve("jdk8.jdk").resolve("Contents").resolve("Home"), "1.8.0_392", "i386");
+    final Path cache = directory.resolve("jdks.properties");
+    final JdkRegistry registry = new JdkRegistryBuilder().addRoot(roots).setCache(cache).build();
+
+    assertEquals(2, registry.getInstallations().size());
+    assertEquals(11, registry.getInstallations().get(0).getFeatureVersion());
+    assertEquals("Test", registry.getInstallations().get(0).getImplementor());
+    assertEquals(eleven.toRealPath(), registry.find("9+", null).get().getJavaHome());
+    final JdkInstallation eight = registry.find("1.8", null).get();
+    assertEquals(JvmArchitecture.ARCH_32_BIT, eight.getArchitecture());
+    assertEquals(eight, registry.find("8", JvmArchitecture.ARCH_32_BIT).get());
+    assertEquals(eight, registry.find("17+ 1.8*", null).get());
+    assertFalse(registry.find("11+", JvmArchitecture.ARCH_32_BIT).isPresent());
+    assertTrue(Files.exists(cache));
+
+    // a probe is only repeated when what it read has been modified
+    final FileTime modified = Files.getLastModifiedTime(eleven.resolve("release"));
+    writeRelease(eleven, "11.0.3", "x86_64");
+    Files.setLastModifiedTime(eleven.resolve("release"), modified);
+    final JdkRegistry cached = new JdkRegistryBuilder().addRoot(roots).setCache(cache).build();
+    assertEquals("11.0.2", cached.find("11", null).get().getVersion());
+    Files.setLastModifiedTime(eleven.resolve("release"), FileTime.fromMillis(modified.toMillis() + 60_000));
+    cached.refresh();
+    assertEquals("11.0.3", cached.find("11", null).get().getVersion());
+  }
+
+  @Test
+  public void testVersionRequirements() {
+    assertTrue(VersionRequirement.parse("21+").isSatisfiedBy("21.0.1"));
+    assertTrue(VersionRequirement.parse("21+").isSatisfiedBy("22-ea"));
+    assertFalse(VersionRequirement.parse("21+").isSatisfiedBy("17.0.9"));
+    assertTrue(VersionRequirement.parse("1.8").isSatisfiedBy("1.8.0_392"));
+    assertTrue(VersionRequirement.parse("8").isSatisfiedBy("1.8.0_392"));
+    assertFalse(VersionRequirement.parse("1.8.0_400+").isSatisfiedBy("1.8.0_392"));
+    assertTrue(VersionRequirement.parse("11 17").isSatisfiedBy("17.0.9"));
+    assertTrue(VersionRequirement.parse("11+&17*").isSatisfiedBy("17.0.9"));
+    assertFalse(VersionRequirement.parse("11+&17*").isSatisfiedBy("21.0.1"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidVersionRequirement() {
+    VersionRequirement.parse("latest");
+  }
+}
@@ -0,0 +1,89 @@
+package ca.cutterslade.util.jvmbuilder.monitor;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import ca.cutterslade.util.jvmbuilder.JvmProcess;
+import ca.cutterslade.util.jvmbuilder.sun.SunJvmFactoryBuilder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class JvmMonitorTest {
+
+  public static final class WaitingMain {
+    public static void main(String[] args) throws IOException {
+      final byte[][] retained = new byte[16][];
+      for (int i = 0; i < retained.length; i++) {
+        retained[i] = new byte[1 << 20];
+      }
+      System.in.read();
+      System.out.println(retained.length);
+    }
+  }
+
+  @Test(timeout = 30_000)
+  public void testConnectorSampling() throws Exception {
+    assertSampled(JmxMode.CONNECTOR);
+  }
+
+  @Test(timeout = 30_000)
+  public void testAttachSampling() throws Exception {
+    try {
+      Class.forName("com.sun.tools.attach.VirtualMachine");
+    }
+    catch (ClassNotFoundException e) {
+      assumeTrue(false);
+    }
+    assertSampled(JmxMode.ATTACH);
+  }
+
+  private static void assertSampled(final JmxMode mode) throws Exception {
+    try (JvmMonitor monitor = new JvmMonitor(mode, 100, TimeUnit.MILLISECONDS)) {
+      final JvmProcess process = new SunJvmFactoryBuilder().setMainClass(WaitingMain.class).setMonitor(monitor).build()
+          .startAsync().get();
+      try {
+        final MonitoredJvm jvm = awaitSamples(monitor, process.getPid().get());
+        final JvmSample sample = jvm.getLatestSample().get();
+        assertTrue(jvm.isConnected());
+        assertTrue(sample.getHeapUsed() > 0);
+        assertTrue(sample.getHeapCommitted() >= sample.getHeapUsed());
+        assertTrue(sample.getThreadCount() > 0);
+        assertTrue(jvm.getGcFraction().isPresent());
+        final FleetSummary summary = monitor.getFleetSummary();
+        assertEquals(1, summary.getJvmCount());
+        assertEquals(1, summary.getSampledCount());
+        assertTrue(summary.getTotalHeapUsed() > 0);
+        assertEquals(jvm, monitor.getTopByHeapUsed(1).get(0));
+      }
+      finally {
+        process.getProcess().getOutputStream().close();
+      }
+      assertEquals(0, process.getExitValue().get().intValue());
+      awaitRemoved(monitor, process.getPid().get());
+    }
+  }
+
+  private static MonitoredJvm awaitSamples(final JvmMonitor monitor, final long pid) throws InterruptedException {
+    while (true) {
+      final MonitoredJvm jvm = monitor.getJvm(pid).orNull();
+      if (null != jvm && jvm.getGcFraction().isPresent()) {
+        return jvm;
+      }
+      Thread.sleep(50);
+    }
+  }
+
+  private static void awaitRemoved(final JvmMonitor monitor, final long pid)
+      throws InterruptedException, ExecutionException {
+    while (monitor.getJvm(pid).isPresent()) {
+      Thread.sleep(50);
+    }
+    assertFalse(monitor.getJvm(pid).isPresent());
+  }
+}
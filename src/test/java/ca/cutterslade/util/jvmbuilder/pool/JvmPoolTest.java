@@ -0,0 +1,96 @@
+package ca.cutterslade.util.jvmbuilder.pool;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import ca.cutterslade.util.jvmbuilder.ReaderThread;
+import ca.cutterslade.util.jvmbuilder.sun.SunJvmFactory;
+import ca.cutterslade.util.jvmbuilder.sun.SunJvmFactoryBuilder;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Strings;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JvmPoolTest {
+
+  public static final class PrintArgumentMain {
+    public static void main(String[] args) {
+      System.out.println(Joiner.on(' ').join(args));
+    }
+  }
+
+  @Test(timeout = 20_000)
+  public void testPooledStart() throws IOException, InterruptedException {
+    try (JvmPool<SunJvmFactoryBuilder> pool = new JvmPoolBuilder<>(getFactory()).setMinIdle(1).setMaxIdle(2)
+        .setMaintenanceInterval(50, TimeUnit.MILLISECONDS).build()) {
+      awaitIdle(pool);
+      assertEquals("hello pooled world", getStdOut(pool.start("pooled", "world")));
+      assertEquals(1, pool.getStats().getHits());
+      assertEquals(0, pool.getStats().getMisses());
+      assertEquals(1, pool.getStats().getRefills());
+    }
+  }
+
+  @Test(timeout = 20_000)
+  public void testMissStartsDirectly() throws IOException, InterruptedException {
+    try (JvmPool<SunJvmFactoryBuilder> pool = new JvmPoolBuilder<>(getFactory()).setMinIdle(0).setMaxIdle(1)
+        .setMaintenanceInterval(50, TimeUnit.MILLISECONDS).build()) {
+      assertEquals("hello direct", getStdOut(pool.start("direct")));
+      assertEquals(0, pool.getStats().getHits());
+      assertEquals(1, pool.getStats().getMisses());
+      awaitIdle(pool);
+      assertEquals("hello pooled", getStdOut(pool.start("pooled")));
+      assertEquals(0.5, pool.getStats().getHitRate(), 0);
+    }
+  }
+
+  @Test(timeout = 20_000)
+  public void testLongArgument() throws IOException, InterruptedException {
+    final String argument = Strings.repeat("long", 20_000);
+    try (JvmPool<SunJvmFactoryBuilder> pool = new JvmPoolBuilder<>(getFactory()).setMinIdle(1).setMaxIdle(1)
+        .setMaintenanceInterval(50, TimeUnit.MILLISECONDS).build()) {
+      awaitIdle(pool);
+      assertEquals("hello " + argument, getStdOut(pool.start(argument)));
+      assertEquals(1, pool.getStats().getHits());
+    }
+  }
+
+  @Test(timeout = 20_000)
+  public void testExpiredJvmsAreEvicted() throws IOException, InterruptedException {
+    try (JvmPool<SunJvmFactoryBuilder> pool = new JvmPoolBuilder<>(getFactory()).setMinIdle(1).setMaxIdle(1)
+        .setMaxAge(1, TimeUnit.MILLISECONDS).setMaintenanceInterval(50, TimeUnit.MILLISECONDS).build()) {
+      while (0 == pool.getStats().getEvictions()) {
+        Thread.sleep(10);
+      }
+      assertTrue(pool.getStats().getRefills() >= 1);
+    }
+  }
+
+  private static SunJvmFactory getFactory() {
+    return new SunJvmFactoryBuilder().setMainClass(PrintArgumentMain.class)
+        .setProgramArguments(Arrays.asList("hello")).build();
+  }
+
+  private static void awaitIdle(final JvmPool<?> pool) throws InterruptedException {
+    while (0 == pool.getStats().getIdle()) {
+      Thread.sleep(10);
+    }
+  }
+
+  private static String getStdOut(final Process process) throws InterruptedException {
+    final ReaderThread stdOut = new ReaderThread(process.getInputStream());
+    stdOut.start();
+    final ReaderThread stdErr = new ReaderThread(process.getErrorStream());
+    stdErr.start();
+    assertEquals(0, process.waitFor());
+    stdOut.join();
+    stdErr.join();
+    assertEquals("", stdErr.getResult());
+    return stdOut.getResult().trim();
+  }
+}
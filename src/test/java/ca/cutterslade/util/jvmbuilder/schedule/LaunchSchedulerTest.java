@@ -0,0 +1,100 @@
+package ca.cutterslade.util.jvmbuilder.schedule;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import ca.cutterslade.util.jvmbuilder.JvmProcess;
+import ca.cutterslade.util.jvmbuilder.SizeUnit;
+import ca.cutterslade.util.jvmbuilder.sun.SunJvmFactoryBuilder;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LaunchSchedulerTest {
+
+  public static final class WaitingMain {
+    public static void main(String[] args) throws IOException {
+      System.in.read();
+    }
+  }
+
+  @Test
+  public void testEstimate() {
+    final LaunchScheduler scheduler = new LaunchSchedulerBuilder().setMemoryBudget(1L << 30).setExpectedThreads(10)
+        .setMetaspaceEstimate(32L << 20).setNativeOverhead(16L << 20).build();
+    final LaunchEstimate estimate = scheduler.estimate(new SunJvmFactoryBuilder().setMainClass(WaitingMain.class)
+        .setJvmArguments(ImmutableList.of("-Xss512k", "-XX:MaxMetaspaceSize=48m"))
+        .setMaxHeapSpace(128, SizeUnit.MEGABYTES).build());
+    assertEquals(128L << 20, estimate.getHeap());
+    assertEquals(5L << 20, estimate.getThreadStacks());
+    assertEquals(48L << 20, estimate.getMetaspace());
+    assertEquals((128L + 5 + 48 + 16) << 20, estimate.getTotal());
+  }
+
+  @Test
+  public void testParseSize() {
+    assertEquals(1024, LaunchEstimate.parseSize("1k", -1));
+    assertEquals(3L << 30, LaunchEstimate.parseSize("3G", -1));
+    assertEquals(12345, LaunchEstimate.parseSize("12345", -1));
+    assertEquals(-1, LaunchEstimate.parseSize("lots", -1));
+  }
+
+  @Test(timeout = 30_000)
+  public void testBudgetLimitsConcurrency() throws Exception {
+    // each launch is charged 128m of heap, 32m of stacks and 64m of metaspace, so two fit
+    try (LaunchScheduler scheduler = new LaunchSchedulerBuilder().setMemoryBudget(500L << 20).setCoreBudget(4)
+        .setNativeOverhead(0).build()) {
+      final ScheduledJvmFactory<SunJvmFactoryBuilder> factory = scheduler.schedule(
+          new SunJvmFactoryBuilder().setMainClass(WaitingMain.class).setMaxHeapSpace(128, SizeUnit.MEGABYTES).build());
+      final ListenableFuture<JvmProcess> first = factory.startAsync();
+      final ListenableFuture<JvmProcess> second = factory.startAsync();
+      final ListenableFuture<JvmProcess> low = factory.startAsync();
+      final ListenableFuture<JvmProcess> high = factory.withPriority(10).startAsync();
+      first.get().getPid();
+      second.get().getPid();
+      assertEquals(2, scheduler.getStats().getRunning());
+      assertEquals(2, scheduler.getStats().getQueued());
+      assertFalse(low.isDone());
+      assertFalse(high.isDone());
+
+      finish(first.get());
+      assertTrue(high.get().getProcess().isAlive());
+      assertFalse(low.isDone());
+      finish(second.get());
+      finish(low.get());
+      finish(high.get());
+      while (0 != scheduler.getStats().getRunning()) {
+        Thread.sleep(10);
+      }
+      assertEquals(0, scheduler.getStats().getReservedMemory());
+      assertEquals(4, scheduler.getStats().getAdmitted());
+      assertTrue(scheduler.getStats().getMaxQueueTime(TimeUnit.NANOSECONDS) > 0);
+    }
+  }
+
+  @Test(timeout = 30_000)
+  public void testSynchronousStartReleasesOnExit() throws Exception {
+    try (LaunchScheduler scheduler = new LaunchSchedulerBuilder().setMemoryBudget(1L << 30).setCoreBudget(1)
+        .setMaxForkRate(100).build()) {
+      final ScheduledJvmFactory<SunJvmFactoryBuilder> factory = scheduler.schedule(
+          new SunJvmFactoryBuilder().setMainClass(WaitingMain.class).setMaxHeapSpace(64, SizeUnit.MEGABYTES).build());
+      for (int i = 0; i < 2; i++) {
+        final Process process = factory.start();
+        assertEquals(1, scheduler.getStats().getReservedCores());
+        process.getOutputStream().close();
+        assertEquals(0, process.waitFor());
+      }
+    }
+  }
+
+  private static void finish(final JvmProcess process) throws Exception {
+    process.getProcess().getOutputStream().close();
+    assertEquals(0, process.getExitValue().get().intValue());
+  }
+}
@@ -0,0 +1,105 @@
+package ca.cutterslade.util.jvmbuilder.sizing;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import ca.cutterslade.util.jvmbuilder.BufferSink;
+import ca.cutterslade.util.jvmbuilder.JvmProcess;
+import ca.cutterslade.util.jvmbuilder.MemoryFootprint;
+import ca.cutterslade.util.jvmbuilder.SizeUnit;
+import ca.cutterslade.util.jvmbuilder.sun.SunJvmFactory;
+import ca.cutterslade.util.jvmbuilder.sun.SunJvmFactoryBuilder;
+
+import com.google.common.collect.ImmutableList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HeapAdvisorTest {
+
+  public static final class RetainingMain {
+    public static void main(String[] args) {
+      final byte[][] retained = new byte[24][];
+      for (int i = 0; i < retained.length; i++) {
+        retained[i] = new byte[1 << 20];
+      }
+      System.gc();
+      System.out.print(ManagementFactory.getRuntimeMXBean().getInputArguments());
+      System.out.flush();
+      retained[0][0] = 1;
+    }
+  }
+
+  private Path directory;
+
+  @Before
+  public void createDirectory() throws Exception {
+    directory = Files.createTempDirectory("heap-advisor");
+  }
+
+  @After
+  public void deleteDirectory() throws Exception {
+    for (final Path file : Files.newDirectoryStream(directory)) {
+      Files.delete(file);
+    }
+    Files.delete(directory);
+  }
+
+  @Test(timeout = 30_000)
+  public void testRecordsAndAppliesAdvice() throws Exception {
+    final Path store = directory.resolve("advice.properties");
+    final HeapAdvisor advisor = new HeapAdvisorBuilder().setStore(store).setMode(AdvisorMode.APPLY)
+        .setMinObservations(1).setHeadroom(0.5).build();
+    final SunJvmFactory factory = new SunJvmFactoryBuilder().setMainClass(RetainingMain.class)
+        .setMaxHeapSpace(256, SizeUnit.MEGABYTES).setHeapAdvisor(advisor).build();
+
+    final JvmProcess first = factory.startAsync().get();
+    assertEquals(0, first.getExitValue().get().intValue());
+    // the footprint is recorded by a listener on the exit value, which may still be running
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (!Files.exists(store) && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertTrue(Files.exists(store));
+    final MemoryFootprint footprint = first.getMemoryFootprint().get();
+    assertTrue(footprint.getPeakHeapUsed() >= 24 << 20);
+    assertTrue(footprint.getLiveHeapAfterGc().get() >= 24 << 20);
+    assertEquals(1, advisor.getAdvice().size());
+    final HeapAdvice advice = advisor.getAdvice().values().iterator().next();
+    assertTrue(advice.getMaxHeap().getBytes() >= 36L << 20);
+    assertTrue(advice.getMaxHeap().getBytes() < 256L << 20);
+
+    final BufferSink stdOut = new BufferSink();
+    final JvmProcess second = factory.startAsync(stdOut, null).get();
+    assertEquals(0, second.getExitValue().get().intValue());
+    assertTrue(stdOut.getResult(), stdOut.getResult().endsWith(advice.getMaxHeap().getArgument() + ']'));
+  }
+
+  @Test
+  public void testPersistsAndIgnoresHeapOptionsInKey() throws Exception {
+    final Path store = directory.resolve("advice.properties");
+    final HeapAdvisor advisor = new HeapAdvisorBuilder().setStore(store).setMinObservations(2).build();
+    final ImmutableList<String> program = ImmutableList.of("-cp", "classes", "Main");
+    final String key = advisor.getKey(ImmutableList.of("-server", "-Xmx1g"), program, new String[]{"a"});
+    assertEquals(key, advisor.getKey(ImmutableList.of("-server", "-Xms64m"), program, new String[]{"b"}));
+    assertFalse(key.equals(advisor.getKey(ImmutableList.of("-client"), program, new String[]{"a"})));
+
+    advisor.record(key, new MemoryFootprint(100L << 20, 40L << 20, 300L << 20));
+    assertFalse(advisor.getAdvice(key).isPresent());
+    advisor.record(key, new MemoryFootprint(80L << 20, -1, -1));
+    final HeapAdvice advice = advisor.getAdvice(key).get();
+    assertEquals(ImmutableList.of("-Xms50m", "-Xmx125m"), advice.getOptions());
+    assertEquals(300L << 20, advice.getPeakRss().get().longValue());
+
+    final HeapAdvisor reloaded = new HeapAdvisorBuilder().setStore(store).setMinObservations(2).build();
+    assertEquals(advice, reloaded.getAdvice(key).get());
+    assertEquals(2, reloaded.getAdvice(key).get().getObservations());
+  }
+}
@@ -0,0 +1,125 @@
+package ca.cutterslade.util.jvmbuilder.sun;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+import org.junit.Test;
+
+import ca.cutterslade.util.jvmbuilder.Batch;
+import ca.cutterslade.util.jvmbuilder.BatchPolicy;
+import ca.cutterslade.util.jvmbuilder.BatchResult;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BatchTest {
+
+  public static final class ExitMain {
+    public static void main(String[] args) {
+      System.out.println("partition " + args[0]);
+      System.exit(Integer.parseInt(args[1]));
+    }
+  }
+
+  public static final class ConcurrencyMain {
+    public static void main(String[] args) throws IOException, InterruptedException {
+      final File directory = new File(args[0]);
+      final File marker = new File(directory, UUID.randomUUID().toString());
+      marker.createNewFile();
+      Thread.sleep(300);
+      System.out.println(directory.list().length);
+      marker.delete();
+    }
+  }
+
+  @Test(timeout = 20_000)
+  public void testCollectAll() throws InterruptedException, ExecutionException {
+    final ImmutableList.Builder<String[]> arguments = ImmutableList.builder();
+    for (int i = 0; i < 6; i++) {
+      arguments.add(new String[]{String.valueOf(i), 3 == i ? "2" : "0"});
+    }
+    final Batch batch = new SunJvmFactoryBuilder().setMainClass(ExitMain.class).build()
+        .batch(arguments.build()).setParallelism(2).start();
+    final Set<Integer> taken = new HashSet<>();
+    for (int i = 0; i < batch.size(); i++) {
+      taken.add(batch.take().getIndex());
+    }
+    assertEquals(6, taken.size());
+    final List<BatchResult> results = batch.getResults().get();
+    for (int i = 0; i < 6; i++) {
+      final BatchResult result = results.get(i);
+      assertEquals(i, result.getIndex());
+      assertEquals("partition " + i, result.getStdOut().trim());
+      assertEquals(3 != i, result.isSuccess());
+      assertTrue(result.getTimings().isPresent());
+    }
+    assertEquals(2, (int) results.get(3).getExitValue().get());
+  }
+
+  @Test(timeout = 20_000)
+  public void testFailFast() throws InterruptedException, ExecutionException {
+    final Batch batch = new SunJvmFactoryBuilder().setMainClass(ExitMain.class).build()
+        .batch(ImmutableList.of(new String[]{"0", "0"}, new String[]{"1", "1"}, new String[]{"2", "0"},
+            new String[]{"3", "0"}))
+        .setParallelism(1).setPolicy(BatchPolicy.FAIL_FAST).start();
+    final List<BatchResult> results = batch.getResults().get();
+    assertTrue(results.get(0).isSuccess());
+    assertFalse(results.get(1).isSuccess());
+    assertFalse(results.get(1).isCancelled());
+    assertTrue(results.get(2).isCancelled());
+    assertTrue(results.get(3).isCancelled());
+  }
+
+  @Test(timeout = 20_000)
+  public void testSynchronousLaunchFailures() throws InterruptedException, ExecutionException {
+    final ImmutableList.Builder<String[]> arguments = ImmutableList.builder();
+    for (int i = 0; i < 5_000; i++) {
+      arguments.add(new String[]{String.valueOf(i), "0"});
+    }
+    final File missing = new File(Files.createTempDir(), "missing");
+    // launches which fail on the calling thread complete before startAsync returns
+    final Batch batch = new SunJvmFactoryBuilder().setMainClass(ExitMain.class).setJavaHome(missing.toPath())
+        .setAsyncExecutor(new Executor() {
+          @Override
+          public void execute(final Runnable command) {
+            command.run();
+          }
+        }).build().batch(arguments.build()).start();
+    final List<BatchResult> results = batch.getResults().get();
+    assertEquals(5_000, results.size());
+    for (final BatchResult result : results) {
+      assertFalse(result.isSuccess());
+    }
+    missing.getParentFile().delete();
+  }
+
+  @Test(timeout = 20_000)
+  public void testParallelismLimit() throws InterruptedException, ExecutionException {
+    final File directory = Files.createTempDir();
+    try {
+      final ImmutableList.Builder<String[]> arguments = ImmutableList.builder();
+      for (int i = 0; i < 6; i++) {
+        arguments.add(new String[]{directory.getPath()});
+      }
+      final Batch batch = new SunJvmFactoryBuilder().setMainClass(ConcurrencyMain.class).build()
+          .batch(arguments.build()).setParallelism(2).start();
+      for (final BatchResult result : batch.getResults().get()) {
+        assertTrue(result.toString(), result.isSuccess());
+        assertTrue(result.getStdOut(), 2 >= Integer.parseInt(result.getStdOut().trim()));
+      }
+    }
+    finally {
+      directory.delete();
+    }
+  }
+}
@@ -0,0 +1,93 @@
+package ca.cutterslade.util.jvmbuilder.sun;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import ca.cutterslade.util.jvmbuilder.GarbageCollector;
+import ca.cutterslade.util.jvmbuilder.GcEvent;
+import ca.cutterslade.util.jvmbuilder.GcEventListener;
+import ca.cutterslade.util.jvmbuilder.GcLog;
+import ca.cutterslade.util.jvmbuilder.GcPauseStatistics;
+import ca.cutterslade.util.jvmbuilder.JvmProcess;
+import ca.cutterslade.util.jvmbuilder.common.JavaRelease;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class GcLogTest {
+
+  public static final class CollectingMain {
+    public static volatile Object retained;
+
+    public static void main(final String[] args) {
+      for (int i = 0; i < 3; i++) {
+        final byte[][] garbage = new byte[100][];
+        for (int j = 0; j < garbage.length; j++) {
+          garbage[j] = new byte[100_000];
+        }
+        retained = garbage;
+        System.gc();
+      }
+    }
+  }
+
+  private static final class CollectingListener implements GcEventListener {
+    private final List<GcEvent> events = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void event(final GcEvent event) {
+      events.add(event);
+    }
+  }
+
+  @Test(timeout = 20_000)
+  public void testSystemGcPauses() throws Exception {
+    final JvmProcess process = new SunJvmFactoryBuilder().setMainClass(CollectingMain.class)
+        .garbageCollector(GarbageCollector.SERIAL).build()
+        .enableGcLogCapture().build().startAsync().get(10, TimeUnit.SECONDS);
+    assertEquals(Integer.valueOf(0), process.getExitValue().get(10, TimeUnit.SECONDS));
+    final GcLog gcLog = process.getGcLog().get();
+    final CollectingListener listener = new CollectingListener();
+    gcLog.addListener(listener);
+    int full = 0;
+    for (final GcEvent event : listener.events) {
+      assertTrue(event.toString(), event.hasHeapSizes());
+      assertTrue(event.toString(), event.getHeapAfter() <= event.getHeapCapacity());
+      if ("Pause Full".equals(event.getType())) {
+        assertEquals("System.gc()", event.getCause().get());
+        full++;
+      }
+    }
+    assertEquals(3, full);
+    final GcPauseStatistics statistics = gcLog.getStatistics();
+    assertEquals(listener.events.size(), statistics.getTotalCount());
+    assertTrue(statistics.getMedianMicros() <= statistics.getP99Micros());
+    assertTrue(statistics.getP99Micros() <= statistics.getMaxMicros());
+    assertTrue(0 < statistics.getMaxMicros());
+  }
+
+  @Test(timeout = 20_000)
+  public void testConcurrentCollectorPauses() throws Exception {
+    final JavaRelease release = JavaRelease.current();
+    assumeTrue(GarbageCollector.Z.isAvailable(release.getFeatureVersion(), release.getImplementor()));
+    final JvmProcess process = new SunJvmFactoryBuilder().setMainClass(CollectingMain.class)
+        .garbageCollector(GarbageCollector.Z).build()
+        .enableGcLogCapture().build().startAsync().get(10, TimeUnit.SECONDS);
+    assertEquals(Integer.valueOf(0), process.getExitValue().get(10, TimeUnit.SECONDS));
+    final CollectingListener listener = new CollectingListener();
+    process.getGcLog().get().addListener(listener);
+    assertFalse(listener.events.isEmpty());
+    for (final GcEvent event : listener.events) {
+      assertTrue(event.toString(), event.getType().startsWith("Pause "));
+      assertTrue(event.toString(), 0 <= event.getDurationMicros());
+      // ZGC logs its pauses without heap sizes or a cause
+      assertFalse(event.toString(), event.hasHeapSizes());
+      assertFalse(event.toString(), event.getCause().isPresent());
+    }
+  }
+}
@@ -0,0 +1,121 @@
+package ca.cutterslade.util.jvmbuilder.sun;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import ca.cutterslade.util.jvmbuilder.ReaderThread;
+import ca.cutterslade.util.jvmbuilder.common.JavaRelease;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class SharedArchiveTest {
+
+  public static final class PrintArgumentsMain {
+    public static void main(final String[] args) {
+      System.out.println(ManagementFactory.getRuntimeMXBean().getInputArguments());
+    }
+  }
+
+  private Path directory;
+  private Path jar;
+
+  @Before
+  public void setUp() throws IOException {
+    assumeTrue(JavaRelease.current().isAtLeast(13));
+    directory = Files.createTempDirectory("shared-archive-test");
+    jar = directory.resolve("main.jar");
+    final String name = PrintArgumentsMain.class.getName().replace('.', '/') + ".class";
+    try (JarOutputStream output = new JarOutputStream(Files.newOutputStream(jar));
+         InputStream input = PrintArgumentsMain.class.getClassLoader().getResourceAsStream(name)) {
+      output.putNextEntry(new JarEntry(name));
+      ByteStreams.copy(input, output);
+    }
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    if (null != directory) {
+      for (final File file : directory.toFile().listFiles()) {
+        file.delete();
+      }
+      Files.delete(directory);
+    }
+  }
+
+  @Test(timeout = 30_000)
+  public void testArchiveCreatedAndUsed() throws IOException, InterruptedException {
+    final SunJvmFactory factory = getFactory();
+    final String training = getStdOut(factory);
+    assertTrue(training, training.contains("-XX:ArchiveClassesAtExit="));
+    awaitArchive(null);
+    final String archived = getStdOut(factory);
+    assertTrue(archived, archived.contains("-XX:SharedArchiveFile="));
+    assertEquals(archived, getStdOut(getFactory()));
+  }
+
+  @Test(timeout = 30_000)
+  public void testArchiveReplacedWhenClassPathChanges() throws IOException, InterruptedException {
+    final SunJvmFactory factory = getFactory();
+    getStdOut(factory);
+    final Path original = awaitArchive(null);
+    Files.setLastModifiedTime(jar, FileTime.fromMillis(Files.getLastModifiedTime(jar).toMillis() - 60_000));
+    Thread.sleep(1_100);
+    final String retraining = getStdOut(factory);
+    assertFalse(retraining, retraining.contains("-XX:SharedArchiveFile="));
+    assertTrue(retraining, retraining.contains("-XX:ArchiveClassesAtExit="));
+    final Path replacement = awaitArchive(original);
+    final String archived = getStdOut(factory);
+    assertTrue(archived, archived.contains("-XX:SharedArchiveFile=" + replacement));
+    assertFalse(Files.exists(original));
+  }
+
+  private SunJvmFactory getFactory() {
+    return new SunJvmFactoryBuilder().setMainClass(PrintArgumentsMain.class)
+        .setClassPath(ImmutableList.of(jar.toString())).setSharedArchiveDirectory(directory).build();
+  }
+
+  private Path awaitArchive(final Path previous) throws IOException, InterruptedException {
+    while (true) {
+      try (DirectoryStream<Path> archives = Files.newDirectoryStream(directory, "*-*.jsa")) {
+        for (final Path archive : archives) {
+          // Recordings in progress have an extra component in their name
+          if (!archive.equals(previous) && 3 == archive.getFileName().toString().split("[-.]").length) {
+            return archive;
+          }
+        }
+      }
+      Thread.sleep(20);
+    }
+  }
+
+  private static String getStdOut(final SunJvmFactory factory) throws IOException, InterruptedException {
+    final Process process = factory.start();
+    final ReaderThread stdOut = new ReaderThread(process.getInputStream());
+    stdOut.start();
+    final ReaderThread stdErr = new ReaderThread(process.getErrorStream());
+    stdErr.start();
+    assertEquals(0, process.waitFor());
+    stdOut.join();
+    stdErr.join();
+    assertEquals("", stdErr.getResult());
+    return stdOut.getResult().trim();
+  }
+}
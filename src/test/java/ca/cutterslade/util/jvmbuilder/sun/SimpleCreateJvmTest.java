@@ -2,17 +2,30 @@ package ca.cutterslade.util.jvmbuilder.sun;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
 import java.lang.management.ManagementFactory;
+import java.net.URISyntaxException;
+import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 import org.junit.Ignore;
 import org.junit.Test;
 
+import ca.cutterslade.util.jvmbuilder.GarbageCollector;
+import ca.cutterslade.util.jvmbuilder.GcSettings;
+import ca.cutterslade.util.jvmbuilder.JvmArchitecture;
+import ca.cutterslade.util.jvmbuilder.LaunchProfile;
 import ca.cutterslade.util.jvmbuilder.ReaderThread;
+import ca.cutterslade.util.jvmbuilder.SizeArgument;
 import ca.cutterslade.util.jvmbuilder.SizeUnit;
+import ca.cutterslade.util.jvmbuilder.common.HostResources;
+import ca.cutterslade.util.jvmbuilder.common.JavaRelease;
+import ca.cutterslade.util.jvmbuilder.jdk.JdkRegistry;
 
 import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.io.Files;
 
@@ -20,8 +33,11 @@ import static org.hamcrest.CoreMatchers.anyOf;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
 
 public class SimpleCreateJvmTest {
 
@@ -40,6 +56,25 @@ public class SimpleCreateJvmTest {
     }
   }
 
+  public static final class GarbageCollectorMain {
+    public static void main(final String[] args) {
+      for (final GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+        System.out.print(bean.getName() + ' ');
+      }
+      System.out.println(Joiner.on(' ').join(ManagementFactory.getRuntimeMXBean().getInputArguments()));
+    }
+  }
+
+  public static final class InheritedOptionsMain {
+    public static void main(final String[] args) {
+      final SunJvmFactoryBuilder builder = new SunJvmFactoryBuilder().setMainClass(PrintArgumentMain.class);
+      if (0 < args.length) {
+        builder.garbageCollector(GarbageCollector.valueOf(args[0])).build();
+      }
+      System.out.println(Joiner.on(' ').join(builder.build().getLaunchOptions()));
+    }
+  }
+
   public static final class PrintArgumentMain {
     public static void main(String[] args) {
       System.out.println(Joiner.on(' ').join(args));
@@ -64,6 +99,18 @@ public class SimpleCreateJvmTest {
     }
   }
 
+  public static final class JavaHomeMain {
+    public static void main(String[] args) {
+      System.out.println(System.getProperty("java.home"));
+    }
+  }
+
+  public static final class JavaVersionMain {
+    public static void main(String[] args) {
+      System.out.println(System.getProperty("java.version"));
+    }
+  }
+
   public static final class WorkingDirectoryMain {
     public static void main(String[] args) throws IOException {
       System.out.println(new File(".").getCanonicalPath());
@@ -92,6 +139,107 @@ public class SimpleCreateJvmTest {
         equalTo("238616576")));
   }
 
+  @Test
+  public void testMaxHeapBeyondIntRange() {
+    final SizeArgument argument = getBuilder(MaxHeapMain.class).setMaxHeapSpace(4, SizeUnit.GIGABYTES)
+        .getMaxHeapArgument();
+    assertEquals("-Xmx4g", argument.getArgument());
+    assertEquals(4L << 30, argument.getBytes());
+  }
+
+  @Test(timeout = 10_000)
+  public void testMaxHeapPercentage() throws IOException, InterruptedException {
+    final long memory = HostResources.getMemory();
+    assumeTrue(0 < memory);
+    final long maxHeap = Long.parseLong(getStdOut(getBuilder(MaxHeapMain.class).setMaxHeapPercentage(10)));
+    // the reported maximum excludes a survivor space, and the heap is aligned to regions
+    assertTrue(maxHeap > memory / 10 * 0.8);
+    assertTrue(maxHeap < memory / 10 * 1.1);
+  }
+
+  @Test
+  public void testMaxHeapShare() {
+    final long memory = HostResources.getMemory();
+    assumeTrue(0 < memory);
+    final SizeArgument argument = getBuilder(MaxHeapMain.class).setMaxHeapShare(0.5, 4).getMaxHeapArgument();
+    assertEquals(SizeUnit.MEGABYTES, argument.getUnit());
+    assertEquals(SizeUnit.MEGABYTES.fromBytes(memory / 8), argument.getSize());
+  }
+
+  @Test(timeout = 10_000)
+  public void testG1PauseTarget() throws IOException, InterruptedException {
+    final String stdOut = getStdOut(getBuilder(GarbageCollectorMain.class).garbageCollector(GarbageCollector.G1)
+        .setPauseTarget(50, TimeUnit.MILLISECONDS).build());
+    assertTrue(stdOut, stdOut.contains("G1 Young Generation"));
+    assertTrue(stdOut, stdOut.contains("-XX:MaxGCPauseMillis=50"));
+  }
+
+  @Test(timeout = 10_000)
+  public void testSerialCollector() throws IOException, InterruptedException {
+    final String stdOut = getStdOut(getBuilder(GarbageCollectorMain.class)
+        .setGarbageCollector(new GcSettings(GarbageCollector.SERIAL, 0, 0, 0, 0, 0)));
+    assertTrue(stdOut, stdOut.startsWith("Copy "));
+  }
+
+  @Test(timeout = 10_000)
+  public void testEpsilonCollector() throws IOException, InterruptedException {
+    assumeTrue(GarbageCollector.EPSILON.isAvailable(JavaRelease.current().getFeatureVersion(), null));
+    final String stdOut = getStdOut(getBuilder(GarbageCollectorMain.class).garbageCollector(GarbageCollector.EPSILON)
+        .build());
+    assertTrue(stdOut, stdOut.contains("-XX:+UnlockExperimentalVMOptions -XX:+UseEpsilonGC"));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testUnavailableCollector() {
+    final int release = JavaRelease.current().getFeatureVersion();
+    assumeTrue(!GarbageCollector.GENERATIONAL_Z.isAvailable(release, null));
+    getBuilder(GarbageCollectorMain.class).garbageCollector(GarbageCollector.GENERATIONAL_Z).build().build();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMisappliedCollectorOption() {
+    getBuilder(GarbageCollectorMain.class).garbageCollector(GarbageCollector.PARALLEL)
+        .setRegionSize(4, SizeUnit.MEGABYTES).build();
+  }
+
+  @Test(timeout = 10_000)
+  public void testInheritedCollector() throws IOException, InterruptedException {
+    final ImmutableList<String> options =
+        ImmutableList.of("-XX:+UnlockDiagnosticVMOptions", "-XX:+UseSerialGC", "-XX:ParallelGCThreads=2");
+    final String inherited = getStdOut(getBuilder(InheritedOptionsMain.class).setJvmArguments(options));
+    assertTrue(inherited, inherited.contains(Joiner.on(' ').join(options)));
+    final String replaced = getStdOut(getBuilder(InheritedOptionsMain.class).setJvmArguments(options)
+        .setProgramArguments(ImmutableList.of(GarbageCollector.G1.name())));
+    assertTrue(replaced, replaced.contains("-XX:+UnlockDiagnosticVMOptions"));
+    assertTrue(replaced, replaced.contains(GarbageCollector.G1.getArgument()));
+    assertTrue(replaced, !replaced.contains("-XX:+UseSerialGC"));
+    assertTrue(replaced, !replaced.contains("-XX:ParallelGCThreads=2"));
+  }
+
+  @Test(timeout = 10_000)
+  public void testStartupProfile() throws IOException, InterruptedException {
+    final String stdOut = getStdOut(getBuilder(GarbageCollectorMain.class).setLaunchProfile(LaunchProfile.STARTUP));
+    assertTrue(stdOut, stdOut.startsWith("Copy "));
+    assertTrue(stdOut, stdOut.contains("-XX:TieredStopAtLevel=1"));
+  }
+
+  @Test(timeout = 10_000)
+  public void testFootprintProfileKeepsHeapSize() throws IOException, InterruptedException {
+    final String stdOut = getStdOut(getBuilder(GarbageCollectorMain.class).setLaunchProfile(LaunchProfile.FOOTPRINT)
+        .setMaxHeapSpace(32, SizeUnit.MEGABYTES));
+    assertTrue(stdOut, stdOut.contains("-Xss256k"));
+    assertTrue(stdOut, !stdOut.contains("-Xmx64m"));
+  }
+
+  @Test(timeout = 10_000)
+  public void testThroughputProfileKeepsCollector() throws IOException, InterruptedException {
+    final String stdOut = getStdOut(getBuilder(GarbageCollectorMain.class).setLaunchProfile(LaunchProfile.THROUGHPUT)
+        .garbageCollector(GarbageCollector.G1).build());
+    assertTrue(stdOut, stdOut.contains("G1 Young Generation"));
+    assertTrue(stdOut, stdOut.contains("-XX:+AlwaysPreTouch"));
+    assertTrue(stdOut, !stdOut.contains("-XX:+UseParallelGC"));
+  }
+
   @Test(timeout = 10_000)
   public void testArgument() throws IOException, InterruptedException {
     final String stdOut = getStdOut(getBuilder(PrintArgumentMain.class)
@@ -106,6 +254,75 @@ public class SimpleCreateJvmTest {
     assertEquals(TEST_STRING, stdOut);
   }
 
+  @Test(timeout = 10_000)
+  public void testPropertyVariant() throws IOException, InterruptedException {
+    final SunJvmFactory factory =
+        getBuilder(PrintPropertyMain.class).setProperties(ImmutableMap.of(TEST_STRING_KEY, TEST_STRING)).build();
+    final SunJvmFactory variant = factory.with().setProperty(TEST_STRING_KEY, "variant").build();
+    assertEquals("variant", getStdOut(variant));
+    assertEquals(TEST_STRING, getStdOut(factory));
+    assertEquals("null", getStdOut(variant.with().removeProperty(TEST_STRING_KEY).build()));
+  }
+
+  @Test(timeout = 10_000)
+  public void testVariantSharesOptions() throws IOException, InterruptedException {
+    final SunJvmFactory factory = getBuilder(PrintArgumentMain.class).build();
+    final SunJvmFactory variant = factory.with().setProgramArguments("hello", "variant").build();
+    assertSame(factory.getLaunchOptions(), variant.getLaunchOptions());
+    assertEquals("hello variant", getStdOut(variant));
+    final SunJvmFactory mainVariant = factory.with().setMainClass(TestMain.class.getName()).build();
+    assertEquals(TEST_STRING, getStdOut(mainVariant));
+  }
+
+  @Test(timeout = 10_000)
+  public void testArgumentFile() throws IOException, InterruptedException {
+    final String value = "# \"quoted\" 'single' C:\\path\twith tab";
+    final File directory = Files.createTempDir();
+    try {
+      for (int i = 0; i < 2; i++) {
+        final String stdOut = getStdOut(getBuilder(PrintPropertyMain.class)
+            .setProperties(ImmutableMap.of(TEST_STRING_KEY, value))
+            .setArgumentFileDirectory(directory.toPath()));
+        assertEquals(value, stdOut);
+      }
+      final File[] files = directory.listFiles();
+      assertEquals(1, files.length);
+      assertTrue(files[0].getName().endsWith(".args"));
+    }
+    finally {
+      for (final File file : directory.listFiles()) {
+        file.delete();
+      }
+      directory.delete();
+    }
+  }
+
+  @Test(timeout = 10_000)
+  public void testPathingJar() throws IOException, InterruptedException, URISyntaxException {
+    final File directory = Files.createTempDir();
+    try {
+      for (int i = 0; i < 2; i++) {
+        final SunJvmFactoryBuilder builder = getBuilder(TestMain.class);
+        builder.cleanClassPath()
+            .addEntry(TestMain.class.getProtectionDomain().getCodeSource().getLocation())
+            .addEntry(new File(directory, "missing dir/*").getPath())
+            .usePathingJar(directory.toPath())
+            .build();
+        assertEquals(1, builder.getClassPath().size());
+        assertEquals(TEST_STRING, getStdOut(builder));
+      }
+      final File[] files = directory.listFiles();
+      assertEquals(1, files.length);
+      assertTrue(files[0].getName().endsWith(".jar"));
+    }
+    finally {
+      for (final File file : directory.listFiles()) {
+        file.delete();
+      }
+      directory.delete();
+    }
+  }
+
   @Test(timeout = 10_000)
   public void testEnvironment() throws IOException, InterruptedException {
     final String stdOut = getStdOut(getBuilder(PrintEnvironmentMain.class)
@@ -113,6 +330,20 @@ public class SimpleCreateJvmTest {
     assertEquals(TEST_STRING, stdOut);
   }
 
+  @Test(timeout = 10_000)
+  public void testEnvironmentVariant() throws IOException, InterruptedException {
+    final SunJvmFactory factory = getBuilder(PrintEnvironmentMain.class).build();
+    assertEquals(TEST_STRING, getStdOut(factory.with().setEnvironmentVariable(TEST_STRING_KEY, TEST_STRING).build()));
+    assertEquals("null", getStdOut(factory));
+  }
+
+  @Test(timeout = 10_000)
+  public void testInheritedEnvironment() throws IOException, InterruptedException {
+    final String stdOut = getStdOut(getBuilder(PrintEnvironmentMain.class)
+        .inheritEnvironment().set(TEST_STRING_KEY, TEST_STRING).build());
+    assertEquals(TEST_STRING, stdOut);
+  }
+
   @Test(timeout = 10_000)
   public void testAssertionsDisabled() throws IOException, InterruptedException {
     final String stdOut = getStdOut(getBuilder(AssertFalseMain.class).disableAssertions().build());
@@ -153,20 +384,50 @@ public class SimpleCreateJvmTest {
 
   @Test(timeout = 10_000)
   public void testRequire32Bit() throws IOException, InterruptedException {
-    final boolean current32Bit = "32".equals(System.getProperty("sun.arch.data.model"));
-    final SunJvmFactoryBuilder builder = getBuilder(TestMain.class).require32Bit();
-    final String stdOut = current32Bit ? getStdOut(builder) : getStdOut(builder, 1,
-        Pattern.compile("(?s)Error: This Java instance does not support a 32-bit JVM\\..*"));
-    assertEquals(current32Bit ? TEST_STRING : "", stdOut);
+    testRequireArchitecture(getBuilder(TestMain.class).require32Bit(), JvmArchitecture.ARCH_32_BIT);
   }
 
   @Test(timeout = 10_000)
   public void testRequire64Bit() throws IOException, InterruptedException {
-    final boolean current64Bit = "64".equals(System.getProperty("sun.arch.data.model"));
-    final SunJvmFactoryBuilder builder = getBuilder(TestMain.class).require64Bit();
-    final String stdOut = current64Bit ? getStdOut(builder) : getStdOut(builder, 1,
-        Pattern.compile("(?s)Error: This Java instance does not support a 64-bit JVM\\..*"));
-    assertEquals(current64Bit ? TEST_STRING : "", stdOut);
+    testRequireArchitecture(getBuilder(TestMain.class).require64Bit(), JvmArchitecture.ARCH_64_BIT);
+  }
+
+  private static void testRequireArchitecture(final SunJvmFactoryBuilder builder, final JvmArchitecture architecture)
+      throws IOException, InterruptedException {
+    if (JdkRegistry.getDefault().find(null, architecture).isPresent()) {
+      assertEquals(TEST_STRING, getStdOut(builder));
+    }
+    else {
+      try {
+        builder.build();
+        fail("No " + architecture + " JDK is installed");
+      }
+      catch (IllegalStateException expected) {
+        // there is no JDK to run
+      }
+    }
+  }
+
+  @Test(timeout = 10_000)
+  public void testRequireVersion() throws IOException, InterruptedException {
+    final int current = JavaRelease.current().getFeatureVersion();
+    final String stdOut = getStdOut(getBuilder(JavaVersionMain.class).requireVersion(current + "+"));
+    assertTrue(stdOut, new JavaRelease(stdOut, null, null).getFeatureVersion() >= current);
+  }
+
+  @Test(timeout = 10_000)
+  public void testRequirementMetByCurrentJvm() throws IOException, InterruptedException {
+    final int current = JavaRelease.current().getFeatureVersion();
+    final SunJvmFactoryBuilder builder = getBuilder(JavaHomeMain.class).requireVersion(current + "+");
+    assertEquals(System.getProperty("java.home"), getStdOut(builder));
+    assertNull(builder.getJavaHome());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testRequireVersionOfJavaHome() {
+    final int current = JavaRelease.current().getFeatureVersion();
+    getBuilder(TestMain.class).setJavaHome(Paths.get(System.getProperty("java.home")))
+        .requireVersion(String.valueOf(current + 1) + '+').build();
   }
 
   private static SunJvmFactoryBuilder getBuilder(final Class<?> mainClass) {
@@ -177,9 +438,17 @@ public class SimpleCreateJvmTest {
     return getStdOut(builder, 0, null);
   }
 
+  private static String getStdOut(final SunJvmFactory factory) throws IOException, InterruptedException {
+    return getStdOut(factory.start(), 0, null);
+  }
+
   private static String getStdOut(final SunJvmFactoryBuilder builder, final int exitValue, final Pattern stdErrPattern)
       throws IOException, InterruptedException {
-    final Process process = builder.start();
+    return getStdOut(builder.start(), exitValue, stdErrPattern);
+  }
+
+  private static String getStdOut(final Process process, final int exitValue, final Pattern stdErrPattern)
+      throws IOException, InterruptedException {
     final ReaderThread stdOut = new ReaderThread(process.getInputStream());
     stdOut.start();
     final ReaderThread stdErr = new ReaderThread(process.getErrorStream());
@@ -0,0 +1,187 @@
+package ca.cutterslade.util.jvmbuilder.sun;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import ca.cutterslade.util.jvmbuilder.BufferSink;
+import ca.cutterslade.util.jvmbuilder.JvmProcess;
+import ca.cutterslade.util.jvmbuilder.LaunchTimings;
+import ca.cutterslade.util.jvmbuilder.LineListener;
+import ca.cutterslade.util.jvmbuilder.StartupBreakdown;
+import ca.cutterslade.util.jvmbuilder.StartupPhase;
+import ca.cutterslade.util.jvmbuilder.StartupStatistics;
+import ca.cutterslade.util.jvmbuilder.common.OutputSinks;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class StartAsyncTest {
+
+  public static final class OutputMain {
+    public static void main(String[] args) {
+      System.out.println(args[0]);
+      System.err.println(args[1]);
+      System.exit(3);
+    }
+  }
+
+  public static final class LinesMain {
+    public static void main(String[] args) {
+      System.out.print("first\r\nsecond \u00e9\n\nlast");
+    }
+  }
+
+  public static final class VolumeMain {
+    public static void main(String[] args) {
+      final byte[] line = new byte[1024];
+      Arrays.fill(line, (byte) 'x');
+      for (int i = 0; i < Integer.parseInt(args[0]); i++) {
+        System.out.write(line, 0, line.length);
+      }
+      System.out.flush();
+    }
+  }
+
+  private static final class CountingChannel implements WritableByteChannel {
+    private volatile long count;
+
+    @Override
+    public int write(final ByteBuffer source) {
+      final int remaining = source.remaining();
+      source.position(source.limit());
+      count += remaining;
+      return remaining;
+    }
+
+    @Override
+    public boolean isOpen() {
+      return true;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+  @Test(timeout = 10_000)
+  public void testStartAsync() throws InterruptedException, ExecutionException {
+    final BufferSink stdOut = new BufferSink();
+    final BufferSink stdErr = new BufferSink();
+    final JvmProcess process = new SunJvmFactoryBuilder().setMainClass(OutputMain.class).build()
+        .startAsync(stdOut, stdErr, "out", "err").get();
+    assertEquals(3, (int) process.getExitValue().get());
+    assertEquals("out", stdOut.getResult().trim());
+    assertEquals("err", stdErr.getResult().trim());
+    assertTrue(stdOut.isClosed() && stdErr.isClosed());
+    assertTrue(process.getPid().isPresent());
+    final LaunchTimings timings = process.getTimings();
+    assertTrue(timings.toString(), timings.getTimeToFirstOutput(TimeUnit.NANOSECONDS).isPresent());
+    assertTrue(timings.toString(), timings.getRunTime(TimeUnit.NANOSECONDS).isPresent());
+  }
+
+  @Test(timeout = 10_000)
+  public void testConfiguredExecutor() throws InterruptedException, ExecutionException {
+    final BufferSink stdOut = new BufferSink();
+    final ListenableFuture<JvmProcess> future = new SunJvmFactoryBuilder().setMainClass(OutputMain.class)
+        .setAsyncExecutor(MoreExecutors.sameThreadExecutor()).build()
+        .startAsync(stdOut, new BufferSink(), "out", "err");
+    // Every task ran on the calling thread, including waiting for the exit
+    assertTrue(future.isDone());
+    assertTrue(future.get().getExitValue().isDone());
+    assertEquals("out", stdOut.getResult().trim());
+  }
+
+  @Test(timeout = 10_000)
+  public void testRedirect() throws InterruptedException, ExecutionException, IOException {
+    final File file = File.createTempFile("stdout", ".txt");
+    try {
+      final JvmProcess process = new SunJvmFactoryBuilder().setMainClass(OutputMain.class).build()
+          .startAsync(OutputSinks.toFile(file.toPath()), OutputSinks.discard(), "out", "err").get();
+      assertEquals(3, (int) process.getExitValue().get());
+      assertEquals("out", Files.toString(file, StandardCharsets.UTF_8).trim());
+      // The child wrote straight to the file, nothing passed through this JVM
+      assertEquals(-1, process.getProcess().getInputStream().read());
+    }
+    finally {
+      file.delete();
+    }
+  }
+
+  @Test(timeout = 10_000)
+  public void testLines() throws InterruptedException, ExecutionException {
+    final List<String> lines = Collections.synchronizedList(new ArrayList<String>());
+    final JvmProcess process = new SunJvmFactoryBuilder().setMainClass(LinesMain.class)
+        .setProperties(ImmutableMap.of("file.encoding", "UTF-8", "stdout.encoding", "UTF-8")).build()
+        .startAsync(OutputSinks.lines(StandardCharsets.UTF_8, new LineListener() {
+          @Override
+          public void line(final CharSequence line) {
+            lines.add(line.toString());
+          }
+        }), null).get();
+    assertEquals(0, (int) process.getExitValue().get());
+    assertEquals(Arrays.asList("first", "second \u00e9", "", "last"), lines);
+  }
+
+  @Test(timeout = 20_000)
+  public void testChannel() throws InterruptedException, ExecutionException {
+    final CountingChannel channel = new CountingChannel();
+    final JvmProcess process = new SunJvmFactoryBuilder().setMainClass(VolumeMain.class).build()
+        .startAsync(OutputSinks.toChannel(channel), null, "16384").get();
+    assertEquals(0, (int) process.getExitValue().get());
+    assertEquals(16384L * 1024, channel.count);
+    assertTrue(channel.isOpen());
+  }
+
+  @Test(timeout = 10_000)
+  public void testStartupInstrumentation() throws InterruptedException, ExecutionException {
+    final BufferSink stdOut = new BufferSink();
+    final JvmProcess process = new SunJvmFactoryBuilder().setMainClass(OutputMain.class)
+        .enableStartupInstrumentation().build()
+        .startAsync(stdOut, new BufferSink(), "out", "err").get();
+    assertEquals(3, (int) process.getExitValue().get());
+    // The agent must not change what the program writes
+    assertEquals("out", stdOut.getResult().trim());
+    final StartupBreakdown breakdown = process.getStartupBreakdown().get();
+    for (final StartupPhase phase : StartupPhase.values()) {
+      if (StartupPhase.EXEC_TO_VM_START != phase) {
+        final long duration = breakdown.getDuration(phase, TimeUnit.MICROSECONDS).get();
+        assertTrue(phase + " " + breakdown, 0 <= duration);
+      }
+    }
+    assertTrue(breakdown.toString(), 0 < breakdown.getLoadedClasses());
+    final StartupStatistics statistics = new StartupStatistics();
+    statistics.add(breakdown);
+    assertEquals(1, statistics.getCount(StartupPhase.AGENT_TO_MAIN));
+  }
+
+  @Test(timeout = 10_000)
+  public void testStartFailure() throws InterruptedException {
+    final ListenableFuture<JvmProcess> future = new SunJvmFactoryBuilder().setMainClass(OutputMain.class)
+        .setJavaHome(Paths.get("does", "not", "exist")).build().startAsync();
+    try {
+      future.get();
+      fail("Started a JVM from a missing java home");
+    }
+    catch (ExecutionException e) {
+      assertTrue(String.valueOf(e.getCause()), e.getCause() instanceof IOException);
+    }
+  }
+}
@@ -0,0 +1,111 @@
+package ca.cutterslade.util.jvmbuilder.supervise;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import ca.cutterslade.util.jvmbuilder.JvmProcess;
+import ca.cutterslade.util.jvmbuilder.sun.SunJvmFactory;
+import ca.cutterslade.util.jvmbuilder.sun.SunJvmFactoryBuilder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+public class JvmSupervisorTest {
+
+  public static final class WorkerMain {
+    public static void main(String[] args) throws InterruptedException {
+      System.out.println("ready");
+      switch (args[0]) {
+        case "crash":
+          Thread.sleep(Long.parseLong(args[1]));
+          System.exit(1);
+          break;
+        case "hang":
+          Thread.sleep(60_000);
+          break;
+        default:
+          while (true) {
+            System.out.println("beat");
+            Thread.sleep(50);
+          }
+      }
+    }
+  }
+
+  @Test(timeout = 20_000)
+  public void testCrashedChildIsRestarted() throws InterruptedException {
+    try (JvmSupervisor supervisor = getBuilder().addChild("worker", getFactory(), "crash", "300").build()) {
+      while (2 > supervisor.getStats().getRecoveries()) {
+        Thread.sleep(10);
+      }
+      assertTrue(supervisor.getChild("worker").getRestarts() >= 2);
+      assertTrue(supervisor.getStats().getFailures() >= 2);
+      assertTrue(supervisor.getStats().getMaxRestartLatency(TimeUnit.NANOSECONDS) > 0);
+    }
+  }
+
+  @Test(timeout = 20_000)
+  public void testCrashLoopIsGivenUp() throws InterruptedException {
+    try (JvmSupervisor supervisor = getBuilder().setMaxRestarts(2, 1, TimeUnit.MINUTES)
+        .addChild("worker", getFactory(), "crash", "0").build()) {
+      final SupervisedJvm child = supervisor.getChild("worker");
+      while (SupervisedJvm.State.FAILED != child.getState()) {
+        Thread.sleep(10);
+      }
+      assertEquals(2, child.getRestarts());
+      assertEquals(3, supervisor.getStats().getFailures());
+      assertEquals(1, supervisor.getStats().getCrashLoops());
+      assertTrue(!child.getProcess().isPresent());
+    }
+  }
+
+  @Test(timeout = 20_000)
+  public void testMissedHeartbeatReplacesChild() throws Exception {
+    try (JvmSupervisor supervisor = getBuilder().setHeartbeat(Pattern.compile("beat"), 500, TimeUnit.MILLISECONDS)
+        .addChild("worker", getFactory(), "hang").build()) {
+      final JvmProcess hung = awaitProcess(supervisor.getChild("worker"));
+      while (1 > supervisor.getStats().getRecoveries()) {
+        Thread.sleep(10);
+      }
+      assertTrue(supervisor.getStats().getHeartbeatTimeouts() >= 1);
+      assertNotSame(hung, supervisor.getChild("worker").getProcess().get());
+      // the hung JVM is only retired once its replacement is ready
+      hung.getExitValue().get(10, TimeUnit.SECONDS);
+    }
+  }
+
+  @Test(timeout = 20_000)
+  public void testAllForOneRestartsSiblings() throws Exception {
+    try (JvmSupervisor supervisor = getBuilder().setStrategy(RestartStrategy.ALL_FOR_ONE)
+        .addChild("crashing", getFactory(), "crash", "500")
+        .addChild("healthy", getFactory(), "beat").build()) {
+      final SupervisedJvm healthy = supervisor.getChild("healthy");
+      final JvmProcess first = awaitProcess(healthy);
+      while (1 > healthy.getRestarts() || SupervisedJvm.State.RUNNING != healthy.getState()) {
+        Thread.sleep(10);
+      }
+      assertNotSame(first, healthy.getProcess().get());
+      first.getExitValue().get(10, TimeUnit.SECONDS);
+    }
+  }
+
+  private static JvmSupervisorBuilder getBuilder() {
+    return new JvmSupervisorBuilder().setBackoff(10, 100, TimeUnit.MILLISECONDS)
+        .setReadiness(Pattern.compile("^ready$"), 10, TimeUnit.SECONDS)
+        .setCheckInterval(50, TimeUnit.MILLISECONDS);
+  }
+
+  private static SunJvmFactory getFactory() {
+    return new SunJvmFactoryBuilder().setMainClass(WorkerMain.class).build();
+  }
+
+  private static JvmProcess awaitProcess(final SupervisedJvm child) throws InterruptedException {
+    while (!child.getProcess().isPresent()) {
+      Thread.sleep(10);
+    }
+    return child.getProcess().get();
+  }
+}